@@ -5,6 +5,7 @@ import android.os.Bundle;
 
 import androidx.annotation.NonNull;
 
+import com.tyron.code.language.textmate.BaseIncrementalAnalyzeManager;
 import com.tyron.code.language.textmate.CodeBlockUtils;
 import com.tyron.editor.Editor;
 
@@ -12,7 +13,6 @@ import java.io.InputStream;
 import java.io.Reader;
 import java.util.List;
 
-import io.github.rosemoe.sora.lang.analysis.AsyncIncrementalAnalyzeManager;
 import io.github.rosemoe.sora.lang.styling.CodeBlock;
 import io.github.rosemoe.sora.lang.styling.Span;
 import io.github.rosemoe.sora.lang.styling.TextStyle;
@@ -37,7 +37,7 @@ import io.github.rosemoe.sora.widget.schemes.EditorColorScheme;
 /**
  * A text mate analyzer which does not use a TextMateLanguage
  */
-public class BaseTextmateAnalyzer extends AsyncIncrementalAnalyzeManager<StackElement, Span> {
+public class BaseTextmateAnalyzer extends BaseIncrementalAnalyzeManager<StackElement, Span> {
 
     /**
      * Maximum for code block count
@@ -80,7 +80,7 @@ public class BaseTextmateAnalyzer extends AsyncIncrementalAnalyzeManager<StackEl
         }
         try {
             FoldingRegions foldingRegions =
-                    IndentRange.computeRanges(model, editor.getTabCount(), folding.getOffSide(),
+                    CodeBlockUtils.computeRanges(model, editor.getTabCount(), folding.getOffSide(),
                                                  folding, MAX_FOLDING_REGIONS_FOR_INDENT_LIMIT,
                                                  delegate);
             for (int i = 0; i < foldingRegions.length() && !delegate.isCancelled(); i++) {
@@ -127,7 +127,7 @@ public class BaseTextmateAnalyzer extends AsyncIncrementalAnalyzeManager<StackEl
     }
 
     @Override
-    public synchronized LineTokenizeResult<StackElement, Span> tokenizeLine(CharSequence lineC, StackElement state) {
+    public synchronized Result<StackElement, Span> tokenizeLine(CharSequence lineC, StackElement state) {
         String line = lineC.toString();
         ArrayList<Span> tokens = new ArrayList<>();
         ITokenizeLineResult2 lineTokens = grammar.tokenizeLine2(line, state);
@@ -153,7 +153,7 @@ public class BaseTextmateAnalyzer extends AsyncIncrementalAnalyzeManager<StackEl
 
             tokens.add(span);
         }
-        return new LineTokenizeResult<>(lineTokens.getRuleStack(), null, tokens);
+        return new Result<>(lineTokens.getRuleStack(), null, tokens);
     }
 
     @Override
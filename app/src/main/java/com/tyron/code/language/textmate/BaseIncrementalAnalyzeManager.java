@@ -29,8 +29,31 @@ import io.github.rosemoe.sora.text.ContentReference;
 import io.github.rosemoe.sora.util.IntPair;
 import io.github.rosemoe.sora.widget.schemes.EditorColorScheme;
 
+/**
+ * An incremental analyzer that tokenizes on a dedicated looper thread.
+ * <p>
+ * The lines visible in the editor (see {@link #setVisibleRange(int, int)}) are styled and
+ * published first, the rest of the document is then tokenized in chunks at a lower priority so
+ * that edits and scrolling are never queued behind a full-document pass.
+ */
 public abstract class BaseIncrementalAnalyzeManager<S, T> implements IncrementalAnalyzeManager<S, T> {
 
+    /**
+     * Number of lines above and below the viewport that are styled together with it
+     */
+    private static final int VIEWPORT_MARGIN = 50;
+
+    /**
+     * Number of lines tokenized per background message, edits and scroll updates are
+     * handled in between chunks
+     */
+    private static final int FILL_CHUNK_SIZE = 256;
+
+    /**
+     * Assumed viewport size until the editor reports the real one
+     */
+    private static final int DEFAULT_VISIBLE_LINES = 64;
+
     private StyleReceiver receiver;
     private ContentReference ref;
     private Bundle extraArguments;
@@ -41,6 +64,11 @@ public abstract class BaseIncrementalAnalyzeManager<S, T> implements Incremental
     private final static int MSG_INIT = MSG_BASE + 1;
     private final static int MSG_MOD = MSG_BASE + 2;
     private final static int MSG_EXIT = MSG_BASE + 3;
+    private final static int MSG_FILL = MSG_BASE + 4;
+    private final static int MSG_VIEWPORT = MSG_BASE + 5;
+
+    private volatile int visibleStart = 0;
+    private volatile int visibleEnd = DEFAULT_VISIBLE_LINES;
 
     @Override
     public void setReceiver(StyleReceiver receiver) {
@@ -93,6 +121,24 @@ public abstract class BaseIncrementalAnalyzeManager<S, T> implements Incremental
         sendUpdate(null);
     }
 
+    /**
+     * Notify this analyzer of the lines currently shown by the editor. If the document
+     * has not been fully tokenized yet, these lines are styled ahead of the remaining ones.
+     *
+     * @param firstLine the first visible line, inclusive
+     * @param lastLine the last visible line, inclusive
+     */
+    public void setVisibleRange(int firstLine, int lastLine) {
+        visibleStart = Math.max(0, firstLine);
+        visibleEnd = Math.max(visibleStart, lastLine);
+
+        final LooperThread thread = this.thread;
+        if (thread != null && thread.handler != null) {
+            thread.handler.removeMessages(MSG_VIEWPORT);
+            thread.handler.sendMessageAtFrontOfQueue(Message.obtain(thread.handler, MSG_VIEWPORT));
+        }
+    }
+
     public abstract Result<S, T> tokenizeLine(CharSequence line, S state);
 
     @Override
@@ -200,21 +246,101 @@ public abstract class BaseIncrementalAnalyzeManager<S, T> implements Incremental
                 sendUpdate(styles);
         }
 
+        /**
+         * The range of lines that were tokenized ahead of the background pass, starting from
+         * the initial state. These spans are replaced once the background pass reaches them.
+         */
+        int speculativeStart = -1;
+        int speculativeEnd = -1;
+
         private void initialize() {
             styles = new Styles(spans = new LockedSpans());
-            S state = getInitialState();
+            if (!tokenizeViewport()) {
+                fill(visibleEnd + VIEWPORT_MARGIN);
+            }
+            if (isFilled()) {
+                styles.blocks = computeBlocks(shadowed, delegate);
+                styles.setSuppressSwitch(delegate.suppressSwitch);
+            } else {
+                scheduleFill();
+            }
+            tryUpdate();
+        }
+
+        /**
+         * @return whether every line of the document has an exact state
+         */
+        private boolean isFilled() {
+            return states.size() >= shadowed.getLineCount();
+        }
+
+        private void scheduleFill() {
+            handler.sendMessage(Message.obtain(handler, MSG_FILL));
+        }
+
+        /**
+         * Continue tokenizing from the last line with a known state up to {@code untilLine},
+         * exclusive.
+         */
+        private void fill(int untilLine) {
+            S state = states.isEmpty() ? getInitialState() : states.get(states.size() - 1).state;
             Spans.Modifier mdf = spans.modify();
-            for (int i = 0;i < shadowed.getLineCount();i++) {
-                ContentLine line = shadowed.getLine(i);
-                Result<S, T> result = tokenizeLine(line, state);
+            int end = Math.min(untilLine, shadowed.getLineCount());
+            for (int i = states.size(); i < end && !abort; i++) {
+                Result<S, T> result = tokenizeLine(shadowed.getLine(i), state);
                 state = result.state;
-                List<Span> spans = result.spans != null ? result. spans :generateSpansForLine(result);
+                mdf.setSpansOnLine(i, result.spans != null ? result.spans : generateSpansForLine(result));
                 states.add(result.clearSpans());
-                mdf.addLineAt(i, spans);
             }
-            styles.blocks = computeBlocks(shadowed, delegate);
-            styles.setSuppressSwitch(delegate.suppressSwitch);
-            tryUpdate();
+        }
+
+        /**
+         * Style the visible lines if the background pass has not reached them yet. Lines
+         * close to the filled region are tokenized exactly, lines far below it are
+         * tokenized starting from the initial state so that the time it takes does not
+         * depend on the position of the viewport in the document.
+         *
+         * @return whether any spans were changed
+         */
+        private boolean tokenizeViewport() {
+            int start = Math.max(states.size(), visibleStart - VIEWPORT_MARGIN);
+            int end = Math.min(shadowed.getLineCount(), visibleEnd + VIEWPORT_MARGIN);
+            if (start >= end) {
+                return false;
+            }
+            if (start - states.size() < FILL_CHUNK_SIZE) {
+                fill(end);
+                return true;
+            }
+            if (start >= speculativeStart && end <= speculativeEnd) {
+                return false;
+            }
+
+            S state = getInitialState();
+            Spans.Modifier mdf = spans.modify();
+            for (int i = start; i < end && !abort; i++) {
+                Result<S, T> result = tokenizeLine(shadowed.getLine(i), state);
+                state = result.state;
+                mdf.setSpansOnLine(i, result.spans != null ? result.spans : generateSpansForLine(result));
+            }
+            speculativeStart = start;
+            speculativeEnd = end;
+            return true;
+        }
+
+        private void deleteSpanLines(Spans.Modifier mdf, int startLine, int endLine) {
+            for (int i = startLine + 1; i <= endLine && startLine + 1 < spans.getLineCount(); i++) {
+                mdf.deleteLineAt(startLine + 1);
+            }
+        }
+
+        private void insertSpanLines(Spans.Modifier mdf, int startLine, int endLine) {
+            if (startLine >= spans.getLineCount()) {
+                return;
+            }
+            for (int i = startLine + 1; i <= endLine; i++) {
+                mdf.addLineAt(i, createDefaultSpans());
+            }
         }
 
         @Override
@@ -241,57 +367,66 @@ public abstract class BaseIncrementalAnalyzeManager<S, T> implements Incremental
                                     TextModification mod = (TextModification) msg.obj;
                                     int startLine = IntPair.getFirst(mod.start);
                                     int endLine = IntPair.getFirst(mod.end);
+                                    // lines that the background pass has not reached yet
+                                    // are tokenized once it gets there
+                                    speculativeStart = speculativeEnd = -1;
                                     if (mod.changedText == null) {
                                         shadowed.delete(IntPair.getFirst(mod.start), IntPair.getSecond(mod.start),
                                                         IntPair.getFirst(mod.end), IntPair.getSecond(mod.end));
-                                        S state = startLine == 0 ? getInitialState() : states.get(startLine - 1).state;
-                                        // Remove states
-                                        if (endLine >= startLine + 1) {
-                                            states.subList(startLine + 1, endLine + 1).clear();
-                                        }
                                         Spans.Modifier mdf = spans.modify();
-                                        for (int i = startLine + 1;i <= endLine;i++) {
-                                            mdf.deleteLineAt(startLine + 1);
-                                        }
-                                        int line = startLine;
-                                        while (line < shadowed.getLineCount()){
-                                            Result<S, T> res = tokenizeLine(shadowed.getLine(line), state);
-                                            mdf.setSpansOnLine(line, res.spans != null ? res.spans : generateSpansForLine(res));
-                                            Result<S, T> old = states.set(line, res.clearSpans());
-                                            if (stateEquals(old.state, res.state)) {
-                                                break;
+                                        if (startLine < states.size()) {
+                                            S state = startLine == 0 ? getInitialState() : states.get(startLine - 1).state;
+                                            // Remove states
+                                            if (endLine >= startLine + 1) {
+                                                states.subList(startLine + 1, Math.min(endLine + 1, states.size())).clear();
                                             }
-                                            state = res.state;
-                                            line ++;
+                                            deleteSpanLines(mdf, startLine, endLine);
+                                            int line = startLine;
+                                            while (line < states.size()) {
+                                                Result<S, T> res = tokenizeLine(shadowed.getLine(line), state);
+                                                mdf.setSpansOnLine(line, res.spans != null ? res.spans : generateSpansForLine(res));
+                                                Result<S, T> old = states.set(line, res.clearSpans());
+                                                if (stateEquals(old.state, res.state)) {
+                                                    break;
+                                                }
+                                                state = res.state;
+                                                line ++;
+                                            }
+                                        } else {
+                                            deleteSpanLines(mdf, startLine, endLine);
                                         }
                                     } else {
                                         shadowed.insert(IntPair.getFirst(mod.start), IntPair.getSecond(mod.start), mod.changedText);
-                                        S state = startLine == 0 ? getInitialState() : states.get(startLine - 1).state;
-                                        int line = startLine;
                                         Spans.Modifier spans = styles.spans.modify();
-                                        // Add Lines
-                                        while (line <= endLine) {
-                                            Result<S, T> res = tokenizeLine(shadowed.getLine(line), state);
-                                            if (line == startLine) {
-                                                spans.setSpansOnLine(line, res.spans != null ? res.spans : generateSpansForLine(res));
-                                                states.set(line, res.clearSpans());
-                                            } else {
-                                                spans.addLineAt(line, res.spans != null ? res.spans : generateSpansForLine(res));
-                                                states.add(line, res.clearSpans());
+                                        if (startLine < states.size()) {
+                                            S state = startLine == 0 ? getInitialState() : states.get(startLine - 1).state;
+                                            int line = startLine;
+                                            // Add Lines
+                                            while (line <= endLine) {
+                                                Result<S, T> res = tokenizeLine(shadowed.getLine(line), state);
+                                                if (line == startLine) {
+                                                    spans.setSpansOnLine(line, res.spans != null ? res.spans : generateSpansForLine(res));
+                                                    states.set(line, res.clearSpans());
+                                                } else {
+                                                    spans.addLineAt(line, res.spans != null ? res.spans : generateSpansForLine(res));
+                                                    states.add(line, res.clearSpans());
+                                                }
+                                                state = res.state;
+                                                line++;
                                             }
-                                            state = res.state;
-                                            line++;
-                                        }
-                                        // line = end.line + 1, check whether the state equals
-                                        while (line < shadowed.getLineCount()) {
-                                            Result<S, T> res = tokenizeLine(shadowed.getLine(line), state);
-                                            if (stateEquals(res.state, states.get(line).state)) {
-                                                break;
-                                            } else {
-                                                spans.setSpansOnLine(line, res.spans != null ? res.spans : generateSpansForLine(res));
-                                                states.set(line, res.clearSpans());
+                                            // line = end.line + 1, check whether the state equals
+                                            while (line < states.size()) {
+                                                Result<S, T> res = tokenizeLine(shadowed.getLine(line), state);
+                                                if (stateEquals(res.state, states.get(line).state)) {
+                                                    break;
+                                                } else {
+                                                    spans.setSpansOnLine(line, res.spans != null ? res.spans : generateSpansForLine(res));
+                                                    states.set(line, res.clearSpans());
+                                                }
+                                                line ++;
                                             }
-                                            line ++;
+                                        } else {
+                                            insertSpanLines(spans, startLine, endLine);
                                         }
                                     }
                                 }
@@ -299,6 +434,32 @@ public abstract class BaseIncrementalAnalyzeManager<S, T> implements Incremental
                                 styles.setSuppressSwitch(delegate.suppressSwitch);
                                 tryUpdate();
                                 break;
+                            case MSG_FILL:
+                                if (!abort && !isFilled()) {
+                                    int filledBefore = states.size();
+                                    fill(filledBefore + FILL_CHUNK_SIZE);
+                                    if (isFilled()) {
+                                        speculativeStart = speculativeEnd = -1;
+                                        styles.blocks = computeBlocks(shadowed, delegate);
+                                        styles.setSuppressSwitch(delegate.suppressSwitch);
+                                        tryUpdate();
+                                    } else {
+                                        if (filledBefore <= visibleEnd + VIEWPORT_MARGIN &&
+                                            states.size() >= visibleStart - VIEWPORT_MARGIN) {
+                                            // the exact spans reached the viewport
+                                            tryUpdate();
+                                        }
+                                        scheduleFill();
+                                    }
+                                }
+                                break;
+                            case MSG_VIEWPORT:
+                                if (!abort && shadowed != null && !isFilled()) {
+                                    if (tokenizeViewport()) {
+                                        tryUpdate();
+                                    }
+                                }
+                                break;
                             case MSG_EXIT:
                                 looper.quit();
                                 break;
@@ -470,9 +631,7 @@ public abstract class BaseIncrementalAnalyzeManager<S, T> implements Incremental
                 lock.lock();
                 try {
                     while (lines.size() <= line) {
-                        ArrayList<Span> list = new ArrayList<>();
-                        list.add(Span.obtain(0, EditorColorScheme.TEXT_NORMAL));
-                        lines.add(new LockedSpans.Line(list));
+                        lines.add(new LockedSpans.Line(createDefaultSpans()));
                     }
                     lines.get(line).spans = spans;
                 } finally {
@@ -509,6 +668,12 @@ public abstract class BaseIncrementalAnalyzeManager<S, T> implements Incremental
 
     }
 
+    private static List<Span> createDefaultSpans() {
+        List<Span> list = new ArrayList<>();
+        list.add(Span.obtain(0, EditorColorScheme.TEXT_NORMAL));
+        return list;
+    }
+
     private static class TextModification {
 
         private final long start;
@@ -38,9 +38,11 @@ import com.tyron.builder.model.DiagnosticWrapper;
 import com.tyron.builder.project.Project;
 import com.tyron.builder.project.api.AndroidModule;
 import com.tyron.builder.project.api.Module;
+import com.tyron.code.ApplicationLoader;
 import com.tyron.code.BuildConfig;
 import com.tyron.code.R;
 import com.tyron.code.util.ApkInstaller;
+import com.tyron.common.SharedPreferenceKeys;
 import com.tyron.completion.progress.ProgressIndicator;
 import com.tyron.completion.progress.ProgressManager;
 
@@ -51,6 +53,10 @@ import java.io.Console;
 import java.io.File;
 import java.io.IOException;
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.tools.Diagnostic;
 
 public class CompilerService extends Service {
 
@@ -105,6 +111,20 @@ public class CompilerService extends Service {
                 external.error(wrapper);
             }
         }
+
+        @Override
+        public void info(List<DiagnosticWrapper> wrappers) {
+            if (external != null) {
+                external.info(wrappers);
+            }
+        }
+
+        @Override
+        public void error(List<DiagnosticWrapper> wrappers) {
+            if (external != null) {
+                external.error(wrappers);
+            }
+        }
     };
 
     private boolean shouldShowNotification = true;
@@ -236,8 +256,9 @@ public class CompilerService extends Service {
             }
         };
 
-        StandardOutputListener standardOutputListener = output -> logger.info(output.toString());
-        StandardOutputListener standardErrorListener = output -> logger.error(output.toString());
+        // the build output is delivered in batches, each of which is added to the log at once
+        StandardOutputListener standardOutputListener = output -> logger.info(toDiagnostics(output, null));
+        StandardOutputListener standardErrorListener = output -> logger.error(toDiagnostics(output, Diagnostic.Kind.ERROR));
 
         LoggingManagerInternal loggingManagerInternal =
                 projectLauncher.getGlobalServices().get(LoggingManagerInternal.class);
@@ -268,12 +289,27 @@ public class CompilerService extends Service {
         stopForeground(true);
     }
 
+    private static List<DiagnosticWrapper> toDiagnostics(CharSequence output, @Nullable Diagnostic.Kind kind) {
+        List<DiagnosticWrapper> diagnostics = new ArrayList<>();
+        for (String line : StringUtils.chomp(output.toString()).split("\\r?\\n", -1)) {
+            DiagnosticWrapper wrapper = ILogger.wrap(line);
+            if (kind != null) {
+                wrapper.setKind(kind);
+            }
+            diagnostics.add(wrapper);
+        }
+        return diagnostics;
+    }
+
     private void buildProject(Project project, BuildType type) {
         boolean success = true;
 
         try {
             ProjectBuilder projectBuilder = new ProjectBuilder(project, logger);
             projectBuilder.setTaskListener(this::updateNotification);
+            if (ApplicationLoader.getDefaultPreferences().getBoolean(SharedPreferenceKeys.BUILD_TRACE, false)) {
+                projectBuilder.setTraceFile(new File(project.getRootFile(), "build/reports/build-trace.json"));
+            }
             projectBuilder.build(type);
         } catch (Throwable e) {
             String message;
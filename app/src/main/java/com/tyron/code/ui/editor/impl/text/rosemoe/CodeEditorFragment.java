@@ -49,6 +49,7 @@ import com.tyron.code.ui.editor.impl.FileEditorManagerImpl;
 import com.tyron.code.language.LanguageManager;
 import com.tyron.code.language.java.JavaLanguage;
 import com.tyron.code.analyzer.BaseTextmateAnalyzer;
+import com.tyron.code.language.textmate.BaseIncrementalAnalyzeManager;
 import com.tyron.code.language.textmate.EmptyTextMateLanguage;
 import com.tyron.code.language.xml.LanguageXML;
 import com.tyron.code.ui.editor.scheme.CompiledEditorScheme;
@@ -100,6 +101,7 @@ import java.util.logging.Logger;
 import io.github.rosemoe.sora.event.ClickEvent;
 import io.github.rosemoe.sora.event.ContentChangeEvent;
 import io.github.rosemoe.sora.event.LongPressEvent;
+import io.github.rosemoe.sora.event.ScrollEvent;
 import io.github.rosemoe.sora.lang.Language;
 import io.github.rosemoe.sora.langs.textmate.theme.TextMateColorScheme;
 import io.github.rosemoe.sora.text.Content;
@@ -390,6 +392,15 @@ public class CodeEditorFragment extends Fragment implements Savable,
             }
             updateFile(event.getEditor().getText());
         });
+        mEditor.subscribeEvent(ScrollEvent.class, (event, unsubscribe) -> {
+            if (mLanguage == null) {
+                return;
+            }
+            if (mLanguage.getAnalyzeManager() instanceof BaseIncrementalAnalyzeManager) {
+                ((BaseIncrementalAnalyzeManager<?, ?>) mLanguage.getAnalyzeManager())
+                        .setVisibleRange(mEditor.getFirstVisibleLine(), mEditor.getLastVisibleLine());
+            }
+        });
 
         LogViewModel logViewModel =
                 new ViewModelProvider(requireActivity()).get(LogViewModel.class);
@@ -1,18 +1,15 @@
 package com.tyron.code.ui.project;
 
-import android.util.Log;
 
 import com.google.common.collect.ImmutableList;
-import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.reflect.TypeToken;
+import com.tyron.builder.compiler.java.ExtractedLibraries;
 import com.tyron.builder.log.ILogger;
 import com.tyron.builder.model.Library;
 import com.tyron.builder.project.api.JavaModule;
-import com.tyron.builder.project.api.Module;
 import com.tyron.code.ApplicationLoader;
-import com.tyron.common.util.AndroidUtilities;
 import com.tyron.code.util.DependencyUtils;
 import com.tyron.common.util.Decompress;
 import com.tyron.resolver.DependencyResolver;
@@ -33,13 +30,9 @@ import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.zip.ZipFile;
 
 public class DependencyManager {
 
@@ -150,96 +143,12 @@ public class DependencyManager {
 
     private void checkLibraries(JavaModule project, ILogger logger, List<Library> newLibraries) throws IOException {
         Set<Library> libraries = new HashSet<>(newLibraries);
-
-        Map<String, Library> fileLibsHashes = new HashMap<>();
-        File[] fileLibraries = project.getLibraryDirectory().listFiles(c ->
-                c.getName().endsWith(".aar") || c.getName().endsWith(".jar"));
-        if (fileLibraries != null) {
-            for (File fileLibrary : fileLibraries) {
-                try {
-                    ZipFile zipFile = new ZipFile(fileLibrary);
-                    Library library = new Library();
-                    library.setSourceFile(fileLibrary);
-                    fileLibsHashes.put(AndroidUtilities.calculateMD5(fileLibrary), library);
-                } catch (IOException e) {
-                    String message = "File " + fileLibrary +
-                            " is corrupt! Ignoring.";
-                    logger.warning(message);
-                }
+        for (Library savedLibrary : ExtractedLibraries.getSavedLibraries(project)) {
+            if (!libraries.contains(savedLibrary)) {
+                logger.debug("Removed library " + savedLibrary.getSourceFile().getName());
             }
         }
-
-
-        String librariesString = project.getSettings().getString("libraries", "[]");
-        try {
-            List<Library> parsedLibraries = new Gson().fromJson(librariesString, new TypeToken<List<Library>>() {
-            }.getType());
-            if (parsedLibraries != null) {
-                for (Library parsedLibrary : parsedLibraries) {
-                    if (!libraries.contains(parsedLibrary)) {
-                        Log.d("LibraryCheck", "Removed library" + parsedLibrary);
-                    } else {
-                        libraries.add(parsedLibrary);
-                    }
-                }
-            }
-        } catch (Exception ignore) {
-
-        }
-
-        Map<String, Library> md5Map = new HashMap<>();
-        libraries.forEach(it ->
-                md5Map.put(AndroidUtilities.calculateMD5(it.getSourceFile()), it));
-        File buildLibs = new File(project.getBuildDirectory(), "libs");
-        File[] buildLibraryDirs = buildLibs.listFiles(File::isDirectory);
-        if (buildLibraryDirs != null) {
-            for (File libraryDir : buildLibraryDirs) {
-                String md5Hash = libraryDir.getName();
-                if (!md5Map.containsKey(md5Hash) && !fileLibsHashes.containsKey(md5Hash)) {
-                    FileUtils.deleteDirectory(libraryDir);
-                    Log.d("LibraryCheck", "Deleting contents of " + md5Hash);
-                }
-            }
-        }
-
-        saveLibraryToProject(project, md5Map, fileLibsHashes);
-    }
-
-    private void saveLibraryToProject(Module module, Map<String, Library> libraries, Map<String, Library> fileLibraries) throws IOException {
-        Map<String, Library> combined = new HashMap<>();
-        combined.putAll(libraries);
-        combined.putAll(fileLibraries);
-
-        if (module instanceof JavaModule) {
-            ((JavaModule) module).putLibraryHashes(combined);
-        }
-
-        for (Map.Entry<String, Library> entry : combined.entrySet()) {
-            String hash = entry.getKey();
-            Library library = entry.getValue();
-
-            File libraryDir = new File(module.getBuildDirectory(), "libs/" + hash);
-            if (!libraryDir.exists()) {
-                libraryDir.mkdir();
-            } else {
-                continue;
-            }
-
-            if (library.getSourceFile().getName().endsWith(".jar")) {
-                FileUtils.copyFileToDirectory(library.getSourceFile(), libraryDir);
-
-                File file = new File(libraryDir, library.getSourceFile().getName());
-                file.renameTo(new File(libraryDir, "classes.jar"));
-            } else if (library.getSourceFile().getName().endsWith(".aar")) {
-                Decompress.unzip(library.getSourceFile().getAbsolutePath(),
-                        libraryDir.getAbsolutePath());
-            }
-        }
-
-        String librariesString = new Gson().toJson(libraries.values());
-        module.getSettings().edit()
-                .putString("libraries", librariesString)
-                .apply();
+        ExtractedLibraries.checkLibraries(project, logger, libraries);
     }
 
     public List<Library> getFiles(List<Pom> resolvedPoms,
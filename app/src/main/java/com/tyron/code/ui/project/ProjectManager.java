@@ -19,6 +19,8 @@ import com.tyron.code.ApplicationLoader;
 import com.tyron.code.template.CodeTemplate;
 import com.tyron.code.util.ProjectUtils;
 import com.tyron.common.logging.IdeLog;
+import com.tyron.common.util.FileChangeService;
+import com.tyron.common.util.FileChangeWatcher;
 import com.tyron.completion.index.CompilerService;
 import com.tyron.completion.java.compiler.CompilerContainer;
 import com.tyron.completion.java.JavaCompilerProvider;
@@ -69,6 +71,7 @@ public class ProjectManager {
 
     private final List<OnProjectOpenListener> mProjectOpenListeners = new ArrayList<>();
     private volatile Project mCurrentProject;
+    private FileChangeWatcher mFileChangeWatcher;
 
     private ProjectManager() {
 
@@ -99,6 +102,7 @@ public class ProjectManager {
                                TaskListener mListener,
                                ILogger logger) {
         mCurrentProject = project;
+        watchProjectFiles(project);
 
         boolean shouldReturn = false;
         // Index the project after downloading dependencies so it will get added to classpath
@@ -211,9 +215,38 @@ public class ProjectManager {
     public void closeProject(@NonNull Project project) {
         if (project.equals(mCurrentProject)) {
             mCurrentProject = null;
+            stopWatchingProjectFiles();
+            // forgets the changes reported by the editor, even if the project was not watched
+            FileChangeService.getInstance().unwatchRoot(project.getRootFile().toPath());
         }
     }
 
+    /**
+     * Reports the changes made to the files of the project outside of the editor to the
+     * {@link FileChangeService}, so the completion caches don't have to check them on disk.
+     */
+    private synchronized void watchProjectFiles(Project project) {
+        stopWatchingProjectFiles();
+        try {
+            mFileChangeWatcher = FileChangeWatcher.watch(project.getRootFile().toPath(),
+                    FileChangeService.getInstance());
+        } catch (IOException e) {
+            LOG.warning("Unable to watch the project files: " + e.getMessage());
+        }
+    }
+
+    private synchronized void stopWatchingProjectFiles() {
+        if (mFileChangeWatcher == null) {
+            return;
+        }
+        try {
+            mFileChangeWatcher.close();
+        } catch (IOException e) {
+            LOG.warning("Unable to stop watching the project files: " + e.getMessage());
+        }
+        mFileChangeWatcher = null;
+    }
+
     public synchronized Project getCurrentProject() {
         return mCurrentProject;
     }
@@ -0,0 +1,733 @@
+package com.tyron.builder.caching.internal.packaging.impl;
+
+import static com.tyron.builder.internal.file.FileMetadata.AccessType.DIRECT;
+import static com.tyron.builder.internal.snapshot.DirectorySnapshotBuilder.EmptyDirectoryHandlingStrategy.INCLUDE_EMPTY_DIRS;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Interner;
+import com.google.common.hash.HashCode;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
+import com.tyron.builder.internal.RelativePathSupplier;
+import com.tyron.builder.internal.concurrent.ManagedExecutor;
+import com.tyron.builder.internal.concurrent.Stoppable;
+import com.tyron.builder.internal.file.FileType;
+import com.tyron.builder.internal.file.TreeType;
+import com.tyron.builder.internal.file.impl.DefaultFileMetadata;
+import com.tyron.builder.internal.hash.StreamHasher;
+import com.tyron.builder.internal.snapshot.DirectorySnapshot;
+import com.tyron.builder.internal.snapshot.DirectorySnapshotBuilder;
+import com.tyron.builder.internal.snapshot.FileSystemLocationSnapshot;
+import com.tyron.builder.internal.snapshot.FileSystemSnapshot;
+import com.tyron.builder.internal.snapshot.MerkleDirectorySnapshotBuilder;
+import com.tyron.builder.internal.snapshot.MissingFileSnapshot;
+import com.tyron.builder.internal.snapshot.RegularFileSnapshot;
+import com.tyron.builder.internal.snapshot.RelativePathTracker;
+import com.tyron.builder.internal.snapshot.RelativePathTrackingFileSystemSnapshotHierarchyVisitor;
+import com.tyron.builder.internal.snapshot.SnapshotVisitResult;
+import com.tyron.builder.caching.internal.CacheableEntity;
+import com.tyron.builder.caching.internal.origin.OriginMetadata;
+import com.tyron.builder.caching.internal.origin.OriginReader;
+import com.tyron.builder.caching.internal.origin.OriginWriter;
+import com.tyron.builder.caching.internal.packaging.BuildCacheEntryPacker;
+
+import org.apache.commons.io.FileUtils;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Packages build cache entries to an archive where each file is compressed on its own.
+ *
+ * <p>Compared to a {@link TarBuildCacheEntryPacker} wrapped in a {@link GZipBuildCacheEntryPacker}:
+ * <ul>
+ *     <li>Files that are already compressed, such as jars and APKs, are stored as they are.</li>
+ *     <li>Other files are deflated with the fastest compression level.</li>
+ *     <li>Files are decompressed and written by an executor while the archive is read. The
+ *     executor is owned by the packer and stopped with it.</li>
+ * </ul>
+ *
+ * <p>The paths of the entries are the same as in the TAR format. Entries that do not start with
+ * the header of this format are unpacked by the given legacy packer, so an existing cache
+ * can still be read.
+ */
+public class DeflateBuildCacheEntryPacker implements BuildCacheEntryPacker, Stoppable {
+
+    @SuppressWarnings("OctalInteger")
+    private interface UnixPermissions {
+        int DEFAULT_FILE_PERM = 0644;
+        int DEFAULT_DIR_PERM = 0755;
+        int PERM_MASK = 07777;
+    }
+
+    private static final byte[] MAGIC = {'G', 'B', 'C', 'D'};
+    private static final int VERSION = 1;
+
+    private static final byte TYPE_END = 0;
+    private static final byte TYPE_DIRECTORY = 1;
+    private static final byte TYPE_FILE = 2;
+
+    private static final byte METHOD_STORED = 0;
+    private static final byte METHOD_DEFLATED = 1;
+
+    /**
+     * Files up to this size are compressed and decompressed in memory, larger files are
+     * streamed on the calling thread.
+     */
+    private static final int MAX_BUFFERED_SIZE = 8 * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final ImmutableSet<String> COMPRESSED_EXTENSIONS = ImmutableSet.of(
+            "jar", "zip", "apk", "ap_", "aab", "aar", "apks", "gz", "xz", "bz2", "7z",
+            "png", "jpg", "jpeg", "webp", "gif", "mp3", "mp4", "ogg");
+
+    private static final Charset ENCODING = StandardCharsets.UTF_8;
+    private static final String METADATA_PATH = "METADATA";
+    private static final Pattern TREE_PATH = Pattern.compile("(missing-)?tree-([^/]+)(?:/(.*))?");
+
+    private final TarPackerFileSystemSupport fileSystemSupport;
+    private final FilePermissionAccess filePermissionAccess;
+    private final StreamHasher streamHasher;
+    private final Interner<String> stringInterner;
+    private final BuildCacheEntryPacker legacyPacker;
+    private final ManagedExecutor executor;
+
+    public DeflateBuildCacheEntryPacker(
+            TarPackerFileSystemSupport fileSystemSupport,
+            FilePermissionAccess filePermissionAccess,
+            StreamHasher streamHasher,
+            Interner<String> stringInterner,
+            BuildCacheEntryPacker legacyPacker,
+            ManagedExecutor executor
+    ) {
+        this.fileSystemSupport = fileSystemSupport;
+        this.filePermissionAccess = filePermissionAccess;
+        this.streamHasher = streamHasher;
+        this.stringInterner = stringInterner;
+        this.legacyPacker = legacyPacker;
+        this.executor = executor;
+    }
+
+    @Override
+    public PackResult pack(CacheableEntity entity, Map<String, ? extends FileSystemSnapshot> snapshots, OutputStream output, OriginWriter writeOrigin) throws IOException {
+        DataOutputStream dataOutput = new DataOutputStream(new BufferedOutputStream(output, BUFFER_SIZE));
+        dataOutput.write(MAGIC);
+        dataOutput.writeInt(VERSION);
+
+        ByteArrayOutputStream metadata = new ByteArrayOutputStream();
+        writeOrigin.execute(metadata);
+        writeEntryHeader(dataOutput, TYPE_FILE, METADATA_PATH, UnixPermissions.DEFAULT_FILE_PERM);
+        writeData(dataOutput, METHOD_STORED, metadata.size(), metadata.toByteArray(), metadata.size());
+
+        AtomicLong entries = new AtomicLong();
+        entity.visitOutputTrees((treeName, type, root) -> {
+            FileSystemSnapshot treeSnapshots = snapshots.get(treeName);
+            try {
+                PackingVisitor packingVisitor = new PackingVisitor(dataOutput, treeName, type);
+                try {
+                    treeSnapshots.accept(new RelativePathTracker(), packingVisitor);
+                } finally {
+                    packingVisitor.release();
+                }
+                entries.addAndGet(packingVisitor.getPackedEntryCount());
+            } catch (Exception ex) {
+                throw new RuntimeException(String.format("Could not pack tree '%s': %s", treeName, ex.getMessage()), ex);
+            }
+        });
+
+        dataOutput.writeByte(TYPE_END);
+        dataOutput.flush();
+        return new PackResult(entries.get() + 1);
+    }
+
+    private static void writeEntryHeader(DataOutputStream output, byte type, String path, int mode) throws IOException {
+        byte[] pathBytes = path.getBytes(ENCODING);
+        output.writeByte(type);
+        output.writeInt(pathBytes.length);
+        output.write(pathBytes);
+        output.writeInt(mode);
+    }
+
+    private static void writeData(DataOutputStream output, byte method, long size, byte[] data, int length) throws IOException {
+        output.writeByte(method);
+        output.writeLong(size);
+        output.writeLong(length);
+        output.write(data, 0, length);
+    }
+
+    private static boolean isCompressed(String path) {
+        int index = path.lastIndexOf('.');
+        return index != -1 && COMPRESSED_EXTENSIONS.contains(path.substring(index + 1).toLowerCase(Locale.ROOT));
+    }
+
+    @Override
+    public UnpackResult unpack(CacheableEntity entity, InputStream input, OriginReader readOrigin) throws IOException {
+        BufferedInputStream bufferedInput = new BufferedInputStream(input, BUFFER_SIZE);
+        bufferedInput.mark(MAGIC.length);
+        byte[] magic = new byte[MAGIC.length];
+        int read = ByteStreams.read(bufferedInput, magic, 0, magic.length);
+        bufferedInput.reset();
+        if (read != magic.length || !Arrays.equals(magic, MAGIC)) {
+            return legacyPacker.unpack(entity, bufferedInput, readOrigin);
+        }
+        ByteStreams.skipFully(bufferedInput, MAGIC.length);
+
+        DataInputStream dataInput = new DataInputStream(bufferedInput);
+        int version = dataInput.readInt();
+        if (version != VERSION) {
+            throw new IllegalStateException("Cached entry format error, unsupported version: " + version);
+        }
+        return unpack(entity, dataInput, readOrigin);
+    }
+
+    @Override
+    public void stop() {
+        executor.stop();
+    }
+
+    private UnpackResult unpack(CacheableEntity entity, DataInputStream input, OriginReader readOriginAction) throws IOException {
+        FileWriters writers = new FileWriters();
+        try {
+            return unpack(entity, input, readOriginAction, writers);
+        } catch (Throwable e) {
+            // no file may be written once the failure is reported
+            writers.abort();
+            throw e;
+        }
+    }
+
+    private UnpackResult unpack(CacheableEntity entity, DataInputStream input, OriginReader readOriginAction, FileWriters writers) throws IOException {
+        ImmutableMap.Builder<String, CacheableTree> treesBuilder = ImmutableMap.builder();
+        entity.visitOutputTrees((name, type, root) -> treesBuilder.put(name, new CacheableTree(type, root)));
+        ImmutableMap<String, CacheableTree> treesByName = treesBuilder.build();
+
+        OriginMetadata originMetadata = null;
+        List<TreeResult> trees = new ArrayList<>();
+        AtomicLong entries = new AtomicLong();
+
+        Entry entry = readEntry(input);
+        while (entry != null) {
+            entries.incrementAndGet();
+            String path = entry.path;
+
+            if (path.equals(METADATA_PATH)) {
+                byte[] metadata = readData(input, entry);
+                originMetadata = readOriginAction.execute(new ByteArrayInputStream(metadata));
+                entry = readEntry(input);
+            } else {
+                Matcher matcher = TREE_PATH.matcher(path);
+                if (!matcher.matches()) {
+                    throw new IllegalStateException("Cached entry format error, invalid contents: " + path);
+                }
+
+                String treeName = unescape(matcher.group(2));
+                CacheableTree tree = treesByName.get(treeName);
+                if (tree == null) {
+                    throw new IllegalStateException(String.format("No tree '%s' registered", treeName));
+                }
+
+                boolean missing = matcher.group(1) != null;
+                String childPath = matcher.group(3);
+                TreeResult result = new TreeResult(treeName);
+                trees.add(result);
+                entry = unpackTree(treeName, tree.getType(), tree.getRoot(), input, entry, childPath, missing, result, entries, writers);
+            }
+        }
+        if (originMetadata == null) {
+            throw new IllegalStateException("Cached result format error, no origin metadata was found.");
+        }
+
+        // the files have been written by the executor, the snapshots are built in the order
+        // of the entries
+        Map<String, FileSystemLocationSnapshot> snapshots = new HashMap<>();
+        try {
+            for (TreeResult tree : trees) {
+                FileSystemLocationSnapshot snapshot = tree.build();
+                if (snapshot != null) {
+                    snapshots.put(tree.name, snapshot);
+                }
+            }
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw e;
+        }
+        return new UnpackResult(originMetadata, entries.get(), snapshots);
+    }
+
+    @Nullable
+    private Entry unpackTree(String treeName, TreeType treeType, File treeRoot, DataInputStream input, Entry rootEntry, String childPath, boolean missing, TreeResult result, AtomicLong entries, FileWriters writers) throws IOException {
+        boolean root = Strings.isNullOrEmpty(childPath);
+        if (!root) {
+            throw new IllegalStateException("Root needs to be the first entry in a tree");
+        }
+        if (missing) {
+            readData(input, rootEntry);
+            fileSystemSupport.ensureFileIsMissing(treeRoot);
+            result.setMissing();
+            return readEntry(input);
+        }
+
+        fileSystemSupport.ensureDirectoryForTree(treeType, treeRoot);
+        if (treeType == TreeType.FILE) {
+            if (rootEntry.isDirectory()) {
+                throw new IllegalStateException("Should be a file: " + treeName);
+            }
+            result.setFile(unpackFile(input, rootEntry, treeRoot, treeRoot.getName(), writers));
+            return readEntry(input);
+        }
+
+        if (!rootEntry.isDirectory()) {
+            throw new IllegalStateException("Should be a directory: " + treeName);
+        }
+        chmodUnpackedFile(rootEntry, treeRoot);
+
+        RelativePathParser parser = new RelativePathParser(rootEntry.path);
+        result.enterDirectory(stringInterner.intern(treeRoot.getAbsolutePath()), stringInterner.intern(treeRoot.getName()));
+
+        Entry entry;
+        while ((entry = readEntry(input)) != null) {
+            boolean isDir = entry.isDirectory();
+            boolean outsideOfRoot = parser.nextPath(entry.path, isDir, result::leaveDirectory);
+            if (outsideOfRoot) {
+                break;
+            }
+            entries.incrementAndGet();
+
+            File file = new File(treeRoot, parser.getRelativePath());
+            if (isDir) {
+                FileUtils.forceMkdir(file);
+                chmodUnpackedFile(entry, file);
+                result.enterDirectory(stringInterner.intern(file.getAbsolutePath()), stringInterner.intern(parser.getName()));
+            } else {
+                result.visitFile(unpackFile(input, entry, file, parser.getName(), writers));
+            }
+        }
+
+        parser.exitToRoot(result::leaveDirectory);
+        result.leaveDirectory();
+        return entry;
+    }
+
+    /**
+     * Reads the contents of the file and writes it on the executor, unless it is too large to
+     * be kept in memory.
+     */
+    private CompletableFuture<RegularFileSnapshot> unpackFile(DataInputStream input, Entry entry, File file, String fileName, FileWriters writers) throws IOException {
+        byte method = input.readByte();
+        long size = input.readLong();
+        long length = input.readLong();
+        if (length > MAX_BUFFERED_SIZE) {
+            InputStream data = ByteStreams.limit(input, length);
+            RegularFileSnapshot snapshot = writeFile(method, data, entry, file, fileName);
+            // the inflater may not consume the trailing bytes of the entry
+            ByteStreams.exhaust(data);
+            return CompletableFuture.completedFuture(snapshot);
+        }
+        byte[] data = new byte[(int) length];
+        input.readFully(data);
+        return writers.submit(() -> writeFile(method, new ByteArrayInputStream(data), entry, file, fileName));
+    }
+
+    /**
+     * The files written on the executor for one entry. When unpacking fails, the writes that
+     * have not started are skipped and the running ones are waited for.
+     */
+    private class FileWriters {
+        private final AtomicBoolean aborted = new AtomicBoolean();
+        private final List<CompletableFuture<RegularFileSnapshot>> futures = new ArrayList<>();
+
+        CompletableFuture<RegularFileSnapshot> submit(Callable<RegularFileSnapshot> write) {
+            CompletableFuture<RegularFileSnapshot> future = new CompletableFuture<>();
+            futures.add(future);
+            executor.execute(() -> {
+                if (aborted.get()) {
+                    future.completeExceptionally(new CancellationException());
+                    return;
+                }
+                try {
+                    future.complete(write.call());
+                } catch (IOException e) {
+                    future.completeExceptionally(new UncheckedIOException(e));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+            return future;
+        }
+
+        void abort() {
+            aborted.set(true);
+            for (CompletableFuture<RegularFileSnapshot> future : futures) {
+                try {
+                    future.join();
+                } catch (CompletionException | CancellationException ignored) {
+                    // the failure that aborted the unpacking is reported instead
+                }
+            }
+        }
+    }
+
+    private RegularFileSnapshot writeFile(byte method, InputStream data, Entry entry, File file, String fileName) throws IOException {
+        try (CountingOutputStream output = new CountingOutputStream(new FileOutputStream(file))) {
+            HashCode hash = copy(method, data, output);
+            output.close();
+            chmodUnpackedFile(entry, file);
+            String internedAbsolutePath = stringInterner.intern(file.getAbsolutePath());
+            String internedFileName = stringInterner.intern(fileName);
+            return new RegularFileSnapshot(internedAbsolutePath, internedFileName, hash, DefaultFileMetadata
+                    .file(output.getCount(), file.lastModified(), DIRECT));
+        }
+    }
+
+    /**
+     * Decompresses the data to the output. The data stream is not closed since large files
+     * are read directly from the archive.
+     */
+    private HashCode copy(byte method, InputStream data, OutputStream output) throws IOException {
+        switch (method) {
+            case METHOD_STORED:
+                return streamHasher.hashCopy(data, output);
+            case METHOD_DEFLATED:
+                Inflater inflater = new Inflater(true);
+                try {
+                    return streamHasher.hashCopy(new InflaterInputStream(data, inflater, BUFFER_SIZE), output);
+                } finally {
+                    inflater.end();
+                }
+            default:
+                throw new IOException("Cached entry format error, unknown compression method: " + method);
+        }
+    }
+
+    private static byte[] readData(DataInputStream input, Entry entry) throws IOException {
+        byte method = input.readByte();
+        input.readLong();
+        long length = input.readLong();
+        if (length > MAX_BUFFERED_SIZE) {
+            throw new IllegalStateException("Cached entry format error, entry is too large: " + entry.path);
+        }
+        if (method != METHOD_STORED) {
+            throw new IllegalStateException("Cached entry format error, compressed entry: " + entry.path);
+        }
+        byte[] data = new byte[(int) length];
+        input.readFully(data);
+        return data;
+    }
+
+    @Nullable
+    private static Entry readEntry(DataInputStream input) throws IOException {
+        byte type;
+        try {
+            type = input.readByte();
+        } catch (EOFException e) {
+            throw new IllegalStateException("Cached entry format error, unexpected end of entry");
+        }
+        if (type == TYPE_END) {
+            return null;
+        }
+        if (type != TYPE_FILE && type != TYPE_DIRECTORY) {
+            throw new IllegalStateException("Cached entry format error, unknown entry type: " + type);
+        }
+        byte[] path = new byte[input.readInt()];
+        input.readFully(path);
+        int mode = input.readInt();
+        return new Entry(type, new String(path, ENCODING), mode);
+    }
+
+    private void chmodUnpackedFile(Entry entry, File file) {
+        filePermissionAccess.chmod(file, entry.mode & UnixPermissions.PERM_MASK);
+    }
+
+    private static String escape(String name) {
+        try {
+            return URLEncoder.encode(name, ENCODING.name());
+        } catch (UnsupportedEncodingException ignored) {
+            throw new AssertionError();
+        }
+    }
+
+    private static String unescape(String name) {
+        try {
+            return URLDecoder.decode(name, ENCODING.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static class Entry {
+        private final byte type;
+        private final String path;
+        private final int mode;
+
+        private Entry(byte type, String path, int mode) {
+            this.type = type;
+            this.path = path;
+            this.mode = mode;
+        }
+
+        boolean isDirectory() {
+            return type == TYPE_DIRECTORY;
+        }
+    }
+
+    private static class CacheableTree {
+        private final TreeType type;
+        private final File root;
+
+        public CacheableTree(TreeType type, File root) {
+            this.type = type;
+            this.root = root;
+        }
+
+        public TreeType getType() {
+            return type;
+        }
+
+        public File getRoot() {
+            return root;
+        }
+    }
+
+    /**
+     * Records the structure of an unpacked tree, so its snapshot can be built once the files
+     * written in parallel are done.
+     */
+    private static class TreeResult {
+        private final String name;
+        private final List<Object> events = new ArrayList<>();
+        private CompletableFuture<RegularFileSnapshot> file;
+        private boolean missing;
+
+        private TreeResult(String name) {
+            this.name = name;
+        }
+
+        void setMissing() {
+            missing = true;
+        }
+
+        void setFile(CompletableFuture<RegularFileSnapshot> file) {
+            this.file = file;
+        }
+
+        void enterDirectory(String absolutePath, String name) {
+            events.add(new String[]{absolutePath, name});
+        }
+
+        void visitFile(CompletableFuture<RegularFileSnapshot> file) {
+            events.add(file);
+        }
+
+        void leaveDirectory() {
+            events.add(LEAVE_DIRECTORY);
+        }
+
+        @Nullable
+        FileSystemLocationSnapshot build() {
+            if (missing) {
+                return null;
+            }
+            if (file != null) {
+                return file.join();
+            }
+            DirectorySnapshotBuilder builder = MerkleDirectorySnapshotBuilder.noSortingRequired();
+            for (Object event : events) {
+                if (event == LEAVE_DIRECTORY) {
+                    builder.leaveDirectory();
+                } else if (event instanceof String[]) {
+                    String[] directory = (String[]) event;
+                    builder.enterDirectory(DIRECT, directory[0], directory[1], INCLUDE_EMPTY_DIRS);
+                } else {
+                    @SuppressWarnings("unchecked")
+                    CompletableFuture<RegularFileSnapshot> future = (CompletableFuture<RegularFileSnapshot>) event;
+                    builder.visitLeafElement(future.join());
+                }
+            }
+            return builder.getResult();
+        }
+
+        private static final Object LEAVE_DIRECTORY = new Object();
+    }
+
+    private class PackingVisitor implements RelativePathTrackingFileSystemSnapshotHierarchyVisitor {
+        private final DataOutputStream output;
+        private final String treePath;
+        private final String treeRoot;
+        private final TreeType type;
+        private final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+
+        private long packedEntryCount;
+
+        public PackingVisitor(DataOutputStream output, String treeName, TreeType type) {
+            this.output = output;
+            this.treePath = "tree-" + escape(treeName);
+            this.treeRoot = treePath + "/";
+            this.type = type;
+        }
+
+        @Override
+        public SnapshotVisitResult visitEntry(FileSystemLocationSnapshot snapshot, RelativePathSupplier relativePath) {
+            boolean isRoot = relativePath.isRoot();
+            String targetPath = getTargetPath(relativePath);
+            snapshot.accept(new FileSystemLocationSnapshot.FileSystemLocationSnapshotVisitor() {
+                @Override
+                public void visitDirectory(DirectorySnapshot directorySnapshot) {
+                    assertCorrectType(isRoot, snapshot);
+                    File dir = new File(snapshot.getAbsolutePath());
+                    int dirMode = isRoot ? UnixPermissions.DEFAULT_DIR_PERM : filePermissionAccess.getUnixMode(dir);
+                    storeDirectoryEntry(targetPath, dirMode);
+                }
+
+                @Override
+                public void visitRegularFile(RegularFileSnapshot fileSnapshot) {
+                    assertCorrectType(isRoot, snapshot);
+                    File file = new File(snapshot.getAbsolutePath());
+                    int fileMode = filePermissionAccess.getUnixMode(file);
+                    storeFileEntry(file, targetPath, fileMode);
+                }
+
+                @Override
+                public void visitMissing(MissingFileSnapshot missingSnapshot) {
+                    if (!isRoot) {
+                        throw new RuntimeException(String.format("Couldn't read content of file '%s'", snapshot.getAbsolutePath()));
+                    }
+                    storeMissingTree(targetPath);
+                }
+            });
+            packedEntryCount++;
+            return SnapshotVisitResult.CONTINUE;
+        }
+
+        public long getPackedEntryCount() {
+            return packedEntryCount;
+        }
+
+        public void release() {
+            deflater.end();
+        }
+
+        private void assertCorrectType(boolean root, FileSystemLocationSnapshot snapshot) {
+            if (root) {
+                switch (type) {
+                    case DIRECTORY:
+                        if (snapshot.getType() != FileType.Directory) {
+                            throw new IllegalArgumentException(String.format("Expected '%s' to be a directory", snapshot.getAbsolutePath()));
+                        }
+                        break;
+                    case FILE:
+                        if (snapshot.getType() != FileType.RegularFile) {
+                            throw new IllegalArgumentException(String.format("Expected '%s' to be a file", snapshot.getAbsolutePath()));
+                        }
+                        break;
+                    default:
+                        throw new AssertionError();
+                }
+            }
+        }
+
+        private String getTargetPath(RelativePathSupplier relativePath) {
+            return relativePath.isRoot()
+                    ? treePath
+                    : treeRoot + relativePath.toRelativePath();
+        }
+
+        private void storeMissingTree(String treePath) {
+            try {
+                writeEntryHeader(output, TYPE_FILE, "missing-" + treePath, UnixPermissions.DEFAULT_FILE_PERM);
+                writeData(output, METHOD_STORED, 0, new byte[0], 0);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void storeDirectoryEntry(String path, int mode) {
+            try {
+                writeEntryHeader(output, TYPE_DIRECTORY, path + "/", mode);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void storeFileEntry(File inputFile, String path, int mode) {
+            try {
+                writeEntryHeader(output, TYPE_FILE, path, mode);
+                long size = inputFile.length();
+                if (size > MAX_BUFFERED_SIZE || isCompressed(path)) {
+                    output.writeByte(METHOD_STORED);
+                    output.writeLong(size);
+                    output.writeLong(size);
+                    try (InputStream input = new FileInputStream(inputFile)) {
+                        long copied = ByteStreams.copy(ByteStreams.limit(input, size), output);
+                        if (copied != size) {
+                            throw new IOException("File changed while it was packed: " + inputFile);
+                        }
+                    }
+                    return;
+                }
+
+                compressed.reset();
+                deflater.reset();
+                try (InputStream input = new FileInputStream(inputFile);
+                     DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(compressed, deflater, BUFFER_SIZE)) {
+                    ByteStreams.copy(input, deflaterOutput);
+                }
+                if (compressed.size() < size) {
+                    output.writeByte(METHOD_DEFLATED);
+                    output.writeLong(size);
+                    output.writeLong(compressed.size());
+                    compressed.writeTo(output);
+                } else {
+                    // not worth decompressing
+                    output.writeByte(METHOD_STORED);
+                    output.writeLong(size);
+                    output.writeLong(size);
+                    FileUtils.copyFile(inputFile, output);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
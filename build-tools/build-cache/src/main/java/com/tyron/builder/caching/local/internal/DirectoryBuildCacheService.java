@@ -8,6 +8,8 @@ import com.tyron.builder.internal.file.FileAccessTracker;
 import com.tyron.builder.internal.resource.local.LocallyAvailableResource;
 import com.tyron.builder.internal.resource.local.PathKeyFileStore;
 import com.tyron.builder.util.internal.GFileUtils;
+import com.tyron.builder.cache.CleanupAction;
+import com.tyron.builder.cache.CleanupProgressMonitor;
 import com.tyron.builder.cache.PersistentCache;
 import com.tyron.builder.caching.BuildCacheEntryReader;
 import com.tyron.builder.caching.BuildCacheEntryWriter;
@@ -18,27 +20,56 @@ import com.tyron.builder.caching.BuildCacheService;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
+import java.io.FileFilter;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.regex.Pattern;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class DirectoryBuildCacheService implements LocalBuildCacheService, BuildCacheService {
 
+    private static final Pattern ENTRY_NAME = Pattern.compile("[0-9a-f]+");
+
+    /**
+     * Accepts the entries of the cache, which are named after their key. Lock files, the cache
+     * properties and entries that failed to load are not counted in the size of the cache.
+     */
+    static final FileFilter ENTRY_FILTER = new FileFilter() {
+        @Override
+        public boolean accept(File file) {
+            return ENTRY_NAME.matcher(file.getName()).matches() && file.isFile();
+        }
+    };
+
     private final PathKeyFileStore fileStore;
     private final PersistentCache persistentCache;
     private final BuildCacheTempFileStore tempFileStore;
     private final FileAccessTracker fileAccessTracker;
     private final String failedFileSuffix;
+    private final long maximumSize;
+    private final CleanupAction sizeCleanup;
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
+    /**
+     * The total size of the entries, or -1 when it has not been computed yet. Only accessed
+     * while holding the write lock.
+     */
+    private long currentSize = -1;
+
     public DirectoryBuildCacheService(PathKeyFileStore fileStore, PersistentCache persistentCache, BuildCacheTempFileStore tempFileStore, FileAccessTracker fileAccessTracker, String failedFileSuffix) {
+        this(fileStore, persistentCache, tempFileStore, fileAccessTracker, failedFileSuffix, 0, CleanupAction.NO_OP);
+    }
+
+    public DirectoryBuildCacheService(PathKeyFileStore fileStore, PersistentCache persistentCache, BuildCacheTempFileStore tempFileStore, FileAccessTracker fileAccessTracker, String failedFileSuffix, long maximumSize, CleanupAction sizeCleanup) {
         this.fileStore = fileStore;
         this.persistentCache = persistentCache;
         this.tempFileStore = tempFileStore;
         this.fileAccessTracker = fileAccessTracker;
         this.failedFileSuffix = failedFileSuffix;
+        this.maximumSize = maximumSize;
+        this.sizeCleanup = sizeCleanup;
     }
 
     private static class LoadAction implements Action<File> {
@@ -145,8 +176,43 @@ public class DirectoryBuildCacheService implements LocalBuildCacheService, Build
     }
 
     private void storeInsideLock(BuildCacheKey key, File file) {
+        long size = file.length();
         LocallyAvailableResource resource = fileStore.move(key.getHashCode(), file);
         fileAccessTracker.markAccessed(resource.getFile());
+        if (maximumSize > 0) {
+            enforceMaximumSize(size);
+        }
+    }
+
+    /**
+     * Removes the least recently used entries when the stored entry made the cache larger than
+     * the maximum size, instead of waiting for the periodic cleanup when the cache is closed.
+     */
+    private void enforceMaximumSize(long storedSize) {
+        if (currentSize < 0) {
+            currentSize = calculateSize();
+        } else {
+            // an entry that replaced an existing one is counted twice until the next cleanup
+            currentSize += storedSize;
+        }
+        if (currentSize > maximumSize) {
+            sizeCleanup.clean(persistentCache, CleanupProgressMonitor.NO_OP);
+            currentSize = calculateSize();
+        }
+    }
+
+    private long calculateSize() {
+        File[] files = persistentCache.getBaseDir().listFiles();
+        if (files == null) {
+            return 0;
+        }
+        long size = 0;
+        for (File file : files) {
+            if (ENTRY_FILTER.accept(file)) {
+                size += file.length();
+            }
+        }
+        return size;
     }
 
     @Override
@@ -4,9 +4,12 @@ import com.tyron.builder.api.UncheckedIOException;
 import com.tyron.builder.api.internal.file.temp.TemporaryFileProvider;
 import com.tyron.builder.cache.CacheBuilder;
 import com.tyron.builder.cache.CacheRepository;
+import com.tyron.builder.cache.CleanupAction;
 import com.tyron.builder.cache.PersistentCache;
 import com.tyron.builder.cache.internal.CleanupActionFactory;
+import com.tyron.builder.cache.internal.CompositeCleanupAction;
 import com.tyron.builder.cache.internal.LeastRecentlyUsedCacheCleanup;
+import com.tyron.builder.cache.internal.LeastRecentlyUsedSizeCacheCleanup;
 import com.tyron.builder.cache.internal.SingleDepthFilesFinder;
 import com.tyron.builder.cache.scopes.GlobalScopedCache;
 import com.tyron.builder.caching.BuildCacheService;
@@ -64,14 +67,27 @@ public class DirectoryBuildCacheServiceFactory implements BuildCacheServiceFacto
         checkDirectory(target);
 
         int removeUnusedEntriesAfterDays = configuration.getRemoveUnusedEntriesAfterDays();
+        long maximumSize = configuration.getMaximumSize();
         describer.type(DIRECTORY_BUILD_CACHE_TYPE).
             config("location", target.getAbsolutePath()).
             config("removeUnusedEntriesAfter", String.valueOf(removeUnusedEntriesAfterDays) + " days");
+        if (maximumSize > 0) {
+            describer.config("maximumSize", String.valueOf(maximumSize) + " bytes");
+        }
+
+        CompositeCleanupAction.Builder cleanup = CompositeCleanupAction.builder()
+            .add(new LeastRecentlyUsedCacheCleanup(new SingleDepthFilesFinder(FILE_TREE_DEPTH_TO_TRACK_AND_CLEANUP), fileAccessTimeJournal, removeUnusedEntriesAfterDays));
+        CleanupAction sizeCleanup = CleanupAction.NO_OP;
+        if (maximumSize > 0) {
+            cleanup.add(new LeastRecentlyUsedSizeCacheCleanup(new SingleDepthFilesFinder(FILE_TREE_DEPTH_TO_TRACK_AND_CLEANUP), fileAccessTimeJournal, maximumSize, DirectoryBuildCacheService.ENTRY_FILTER));
+            // clean up below the maximum when a store exceeds it, so the next stores do not trigger a cleanup again
+            sizeCleanup = new LeastRecentlyUsedSizeCacheCleanup(new SingleDepthFilesFinder(FILE_TREE_DEPTH_TO_TRACK_AND_CLEANUP), fileAccessTimeJournal, maximumSize - maximumSize / 10, DirectoryBuildCacheService.ENTRY_FILTER);
+        }
 
         PathKeyFileStore fileStore = fileStoreFactory.createFileStore(target);
         PersistentCache persistentCache = cacheRepository
             .cache(target)
-            .withCleanup(cleanupActionFactory.create(new LeastRecentlyUsedCacheCleanup(new SingleDepthFilesFinder(FILE_TREE_DEPTH_TO_TRACK_AND_CLEANUP), fileAccessTimeJournal, removeUnusedEntriesAfterDays)))
+            .withCleanup(cleanupActionFactory.create(cleanup.build()))
             .withDisplayName("Build cache")
             .withLockOptions(mode(OnDemand))
             .withCrossVersionCache(CacheBuilder.LockTarget.DefaultTarget)
@@ -79,7 +95,7 @@ public class DirectoryBuildCacheServiceFactory implements BuildCacheServiceFacto
         BuildCacheTempFileStore tempFileStore = new DefaultBuildCacheTempFileStore(temporaryFileProvider);
         FileAccessTracker fileAccessTracker = new SingleDepthFileAccessTracker(fileAccessTimeJournal, target, FILE_TREE_DEPTH_TO_TRACK_AND_CLEANUP);
 
-        return new DirectoryBuildCacheService(fileStore, persistentCache, tempFileStore, fileAccessTracker, FAILED_READ_SUFFIX);
+        return new DirectoryBuildCacheService(fileStore, persistentCache, tempFileStore, fileAccessTracker, FAILED_READ_SUFFIX, maximumSize, sizeCleanup);
     }
 
     private static void checkDirectory(File directory) {
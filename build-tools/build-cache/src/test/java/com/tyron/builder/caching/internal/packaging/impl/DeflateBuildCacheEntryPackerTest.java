@@ -0,0 +1,279 @@
+package com.tyron.builder.caching.internal.packaging.impl;
+
+import static com.tyron.builder.internal.file.FileMetadata.AccessType.DIRECT;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Interners;
+import com.tyron.builder.caching.internal.CacheableEntity;
+import com.tyron.builder.caching.internal.origin.OriginMetadata;
+import com.tyron.builder.caching.internal.origin.OriginReader;
+import com.tyron.builder.caching.internal.origin.OriginWriter;
+import com.tyron.builder.caching.internal.packaging.BuildCacheEntryPacker;
+import com.tyron.builder.internal.concurrent.DefaultExecutorFactory;
+import com.tyron.builder.internal.file.FileException;
+import com.tyron.builder.internal.file.TreeType;
+import com.tyron.builder.internal.file.impl.DefaultFileMetadata;
+import com.tyron.builder.internal.hash.DefaultFileHasher;
+import com.tyron.builder.internal.hash.DefaultStreamHasher;
+import com.tyron.builder.internal.snapshot.FileSystemLocationSnapshot;
+import com.tyron.builder.internal.snapshot.FileSystemSnapshot;
+import com.tyron.builder.internal.snapshot.MissingFileSnapshot;
+import com.tyron.builder.internal.snapshot.RegularFileSnapshot;
+import com.tyron.builder.internal.snapshot.impl.DirectorySnapshotter;
+import com.tyron.builder.internal.snapshot.impl.DirectorySnapshotterStatistics;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class DeflateBuildCacheEntryPackerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final DefaultStreamHasher streamHasher = new DefaultStreamHasher();
+    private final DefaultFileHasher fileHasher = new DefaultFileHasher(streamHasher);
+    private final DefaultExecutorFactory executorFactory = new DefaultExecutorFactory();
+    private final TarPackerFileSystemSupport fileSystemSupport = new TarPackerFileSystemSupport() {
+        @Override
+        public void ensureFileIsMissing(File entry) throws IOException {
+            FileUtils.forceMkdir(entry.getParentFile());
+            FileUtils.deleteQuietly(entry);
+        }
+
+        @Override
+        public void ensureDirectoryForTree(TreeType type, File root) throws IOException {
+            FileUtils.deleteQuietly(root);
+            FileUtils.forceMkdir(type == TreeType.DIRECTORY ? root : root.getParentFile());
+        }
+    };
+    private final FilePermissionAccess filePermissionAccess = new FilePermissionAccess() {
+        @Override
+        public int getUnixMode(File f) throws FileException {
+            return f.isDirectory() ? 0755 : 0644;
+        }
+
+        @Override
+        public void chmod(File file, int mode) throws FileException {
+        }
+    };
+    private final BuildCacheEntryPacker tarPacker = new GZipBuildCacheEntryPacker(
+            new TarBuildCacheEntryPacker(fileSystemSupport, filePermissionAccess, streamHasher, Interners.newWeakInterner()));
+    private final DeflateBuildCacheEntryPacker packer = new DeflateBuildCacheEntryPacker(fileSystemSupport,
+            filePermissionAccess, streamHasher, Interners.newWeakInterner(), tarPacker,
+            executorFactory.create("Build cache unpacker", 2));
+
+    @After
+    public void stop() {
+        packer.stop();
+        executorFactory.stop();
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Outputs outputs = createOutputs();
+        Map<String, byte[]> expected = readFiles(outputs.root);
+        Map<String, FileSystemSnapshot> snapshots = outputs.snapshot();
+
+        byte[] entry = pack(packer, outputs, snapshots);
+        FileUtils.deleteDirectory(outputs.root);
+
+        BuildCacheEntryPacker.UnpackResult result = unpack(outputs, entry);
+        assertEquals("origin", result.getOriginMetadata().getBuildInvocationId());
+        assertEquals(expected.keySet(), readFiles(outputs.root).keySet());
+        for (Map.Entry<String, byte[]> file : readFiles(outputs.root).entrySet()) {
+            assertArrayEquals(file.getKey(), expected.get(file.getKey()), file.getValue());
+        }
+        assertTrue(new File(outputs.directory, "empty").isDirectory());
+        assertFalse(outputs.missing.exists());
+
+        Map<String, FileSystemSnapshot> unpacked = outputs.snapshot();
+        assertEquals(hash(unpacked.get("directory")), hash(result.getSnapshots().get("directory")));
+        assertEquals(hash(unpacked.get("file")), hash(result.getSnapshots().get("file")));
+        assertEquals(hash(snapshots.get("directory")), hash(result.getSnapshots().get("directory")));
+        assertFalse(result.getSnapshots().containsKey("missing"));
+    }
+
+    @Test
+    public void testStoresCompressedFilesAsTheyAre() throws IOException {
+        Outputs outputs = new Outputs(temporaryFolder.newFolder("outputs"));
+        FileUtils.forceMkdir(outputs.directory);
+        byte[] content = randomBytes(100_000);
+        Files.write(new File(outputs.directory, "classes.jar").toPath(), content);
+        Files.write(outputs.file.toPath(), new byte[0]);
+
+        byte[] entry = pack(packer, outputs, outputs.snapshot());
+        // random bytes do not compress, the archive only adds the headers
+        assertTrue(entry.length < content.length + 1024);
+
+        FileUtils.deleteDirectory(outputs.root);
+        unpack(outputs, entry);
+        assertArrayEquals(content, Files.readAllBytes(new File(outputs.directory, "classes.jar").toPath()));
+    }
+
+    @Test
+    public void testUnpacksLegacyEntries() throws IOException {
+        Outputs outputs = createOutputs();
+        Map<String, byte[]> expected = readFiles(outputs.root);
+
+        byte[] entry = pack(tarPacker, outputs, outputs.snapshot());
+        FileUtils.deleteDirectory(outputs.root);
+
+        BuildCacheEntryPacker.UnpackResult result = unpack(outputs, entry);
+        assertEquals("origin", result.getOriginMetadata().getBuildInvocationId());
+        assertEquals(expected.keySet(), readFiles(outputs.root).keySet());
+    }
+
+    @Test
+    public void testNoFileIsWrittenAfterAFailure() throws Exception {
+        Outputs outputs = createOutputs();
+        byte[] entry = pack(packer, outputs, outputs.snapshot());
+        FileUtils.deleteDirectory(outputs.root);
+
+        byte[] truncated = Arrays.copyOf(entry, entry.length - 16);
+        try {
+            unpack(outputs, truncated);
+            fail();
+        } catch (IOException | IllegalStateException expected) {
+            // the archive ends in the middle of an entry
+        }
+        Map<String, Long> afterFailure = listFiles(outputs.root);
+        Thread.sleep(100);
+        assertEquals(afterFailure, listFiles(outputs.root));
+    }
+
+    private Outputs createOutputs() throws IOException {
+        Outputs outputs = new Outputs(temporaryFolder.newFolder("outputs"));
+        FileUtils.forceMkdir(new File(outputs.directory, "empty"));
+        for (int i = 0; i < 3; i++) {
+            File dir = new File(outputs.directory, "com/example/dir" + i);
+            FileUtils.forceMkdir(dir);
+            for (int j = 0; j < 20; j++) {
+                String content = "class File" + j + " in " + dir.getName() + "\n";
+                Files.write(new File(dir, "File" + j + ".class").toPath(), content.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        Files.write(new File(outputs.directory, "library.jar").toPath(), randomBytes(10_000));
+        // larger than the files decompressed in memory
+        Files.write(new File(outputs.directory, "large.bin").toPath(), randomBytes(9 * 1024 * 1024));
+        Files.write(outputs.file.toPath(), "single file".getBytes(StandardCharsets.UTF_8));
+        return outputs;
+    }
+
+    private class Outputs implements CacheableEntity {
+        private final File root;
+        private final File directory;
+        private final File file;
+        private final File missing;
+
+        private Outputs(File root) {
+            this.root = root;
+            this.directory = new File(root, "classes");
+            this.file = new File(root, "output.txt");
+            this.missing = new File(root, "missing");
+        }
+
+        Map<String, FileSystemSnapshot> snapshot() throws IOException {
+            DirectorySnapshotter snapshotter = new DirectorySnapshotter(fileHasher, Interners.newWeakInterner(),
+                    Collections.emptyList(), new DirectorySnapshotterStatistics.Collector());
+            FileSystemLocationSnapshot directorySnapshot = snapshotter.snapshot(directory.getAbsolutePath(), null, new AtomicBoolean(), snapshot -> {});
+            RegularFileSnapshot fileSnapshot = new RegularFileSnapshot(file.getAbsolutePath(), file.getName(),
+                    fileHasher.hash(file), DefaultFileMetadata.file(file.length(), file.lastModified(), DIRECT));
+            return ImmutableMap.of(
+                    "directory", directorySnapshot,
+                    "file", fileSnapshot,
+                    "missing", new MissingFileSnapshot(missing.getAbsolutePath(), DIRECT));
+        }
+
+        @Override
+        public String getIdentity() {
+            return ":task";
+        }
+
+        @Override
+        public Class<?> getType() {
+            return Outputs.class;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "task ':task'";
+        }
+
+        @Override
+        public void visitOutputTrees(CacheableTreeVisitor visitor) {
+            visitor.visitOutputTree("directory", TreeType.DIRECTORY, directory);
+            visitor.visitOutputTree("file", TreeType.FILE, file);
+            visitor.visitOutputTree("missing", TreeType.FILE, missing);
+        }
+    }
+
+    private static byte[] pack(BuildCacheEntryPacker packer, Outputs outputs, Map<String, FileSystemSnapshot> snapshots) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        OriginWriter originWriter = stream -> stream.write("origin".getBytes(StandardCharsets.UTF_8));
+        packer.pack(outputs, snapshots, output, originWriter);
+        return output.toByteArray();
+    }
+
+    private BuildCacheEntryPacker.UnpackResult unpack(Outputs outputs, byte[] entry) throws IOException {
+        OriginReader originReader = stream -> {
+            ByteArrayOutputStream origin = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                origin.write(buffer, 0, read);
+            }
+            return new OriginMetadata(new String(origin.toByteArray(), StandardCharsets.UTF_8), Duration.ofMillis(1));
+        };
+        return packer.unpack(outputs, new ByteArrayInputStream(entry), originReader);
+    }
+
+    private static Object hash(FileSystemSnapshot snapshot) {
+        return ((FileSystemLocationSnapshot) snapshot).getHash();
+    }
+
+    private static Map<String, byte[]> readFiles(File root) throws IOException {
+        Map<String, byte[]> files = new TreeMap<>();
+        for (File file : FileUtils.listFiles(root, null, true)) {
+            files.put(root.toPath().relativize(file.toPath()).toString(), Files.readAllBytes(file.toPath()));
+        }
+        return files;
+    }
+
+    private static Map<String, Long> listFiles(File root) {
+        Map<String, Long> files = new TreeMap<>();
+        if (root.exists()) {
+            for (File file : FileUtils.listFiles(root, null, true)) {
+                files.put(file.getPath(), file.length());
+            }
+        }
+        return files;
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+}
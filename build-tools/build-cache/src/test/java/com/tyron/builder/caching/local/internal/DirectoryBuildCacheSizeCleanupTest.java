@@ -0,0 +1,108 @@
+package com.tyron.builder.caching.local.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.tyron.builder.cache.CleanableStore;
+import com.tyron.builder.cache.CleanupProgressMonitor;
+import com.tyron.builder.cache.internal.LeastRecentlyUsedSizeCacheCleanup;
+import com.tyron.builder.cache.internal.SingleDepthFilesFinder;
+import com.tyron.builder.internal.file.FileAccessTimeJournal;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class DirectoryBuildCacheSizeCleanupTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final Map<File, Long> accessTimes = new HashMap<>();
+    private final FileAccessTimeJournal journal = new FileAccessTimeJournal() {
+        @Override
+        public long getLastAccessTime(File file) {
+            Long time = accessTimes.get(file);
+            return time == null ? 0 : time;
+        }
+
+        @Override
+        public void setLastAccessTime(File file, long millis) {
+            accessTimes.put(file, millis);
+        }
+
+        @Override
+        public void deleteLastAccessTime(File file) {
+            accessTimes.remove(file);
+        }
+    };
+
+    @Test
+    public void testOnlyEntriesAreCounted() throws IOException {
+        File baseDir = temporaryFolder.newFolder("build-cache-1");
+        File lockFile = createFile(baseDir, "build-cache-1.lock", 1000);
+        File failedFile = createFile(baseDir, "0123456789abcdef0123456789abcdef.failed", 1000);
+        File first = createFile(baseDir, "0123456789abcdef0123456789abcde0", 100);
+        File second = createFile(baseDir, "0123456789abcdef0123456789abcde1", 100);
+        journal.setLastAccessTime(first, 1);
+        journal.setLastAccessTime(second, 2);
+
+        clean(baseDir, 200);
+        assertTrue(first.exists());
+        assertTrue(second.exists());
+        assertTrue(lockFile.exists());
+        assertTrue(failedFile.exists());
+
+        clean(baseDir, 150);
+        assertFalse("least recently used entry is removed", first.exists());
+        assertTrue(second.exists());
+        assertTrue(lockFile.exists());
+        assertTrue(failedFile.exists());
+    }
+
+    @Test
+    public void testEntryFilter() throws IOException {
+        File baseDir = temporaryFolder.newFolder("build-cache-1");
+        assertTrue(DirectoryBuildCacheService.ENTRY_FILTER.accept(createFile(baseDir, "0123456789abcdef", 1)));
+        assertFalse(DirectoryBuildCacheService.ENTRY_FILTER.accept(createFile(baseDir, "build-cache-1.lock", 1)));
+        assertFalse(DirectoryBuildCacheService.ENTRY_FILTER.accept(createFile(baseDir, "gc.properties", 1)));
+        assertFalse(DirectoryBuildCacheService.ENTRY_FILTER.accept(createFile(baseDir, "0123456789abcdef.failed", 1)));
+        assertFalse(DirectoryBuildCacheService.ENTRY_FILTER.accept(new File(baseDir, "abcdef")));
+        assertEquals(0, accessTimes.size());
+    }
+
+    private void clean(File baseDir, long maximumSize) {
+        new LeastRecentlyUsedSizeCacheCleanup(new SingleDepthFilesFinder(1), journal, maximumSize,
+                DirectoryBuildCacheService.ENTRY_FILTER).clean(new CleanableStore() {
+            @Override
+            public File getBaseDir() {
+                return baseDir;
+            }
+
+            @Override
+            public Collection<File> getReservedCacheFiles() {
+                return Collections.emptyList();
+            }
+
+            @Override
+            public String getDisplayName() {
+                return "Build cache";
+            }
+        }, CleanupProgressMonitor.NO_OP);
+    }
+
+    private static File createFile(File dir, String name, int size) throws IOException {
+        File file = new File(dir, name);
+        Files.write(file.toPath(), new byte[size]);
+        return file;
+    }
+}
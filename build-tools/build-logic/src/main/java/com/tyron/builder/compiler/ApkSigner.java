@@ -3,46 +3,94 @@ package com.tyron.builder.compiler;
 import androidx.annotation.VisibleForTesting;
 
 import com.tyron.builder.BuildModule;
+import com.tyron.builder.compiler.apk.IncrementalSignerEngine;
 import com.tyron.common.util.Decompress;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.security.spec.PKCS8EncodedKeySpec;
 import java.util.ArrayList;
+import java.util.List;
 
 
 public class ApkSigner {
 
-    public static class Mode {
-        public static int TEST = 0;
-        //ToDo add more modes
-    }
-
+    private static final int MIN_SDK_VERSION = 21;
 
-    private final ArrayList<String> commands ;
     private final String mApkInputPath ;
     private final String mApkOutputPath;
 
-    public ApkSigner(String inputPath ,String outputPath,int mode){
-        commands = new ArrayList<>();
+    /**
+     * Signs the APK with the test key.
+     */
+    public ApkSigner(String inputPath, String outputPath) {
         mApkInputPath = inputPath;
         mApkOutputPath = outputPath;
     }
 
-    //TODO: Adjust min and max sdk
+    //TODO: Adjust min sdk
     public void sign() throws Exception {
-        commands.add("sign");
-        commands.add("--key");
-        commands.add(getTestKeyFilePath());
-        commands.add("--cert");
-        commands.add(getTestCertFilePath());
-        commands.add("--min-sdk-version");
-        commands.add("21");
-        commands.add("--max-sdk-version");
-        commands.add("30");
-        commands.add("--out");
-        commands.add(mApkOutputPath);
-        commands.add("--in");
-        commands.add(mApkInputPath);
-        com.android.apksigner.ApkSignerTool.main(commands.toArray(new String[0]));
+        SigningKey key = getSigningKey(getTestKeyFilePath(), getTestCertFilePath());
+        File inputApk = new File(mApkInputPath);
+        try (IncrementalSignerEngine engine = new IncrementalSignerEngine(key.privateKey,
+                key.certificates, MIN_SDK_VERSION, inputApk)) {
+            new com.android.apksig.ApkSigner.Builder(engine)
+                    .setInputApk(inputApk)
+                    .setOutputApk(new File(mApkOutputPath))
+                    .build()
+                    .sign();
+        }
+    }
+
+    /**
+     * @return the key and certificates of the given files, they are only parsed once per session
+     */
+    private static synchronized SigningKey getSigningKey(String keyPath, String certPath)
+            throws IOException, GeneralSecurityException {
+        if (sSigningKey != null && sSigningKey.matches(keyPath, certPath)) {
+            return sSigningKey;
+        }
+        sSigningKey = new SigningKey(keyPath, certPath, readPrivateKey(new File(keyPath)),
+                readCertificates(new File(certPath)));
+        return sSigningKey;
+    }
+
+    private static PrivateKey readPrivateKey(File file)
+            throws IOException, GeneralSecurityException {
+        PKCS8EncodedKeySpec spec = new PKCS8EncodedKeySpec(Files.readAllBytes(file.toPath()));
+        GeneralSecurityException failure = null;
+        for (String algorithm : new String[]{"RSA", "EC", "DSA"}) {
+            try {
+                return KeyFactory.getInstance(algorithm).generatePrivate(spec);
+            } catch (GeneralSecurityException e) {
+                failure = e;
+            }
+        }
+        throw new GeneralSecurityException("Unsupported private key " + file, failure);
+    }
+
+    private static List<X509Certificate> readCertificates(File file)
+            throws IOException, GeneralSecurityException {
+        List<X509Certificate> certificates = new ArrayList<>();
+        try (InputStream inputStream = new FileInputStream(file)) {
+            for (Certificate certificate : CertificateFactory.getInstance("X.509")
+                    .generateCertificates(inputStream)) {
+                certificates.add((X509Certificate) certificate);
+            }
+        }
+        if (certificates.isEmpty()) {
+            throw new GeneralSecurityException("No certificates in " + file);
+        }
+        return certificates;
     }
 
 
@@ -94,5 +142,25 @@ public class ApkSigner {
 
     private static File sTestKeyFile;
     private static File sTestCertFile;
+    private static SigningKey sSigningKey;
+
+    private static class SigningKey {
+        final String keyPath;
+        final String certPath;
+        final PrivateKey privateKey;
+        final List<X509Certificate> certificates;
+
+        SigningKey(String keyPath, String certPath, PrivateKey privateKey,
+                   List<X509Certificate> certificates) {
+            this.keyPath = keyPath;
+            this.certPath = certPath;
+            this.privateKey = privateKey;
+            this.certificates = certificates;
+        }
+
+        boolean matches(String keyPath, String certPath) {
+            return this.keyPath.equals(keyPath) && this.certPath.equals(certPath);
+        }
+    }
 
 }
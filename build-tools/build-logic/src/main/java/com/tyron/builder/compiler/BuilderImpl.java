@@ -4,9 +4,15 @@ import android.os.Handler;
 import android.os.Looper;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
 import com.tyron.builder.exception.CompilationFailedException;
+import com.tyron.builder.internal.operations.BuildOperationContext;
+import com.tyron.builder.internal.operations.BuildOperationDescriptor;
+import com.tyron.builder.internal.operations.BuildOperationInvocationException;
+import com.tyron.builder.internal.operations.BuildOperationRunner;
+import com.tyron.builder.internal.operations.RunnableBuildOperation;
 import com.tyron.builder.log.ILogger;
 import com.tyron.builder.project.Project;
 import com.tyron.builder.project.api.Module;
@@ -23,6 +29,7 @@ public abstract class BuilderImpl<T extends Module> implements Builder<T> {
     private final ILogger mLogger;
     private final List<Task<? super T>> mTasksRan;
     private TaskListener mTaskListener;
+    private BuildOperationRunner mBuildOperationRunner;
 
     public BuilderImpl(Project project, T module, ILogger logger) {
         mProject = project;
@@ -43,6 +50,14 @@ public abstract class BuilderImpl<T extends Module> implements Builder<T> {
         mTaskListener = taskListener;
     }
 
+    /**
+     * Sets the runner that runs each task of this builder as a build operation, so the tasks
+     * can be traced. When not set, the tasks are run directly.
+     */
+    public void setBuildOperationRunner(@Nullable BuildOperationRunner buildOperationRunner) {
+        mBuildOperationRunner = buildOperationRunner;
+    }
+
     @Override
     public T getModule() {
         return mModule;
@@ -65,8 +80,13 @@ public abstract class BuilderImpl<T extends Module> implements Builder<T> {
             try {
                 mMainHandler.post(() -> updateProgress(task.getName(), "Task started",
                         (int) ((current / (float) tasks.size()) * 100f)));
-                task.prepare(type);
-                task.run();
+                runAsBuildOperation(mBuildOperationRunner, BuildOperationDescriptor
+                        .displayName("Run task " + task.getName())
+                        .name(task.getName())
+                        .details(task), () -> {
+                    task.prepare(type);
+                    task.run();
+                });
             } catch (Throwable e) {
                 if (e instanceof OutOfMemoryError) {
                     tasks.clear();
@@ -84,6 +104,47 @@ public abstract class BuilderImpl<T extends Module> implements Builder<T> {
 
     public abstract List<Task<? super T>> getTasks(BuildType type);
 
+    /**
+     * Runs the action as a build operation with the given runner, or directly when there is
+     * no runner. Unchecked exceptions, errors, {@link CompilationFailedException} and
+     * {@link IOException} thrown by the action are rethrown as they are. Any other checked exception
+     * is rethrown wrapped in a {@link BuildOperationInvocationException}.
+     */
+    static void runAsBuildOperation(@Nullable BuildOperationRunner runner,
+                                    BuildOperationDescriptor.Builder descriptor,
+                                    BuildAction action) throws CompilationFailedException, IOException {
+        if (runner == null) {
+            action.run();
+            return;
+        }
+        try {
+            runner.run(new RunnableBuildOperation() {
+                @Override
+                public void run(BuildOperationContext context) throws Exception {
+                    action.run();
+                }
+
+                @Override
+                public BuildOperationDescriptor.Builder description() {
+                    return descriptor;
+                }
+            });
+        } catch (BuildOperationInvocationException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CompilationFailedException) {
+                throw (CompilationFailedException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw e;
+        }
+    }
+
+    interface BuildAction {
+        void run() throws CompilationFailedException, IOException;
+    }
+
     /**
      * Used in tests to check the values of tasks that ran
      */
@@ -1,8 +1,16 @@
 package com.tyron.builder.compiler;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.tyron.builder.exception.CompilationFailedException;
+import com.tyron.builder.internal.operations.BuildOperationDescriptor;
+import com.tyron.builder.internal.operations.BuildOperationListenerAdapter;
+import com.tyron.builder.internal.operations.BuildOperationRunner;
+import com.tyron.builder.internal.operations.CurrentBuildOperationRef;
+import com.tyron.builder.internal.operations.DefaultBuildOperationIdFactory;
+import com.tyron.builder.internal.operations.DefaultBuildOperationRunner;
+import com.tyron.builder.internal.operations.trace.ChromeTraceRecorder;
 import com.tyron.builder.log.ILogger;
 import com.tyron.builder.model.ModuleSettings;
 import com.tyron.builder.project.Project;
@@ -10,6 +18,7 @@ import com.tyron.builder.project.api.AndroidModule;
 import com.tyron.builder.project.api.JavaModule;
 import com.tyron.builder.project.api.Module;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.List;
 import java.util.Objects;
@@ -20,6 +29,7 @@ public class ProjectBuilder {
     private final Project mProject;
     private final ILogger mLogger;
     private Builder.TaskListener mTaskListener;
+    private File mTraceFile;
 
     public ProjectBuilder(Project project, ILogger logger) throws IOException {
         mProject = project;
@@ -31,13 +41,39 @@ public class ProjectBuilder {
         mTaskListener = listener;
     }
 
+    /**
+     * Records the next builds as build operations to the given file, in the Chrome trace event
+     * format. Each module and each task of its builder is an operation. Pass null to stop
+     * recording.
+     */
+    public void setTraceFile(@Nullable File traceFile) {
+        mTraceFile = traceFile;
+    }
+
     public void build(BuildType type) throws IOException, CompilationFailedException {
+        if (mTraceFile == null) {
+            build(type, null);
+            return;
+        }
+        ChromeTraceRecorder recorder = new ChromeTraceRecorder(mTraceFile);
+        try {
+            build(type, new DefaultBuildOperationRunner(CurrentBuildOperationRef.instance(),
+                    System::currentTimeMillis,
+                    new DefaultBuildOperationIdFactory(),
+                    () -> new BuildOperationListenerAdapter(recorder, System::currentTimeMillis)));
+        } finally {
+            recorder.close();
+        }
+    }
+
+    private void build(BuildType type, @Nullable BuildOperationRunner runner)
+            throws IOException, CompilationFailedException {
         for (Module module : mModules) {
             module.clear();
             module.open();
             module.index();
 
-            Builder<? extends Module> builder;
+            BuilderImpl<? extends Module> builder;
 
             String moduleType = module.getSettings()
                     .getString(ModuleSettings.MODULE_TYPE, "android_app");
@@ -61,7 +97,11 @@ public class ProjectBuilder {
                     break;
             }
             builder.setTaskListener(mTaskListener);
-            builder.build(type);
+            builder.setBuildOperationRunner(runner);
+            BuilderImpl<? extends Module> moduleBuilder = builder;
+            BuilderImpl.runAsBuildOperation(runner, BuildOperationDescriptor
+                    .displayName("Build module " + module.getName())
+                    .name(module.getName()), () -> moduleBuilder.build(type));
         }
     }
 
@@ -0,0 +1,257 @@
+package com.tyron.builder.compiler.apk;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * Writes a zip file whose uncompressed entries are aligned like {@code zipalign -p 4} would
+ * align them, so the separate zipalign pass is not needed. Entries of other zip files can be
+ * copied without recompressing them.
+ */
+class AlignedZipWriter implements Closeable {
+
+    private static final int ALIGNMENT = 4;
+    /**
+     * Shared libraries are page aligned so they can be mapped directly from the APK.
+     */
+    private static final int LIBRARY_ALIGNMENT = 4096;
+    /**
+     * The extra field used by apksigner and zipalign to pad local headers.
+     */
+    private static final short ALIGNMENT_EXTRA_ID = (short) 0xd935;
+    private static final int ALIGNMENT_EXTRA_MIN_SIZE = 6;
+
+    /**
+     * 1981-01-01 00:00, entries written by this class don't depend on the time of the build.
+     */
+    private static final int DOS_TIME = 0;
+    private static final int DOS_DATE = (1 << 5) | 1 | (1 << 9);
+
+    private static final int FLAG_UTF8 = 1 << 11;
+
+    private final FileChannel mChannel;
+    private final List<CentralEntry> mCentralEntries = new ArrayList<>();
+    private final Deflater mDeflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    private final byte[] mBuffer = new byte[64 * 1024];
+    private final byte[] mDeflateBuffer = new byte[64 * 1024];
+
+    AlignedZipWriter(File file) throws IOException {
+        mChannel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Copies an entry of another zip file, compressed entries are not recompressed.
+     */
+    void copyEntry(RawZipFile source, RawZipFile.Entry entry) throws IOException {
+        CentralEntry centralEntry = new CentralEntry(entry.name, entry.method, entry.time,
+                entry.date, entry.crc, entry.compressedSize, entry.size);
+        writeLocalHeader(centralEntry);
+        source.transferData(entry, mChannel);
+    }
+
+    /**
+     * Writes the content of the file as a new entry. The file is read in chunks, the CRC and the
+     * sizes are written to the local header once the data is written.
+     *
+     * @param compress whether the content is deflated or stored
+     */
+    void writeEntry(String name, File file, boolean compress) throws IOException {
+        CentralEntry entry = new CentralEntry(name,
+                compress ? ZipEntry.DEFLATED : ZipEntry.STORED, DOS_TIME, DOS_DATE, 0, 0, 0);
+        writeLocalHeader(entry);
+        long dataOffset = mChannel.position();
+
+        CRC32 crc = new CRC32();
+        long size = 0;
+        if (compress) {
+            mDeflater.reset();
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(mBuffer)) >= 0) {
+                crc.update(mBuffer, 0, read);
+                size += read;
+                if (compress) {
+                    mDeflater.setInput(mBuffer, 0, read);
+                    while (!mDeflater.needsInput()) {
+                        writeDeflated();
+                    }
+                } else {
+                    writeFully(ByteBuffer.wrap(mBuffer, 0, read));
+                }
+            }
+        }
+        if (compress) {
+            mDeflater.finish();
+            while (!mDeflater.finished()) {
+                writeDeflated();
+            }
+        }
+
+        entry.crc = crc.getValue();
+        entry.size = size;
+        entry.compressedSize = mChannel.position() - dataOffset;
+        checkZip32(name, entry.localHeaderOffset, entry.compressedSize, entry.size);
+        ByteBuffer sizes = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        sizes.putInt((int) entry.crc);
+        sizes.putInt((int) entry.compressedSize);
+        sizes.putInt((int) entry.size);
+        sizes.flip();
+        long position = entry.localHeaderOffset + 14;
+        while (sizes.hasRemaining()) {
+            position += mChannel.write(sizes, position);
+        }
+    }
+
+    private void writeDeflated() throws IOException {
+        int length = mDeflater.deflate(mDeflateBuffer);
+        writeFully(ByteBuffer.wrap(mDeflateBuffer, 0, length));
+    }
+
+    private void writeLocalHeader(CentralEntry entry) throws IOException {
+        long offset = mChannel.position();
+        checkZip32(entry.name, offset, entry.compressedSize, entry.size);
+        byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+
+        int extraLength = 0;
+        if (entry.method == ZipEntry.STORED && !entry.name.endsWith("/")) {
+            int alignment = entry.name.endsWith(".so") ? LIBRARY_ALIGNMENT : ALIGNMENT;
+            long dataOffset = offset + RawZipFile.LOCAL_HEADER_SIZE + name.length;
+            int padding = (int) ((alignment - dataOffset % alignment) % alignment);
+            if (padding > 0) {
+                extraLength = padding;
+                while (extraLength < ALIGNMENT_EXTRA_MIN_SIZE) {
+                    extraLength += alignment;
+                }
+            }
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(RawZipFile.LOCAL_HEADER_SIZE + name.length + extraLength)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0x04034b50);
+        header.putShort((short) (entry.method == ZipEntry.STORED ? 10 : 20));
+        header.putShort((short) FLAG_UTF8);
+        header.putShort((short) entry.method);
+        header.putShort((short) entry.time);
+        header.putShort((short) entry.date);
+        header.putInt((int) entry.crc);
+        header.putInt((int) entry.compressedSize);
+        header.putInt((int) entry.size);
+        header.putShort((short) name.length);
+        header.putShort((short) extraLength);
+        header.put(name);
+        if (extraLength > 0) {
+            header.putShort(ALIGNMENT_EXTRA_ID);
+            header.putShort((short) (extraLength - 4));
+            header.putShort((short) (entry.name.endsWith(".so") ? LIBRARY_ALIGNMENT : ALIGNMENT));
+            // the rest of the padding is zero
+        }
+        header.position(0);
+        writeFully(header);
+
+        entry.localHeaderOffset = offset;
+        mCentralEntries.add(entry);
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            mChannel.write(buffer);
+        }
+    }
+
+    private static void checkZip32(String name, long offset, long compressedSize, long size)
+            throws IOException {
+        if (offset >= 0xffffffffL || compressedSize >= 0xffffffffL || size >= 0xffffffffL) {
+            throw new IOException("Entry " + name + " needs ZIP64, which is not supported");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (mCentralEntries.size() >= 0xffff) {
+                throw new IOException("Too many entries for a zip without ZIP64: "
+                                      + mCentralEntries.size());
+            }
+            long directoryOffset = mChannel.position();
+            for (CentralEntry entry : mCentralEntries) {
+                byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+                ByteBuffer header = ByteBuffer.allocate(46 + name.length)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(0x02014b50);
+                header.putShort((short) 20);
+                header.putShort((short) (entry.method == ZipEntry.STORED ? 10 : 20));
+                header.putShort((short) FLAG_UTF8);
+                header.putShort((short) entry.method);
+                header.putShort((short) entry.time);
+                header.putShort((short) entry.date);
+                header.putInt((int) entry.crc);
+                header.putInt((int) entry.compressedSize);
+                header.putInt((int) entry.size);
+                header.putShort((short) name.length);
+                header.putShort((short) 0);
+                header.putShort((short) 0);
+                header.putShort((short) 0);
+                header.putShort((short) 0);
+                header.putInt(0);
+                header.putInt((int) entry.localHeaderOffset);
+                header.put(name);
+                header.position(0);
+                writeFully(header);
+            }
+            long directorySize = mChannel.position() - directoryOffset;
+            checkZip32("central directory", directoryOffset, directorySize, 0);
+
+            ByteBuffer eocd = ByteBuffer.allocate(22).order(ByteOrder.LITTLE_ENDIAN);
+            eocd.putInt(0x06054b50);
+            eocd.putShort((short) 0);
+            eocd.putShort((short) 0);
+            eocd.putShort((short) mCentralEntries.size());
+            eocd.putShort((short) mCentralEntries.size());
+            eocd.putInt((int) directorySize);
+            eocd.putInt((int) directoryOffset);
+            eocd.putShort((short) 0);
+            eocd.position(0);
+            writeFully(eocd);
+        } finally {
+            mDeflater.end();
+            mChannel.close();
+        }
+    }
+
+    private static class CentralEntry {
+        final String name;
+        final int method;
+        final int time;
+        final int date;
+        long crc;
+        long compressedSize;
+        long size;
+        long localHeaderOffset;
+
+        CentralEntry(String name, int method, int time, int date, long crc,
+                     long compressedSize, long size) {
+            this.name = name;
+            this.method = method;
+            this.time = time;
+            this.date = date;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+        }
+    }
+}
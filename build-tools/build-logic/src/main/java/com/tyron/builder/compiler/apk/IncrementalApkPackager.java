@@ -0,0 +1,366 @@
+package com.tyron.builder.compiler.apk;
+
+import com.android.sdklib.build.ApkBuilder;
+import com.android.sdklib.build.DuplicateFileException;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import com.tyron.builder.log.ILogger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Packages an APK using the APK of the previous build.
+ *
+ * <p>Entries of zip inputs, like the resource APK of aapt2 and the java resources of libraries,
+ * are copied without recompressing them. File inputs are tracked by their length, modification
+ * time and content hash, a file which has not changed since the previous build is copied from
+ * the previous APK instead of being compressed again. Uncompressed entries are aligned while
+ * they are written.
+ *
+ * <p>The inputs are packaged in the order they are added, entries are filtered like
+ * {@link ApkBuilder} filters them. Files are read in chunks, neither the inputs nor the APK
+ * are loaded in memory.
+ */
+public class IncrementalApkPackager {
+
+    private static final Pattern NATIVE_LIBRARY = Pattern.compile("^.+\\.so$",
+            Pattern.CASE_INSENSITIVE);
+
+    private final File mApk;
+    private final File mStateFile;
+    private final ILogger mLogger;
+
+    /**
+     * The entries of the APK in the order they are written, mapped to the input they come from.
+     */
+    private final Map<String, Input> mEntries = new LinkedHashMap<>();
+
+    /**
+     * @param apk       the APK to write, the APK of the previous build is read from here
+     * @param stateFile the file to store the state of the inputs in
+     */
+    public IncrementalApkPackager(File apk, File stateFile, ILogger logger) {
+        mApk = apk;
+        mStateFile = stateFile;
+        mLogger = logger;
+    }
+
+    /**
+     * Adds all the entries of a zip file, except for the files in META-INF. Like {@link ApkBuilder},
+     * none of them are packaged, the signature files and the manifest are written by the signer.
+     */
+    public void addZipFile(File zip) throws IOException, DuplicateFileException {
+        addZipEntries(zip, false);
+    }
+
+    /**
+     * Adds the java resources of a library jar.
+     */
+    public void addResourcesFromJar(File jar) throws IOException, DuplicateFileException {
+        addZipEntries(jar, true);
+    }
+
+    public void addFile(File file, String archivePath) throws DuplicateFileException {
+        add(archivePath, new Input(file, null));
+    }
+
+    /**
+     * Adds the native libraries of a directory containing a directory for each ABI.
+     */
+    public void addNativeLibraries(File nativeFolder) throws DuplicateFileException {
+        File[] abis = nativeFolder.listFiles();
+        if (abis == null) {
+            return;
+        }
+        for (File abi : abis) {
+            if (!abi.isDirectory()) {
+                continue;
+            }
+            File[] libraries = abi.listFiles();
+            if (libraries == null) {
+                continue;
+            }
+            for (File library : libraries) {
+                if (library.isFile() && NATIVE_LIBRARY.matcher(library.getName()).matches()) {
+                    addFile(library, "lib/" + abi.getName() + "/" + library.getName());
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the java resources of a source folder.
+     */
+    public void addSourceFolder(File folder) throws DuplicateFileException {
+        addSourceFolder(folder, "");
+    }
+
+    private void addSourceFolder(File folder, String prefix) throws DuplicateFileException {
+        File[] children = folder.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            if (child.isDirectory()) {
+                if (ApkBuilder.checkFolderForPackaging(child.getName())) {
+                    addSourceFolder(child, prefix + child.getName() + "/");
+                }
+            } else if (ApkBuilder.checkFileForPackaging(child.getName())) {
+                addFile(child, prefix + child.getName());
+            }
+        }
+    }
+
+    private void addZipEntries(File zip, boolean javaResources)
+            throws IOException, DuplicateFileException {
+        List<RawZipFile.Entry> entries;
+        try (RawZipFile zipFile = new RawZipFile(zip)) {
+            entries = zipFile.getEntries();
+        }
+        for (RawZipFile.Entry entry : entries) {
+            String name = entry.name;
+            if (entry.isDirectory() || name.startsWith("META-INF/")) {
+                continue;
+            }
+            if (javaResources && !isJavaResource(name)) {
+                continue;
+            }
+            add(name, new Input(zip, entry));
+        }
+    }
+
+    private static boolean isJavaResource(String archivePath) {
+        String[] segments = archivePath.split("/");
+        if (segments.length == 0) {
+            return false;
+        }
+        for (int i = 0; i < segments.length - 1; i++) {
+            if (!ApkBuilder.checkFolderForPackaging(segments[i])) {
+                return false;
+            }
+        }
+        return ApkBuilder.checkFileForPackaging(segments[segments.length - 1]);
+    }
+
+    private void add(String archivePath, Input input) throws DuplicateFileException {
+        Input existing = mEntries.get(archivePath);
+        if (existing != null) {
+            throw new DuplicateFileException(archivePath, existing.file, input.file);
+        }
+        mEntries.put(archivePath, input);
+    }
+
+    /**
+     * Writes the APK, only the file inputs which changed since the previous build are compressed.
+     */
+    public void sealApk() throws IOException {
+        Map<String, FileState> previousStates = readState();
+        Map<String, FileState> states = new LinkedHashMap<>();
+        File tempApk = new File(mApk.getParentFile(), mApk.getName() + ".tmp");
+
+        int written = 0;
+        try (ZipFiles zipFiles = new ZipFiles()) {
+            RawZipFile previousApk = previousStates.isEmpty() ? null : zipFiles.open(mApk);
+            Map<String, RawZipFile.Entry> previousEntries = new HashMap<>();
+            if (previousApk != null) {
+                for (RawZipFile.Entry entry : previousApk.getEntries()) {
+                    previousEntries.put(entry.name, entry);
+                }
+            }
+
+            try (AlignedZipWriter writer = new AlignedZipWriter(tempApk)) {
+                for (Map.Entry<String, Input> mapEntry : mEntries.entrySet()) {
+                    String name = mapEntry.getKey();
+                    Input input = mapEntry.getValue();
+                    if (input.zipEntry != null) {
+                        writer.copyEntry(zipFiles.open(input.file), input.zipEntry);
+                        continue;
+                    }
+
+                    File file = input.file;
+                    long length = file.length();
+                    long lastModified = file.lastModified();
+                    FileState previous = previousStates.get(name);
+                    RawZipFile.Entry previousEntry = previousEntries.get(name);
+                    if (previous != null && previousEntry != null
+                        && previous.isUpToDate(file, length, lastModified)) {
+                        writer.copyEntry(previousApk, previousEntry);
+                        states.put(name, previous);
+                        continue;
+                    }
+
+                    HashCode hash = MoreFiles.asByteSource(file.toPath())
+                            .hash(Hashing.murmur3_128());
+                    FileState state = new FileState(file.getAbsolutePath(), length,
+                            lastModified, hash.toString());
+                    states.put(name, state);
+                    if (previous != null && previousEntry != null
+                        && previous.hasContent(file, state.hash)) {
+                        // touched but not modified
+                        writer.copyEntry(previousApk, previousEntry);
+                        continue;
+                    }
+                    writer.writeEntry(name, file, true);
+                    written++;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempApk.toPath());
+            throw e;
+        }
+
+        try {
+            Files.move(tempApk.toPath(), mApk.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempApk.toPath(), mApk.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        writeState(states);
+
+        mLogger.debug("Packaged " + mEntries.size() + " entries, compressed " + written +
+                      " changed files.");
+    }
+
+    /**
+     * @return the state of the file inputs of the previous build, empty if the previous APK
+     * is not the one the state was written for
+     */
+    private Map<String, FileState> readState() {
+        Map<String, FileState> states = new HashMap<>();
+        if (!mStateFile.exists() || !mApk.exists()) {
+            return states;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(mStateFile.toPath(),
+                StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (header == null || !header.equals(apkStamp())) {
+                return states;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // hash, length, last modified, file, entry name
+                String[] parts = line.split("\t", 5);
+                if (parts.length != 5) {
+                    states.clear();
+                    return states;
+                }
+                states.put(parts[4], new FileState(parts[3], Long.parseLong(parts[1]),
+                        Long.parseLong(parts[2]), parts[0]));
+            }
+        } catch (IOException | NumberFormatException e) {
+            mLogger.warning("Unable to read the packaging state, packaging all files. " + e);
+            states.clear();
+        }
+        return states;
+    }
+
+    private void writeState(Map<String, FileState> states) throws IOException {
+        File parent = mStateFile.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Unable to create directory " + parent);
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(mStateFile.toPath(),
+                StandardCharsets.UTF_8)) {
+            writer.write(apkStamp());
+            writer.newLine();
+            for (Map.Entry<String, FileState> entry : states.entrySet()) {
+                FileState state = entry.getValue();
+                writer.write(state.hash + "\t" + state.length + "\t" + state.lastModified + "\t" +
+                             state.path + "\t" + entry.getKey());
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Identifies the APK the state was written for, a different APK at the same path
+     * must not be used as the base of the next build.
+     */
+    private String apkStamp() {
+        return String.format(Locale.ROOT, "%d %d", mApk.length(), mApk.lastModified());
+    }
+
+    private static class Input {
+        final File file;
+        /**
+         * The entry to copy if the input is a zip file, null if the file itself is the entry
+         */
+        final RawZipFile.Entry zipEntry;
+
+        Input(File file, RawZipFile.Entry zipEntry) {
+            this.file = file;
+            this.zipEntry = zipEntry;
+        }
+    }
+
+    private static class FileState {
+        final String path;
+        final long length;
+        final long lastModified;
+        final String hash;
+
+        FileState(String path, long length, long lastModified, String hash) {
+            this.path = path;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+
+        boolean isUpToDate(File file, long length, long lastModified) {
+            return path.equals(file.getAbsolutePath())
+                   && this.length == length
+                   && this.lastModified == lastModified;
+        }
+
+        boolean hasContent(File file, String hash) {
+            return path.equals(file.getAbsolutePath()) && this.hash.equals(hash);
+        }
+    }
+
+    /**
+     * The zip files opened while writing the APK, each of them is only opened once.
+     */
+    private static class ZipFiles implements Closeable {
+        private final Map<File, RawZipFile> mOpened = new HashMap<>();
+
+        RawZipFile open(File file) throws IOException {
+            RawZipFile zipFile = mOpened.get(file);
+            if (zipFile == null) {
+                zipFile = new RawZipFile(file);
+                mOpened.put(file, zipFile);
+            }
+            return zipFile;
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException failure = null;
+            for (RawZipFile zipFile : new ArrayList<>(mOpened.values())) {
+                try {
+                    zipFile.close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
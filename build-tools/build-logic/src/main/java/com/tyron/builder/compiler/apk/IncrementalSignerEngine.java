@@ -0,0 +1,380 @@
+package com.tyron.builder.compiler.apk;
+
+import com.android.apksig.ApkSignerEngine;
+import com.android.apksig.DefaultApkSignerEngine;
+import com.android.apksig.apk.ApkFormatException;
+import com.android.apksig.internal.apk.v1.DigestAlgorithm;
+import com.android.apksig.internal.apk.v1.V1SchemeSigner;
+import com.android.apksig.internal.util.Pair;
+import com.android.apksig.util.DataSink;
+import com.android.apksig.util.DataSource;
+import com.android.apksig.util.RunnablesExecutor;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.SignatureException;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * An {@link ApkSignerEngine} which reuses the JAR (v1) digests of entries that did not change
+ * since a previous signing in this process.
+ *
+ * <p>The v1 scheme needs the digest of the uncompressed content of every entry, which means
+ * inflating and digesting the whole APK. This engine identifies entries by the CRC and sizes
+ * of the central directory of the input APK instead, and only asks for the content of entries
+ * whose CRC or sizes changed since the previous signing of the same APK. The v2 and v3 signatures are computed by a {@link DefaultApkSignerEngine}, which
+ * digests the chunks of the APK in parallel.
+ */
+public class IncrementalSignerEngine implements ApkSignerEngine {
+
+    private static final String SIGNER_NAME = "CERT";
+    private static final String CREATED_BY = "1.0 (Android)";
+    /**
+     * The ids of the v2 and v3 schemes, listed in the v1 signature file to protect against
+     * stripping the newer signatures.
+     */
+    private static final List<Integer> SIGNATURE_SCHEME_IDS = Collections.unmodifiableList(
+            java.util.Arrays.asList(2, 3));
+
+    private static final int PARALLELISM = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private static final ExecutorService DIGEST_EXECUTOR = Executors.newFixedThreadPool(
+            PARALLELISM, runnable -> {
+                Thread thread = new Thread(runnable, "APK digest");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /**
+     * Runs the digest jobs of the v2 and v3 signers on {@link #DIGEST_EXECUTOR}, one job per
+     * thread, each job takes the next chunk until all chunks are digested.
+     */
+    private static final RunnablesExecutor PARALLEL_EXECUTOR = provider -> {
+        List<Future<?>> futures = new ArrayList<>(PARALLELISM);
+        for (int i = 0; i < PARALLELISM; i++) {
+            futures.add(DIGEST_EXECUTOR.submit(provider.createRunnable()));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    };
+
+    /**
+     * The v1 digests of the entries signed in this process, by input APK and entry name. Only
+     * the latest content of each entry of an APK is remembered.
+     */
+    private static final Map<File, Map<String, CachedDigest>> sDigestCaches =
+            new ConcurrentHashMap<>();
+
+    private final DefaultApkSignerEngine mDelegate;
+    private final List<V1SchemeSigner.SignerConfig> mV1SignerConfigs;
+    private final DigestAlgorithm mDigestAlgorithm;
+    private final Set<String> mV1OutputEntryNames;
+
+    /**
+     * Identifies the content of the entries of the input APK.
+     */
+    private final Map<String, HashCode> mInputEntryKeys;
+    private final Map<String, CachedDigest> mDigestCache;
+    private final Map<String, byte[]> mOutputDigests = new HashMap<>();
+    private final Map<String, DigestRequest> mPendingRequests = new HashMap<>();
+
+    private int mReusedDigests;
+
+    /**
+     * @param inputApk the APK that is going to be signed with this engine
+     */
+    public IncrementalSignerEngine(PrivateKey privateKey, List<X509Certificate> certificates,
+                                   int minSdkVersion, File inputApk)
+            throws InvalidKeyException, IOException {
+        DefaultApkSignerEngine.SignerConfig signerConfig =
+                new DefaultApkSignerEngine.SignerConfig.Builder(SIGNER_NAME, privateKey,
+                        certificates).build();
+        mDelegate = new DefaultApkSignerEngine.Builder(
+                Collections.singletonList(signerConfig), minSdkVersion)
+                .setV1SigningEnabled(false)
+                .setV2SigningEnabled(true)
+                .setV3SigningEnabled(true)
+                .setCreatedBy(CREATED_BY)
+                .build();
+        mDelegate.setExecutor(PARALLEL_EXECUTOR);
+
+        V1SchemeSigner.SignerConfig v1Config = new V1SchemeSigner.SignerConfig();
+        v1Config.name = V1SchemeSigner.getSafeSignerName(SIGNER_NAME);
+        v1Config.privateKey = privateKey;
+        v1Config.certificates = certificates;
+        v1Config.signatureDigestAlgorithm = V1SchemeSigner.getSuggestedSignatureDigestAlgorithm(
+                certificates.get(0).getPublicKey(), minSdkVersion);
+        mV1SignerConfigs = Collections.singletonList(v1Config);
+        mDigestAlgorithm = v1Config.signatureDigestAlgorithm;
+        mV1OutputEntryNames = V1SchemeSigner.getOutputEntryNames(mV1SignerConfigs);
+
+        mInputEntryKeys = readEntryKeys(inputApk);
+        mDigestCache = sDigestCaches.computeIfAbsent(inputApk.getAbsoluteFile(),
+                file -> new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Identifies the entries of the APK by their compression method, CRC and sizes, which are
+     * read from the central directory. Their data is not read.
+     */
+    private static Map<String, HashCode> readEntryKeys(File apk) throws IOException {
+        Map<String, HashCode> keys = new HashMap<>();
+        try (RawZipFile zipFile = new RawZipFile(apk)) {
+            for (RawZipFile.Entry entry : zipFile.getEntries()) {
+                if (!V1SchemeSigner.isJarEntryDigestNeededInManifest(entry.name)) {
+                    continue;
+                }
+                keys.put(entry.name, Hashing.murmur3_128().newHasher()
+                        .putInt(entry.method)
+                        .putLong(entry.crc)
+                        .putLong(entry.compressedSize)
+                        .putLong(entry.size)
+                        .hash());
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * @return the number of entries whose v1 digest was reused
+     */
+    public int getReusedDigestCount() {
+        return mReusedDigests;
+    }
+
+    @Override
+    public void setExecutor(RunnablesExecutor executor) {
+        mDelegate.setExecutor(executor);
+    }
+
+    @Override
+    public void inputApkSigningBlock(DataSource apkSigningBlock) {
+        mDelegate.inputApkSigningBlock(apkSigningBlock);
+    }
+
+    @Override
+    public InputJarEntryInstructions inputJarEntry(String entryName) {
+        if (mV1OutputEntryNames.contains(entryName)) {
+            // replaced by the signature files of this engine
+            return new InputJarEntryInstructions(InputJarEntryInstructions.OutputPolicy.SKIP);
+        }
+        return mDelegate.inputJarEntry(entryName);
+    }
+
+    @Override
+    public InspectJarEntryRequest outputJarEntry(String entryName) {
+        InspectJarEntryRequest delegateRequest = mDelegate.outputJarEntry(entryName);
+        mPendingRequests.remove(entryName);
+        mOutputDigests.remove(entryName);
+        if (!V1SchemeSigner.isJarEntryDigestNeededInManifest(entryName)) {
+            return delegateRequest;
+        }
+
+        HashCode key = mInputEntryKeys.get(entryName);
+        CachedDigest cached = mDigestCache.get(entryName);
+        if (key != null && cached != null && cached.matches(key, mDigestAlgorithm)) {
+            mOutputDigests.put(entryName, cached.digest);
+            mReusedDigests++;
+            return delegateRequest;
+        }
+
+        DigestRequest request = new DigestRequest(entryName, key, delegateRequest);
+        mPendingRequests.put(entryName, request);
+        return request;
+    }
+
+    @Override
+    public InputJarEntryInstructions.OutputPolicy inputJarEntryRemoved(String entryName) {
+        return mDelegate.inputJarEntryRemoved(entryName);
+    }
+
+    @Override
+    public void outputJarEntryRemoved(String entryName) {
+        mPendingRequests.remove(entryName);
+        mOutputDigests.remove(entryName);
+        mDelegate.outputJarEntryRemoved(entryName);
+    }
+
+    @Override
+    public OutputJarSignatureRequest outputJarEntries()
+            throws ApkFormatException, NoSuchAlgorithmException, InvalidKeyException,
+            SignatureException {
+        if (mDelegate.outputJarEntries() != null) {
+            throw new IllegalStateException("The v1 signature is produced by this engine");
+        }
+        if (!mPendingRequests.isEmpty()) {
+            throw new IllegalStateException("Still waiting to inspect output entries: "
+                                            + mPendingRequests.keySet());
+        }
+
+        List<Pair<String, byte[]>> signatureFiles;
+        try {
+            signatureFiles = V1SchemeSigner.sign(mV1SignerConfigs, mDigestAlgorithm,
+                    new TreeMap<>(mOutputDigests), SIGNATURE_SCHEME_IDS, null, CREATED_BY);
+        } catch (CertificateException e) {
+            throw new SignatureException("Failed to generate v1 signature", e);
+        }
+
+        List<OutputJarSignatureRequest.JarEntry> entries = new ArrayList<>(signatureFiles.size());
+        for (Pair<String, byte[]> file : signatureFiles) {
+            entries.add(new OutputJarSignatureRequest.JarEntry(file.getFirst(), file.getSecond()));
+        }
+        return new OutputJarSignatureRequest() {
+            @Override
+            public List<JarEntry> getAdditionalJarEntries() {
+                return entries;
+            }
+
+            @Override
+            public void done() {
+                // nothing to verify, the entries are written as they are
+            }
+        };
+    }
+
+    @Override
+    public OutputApkSigningBlockRequest outputZipSections(DataSource zipEntries,
+                                                          DataSource zipCentralDirectory,
+                                                          DataSource zipEocd)
+            throws IOException, ApkFormatException, NoSuchAlgorithmException,
+            InvalidKeyException, SignatureException {
+        return mDelegate.outputZipSections(zipEntries, zipCentralDirectory, zipEocd);
+    }
+
+    @Override
+    public OutputApkSigningBlockRequest2 outputZipSections2(DataSource zipEntries,
+                                                            DataSource zipCentralDirectory,
+                                                            DataSource zipEocd)
+            throws IOException, ApkFormatException, NoSuchAlgorithmException,
+            InvalidKeyException, SignatureException {
+        return mDelegate.outputZipSections2(zipEntries, zipCentralDirectory, zipEocd);
+    }
+
+    @Override
+    public void outputDone() {
+        mDelegate.outputDone();
+    }
+
+    @Override
+    public void signV4(DataSource dataSource, File outputFile, boolean ignoreFailures)
+            throws InvalidKeyException, NoSuchAlgorithmException, SignatureException,
+            IOException {
+        mDelegate.signV4(dataSource, outputFile, ignoreFailures);
+    }
+
+    @Override
+    public void close() {
+        mDelegate.close();
+    }
+
+    private static class CachedDigest {
+        final HashCode key;
+        final DigestAlgorithm algorithm;
+        final byte[] digest;
+
+        CachedDigest(HashCode key, DigestAlgorithm algorithm, byte[] digest) {
+            this.key = key;
+            this.algorithm = algorithm;
+            this.digest = digest;
+        }
+
+        boolean matches(HashCode key, DigestAlgorithm algorithm) {
+            return this.key.equals(key) && this.algorithm == algorithm;
+        }
+    }
+
+    /**
+     * Digests the uncompressed content of an entry, and passes it on to the request of the
+     * delegate if it also wants to inspect the entry.
+     */
+    private class DigestRequest implements InspectJarEntryRequest, DataSink {
+        private final String mEntryName;
+        private final HashCode mKey;
+        private final InspectJarEntryRequest mDelegateRequest;
+        private final DataSink mDelegateSink;
+        private final MessageDigest mMessageDigest;
+
+        DigestRequest(String entryName, HashCode key, InspectJarEntryRequest delegateRequest) {
+            mEntryName = entryName;
+            mKey = key;
+            mDelegateRequest = delegateRequest;
+            mDelegateSink = delegateRequest == null ? null : delegateRequest.getDataSink();
+            try {
+                mMessageDigest = MessageDigest.getInstance(
+                        V1SchemeSigner.getJcaMessageDigestAlgorithm(mDigestAlgorithm));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public DataSink getDataSink() {
+            return this;
+        }
+
+        @Override
+        public void consume(byte[] buf, int offset, int length) throws IOException {
+            mMessageDigest.update(buf, offset, length);
+            if (mDelegateSink != null) {
+                mDelegateSink.consume(buf, offset, length);
+            }
+        }
+
+        @Override
+        public void consume(ByteBuffer buf) throws IOException {
+            if (mDelegateSink != null) {
+                mDelegateSink.consume(buf.duplicate());
+            }
+            mMessageDigest.update(buf);
+        }
+
+        @Override
+        public void done() {
+            if (mPendingRequests.get(mEntryName) != this) {
+                // the entry has been output again or removed since this request was created
+                return;
+            }
+            mPendingRequests.remove(mEntryName);
+            byte[] digest = mMessageDigest.digest();
+            mOutputDigests.put(mEntryName, digest);
+            if (mKey != null) {
+                mDigestCache.put(mEntryName, new CachedDigest(mKey, mDigestAlgorithm, digest));
+            }
+            if (mDelegateRequest != null) {
+                mDelegateRequest.done();
+            }
+        }
+
+        @Override
+        public String getEntryName() {
+            return mEntryName;
+        }
+    }
+}
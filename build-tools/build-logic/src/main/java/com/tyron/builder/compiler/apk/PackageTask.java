@@ -2,10 +2,7 @@ package com.tyron.builder.compiler.apk;
 
 import android.net.Uri;
 
-import com.android.sdklib.build.ApkBuilder;
-import com.android.sdklib.build.ApkCreationException;
 import com.android.sdklib.build.DuplicateFileException;
-import com.android.sdklib.build.SealedApkException;
 import com.tyron.builder.compiler.BuildType;
 import com.tyron.builder.compiler.Task;
 import com.tyron.builder.exception.CompilationFailedException;
@@ -79,39 +76,37 @@ public class PackageTask extends Task<AndroidModule> {
 
     @Override
     public void run() throws IOException, CompilationFailedException {
-
+        File stateFile = new File(getModule().getBuildDirectory(),
+                "intermediate/package/inputs.txt");
         int dexCount = 1;
         try {
-            ApkBuilder builder = new ApkBuilder(
-                    mApk.getAbsolutePath(),
-                    mGeneratedRes.getAbsolutePath(),
-                    mDexFile.getAbsolutePath(),
-                    null,
-                    null);
+            IncrementalApkPackager packager =
+                    new IncrementalApkPackager(mApk, stateFile, getLogger());
+            packager.addZipFile(mGeneratedRes);
+            packager.addFile(mDexFile, "classes.dex");
 
             for (File extraDex : mDexFiles) {
                 dexCount++;
-                builder.addFile(extraDex, Uri.parse(extraDex.getAbsolutePath()).getLastPathSegment());
+                packager.addFile(extraDex, Uri.parse(extraDex.getAbsolutePath()).getLastPathSegment());
             }
 
             for (File library : mLibraries) {
-                builder.addResourcesFromJar(library);
+                packager.addResourcesFromJar(library);
 
                 File parent = library.getParentFile();
                 if (parent != null) {
                     File jniFolder = new File(parent, "jni");
                     if (jniFolder.exists() && jniFolder.isDirectory()) {
-                        builder.addNativeLibraries(jniFolder);
+                        packager.addNativeLibraries(jniFolder);
                     }
                 }
             }
 
             if (getModule().getNativeLibrariesDirectory().exists()) {
-                builder.addNativeLibraries(getModule().getNativeLibrariesDirectory());
+                packager.addNativeLibraries(getModule().getNativeLibrariesDirectory());
             }
 
             if (mBuildType == BuildType.DEBUG) {
-                builder.setDebugMode(true);
                 // For debug mode, dex files are not merged to save up compile time
                 for (File it : getModule().getLibraries()) {
                     File parent = it.getParentFile();
@@ -120,7 +115,7 @@ public class PackageTask extends Task<AndroidModule> {
                         if (dexFiles != null) {
                             for (File dexFile : dexFiles) {
                                 dexCount++;
-                                builder.addFile(dexFile, "classes" + dexCount + ".dex");
+                                packager.addFile(dexFile, "classes" + dexCount + ".dex");
                             }
                         }
                     }
@@ -129,12 +124,10 @@ public class PackageTask extends Task<AndroidModule> {
 
             File resourcesDir = getModule().getResourcesDir();
             if (resourcesDir.exists()) {
-                builder.addSourceFolder(resourcesDir);
+                packager.addSourceFolder(resourcesDir);
             }
 
-            builder.sealApk();
-        } catch (ApkCreationException | SealedApkException e) {
-            throw new CompilationFailedException(e);
+            packager.sealApk();
         } catch (DuplicateFileException e) {
             String message = "Duplicate files from two libraries detected. \n";
             message += "File1: " + e.getFile1() + " \n";
@@ -0,0 +1,178 @@
+package com.tyron.builder.compiler.apk;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads the central directory of a zip file so its entries can be copied without
+ * decompressing them.
+ */
+class RawZipFile implements Closeable {
+
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int EOCD_SIZE = 22;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    static final int LOCAL_HEADER_SIZE = 30;
+
+    private final File mFile;
+    private final FileChannel mChannel;
+    private final List<Entry> mEntries;
+
+    RawZipFile(File file) throws IOException {
+        mFile = file;
+        mChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            mEntries = readCentralDirectory();
+        } catch (IOException | RuntimeException e) {
+            mChannel.close();
+            throw e;
+        }
+    }
+
+    File getFile() {
+        return mFile;
+    }
+
+    List<Entry> getEntries() {
+        return mEntries;
+    }
+
+    /**
+     * Copies the compressed data of the entry to the channel.
+     */
+    void transferData(Entry entry, FileChannel target) throws IOException {
+        long position = getDataOffset(entry);
+        long remaining = entry.compressedSize;
+        while (remaining > 0) {
+            long transferred = mChannel.transferTo(position, remaining, target);
+            if (transferred <= 0) {
+                throw new IOException("Unexpected end of " + mFile);
+            }
+            position += transferred;
+            remaining -= transferred;
+        }
+    }
+
+    private long getDataOffset(Entry entry) throws IOException {
+        ByteBuffer header = read(entry.localHeaderOffset, LOCAL_HEADER_SIZE);
+        if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+            throw new IOException("Invalid local header of " + entry.name + " in " + mFile);
+        }
+        int nameLength = header.getShort(26) & 0xffff;
+        int extraLength = header.getShort(28) & 0xffff;
+        return entry.localHeaderOffset + LOCAL_HEADER_SIZE + nameLength + extraLength;
+    }
+
+    private List<Entry> readCentralDirectory() throws IOException {
+        long size = mChannel.size();
+        if (size < EOCD_SIZE) {
+            throw new IOException("Not a zip file: " + mFile);
+        }
+        // the end of central directory record is followed by a comment of at most 65535 bytes
+        int tailSize = (int) Math.min(size, EOCD_SIZE + 0xffff);
+        ByteBuffer tail = read(size - tailSize, tailSize);
+        int eocd = -1;
+        for (int i = tailSize - EOCD_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == EOCD_SIGNATURE) {
+                eocd = i;
+                break;
+            }
+        }
+        if (eocd == -1) {
+            throw new IOException("Not a zip file: " + mFile);
+        }
+
+        int entryCount = tail.getShort(eocd + 10) & 0xffff;
+        long directorySize = tail.getInt(eocd + 12) & 0xffffffffL;
+        long directoryOffset = tail.getInt(eocd + 16) & 0xffffffffL;
+        if (entryCount == 0xffff || directoryOffset == 0xffffffffL) {
+            throw new IOException("ZIP64 archives are not supported: " + mFile);
+        }
+
+        ByteBuffer directory = read(directoryOffset, (int) directorySize);
+        List<Entry> entries = new ArrayList<>(entryCount);
+        int position = 0;
+        for (int i = 0; i < entryCount; i++) {
+            if (directory.getInt(position) != CENTRAL_HEADER_SIGNATURE) {
+                throw new IOException("Invalid central directory in " + mFile);
+            }
+            int nameLength = directory.getShort(position + 28) & 0xffff;
+            int extraLength = directory.getShort(position + 30) & 0xffff;
+            int commentLength = directory.getShort(position + 32) & 0xffff;
+            byte[] name = new byte[nameLength];
+            directory.position(position + CENTRAL_HEADER_SIZE);
+            directory.get(name);
+
+            Entry entry = new Entry(
+                    new String(name, StandardCharsets.UTF_8),
+                    directory.getShort(position + 10) & 0xffff,
+                    directory.getShort(position + 12) & 0xffff,
+                    directory.getShort(position + 14) & 0xffff,
+                    directory.getInt(position + 16) & 0xffffffffL,
+                    directory.getInt(position + 20) & 0xffffffffL,
+                    directory.getInt(position + 24) & 0xffffffffL,
+                    directory.getInt(position + 42) & 0xffffffffL);
+            if (entry.compressedSize == 0xffffffffL || entry.size == 0xffffffffL
+                    || entry.localHeaderOffset == 0xffffffffL) {
+                throw new IOException("ZIP64 archives are not supported: " + mFile);
+            }
+            entries.add(entry);
+            position += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+        }
+        return Collections.unmodifiableList(entries);
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (mChannel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of " + mFile);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mChannel.close();
+    }
+
+    static class Entry {
+        final String name;
+        final int method;
+        final int time;
+        final int date;
+        final long crc;
+        final long compressedSize;
+        final long size;
+        final long localHeaderOffset;
+
+        Entry(String name, int method, int time, int date, long crc, long compressedSize,
+              long size, long localHeaderOffset) {
+            this.name = name;
+            this.method = method;
+            this.time = time;
+            this.date = date;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        boolean isDirectory() {
+            return name.endsWith("/");
+        }
+    }
+}
@@ -46,7 +46,7 @@ public class SignTask extends Task<AndroidModule> {
     @Override
     public void run() throws IOException, CompilationFailedException {
         ApkSigner signer = new ApkSigner(mInputApk.getAbsolutePath(),
-                mOutputApk.getAbsolutePath(), ApkSigner.Mode.TEST);
+                mOutputApk.getAbsolutePath());
 
         try {
             signer.sign();
@@ -54,6 +54,9 @@ public class SignTask extends Task<AndroidModule> {
             throw new CompilationFailedException(e);
         }
 
-        FileUtils.forceDelete(mInputApk);
+        // generated.apk is kept, the next build packages incrementally on top of it
+        if (mInputApk.getName().equals("aligned.apk")) {
+            FileUtils.forceDelete(mInputApk);
+        }
     }
 }
@@ -13,6 +13,9 @@ import com.android.tools.r8.R8;
 import com.android.tools.r8.R8Command;
 import com.android.tools.r8.inspector.Inspector;
 import com.android.tools.r8.origin.Origin;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.tyron.builder.compiler.BuildType;
 import com.tyron.builder.compiler.Task;
 import com.tyron.builder.exception.CompilationFailedException;
@@ -40,6 +43,8 @@ public class R8Task extends Task<AndroidModule> {
 
     private static final String TAG = R8Task.class.getSimpleName();
 
+    private ReleaseDexCache mCache;
+
     public R8Task(Project project, AndroidModule module, ILogger logger) {
         super(project, module, logger);
     }
@@ -51,32 +56,64 @@ public class R8Task extends Task<AndroidModule> {
 
     @Override
     public void prepare(BuildType type) throws IOException {
-
+        mCache = new ReleaseDexCache(getModule(), "r8");
     }
 
     @Override
     public void run() throws IOException, CompilationFailedException {
+        File output = new File(getModule().getBuildDirectory(), "bin");
+        List<Path> classFiles = new ArrayList<>(D8Task.getClassFiles(
+                new File(getModule().getBuildDirectory(), "bin/kotlin/classes")));
+        classFiles.addAll(D8Task.getClassFiles(
+                new File(getModule().getBuildDirectory(), "bin/java/classes")));
+        List<String> defaultRules = getDefaultProguardRule();
+        List<Path> proguardRules = getProguardRules();
+
+        HashCode fingerprint = computeFingerprint(classFiles, defaultRules, proguardRules);
+        if (mCache.isUpToDate(fingerprint)) {
+            getLogger().debug("R8 inputs have not changed, using the previous output.");
+            mCache.copyOutputs(output);
+            return;
+        }
+
         try {
-            File output = new File(getModule().getBuildDirectory(), "bin");
-            File mappingOutput = new File(output, "proguard-mapping.txt");
+            File cacheOutput = mCache.prepareOutputDirectory();
+            File mappingOutput = new File(cacheOutput, "proguard-mapping.txt");
             R8Command.Builder command = R8Command.builder(new DexDiagnosticHandler(getLogger(), getModule()))
                     .addProgramFiles(getModule().getLibraries().stream().map(File::toPath)
                                              .collect(Collectors.toList()))
                     .addLibraryFiles(getLibraryFiles())
-                    .addProgramFiles(D8Task.getClassFiles(new File(getModule().getBuildDirectory(),
-                            "bin/kotlin/classes")))
-                    .addProgramFiles(D8Task.getClassFiles(new File(getModule().getBuildDirectory(),
-                            "bin/java/classes")))
-                    .addProguardConfiguration(getDefaultProguardRule(), Origin.unknown())
-                    .addProguardConfigurationFiles(getProguardRules())
+                    .addProgramFiles(classFiles)
+                    .addProguardConfiguration(defaultRules, Origin.unknown())
+                    .addProguardConfigurationFiles(proguardRules)
                     .setMinApiLevel(getModule().getMinSdk())
                     .setMode(CompilationMode.RELEASE)
                     .setProguardMapOutputPath(mappingOutput.toPath())
-                    .setOutput(output.toPath(), OutputMode.DexIndexed);
+                    .setOutput(cacheOutput.toPath(), OutputMode.DexIndexed);
             R8.run(command.build());
         } catch (com.android.tools.r8.CompilationFailedException e) {
             throw new CompilationFailedException(e);
         }
+
+        mCache.store(fingerprint);
+        mCache.copyOutputs(output);
+    }
+
+    /**
+     * Hashes everything the output of R8 depends on. The rules are only parsed by R8 when
+     * this changes.
+     */
+    private HashCode computeFingerprint(List<Path> classFiles, List<String> defaultRules,
+                                        List<Path> proguardRules) throws IOException {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        hasher.putInt(getModule().getMinSdk());
+        ReleaseDexCache.putStamps(hasher, getModule().getLibraries());
+        ReleaseDexCache.putStamps(hasher, getLibraryFiles().stream().map(Path::toFile)
+                .collect(Collectors.toList()));
+        ReleaseDexCache.putFiles(hasher, classFiles);
+        ReleaseDexCache.putStrings(hasher, defaultRules);
+        ReleaseDexCache.putFiles(hasher, proguardRules);
+        return hasher.hash();
     }
 
     private List<String> getDefaultProguardRule() {
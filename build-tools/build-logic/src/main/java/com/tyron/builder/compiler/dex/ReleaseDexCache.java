@@ -0,0 +1,128 @@
+package com.tyron.builder.compiler.dex;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.tyron.builder.project.api.AndroidModule;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps the dex files of the last release build in {@code build/release-cache}, which is not
+ * deleted by the {@link com.tyron.builder.compiler.CleanTask} before each release build. A
+ * release build with the same inputs copies them back instead of dexing or shrinking again,
+ * which is the common case after editing only resources.
+ */
+public class ReleaseDexCache {
+
+    private final File mDirectory;
+    private final File mStateFile;
+
+    public ReleaseDexCache(AndroidModule module, String name) {
+        mDirectory = new File(module.getBuildDirectory(), "release-cache/" + name);
+        mStateFile = new File(mDirectory, "inputs.txt");
+    }
+
+    /**
+     * @return the directory the dexer writes its outputs to
+     */
+    public File getOutputDirectory() {
+        return new File(mDirectory, "output");
+    }
+
+    /**
+     * @return whether the outputs were produced from inputs with the same fingerprint
+     */
+    public boolean isUpToDate(HashCode fingerprint) {
+        if (!mStateFile.exists()) {
+            return false;
+        }
+        try {
+            String state = FileUtils.readFileToString(mStateFile, StandardCharsets.UTF_8);
+            File[] outputs = getOutputDirectory().listFiles();
+            return state.trim().equals(fingerprint.toString()) &&
+                   outputs != null && outputs.length > 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Deletes the previous outputs, the cache is only valid again once {@link #store} is
+     * called after the dexer succeeded.
+     */
+    public File prepareOutputDirectory() throws IOException {
+        FileUtils.deleteQuietly(mStateFile);
+        File output = getOutputDirectory();
+        if (output.exists()) {
+            FileUtils.deleteDirectory(output);
+        }
+        if (!output.mkdirs()) {
+            throw new IOException("Unable to create directory " + output);
+        }
+        return output;
+    }
+
+    public void store(HashCode fingerprint) throws IOException {
+        FileUtils.writeStringToFile(mStateFile, fingerprint.toString(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Copies the outputs to the given directory, replacing the files with the same name.
+     */
+    public void copyOutputs(File directory) throws IOException {
+        File[] outputs = getOutputDirectory().listFiles(File::isFile);
+        if (outputs == null) {
+            return;
+        }
+        for (File output : outputs) {
+            FileUtils.copyFile(output, new File(directory, output.getName()));
+        }
+    }
+
+    /**
+     * Hashes the paths and contents of the files. Class files are hashed by content since
+     * they are compiled again after the release clean even if their sources did not change.
+     */
+    public static void putFiles(Hasher hasher, Collection<Path> files) throws IOException {
+        List<Path> sorted = new ArrayList<>(files);
+        Collections.sort(sorted);
+        hasher.putInt(sorted.size());
+        for (Path file : sorted) {
+            hasher.putString(file.toString(), StandardCharsets.UTF_8);
+            byte[] contents = Files.readAllBytes(file);
+            hasher.putInt(contents.length);
+            hasher.putBytes(contents);
+        }
+    }
+
+    /**
+     * Hashes the paths, sizes and modification times of the files, used for jars which are
+     * not rewritten unless they change.
+     */
+    public static void putStamps(Hasher hasher, Collection<File> files) {
+        hasher.putInt(files.size());
+        for (File file : files) {
+            hasher.putString(file.getAbsolutePath(), StandardCharsets.UTF_8);
+            hasher.putLong(file.length());
+            hasher.putLong(file.lastModified());
+        }
+    }
+
+    public static void putStrings(Hasher hasher, Collection<String> strings) {
+        hasher.putInt(strings.size());
+        for (String string : strings) {
+            hasher.putString(string, StandardCharsets.UTF_8);
+            hasher.putByte((byte) 0);
+        }
+    }
+}
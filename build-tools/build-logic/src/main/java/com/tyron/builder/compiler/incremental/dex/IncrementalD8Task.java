@@ -5,10 +5,14 @@ import com.android.tools.r8.D8;
 import com.android.tools.r8.D8Command;
 import com.android.tools.r8.DiagnosticsHandler;
 import com.android.tools.r8.OutputMode;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.tyron.builder.compiler.BuildType;
 import com.tyron.builder.compiler.Task;
 import com.tyron.builder.compiler.dex.D8Task;
 import com.tyron.builder.compiler.dex.DexDiagnosticHandler;
+import com.tyron.builder.compiler.dex.ReleaseDexCache;
 import com.tyron.builder.exception.CompilationFailedException;
 import com.tyron.builder.log.ILogger;
 import com.tyron.builder.model.Library;
@@ -44,6 +48,7 @@ public class IncrementalD8Task extends Task<AndroidModule> {
     private Path mOutputPath;
 
     private BuildType mBuildType;
+    private ReleaseDexCache mReleaseCache;
 
     public IncrementalD8Task(Project project, AndroidModule module, ILogger logger) {
         super(project, module, logger);
@@ -58,6 +63,7 @@ public class IncrementalD8Task extends Task<AndroidModule> {
     @Override
     public void prepare(BuildType type) throws IOException {
         mBuildType = type;
+        mReleaseCache = new ReleaseDexCache(getModule(), "d8");
         diagnosticsHandler = new DexDiagnosticHandler(getLogger(), getModule());
         mDexCache = getModule().getCache(CACHE_KEY, new Cache<>());
 
@@ -101,7 +107,15 @@ public class IncrementalD8Task extends Task<AndroidModule> {
         super.clean();
     }
 
-    private void doRelease() throws CompilationFailedException {
+    private void doRelease() throws IOException, CompilationFailedException {
+        File output = new File(getModule().getBuildDirectory(), "bin");
+        HashCode fingerprint = computeReleaseFingerprint();
+        if (mReleaseCache.isUpToDate(fingerprint)) {
+            getLogger().debug("Classes have not changed, using the previous dex files.");
+            mReleaseCache.copyOutputs(output);
+            return;
+        }
+
         try {
             ensureDexedLibraries();
             D8Command command = D8Command.builder(diagnosticsHandler).addClasspathFiles(
@@ -115,10 +129,27 @@ public class IncrementalD8Task extends Task<AndroidModule> {
                 mDexCache.load(file, "dex", Collections.singletonList(getDexFile(file.toFile())));
             }
 
-            mergeRelease();
+            mergeRelease(mReleaseCache.prepareOutputDirectory());
         } catch (com.android.tools.r8.CompilationFailedException e) {
             throw new CompilationFailedException(e);
         }
+
+        mReleaseCache.store(fingerprint);
+        mReleaseCache.copyOutputs(output);
+    }
+
+    /**
+     * Hashes the inputs of a release build, the pre-dexed libraries are covered by the
+     * stamps of their jars.
+     */
+    private HashCode computeReleaseFingerprint() throws IOException {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        hasher.putInt(getModule().getMinSdk());
+        ReleaseDexCache.putStamps(hasher, getModule().getLibraries());
+        ReleaseDexCache.putStamps(hasher, getLibraryFiles().stream().map(Path::toFile)
+                .collect(Collectors.toList()));
+        ReleaseDexCache.putFiles(hasher, mClassFiles);
+        return hasher.hash();
     }
 
     private void doDebug() throws CompilationFailedException {
@@ -154,8 +185,7 @@ public class IncrementalD8Task extends Task<AndroidModule> {
         }
     }
 
-    private void mergeRelease() throws com.android.tools.r8.CompilationFailedException {
-        File output = new File(getModule().getBuildDirectory(), "bin");
+    private void mergeRelease(File output) throws com.android.tools.r8.CompilationFailedException {
         D8Command command = D8Command.builder(diagnosticsHandler).addClasspathFiles(
                 getModule().getLibraries().stream().map(File::toPath).collect(Collectors.toList()))
                 .addLibraryFiles(getLibraryFiles())
@@ -0,0 +1,259 @@
+package com.tyron.builder.compiler.java;
+
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.tyron.builder.log.ILogger;
+import com.tyron.builder.model.Library;
+import com.tyron.builder.project.api.JavaModule;
+import com.tyron.builder.project.api.Module;
+import com.tyron.common.util.Decompress;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The libraries extracted to {@code build/libs/<md5>}, recorded in a manifest once their
+ * extraction finished. A directory that is not in the manifest was left behind by an
+ * interrupted extraction and is extracted again.
+ *
+ * <p>Libraries extracted before the manifest existed are not in any manifest. When there is no
+ * manifest, an existing directory whose files match the entries of its library is kept instead
+ * of being extracted again.
+ */
+public class ExtractedLibraries {
+
+    private static final String TAG = ExtractedLibraries.class.getSimpleName();
+    private static final String MANIFEST = "extracted.txt";
+    private static final String LIBRARIES_SETTING = "libraries";
+
+    /**
+     * @return the libraries saved to the settings of the module by the last
+     * {@link #checkLibraries(JavaModule, ILogger, Collection)}
+     */
+    public static List<Library> getSavedLibraries(Module module) {
+        String librariesString = module.getSettings().getString(LIBRARIES_SETTING, "[]");
+        try {
+            List<Library> parsedLibraries = new Gson().fromJson(librariesString,
+                    new TypeToken<List<Library>>() {}.getType());
+            if (parsedLibraries != null) {
+                return parsedLibraries;
+            }
+        } catch (Exception ignore) {
+
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Hashes the given libraries and the jars and aars in the library directory of the module,
+     * extracts the ones that have not been extracted yet and deletes the extracted libraries
+     * that are no longer used. The given libraries are saved to the settings of the module.
+     */
+    public static void checkLibraries(JavaModule module, ILogger logger,
+                                      Collection<Library> libraries) throws IOException {
+        LibraryHashCache hashCache = LibraryHashCache.load(module);
+
+        List<File> fileLibraries = new ArrayList<>();
+        File[] files = module.getLibraryDirectory().listFiles(c ->
+                c.getName().endsWith(".aar") || c.getName().endsWith(".jar"));
+        if (files != null) {
+            for (File fileLibrary : files) {
+                // libraries that were hashed before have already been checked
+                if (hashCache.isCached(fileLibrary) || isValidZip(fileLibrary)) {
+                    fileLibraries.add(fileLibrary);
+                } else {
+                    String message = "File " + fileLibrary +
+                            " is corrupt! Ignoring.";
+                    logger.warning(message);
+                }
+            }
+        }
+
+        List<File> allFiles = new ArrayList<>(fileLibraries);
+        libraries.forEach(it -> allFiles.add(it.getSourceFile()));
+        Map<File, String> hashes = hashCache.getHashes(allFiles);
+
+        Map<String, Library> fileLibsHashes = new HashMap<>();
+        for (File fileLibrary : fileLibraries) {
+            String hash = hashes.get(fileLibrary);
+            if (hash != null) {
+                Library library = new Library();
+                library.setSourceFile(fileLibrary);
+                fileLibsHashes.put(hash, library);
+            }
+        }
+
+        Map<String, Library> md5Map = new HashMap<>();
+        for (Library library : libraries) {
+            String hash = hashes.get(library.getSourceFile());
+            if (hash != null) {
+                md5Map.put(hash, library);
+            } else {
+                logger.warning("Unable to read library " + library.getSourceFile());
+            }
+        }
+
+        ExtractedLibraries extractedLibraries = load(module);
+        File[] buildLibraryDirs = extractedLibraries.mDirectory.listFiles(File::isDirectory);
+        if (buildLibraryDirs != null) {
+            for (File libraryDir : buildLibraryDirs) {
+                String md5Hash = libraryDir.getName();
+                if (!md5Map.containsKey(md5Hash) && !fileLibsHashes.containsKey(md5Hash)) {
+                    extractedLibraries.delete(md5Hash);
+                    Log.d(TAG, "Deleting contents of " + md5Hash);
+                }
+            }
+        }
+
+        Map<String, Library> combined = new HashMap<>();
+        combined.putAll(md5Map);
+        combined.putAll(fileLibsHashes);
+        module.putLibraryHashes(combined);
+        for (Map.Entry<String, Library> entry : combined.entrySet()) {
+            extractedLibraries.extract(entry.getKey(), entry.getValue());
+        }
+
+        String librariesString = new Gson().toJson(md5Map.values());
+        module.getSettings().edit()
+                .putString(LIBRARIES_SETTING, librariesString)
+                .apply();
+
+        extractedLibraries.save();
+        hashCache.save();
+    }
+
+    private static boolean isValidZip(File file) {
+        try (ZipFile ignored = new ZipFile(file)) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public static ExtractedLibraries load(Module module) throws IOException {
+        File directory = new File(module.getBuildDirectory(), "libs");
+        ExtractedLibraries libraries = new ExtractedLibraries(directory);
+        File manifest = new File(directory, MANIFEST);
+        libraries.mHasManifest = manifest.exists();
+        if (libraries.mHasManifest) {
+            for (String line : FileUtils.readLines(manifest, StandardCharsets.UTF_8)) {
+                if (!line.isEmpty()) {
+                    libraries.mHashes.add(line);
+                }
+            }
+        }
+        return libraries;
+    }
+
+    private final File mDirectory;
+    private final Set<String> mHashes = new TreeSet<>();
+    private boolean mModified;
+    private boolean mHasManifest;
+
+    private ExtractedLibraries(File directory) {
+        mDirectory = directory;
+    }
+
+    public boolean isExtracted(String hash) {
+        return mHashes.contains(hash) && new File(mDirectory, hash).isDirectory();
+    }
+
+    /**
+     * Extracts the library to its directory unless it has already been extracted.
+     *
+     * @return whether the library was extracted
+     */
+    public boolean extract(String hash, Library library) throws IOException {
+        if (isExtracted(hash)) {
+            return false;
+        }
+
+        File libraryDir = new File(mDirectory, hash);
+        if (!mHasManifest && isComplete(libraryDir, library.getSourceFile())) {
+            mHashes.add(hash);
+            mModified = true;
+            return false;
+        }
+        if (libraryDir.exists()) {
+            FileUtils.deleteDirectory(libraryDir);
+        }
+        if (!libraryDir.mkdirs()) {
+            throw new IOException("Unable to create directory " + libraryDir);
+        }
+
+        File sourceFile = library.getSourceFile();
+        if (sourceFile.getName().endsWith(".jar")) {
+            FileUtils.copyFile(sourceFile, new File(libraryDir, "classes.jar"));
+        } else if (sourceFile.getName().endsWith(".aar")) {
+            Decompress.unzip(sourceFile.getAbsolutePath(), libraryDir.getAbsolutePath());
+        }
+
+        mHashes.add(hash);
+        mModified = true;
+        return true;
+    }
+
+    /**
+     * @return whether the directory has every file of the library, with the size of its entry
+     */
+    private static boolean isComplete(File libraryDir, File sourceFile) {
+        if (!libraryDir.isDirectory()) {
+            return false;
+        }
+        if (sourceFile.getName().endsWith(".jar")) {
+            File classesJar = new File(libraryDir, "classes.jar");
+            return classesJar.isFile() && classesJar.length() == sourceFile.length();
+        }
+        if (!sourceFile.getName().endsWith(".aar")) {
+            return false;
+        }
+        try (ZipFile zipFile = new ZipFile(sourceFile)) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                File file = new File(libraryDir, entry.getName());
+                if (!file.isFile() || file.length() != entry.getSize()) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public void delete(String hash) throws IOException {
+        FileUtils.deleteDirectory(new File(mDirectory, hash));
+        if (mHashes.remove(hash)) {
+            mModified = true;
+        }
+    }
+
+    public void save() throws IOException {
+        if (!mModified) {
+            return;
+        }
+        File manifest = new File(mDirectory, MANIFEST);
+        LibraryHashCache.writeAtomically(manifest, String.join("\n", mHashes) + "\n");
+        mModified = false;
+    }
+}
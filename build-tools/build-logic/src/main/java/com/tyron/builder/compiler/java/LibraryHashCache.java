@@ -0,0 +1,168 @@
+package com.tyron.builder.compiler.java;
+
+import android.util.Log;
+
+import com.tyron.builder.project.api.Module;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the MD5 of the libraries of a module by their path, size and modification time, so
+ * the libraries are only read again when they are replaced.
+ *
+ * <p>The hashes are the same as {@link CheckLibrariesTask#calculateMD5(File)}, they name the
+ * directories the libraries are extracted to in {@code build/libs}.
+ */
+public class LibraryHashCache {
+
+    private static final String TAG = LibraryHashCache.class.getSimpleName();
+
+    public static LibraryHashCache load(Module module) {
+        File file = new File(module.getBuildDirectory(), "intermediate/libraries/hashes.txt");
+        LibraryHashCache cache = new LibraryHashCache(file);
+        if (file.exists()) {
+            try {
+                cache.read();
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "Unable to read library hashes, hashing all libraries again", e);
+                cache.mEntries.clear();
+            }
+        }
+        return cache;
+    }
+
+    private final File mFile;
+    private final Map<String, Entry> mEntries = new ConcurrentHashMap<>();
+    private boolean mModified;
+
+    private LibraryHashCache(File file) {
+        mFile = file;
+    }
+
+    /**
+     * @return whether the file has been hashed and has not changed since then
+     */
+    public boolean isCached(File file) {
+        Entry entry = mEntries.get(file.getAbsolutePath());
+        return entry != null && entry.matches(file);
+    }
+
+    /**
+     * Returns the hashes of the files, hashing the files that changed in parallel. Files that
+     * cannot be read are not included.
+     */
+    public Map<File, String> getHashes(Collection<File> files) {
+        List<File> changed = new ArrayList<>();
+        for (File file : files) {
+            if (!isCached(file)) {
+                changed.add(file);
+            }
+        }
+
+        if (!changed.isEmpty()) {
+            changed.parallelStream().forEach(file -> {
+                // stat before reading, a file replaced while it is hashed is hashed again
+                long length = file.length();
+                long lastModified = file.lastModified();
+                String hash = CheckLibrariesTask.calculateMD5(file);
+                if (hash != null) {
+                    mEntries.put(file.getAbsolutePath(), new Entry(length, lastModified, hash));
+                } else {
+                    mEntries.remove(file.getAbsolutePath());
+                }
+            });
+            mModified = true;
+        }
+
+        Map<File, String> hashes = new LinkedHashMap<>();
+        for (File file : files) {
+            Entry entry = mEntries.get(file.getAbsolutePath());
+            if (entry != null) {
+                hashes.put(file, entry.hash);
+            }
+        }
+        return hashes;
+    }
+
+    /**
+     * Saves the cache if any file was hashed, removing the files that no longer exist.
+     */
+    public void save() throws IOException {
+        if (mEntries.keySet().removeIf(path -> !new File(path).exists())) {
+            mModified = true;
+        }
+        if (!mModified) {
+            return;
+        }
+
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, Entry> entry : mEntries.entrySet()) {
+            Entry value = entry.getValue();
+            builder.append(value.hash).append('\t')
+                    .append(value.length).append('\t')
+                    .append(value.lastModified).append('\t')
+                    .append(entry.getKey()).append('\n');
+        }
+
+        writeAtomically(mFile, builder.toString());
+        mModified = false;
+    }
+
+    /**
+     * Writes the contents to a unique temporary file next to the given file and moves it into
+     * place, so an interrupted or concurrent build never leaves a partial file behind.
+     */
+    static void writeAtomically(File file, String contents) throws IOException {
+        File directory = file.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create directory " + directory);
+        }
+        File temp = File.createTempFile(file.getName(), ".tmp", directory);
+        try {
+            FileUtils.writeStringToFile(temp, contents, StandardCharsets.UTF_8);
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    private void read() throws IOException {
+        for (String line : FileUtils.readLines(mFile, StandardCharsets.UTF_8)) {
+            String[] parts = line.split("\t", 4);
+            if (parts.length != 4) {
+                continue;
+            }
+            mEntries.put(parts[3], new Entry(Long.parseLong(parts[1]),
+                    Long.parseLong(parts[2]), parts[0]));
+        }
+    }
+
+    private static class Entry {
+        final long length;
+        final long lastModified;
+        final String hash;
+
+        Entry(long length, long lastModified, String hash) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+
+        boolean matches(File file) {
+            return file.length() == length && file.lastModified() == lastModified;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import android.util.Pair;
 
 import com.tyron.builder.compiler.BuildType;
 import com.tyron.builder.compiler.Task;
+import com.tyron.builder.compiler.manifest.ManifestMergeTask;
 import com.tyron.builder.exception.CompilationFailedException;
 import com.tyron.builder.log.ILogger;
 import com.tyron.builder.project.Project;
@@ -34,9 +35,19 @@ import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Makes the debug build initialize the Logger class in the application class.
+ *
+ * <p>The sources of the project are never modified. The Logger class and a copy of the
+ * application class with the call injected are written to the build directory and take the
+ * place of the original application class in this build. The files are only rewritten when
+ * their content changes, so an unchanged project is not compiled again because of this task.
+ */
 public class InjectLoggerTask extends Task<AndroidModule> {
 
     private static final String TAG = "InjectLogger";
+    private static final String LOGGER_APPLICATION = "LoggerApplication";
+    private static final String INITIALIZE_LOGGER = "Logger.initialize(this);";
     private static final String APPLICATION_CLASS = "\nimport android.app.Application;\n" +
             "public class LoggerApplication extends Application {\n" +
             "   public void onCreate() {\n" +
@@ -132,9 +143,14 @@ public class InjectLoggerTask extends Task<AndroidModule> {
             "        mContext.sendBroadcast(intent);\n" +
             "    }\n" +
             "}\n";
+    private File mOutputDirectory;
     private File mLoggerFile;
+    /**
+     * The source of the application class declared in the manifest, replaced by its
+     * injected copy during this build.
+     */
+    private File mOriginalApplicationFile;
     private File mApplicationFile;
-    private String mOriginalApplication;
 
     public InjectLoggerTask(Project project, AndroidModule module, ILogger logger) {
         super(project, module, logger);
@@ -149,6 +165,8 @@ public class InjectLoggerTask extends Task<AndroidModule> {
     public void prepare(BuildType type) throws IOException {
         getModule().getJavaFiles();
         getModule().getKotlinFiles();
+
+        mOutputDirectory = new File(getModule().getBuildDirectory(), "intermediate/logger");
     }
 
     @Override
@@ -156,24 +174,23 @@ public class InjectLoggerTask extends Task<AndroidModule> {
         try {
             addLoggerClass();
 
-            boolean isNewApplicationClass = true;
-
+            String generatedApplicationClass =
+                    getModule().getPackageName() + "." + LOGGER_APPLICATION;
             String applicationClass = getApplicationClass();
-            if (applicationClass == null) {
-                applicationClass = getModule().getPackageName() + ".LoggerApplication";
-                createApplicationClass(applicationClass);
-            } else {
-                isNewApplicationClass = false;
+            if (applicationClass == null || isGeneratedApplicationClass(applicationClass)) {
+                addApplicationClass(generatedApplicationClass, applicationClass == null);
+                getLogger().debug("application class: " + generatedApplicationClass);
+                return;
             }
 
-            mApplicationFile = getModule()
+            File applicationFile = getModule()
                     .getJavaFile(applicationClass);
-            if (mApplicationFile == null) {
-                mApplicationFile = getModule()
+            if (applicationFile == null) {
+                applicationFile = getModule()
                         .getKotlinFile(applicationClass);
             }
 
-            if (mApplicationFile == null) {
+            if (applicationFile == null) {
                 String message = "" +
                         "Unable to find the application class defined in manifest.\n" +
                         "fully qualified name: " + applicationClass + '\n' +
@@ -182,11 +199,7 @@ public class InjectLoggerTask extends Task<AndroidModule> {
                 return;
             }
 
-            if (!isNewApplicationClass) {
-                mOriginalApplication = FileUtils.readFileToString(mApplicationFile, Charset.defaultCharset());
-            }
-
-            injectLogger(mApplicationFile);
+            injectLogger(applicationClass, applicationFile);
 
             getLogger().debug("application class: " + applicationClass);
         } catch (RuntimeException | XmlPullParserException | ParserConfigurationException | SAXException | TransformerException e) {
@@ -196,58 +209,49 @@ public class InjectLoggerTask extends Task<AndroidModule> {
 
     @Override
     protected void clean() {
+        // the generated files are kept for the next build, only the sources of the module
+        // are restored
         if (mApplicationFile != null) {
-            if (mOriginalApplication != null) {
-                try {
-                    FileUtils.writeStringToFile(mApplicationFile, mOriginalApplication, Charset.defaultCharset());
-                } catch (IOException ignore) {
-                }
+            if (mOriginalApplicationFile != null) {
+                addSourceFile(mOriginalApplicationFile);
             } else {
-                try {
-                    getModule().removeJavaFile(StringSearch.packageName(mApplicationFile));
-                    FileUtils.delete(mApplicationFile);
-                } catch (IOException e) {
-                    getLogger().error("Failed to delete application class: " + e.getMessage());
-                }
+                getModule().removeJavaFile(StringSearch.packageName(mApplicationFile));
             }
         }
 
         if (mLoggerFile != null) {
-            try {
-                getModule().removeJavaFile(StringSearch.packageName(mLoggerFile));
-                FileUtils.delete(mLoggerFile);
-            } catch (IOException e) {
-                getLogger().error("Failed to delete logger class: " + e.getMessage());
-            }
+            getModule().removeJavaFile(StringSearch.packageName(mLoggerFile));
         }
     }
 
     private String getApplicationClass() throws XmlPullParserException, IOException, ParserConfigurationException, SAXException, TransformerException {
-        File manifest = new File(getModule().getBuildDirectory().getAbsolutePath().replaceAll("%20", " "), "bin/AndroidManifest.xml");
+        File manifest = getManifestFile();
         XmlPullParser parser = XmlPullParserFactory.newInstance().newPullParser();
-        parser.setInput(new FileInputStream(manifest), null);
-
-        final int depth = parser.getDepth();
-        int type;
-        while (((type = parser.next()) != XmlPullParser.END_TAG ||
-                parser.getDepth() > depth) && type != XmlPullParser.END_DOCUMENT) {
-            if (type != XmlPullParser.START_TAG) {
-                continue;
-            }
-
-            if (parser.getName().equals("application")) {
-                List<Pair<String, String>> attributes = new ArrayList<>();
-                for (int i = 0; i < parser.getAttributeCount(); i++) {
-                    attributes.add(Pair.create(parser.getAttributeName(i), parser.getAttributeValue(i)));
+        try (FileInputStream inputStream = new FileInputStream(manifest)) {
+            parser.setInput(inputStream, null);
+
+            final int depth = parser.getDepth();
+            int type;
+            while (((type = parser.next()) != XmlPullParser.END_TAG ||
+                    parser.getDepth() > depth) && type != XmlPullParser.END_DOCUMENT) {
+                if (type != XmlPullParser.START_TAG) {
+                    continue;
                 }
 
-                for (Pair<String, String> pair : attributes) {
-                    if (pair.first.equals("android:name")) {
-                        String name = pair.second;
-                        if (name.startsWith(".")) {
-                            return getModule().getPackageName() + name;
-                        } else {
-                            return name;
+                if (parser.getName().equals("application")) {
+                    List<Pair<String, String>> attributes = new ArrayList<>();
+                    for (int i = 0; i < parser.getAttributeCount(); i++) {
+                        attributes.add(Pair.create(parser.getAttributeName(i), parser.getAttributeValue(i)));
+                    }
+
+                    for (Pair<String, String> pair : attributes) {
+                        if (pair.first.equals("android:name")) {
+                            String name = pair.second;
+                            if (name.startsWith(".")) {
+                                return getModule().getPackageName() + name;
+                            } else {
+                                return name;
+                            }
                         }
                     }
                 }
@@ -257,39 +261,60 @@ public class InjectLoggerTask extends Task<AndroidModule> {
         return null;
     }
 
-    private void createApplicationClass(String name) throws IOException, ParserConfigurationException, TransformerException, SAXException {
-        getLogger().debug("Creating application class " + name);
-
-        File manifest = new File(getModule().getBuildDirectory().getAbsolutePath().replaceAll("%20", " "), "bin/AndroidManifest.xml");
-
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder documentBuilder = factory.newDocumentBuilder();
-        Document document = documentBuilder.parse(manifest);
-
-        Element app = (Element) document.getElementsByTagName("application").item(0);
-        app.setAttribute("android:name", name);
+    /**
+     * @return whether the class is the application class added by this task in a previous
+     * build, which is still declared in the manifest if it has not been merged since then
+     */
+    private boolean isGeneratedApplicationClass(String name) {
+        return name.equals(getModule().getPackageName() + "." + LOGGER_APPLICATION)
+               && getModule().getJavaFile(name) == null
+               && getModule().getKotlinFile(name) == null;
+    }
 
-        TransformerFactory transformerFactory = TransformerFactory.newInstance();
-        Transformer transformer = transformerFactory.newTransformer();
-        DOMSource source = new DOMSource(document);
-        transformer.transform(source, new StreamResult(manifest.getAbsolutePath()));
+    private File getManifestFile() {
+        return new File(getModule().getBuildDirectory().getAbsolutePath().replaceAll("%20", " "), "bin/AndroidManifest.xml");
+    }
 
-        File directory = getModule().getJavaDirectory();
-        File output = new File(directory, name.replace('.', '/') + ".java");
-        if (!output.exists() && !output.createNewFile()) {
-            throw  new IOException("Unable to create LoggerApplication");
+    /**
+     * Adds an application class which only initializes the logger, for apps that don't
+     * declare one.
+     *
+     * @param updateManifest whether the merged manifest does not declare the class yet
+     */
+    private void addApplicationClass(String name, boolean updateManifest) throws IOException, ParserConfigurationException, TransformerException, SAXException {
+        if (updateManifest) {
+            getLogger().debug("Adding application class " + name + " to the manifest");
+
+            File manifest = getManifestFile();
+
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            DocumentBuilder documentBuilder = factory.newDocumentBuilder();
+            Document document = documentBuilder.parse(manifest);
+
+            Element app = (Element) document.getElementsByTagName("application").item(0);
+            app.setAttribute("android:name", name);
+
+            TransformerFactory transformerFactory = TransformerFactory.newInstance();
+            Transformer transformer = transformerFactory.newTransformer();
+            DOMSource source = new DOMSource(document);
+            transformer.transform(source, new StreamResult(manifest.getAbsolutePath()));
+
+            // the manifest is not merged again until its inputs change, it keeps the
+            // application class until then
+            ManifestMergeTask.updateOutputState(getModule());
         }
 
         String classString = "package " + getModule().getPackageName() + ";\n" +
-                APPLICATION_CLASS;
-        FileUtils.writeStringToFile(output, classString, Charset.defaultCharset());
-        getModule()
-                .addJavaFile(output);
+                APPLICATION_CLASS.replace("super.onCreate();",
+                        "super.onCreate();\n       " + INITIALIZE_LOGGER);
+        mApplicationFile = getOutputFile(name, ".java");
+        writeIfChanged(mApplicationFile, classString);
+        getModule().addJavaFile(mApplicationFile);
     }
 
-    private void injectLogger(File applicationClass) throws IOException, CompilationFailedException {
+    private void injectLogger(String className, File applicationClass) throws IOException, CompilationFailedException {
         String applicationContents = FileUtils.readFileToString(applicationClass, Charset.defaultCharset());
-        if (applicationContents.contains("Logger.initialize(this);")) {
+        if (applicationContents.contains(INITIALIZE_LOGGER)) {
             getLogger().debug("Application class already initializes Logger");
             return;
         }
@@ -302,24 +327,48 @@ public class InjectLoggerTask extends Task<AndroidModule> {
 
         String before = applicationContents.substring(0, index + onCreateString.length() + 1);
         String after = applicationContents.substring(index + onCreateString.length());
-        String injected = before + "\n" + "Logger.initialize(this);\n" +
+        String injected = before + "\n" + INITIALIZE_LOGGER + "\n" +
                 after;
-        FileUtils.writeStringToFile(applicationClass, injected, Charset.defaultCharset());
+
+        String name = applicationClass.getName();
+        File output = getOutputFile(className, name.substring(name.lastIndexOf('.')));
+        writeIfChanged(output, injected);
+        mOriginalApplicationFile = applicationClass;
+        mApplicationFile = output;
+        // takes the place of the original class, both have the same name
+        addSourceFile(output);
     }
 
     private void addLoggerClass() throws IOException {
-        getLogger().debug("Creating Logger.java");
-
-        File loggerClass = new File(getModule().getJavaDirectory(), getModule().getPackageName()
-        .replace('.', '/') + "/Logger.java");
-        if (!loggerClass.exists() && !loggerClass.createNewFile()) {
-            throw new IOException("Unable to create Logger.java");
-        }
-
         String loggerString = "package " + getModule().getPackageName() + ";\n" +
                 LOGGER_CLASS;
-        FileUtils.writeStringToFile(loggerClass, loggerString, Charset.defaultCharset());
+        File loggerClass = getOutputFile(getModule().getPackageName() + ".Logger", ".java");
+        writeIfChanged(loggerClass, loggerString);
         mLoggerFile = loggerClass;
         getModule().addJavaFile(loggerClass);
     }
-}
\ No newline at end of file
+
+    private void addSourceFile(File file) {
+        if (file.getName().endsWith(".kt")) {
+            getModule().addKotlinFile(file);
+        } else {
+            getModule().addJavaFile(file);
+        }
+    }
+
+    private File getOutputFile(String className, String extension) {
+        return new File(mOutputDirectory, className.replace('.', '/') + extension);
+    }
+
+    /**
+     * Only writes the file if its contents differ, so it is not compiled again.
+     */
+    private void writeIfChanged(File file, String contents) throws IOException {
+        if (file.exists() &&
+            contents.equals(FileUtils.readFileToString(file, Charset.defaultCharset()))) {
+            return;
+        }
+        getLogger().debug("Writing " + file.getName());
+        FileUtils.writeStringToFile(file, contents, Charset.defaultCharset());
+    }
+}
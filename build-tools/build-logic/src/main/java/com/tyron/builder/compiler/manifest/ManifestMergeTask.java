@@ -12,21 +12,39 @@ import com.tyron.builder.model.ModuleSettings;
 import com.tyron.builder.project.Project;
 import com.tyron.builder.project.api.AndroidModule;
 
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
 import org.apache.commons.io.FileUtils;
 import org.w3c.dom.Document;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+/**
+ * Merges the main manifest with the manifests of the libraries into bin/AndroidManifest.xml.
+ *
+ * <p>The merge is skipped when its inputs and its output are unchanged since the last merge,
+ * which is recorded in intermediate/manifest/inputs.txt. In debug builds, {@code
+ * InjectLoggerTask} rewrites the merged manifest after this task, so the build type is part of
+ * the inputs and the rewritten manifest is recorded with {@link #updateOutputState}; otherwise
+ * every debug build would see a modified output and merge again.
+ */
 public class ManifestMergeTask extends Task<AndroidModule> {
 
     private File mOutputFile;
     private File mMainManifest;
     private File[] mLibraryManifestFiles;
     private String mPackageName;
+    private File mStateFile;
+    private BuildType mBuildType;
 
     public ManifestMergeTask(Project project, AndroidModule module, ILogger logger) {
         super(project, module, logger);
@@ -40,6 +58,7 @@ public class ManifestMergeTask extends Task<AndroidModule> {
     @Override
     public void prepare(BuildType type) throws IOException {
         mPackageName = getApplicationId();
+        mBuildType = type;
 
         mOutputFile = new File(getModule().getBuildDirectory(), "bin");
         if (!mOutputFile.exists()) {
@@ -54,6 +73,8 @@ public class ManifestMergeTask extends Task<AndroidModule> {
             }
         }
 
+        mStateFile = getStateFile(getModule());
+
         mMainManifest = getModule().getManifestFile();
         if (!mMainManifest.exists()) {
             throw new IOException("Unable to find the main manifest file");
@@ -85,18 +106,27 @@ public class ManifestMergeTask extends Task<AndroidModule> {
     @Override
     public void run() throws IOException, CompilationFailedException {
         ModuleSettings settings = getModule().getSettings();
+        String minSdkVersion = String.valueOf(settings.getInt(ModuleSettings.MIN_SDK_VERSION, 21));
+        String targetSdkVersion =
+                String.valueOf(settings.getInt(ModuleSettings.TARGET_SDK_VERSION, 30));
+        String versionCode = String.valueOf(settings.getInt(ModuleSettings.VERSION_CODE, 1));
+        String versionName = settings.getString(ModuleSettings.VERSION_NAME, "1.0");
+
+        // debug builds may modify the merged manifest, see updateOutputState
+        HashCode fingerprint = computeFingerprint(String.valueOf(mBuildType), mPackageName,
+                minSdkVersion, targetSdkVersion, versionCode, versionName);
+        if (isUpToDate(fingerprint)) {
+            getLogger().debug("Manifests have not changed, skipping merge.");
+            return;
+        }
 
         ManifestMerger2.Invoker<?> invoker = ManifestMerger2.newMerger(mMainManifest,
                 getLogger(), ManifestMerger2.MergeType.APPLICATION);
         invoker.setOverride(SystemProperty.PACKAGE, mPackageName);
-        invoker.setOverride(SystemProperty.MIN_SDK_VERSION,
-                String.valueOf(settings.getInt(ModuleSettings.MIN_SDK_VERSION, 21)));
-        invoker.setOverride(SystemProperty.TARGET_SDK_VERSION,
-                String.valueOf(settings.getInt(ModuleSettings.TARGET_SDK_VERSION, 30)));
-        invoker.setOverride(SystemProperty.VERSION_CODE,
-                String.valueOf(settings.getInt(ModuleSettings.VERSION_CODE, 1)));
-        invoker.setOverride(SystemProperty.VERSION_NAME,
-                settings.getString(ModuleSettings.VERSION_NAME, "1.0"));
+        invoker.setOverride(SystemProperty.MIN_SDK_VERSION, minSdkVersion);
+        invoker.setOverride(SystemProperty.TARGET_SDK_VERSION, targetSdkVersion);
+        invoker.setOverride(SystemProperty.VERSION_CODE, versionCode);
+        invoker.setOverride(SystemProperty.VERSION_NAME, versionName);
         if (mLibraryManifestFiles != null) {
             invoker.addLibraryManifests(mLibraryManifestFiles);
         }
@@ -120,15 +150,94 @@ public class ManifestMergeTask extends Task<AndroidModule> {
                         XmlFormatStyle.get(document),
                         null,
                         false);
-                FileUtils.writeStringToFile(mOutputFile,
-                        contents,
-                        Charset.defaultCharset());
+                byte[] bytes = contents.getBytes(Charset.defaultCharset());
+                // aapt2 links again whenever the manifest is touched
+                if (!Arrays.equals(bytes, Files.readAllBytes(mOutputFile.toPath()))) {
+                    FileUtils.writeByteArrayToFile(mOutputFile, bytes);
+                }
+                writeState(fingerprint, Hashing.murmur3_128().hashBytes(bytes));
             }
         } catch (ManifestMerger2.MergeFailureException e) {
             throw new CompilationFailedException(e);
         }
     }
 
+    /**
+     * Hashes everything the merged manifest depends on: the manifests, their paths since they
+     * appear in the merge report, and the values injected into the main manifest.
+     */
+    private HashCode computeFingerprint(String... overrides) throws IOException {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        putFile(hasher, mMainManifest);
+        hasher.putInt(mLibraryManifestFiles.length);
+        for (File manifest : mLibraryManifestFiles) {
+            putFile(hasher, manifest);
+        }
+        hasher.putInt(overrides.length);
+        for (String override : overrides) {
+            hasher.putString(override, StandardCharsets.UTF_8);
+            hasher.putByte((byte) 0);
+        }
+        return hasher.hash();
+    }
+
+    private static void putFile(Hasher hasher, File file) throws IOException {
+        hasher.putString(file.getAbsolutePath(), StandardCharsets.UTF_8);
+        byte[] contents = Files.readAllBytes(file.toPath());
+        hasher.putInt(contents.length);
+        hasher.putBytes(contents);
+    }
+
+    /**
+     * @return whether the output was merged from the same inputs and has not been modified
+     * since then
+     */
+    private boolean isUpToDate(HashCode fingerprint) {
+        if (!mStateFile.exists()) {
+            return false;
+        }
+        try {
+            List<String> lines = Files.readAllLines(mStateFile.toPath(), StandardCharsets.UTF_8);
+            if (lines.size() != 2 || !lines.get(0).equals(fingerprint.toString())) {
+                return false;
+            }
+            HashCode output = Hashing.murmur3_128()
+                    .hashBytes(Files.readAllBytes(mOutputFile.toPath()));
+            return lines.get(1).equals(output.toString());
+        } catch (IOException e) {
+            getLogger().warning("Unable to read the manifest merge state, merging again. " + e);
+            return false;
+        }
+    }
+
+    private void writeState(HashCode fingerprint, HashCode output) throws IOException {
+        FileUtils.writeLines(mStateFile, StandardCharsets.UTF_8.name(),
+                Arrays.asList(fingerprint.toString(), output.toString()));
+    }
+
+    private static File getStateFile(AndroidModule module) {
+        return new File(module.getBuildDirectory(), "intermediate/manifest/inputs.txt");
+    }
+
+    /**
+     * Marks the current merged manifest as up to date. Used by tasks that modify the merged
+     * manifest, so it is not merged again in the next build only because it was modified.
+     */
+    public static void updateOutputState(AndroidModule module) throws IOException {
+        File stateFile = getStateFile(module);
+        File outputFile = new File(module.getBuildDirectory(), "bin/AndroidManifest.xml");
+        if (!stateFile.exists() || !outputFile.exists()) {
+            return;
+        }
+        List<String> lines = Files.readAllLines(stateFile.toPath(), StandardCharsets.UTF_8);
+        if (lines.size() != 2) {
+            return;
+        }
+        HashCode output = Hashing.murmur3_128().hashBytes(Files.readAllBytes(outputFile.toPath()));
+        FileUtils.writeLines(stateFile, StandardCharsets.UTF_8.name(),
+                Arrays.asList(lines.get(0), output.toString()));
+    }
+
     private String getApplicationId() throws IOException {
         String packageName = getModule().getPackageName();
         if (packageName == null) {
@@ -6,6 +6,7 @@ import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Table;
 import com.tyron.builder.project.api.AndroidModule;
+import com.tyron.common.util.FileChangeService;
 
 import org.apache.commons.io.FileUtils;
 
@@ -126,6 +127,7 @@ public class SymbolWriter {
                 throw new IOException("Unable to create R.txt file");
             }
             FileUtils.writeStringToFile(file, contents, Charset.defaultCharset());
+            FileChangeService.getInstance().fileChanged(file.toPath(), FileChangeService.Origin.BUILD);
         } else {
             String oldContents;
             try {
@@ -135,6 +137,7 @@ public class SymbolWriter {
             }
             if (!oldContents.equals(contents)) {
                 FileUtils.writeStringToFile(file, contents, Charset.defaultCharset());
+                FileChangeService.getInstance().fileChanged(file.toPath(), FileChangeService.Origin.BUILD);
             }
         }
         mProject.addResourceClass(file);
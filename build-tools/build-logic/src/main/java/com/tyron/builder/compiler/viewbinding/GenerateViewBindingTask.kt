@@ -1,6 +1,7 @@
 package com.tyron.builder.compiler.viewbinding
 
 import android.util.Log
+import com.google.common.hash.Hashing
 import com.tyron.builder.compiler.BuildType
 import com.tyron.builder.compiler.Task
 import com.tyron.builder.exception.CompilationFailedException
@@ -8,7 +9,6 @@ import com.tyron.builder.log.ILogger
 import com.tyron.builder.model.ModuleSettings
 import com.tyron.builder.project.Project
 import com.tyron.builder.project.api.AndroidModule
-import com.tyron.viewbinding.tool.DataBindingBuilder.GradleFileWriter
 import com.tyron.viewbinding.tool.processing.Scope
 import com.tyron.viewbinding.tool.processing.ScopedException
 import com.tyron.viewbinding.tool.store.LayoutFileParser
@@ -24,6 +24,15 @@ import java.io.IOException
 import java.nio.charset.StandardCharsets
 
 /**
+ * Generates the view binding classes of the layouts of a module.
+ *
+ * Only the structure of a layout, its views with ids and their types, is part of its binding
+ * class. A binding is only generated again when that structure changes, and its file is only
+ * rewritten when the generated source differs, so editing other attributes of a layout does not
+ * cause the binding classes to be compiled again. The output directory is deleted when view
+ * binding is disabled, and cleaned when it has no record of the generated bindings, so it never
+ * holds bindings of layouts that no longer exist.
+ *
  * @param addToClasspath true if the generated binding classes
  * should be added to the module classpath for compilation
  */
@@ -49,13 +58,14 @@ class GenerateViewBindingTask(
     }
 
     private fun doPrepare() {
-        outputDirectory.deleteRecursively() // todo: incremental?
         outputDirectory.mkdirs()
     }
 
     override fun run() {
         if (!module.settings.getBoolean(ModuleSettings.VIEW_BINDING_ENABLED, false)) {
             logger.info("View binding is disabled, skipping")
+            // the bindings of a previous build must not be compiled with the module
+            FileUtils.deleteDirectory(outputDirectory)
             return
         }
 
@@ -112,12 +122,29 @@ class GenerateViewBindingTask(
     }
 
     private fun writeClassesToDisk(resourceBundle: ResourceBundle) {
-        val writer = GradleFileWriter(outputDirectory.absolutePath)
+        val stateFile = File(outputDirectory, STATE_FILE_NAME)
+        val previousStates = readStates(stateFile) ?: run {
+            // the files in the directory were not generated by this task, or their record was
+            // lost, so the bindings of deleted layouts cannot be told apart
+            FileUtils.cleanDirectory(outputDirectory)
+            emptyMap()
+        }
+        val states = linkedMapOf<String, BindingState>()
 
         val layoutBindings = resourceBundle.allLayoutFileBundlesInSource
             .groupBy(ResourceBundle.LayoutFileBundle::getFileName)
 
-        layoutBindings.forEach { (_, variations) ->
+        var generated = 0
+        layoutBindings.forEach { (fileName, variations) ->
+            val state = BindingState(
+                variations[0].fullBindingClass,
+                fingerprint(variations, layoutBindings)
+            )
+            states[fileName] = state
+            if (state == previousStates[fileName] && getSourceFile(state.className).exists()) {
+                return@forEach
+            }
+
             val layoutModel = BaseLayoutModel(variations)
             val viewBinder = layoutModel.toViewBinder()
             val javaFile = viewBinder.toJavaFile(
@@ -126,8 +153,33 @@ class GenerateViewBindingTask(
                 // the user must use the newer view binding library (androidx)
                 useLegacyAnnotations = false
             )
-            writer.writeToFile(javaFile)
+            writeIfChanged(
+                getSourceFile(javaFile.packageName + "." + javaFile.typeSpec.name),
+                javaFile.toString()
+            )
+            generated++
         }
+
+        // remove the bindings of deleted layouts
+        val classNames = states.values.map(BindingState::className).toSet()
+        previousStates.values
+            .filter { it.className !in classNames }
+            .forEach { getSourceFile(it.className).delete() }
+
+        writeStates(stateFile, states)
+        logger.debug("Generated $generated of ${states.size} view bindings")
+    }
+
+    private fun getSourceFile(className: String): File {
+        return File(outputDirectory, className.replace('.', File.separatorChar) + ".java")
+    }
+
+    private fun writeIfChanged(file: File, contents: String) {
+        if (file.exists() && file.readText(StandardCharsets.UTF_8) == contents) {
+            return
+        }
+        file.parentFile?.mkdirs()
+        file.writeText(contents, StandardCharsets.UTF_8)
     }
 
     private fun addToClasspath() {
@@ -138,10 +190,96 @@ class GenerateViewBindingTask(
         }
     }
 
+    /**
+     * The binding generated from a layout file, [fingerprint] identifies its structure.
+     */
+    private data class BindingState(val className: String, val fingerprint: String)
+
     companion object {
         const val TAG = "GenerateViewBindingTask"
         const val VIEW_BINDING_GEN_DIR = "view_binding"
 
+        /**
+         * Stored in the output directory, it is not a java file so it is never compiled.
+         */
+        private const val STATE_FILE_NAME = ".bindings"
+
+        /**
+         * Part of every fingerprint, increment it when the generated code changes so
+         * all bindings are generated again.
+         */
+        private const val GENERATOR_VERSION = 1
+
+        /**
+         * Hashes everything the binding class is generated from, the other attributes
+         * of the layout do not matter. The binding class and merge status of included
+         * layouts are part of it, because the binding of the including layout refers to them.
+         */
+        private fun fingerprint(
+            variations: List<ResourceBundle.LayoutFileBundle>,
+            layoutBindings: Map<String, List<ResourceBundle.LayoutFileBundle>>
+        ): String {
+            val hasher = Hashing.murmur3_128().newHasher()
+            fun putString(value: String?) {
+                hasher.putString(value ?: "\u0000", StandardCharsets.UTF_8)
+                hasher.putByte(0)
+            }
+            hasher.putInt(GENERATOR_VERSION)
+            variations.sortedBy { it.directory }.forEach { variation ->
+                putString(variation.directory)
+                putString(variation.fullBindingClass)
+                putString(variation.modulePackage)
+                putString(variation.rootNodeViewType)
+                putString(variation.rootNodeViewId)
+                hasher.putBoolean(variation.isMerge)
+                hasher.putInt(variation.bindingTargetBundles.size)
+                variation.bindingTargetBundles.forEach { target ->
+                    putString(target.id)
+                    putString(target.tag)
+                    putString(target.viewName)
+                    putString(target.includedLayout)
+                    putString(target.interfaceType)
+                    putString(target.fullClassName)
+                    hasher.putBoolean(target.isUsed)
+                    target.includedLayout?.let { included ->
+                        val includedVariations = layoutBindings[included].orEmpty()
+                        hasher.putInt(includedVariations.size)
+                        includedVariations.sortedBy { it.directory }.forEach {
+                            putString(it.fullBindingClass)
+                            hasher.putBoolean(it.isMerge)
+                        }
+                    }
+                }
+            }
+            return hasher.hash().toString()
+        }
+
+        /**
+         * @return the bindings recorded in the state file, or null if it is missing or
+         * cannot be read
+         */
+        private fun readStates(stateFile: File): Map<String, BindingState>? {
+            if (!stateFile.exists()) {
+                return null
+            }
+            return try {
+                stateFile.readLines(StandardCharsets.UTF_8)
+                    .map { it.split('\t') }
+                    .filter { it.size == 3 }
+                    .associate { (fileName, className, fingerprint) ->
+                        fileName to BindingState(className, fingerprint)
+                    }
+            } catch (e: IOException) {
+                null
+            }
+        }
+
+        private fun writeStates(stateFile: File, states: Map<String, BindingState>) {
+            stateFile.writeText(states.entries.joinToString(separator = "") { (fileName, state) ->
+                "$fileName\t${state.className}\t${state.fingerprint}\n"
+            }, StandardCharsets.UTF_8)
+        }
+
         private fun getUpToDateFileContent(module: AndroidModule, file: File): String? {
             try {
                 val fileManager = module.fileManager
@@ -0,0 +1,116 @@
+package com.tyron.builder.compiler.apk;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+
+public class AlignedZipWriterTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void alignsStoredEntries() throws Exception {
+        File apk = temporaryFolder.newFile("app.apk");
+        Map<String, byte[]> expected = new LinkedHashMap<>();
+        try (AlignedZipWriter writer = new AlignedZipWriter(apk)) {
+            // names of every length modulo 4, each stored entry needs a different padding
+            for (String name : Arrays.asList("a", "ab", "abc", "abcd", "res/raw/sound.ogg")) {
+                expected.put(name, write(writer, name, name + name, false));
+            }
+            expected.put("classes.dex", write(writer, "classes.dex", "deflated", true));
+            expected.put("lib/arm64-v8a/libnative.so", write(writer, "lib/arm64-v8a/libnative.so", "native", false));
+        }
+
+        assertEntries(expected, apk);
+        try (RawZipFile zipFile = new RawZipFile(apk)) {
+            for (RawZipFile.Entry entry : zipFile.getEntries()) {
+                if (entry.method != ZipEntry.STORED) {
+                    continue;
+                }
+                int alignment = entry.name.endsWith(".so") ? 4096 : 4;
+                assertEquals(entry.name, 0, ZipTestUtil.dataOffset(apk, entry) % alignment);
+            }
+        }
+    }
+
+    @Test
+    public void alignsCopiedEntries() throws Exception {
+        Map<String, byte[]> content = new LinkedHashMap<>();
+        content.put("AndroidManifest.xml", text("<manifest/>"));
+        content.put("res/drawable/icon.png", text("png"));
+        content.put("resources.arsc", text("table"));
+        File resources = ZipTestUtil.writeZip(temporaryFolder.newFile("resources.ap_"), content, ".png", ".arsc");
+
+        File apk = temporaryFolder.newFile("app.apk");
+        Map<String, byte[]> expected = new LinkedHashMap<>();
+        try (AlignedZipWriter writer = new AlignedZipWriter(apk);
+             RawZipFile source = new RawZipFile(resources)) {
+            // shifts the copied entries so they need new padding
+            expected.put("x", write(writer, "x", "x", false));
+            for (RawZipFile.Entry entry : source.getEntries()) {
+                writer.copyEntry(source, entry);
+                expected.put(entry.name, content.get(entry.name));
+            }
+        }
+
+        assertEntries(expected, apk);
+        try (RawZipFile zipFile = new RawZipFile(apk)) {
+            for (RawZipFile.Entry entry : zipFile.getEntries()) {
+                if (entry.method == ZipEntry.STORED) {
+                    assertEquals(entry.name, 0, ZipTestUtil.dataOffset(apk, entry) % 4);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void writesLargeEntriesInChunks() throws Exception {
+        byte[] large = new byte[300 * 1024 + 17];
+        new Random(1).nextBytes(large);
+        File input = temporaryFolder.newFile("large.bin");
+        Files.write(input.toPath(), large);
+
+        File apk = temporaryFolder.newFile("app.apk");
+        try (AlignedZipWriter writer = new AlignedZipWriter(apk)) {
+            writer.writeEntry("assets/deflated.bin", input, true);
+            writer.writeEntry("assets/stored.bin", input, false);
+        }
+
+        Map<String, byte[]> entries = ZipTestUtil.readZip(apk);
+        assertArrayEquals(large, entries.get("assets/deflated.bin"));
+        assertArrayEquals(large, entries.get("assets/stored.bin"));
+    }
+
+    private byte[] write(AlignedZipWriter writer, String name, String text, boolean compress) throws Exception {
+        byte[] content = text(text);
+        File file = temporaryFolder.newFile();
+        Files.write(file.toPath(), content);
+        writer.writeEntry(name, file, compress);
+        return content;
+    }
+
+    private static void assertEntries(Map<String, byte[]> expected, File zip) throws Exception {
+        Map<String, byte[]> actual = ZipTestUtil.readZip(zip);
+        assertEquals(expected.keySet().toString(), actual.keySet().toString());
+        for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+            assertArrayEquals(entry.getKey(), entry.getValue(), actual.get(entry.getKey()));
+        }
+    }
+
+    private static byte[] text(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
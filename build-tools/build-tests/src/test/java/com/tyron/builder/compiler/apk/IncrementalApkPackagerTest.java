@@ -0,0 +1,165 @@
+package com.tyron.builder.compiler.apk;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.tyron.builder.log.ILogger;
+import com.tyron.builder.model.DiagnosticWrapper;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+
+public class IncrementalApkPackagerTest {
+
+    private static final long LAST_MODIFIED = 1_600_000_000_000L;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final List<String> messages = new ArrayList<>();
+    private File apk;
+    private File state;
+    private File resources;
+    private File dex;
+    private File asset;
+
+    @Before
+    public void setUp() throws Exception {
+        apk = new File(temporaryFolder.getRoot(), "app.apk");
+        state = new File(temporaryFolder.getRoot(), "packaging/state.txt");
+
+        Map<String, byte[]> content = new LinkedHashMap<>();
+        content.put("AndroidManifest.xml", text("<manifest/>"));
+        content.put("resources.arsc", text("table"));
+        content.put("META-INF/MANIFEST.MF", text("Manifest-Version: 1.0"));
+        content.put("META-INF/services/com.example.Service", text("com.example.Impl"));
+        resources = ZipTestUtil.writeZip(temporaryFolder.newFile("resources.ap_"), content, ".arsc");
+        dex = write("classes.dex", "dex");
+        asset = write("asset.txt", "asset");
+    }
+
+    @Test
+    public void packagesEveryInput() throws Exception {
+        seal(dex, asset);
+
+        Map<String, byte[]> entries = ZipTestUtil.readZip(apk);
+        assertEquals("[AndroidManifest.xml, resources.arsc, classes.dex, assets/asset.txt]",
+                entries.keySet().toString());
+        assertArrayEquals(text("dex"), entries.get("classes.dex"));
+        assertArrayEquals(text("table"), entries.get("resources.arsc"));
+        try (RawZipFile zipFile = new RawZipFile(apk)) {
+            for (RawZipFile.Entry entry : zipFile.getEntries()) {
+                if (entry.method == ZipEntry.STORED) {
+                    assertEquals(entry.name, 0, ZipTestUtil.dataOffset(apk, entry) % 4);
+                }
+            }
+        }
+        assertEquals("Packaged 4 entries, compressed 2 changed files.", lastMessage());
+    }
+
+    @Test
+    public void reusesTheEntriesOfUnchangedFiles() throws Exception {
+        seal(dex, asset);
+
+        // same length and modification time, the entry of the previous APK is trusted
+        Files.write(dex.toPath(), text("DEX"));
+        assertTrue(dex.setLastModified(LAST_MODIFIED));
+        seal(dex, asset);
+
+        assertArrayEquals(text("dex"), ZipTestUtil.readZip(apk).get("classes.dex"));
+        assertEquals("Packaged 4 entries, compressed 0 changed files.", lastMessage());
+    }
+
+    @Test
+    public void reusesTheEntriesOfTouchedFiles() throws Exception {
+        seal(dex, asset);
+
+        assertTrue(asset.setLastModified(LAST_MODIFIED + 1000));
+        seal(dex, asset);
+
+        assertArrayEquals(text("asset"), ZipTestUtil.readZip(apk).get("assets/asset.txt"));
+        assertEquals("Packaged 4 entries, compressed 0 changed files.", lastMessage());
+    }
+
+    @Test
+    public void compressesChangedFiles() throws Exception {
+        seal(dex, asset);
+
+        Files.write(dex.toPath(), text("changed dex"));
+        assertTrue(dex.setLastModified(LAST_MODIFIED + 1000));
+        seal(dex, asset);
+
+        assertArrayEquals(text("changed dex"), ZipTestUtil.readZip(apk).get("classes.dex"));
+        assertEquals("Packaged 4 entries, compressed 1 changed files.", lastMessage());
+    }
+
+    @Test
+    public void removesTheEntriesOfRemovedFiles() throws Exception {
+        seal(dex, asset);
+
+        seal(dex, null);
+
+        Map<String, byte[]> entries = ZipTestUtil.readZip(apk);
+        assertFalse(entries.containsKey("assets/asset.txt"));
+        assertEquals("[AndroidManifest.xml, resources.arsc, classes.dex]", entries.keySet().toString());
+    }
+
+    private void seal(File dex, File asset) throws Exception {
+        IncrementalApkPackager packager = new IncrementalApkPackager(apk, state, new RecordingLogger());
+        packager.addZipFile(resources);
+        packager.addFile(dex, "classes.dex");
+        if (asset != null) {
+            packager.addFile(asset, "assets/asset.txt");
+        }
+        packager.sealApk();
+    }
+
+    private File write(String name, String text) throws Exception {
+        File file = temporaryFolder.newFile(name);
+        Files.write(file.toPath(), text(text));
+        assertTrue(file.setLastModified(LAST_MODIFIED));
+        return file;
+    }
+
+    private String lastMessage() {
+        return messages.get(messages.size() - 1);
+    }
+
+    private static byte[] text(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private class RecordingLogger implements ILogger {
+        @Override
+        public void info(DiagnosticWrapper wrapper) {
+        }
+
+        @Override
+        public void debug(DiagnosticWrapper wrapper) {
+            messages.add(wrapper.getMessage(null));
+        }
+
+        @Override
+        public void warning(DiagnosticWrapper wrapper) {
+            messages.add(wrapper.getMessage(null));
+        }
+
+        @Override
+        public void error(DiagnosticWrapper wrapper) {
+            messages.add(wrapper.getMessage(null));
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.tyron.builder.compiler.apk;
+
+import static org.junit.Assert.assertEquals;
+
+import com.android.apksig.ApkSigner;
+import com.tyron.common.TestUtil;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class IncrementalSignerEngineTest {
+
+    private static PrivateKey sPrivateKey;
+    private static List<X509Certificate> sCertificates;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void readKey() throws Exception {
+        File directory = new File(TestUtil.getResourcesDirectory(), "apksigner");
+        sPrivateKey = KeyFactory.getInstance("RSA").generatePrivate(new PKCS8EncodedKeySpec(
+                Files.readAllBytes(new File(directory, "testkey.pk8").toPath())));
+        try (InputStream in = new FileInputStream(new File(directory, "testkey.x509.pem"))) {
+            sCertificates = Collections.singletonList((X509Certificate) CertificateFactory
+                    .getInstance("X.509").generateCertificate(in));
+        }
+    }
+
+    @Test
+    public void reusesTheDigestsOfUnchangedEntries() throws Exception {
+        File apk = new File(temporaryFolder.getRoot(), "generated.apk");
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("classes.dex", "dex");
+        entries.put("res/layout/main.xml", "<LinearLayout/>");
+        entries.put("resources.arsc", "table");
+
+        writeApk(apk, entries);
+        assertEquals(0, sign(apk));
+
+        writeApk(apk, entries);
+        assertEquals(3, sign(apk));
+
+        entries.put("classes.dex", "changed dex");
+        writeApk(apk, entries);
+        assertEquals(2, sign(apk));
+    }
+
+    @Test
+    public void recomputesTheDigestOfAChangedEntryWithTheSameSize() throws Exception {
+        File apk = new File(temporaryFolder.getRoot(), "generated.apk");
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("classes.dex", "aaaa");
+        entries.put("resources.arsc", "table");
+        writeApk(apk, entries);
+        sign(apk);
+
+        entries.put("classes.dex", "bbbb");
+        writeApk(apk, entries);
+        assertEquals(1, sign(apk));
+    }
+
+    @Test
+    public void keepsTheDigestsOfEachApkApart() throws Exception {
+        File first = new File(temporaryFolder.newFolder("first"), "generated.apk");
+        File second = new File(temporaryFolder.newFolder("second"), "generated.apk");
+        writeApk(first, Collections.singletonMap("classes.dex", "first"));
+        writeApk(second, Collections.singletonMap("classes.dex", "second"));
+
+        sign(first);
+        sign(second);
+        assertEquals(1, sign(first));
+        assertEquals(1, sign(second));
+    }
+
+    /**
+     * Signs the APK, checks the v1 digests of the signed APK and returns the number of reused digests.
+     */
+    private int sign(File apk) throws Exception {
+        File signed = new File(apk.getParentFile(), "signed.apk");
+        int reused;
+        try (IncrementalSignerEngine engine = new IncrementalSignerEngine(sPrivateKey,
+                sCertificates, 21, apk)) {
+            new ApkSigner.Builder(engine)
+                    .setInputApk(apk)
+                    .setOutputApk(signed)
+                    .build()
+                    .sign();
+            reused = engine.getReusedDigestCount();
+        }
+        assertDigestsMatch(signed);
+        return reused;
+    }
+
+    /**
+     * Checks the digest of every entry listed in the JAR manifest against its content.
+     */
+    private static void assertDigestsMatch(File signed) throws Exception {
+        Map<String, byte[]> entries = ZipTestUtil.readZip(signed);
+        String manifest = new String(entries.get("META-INF/MANIFEST.MF"), StandardCharsets.UTF_8);
+        int checked = 0;
+        String name = null;
+        for (String line : manifest.split("\r\n")) {
+            if (line.startsWith("Name: ")) {
+                name = line.substring("Name: ".length());
+            } else if (name != null && line.contains("-Digest: ")) {
+                String algorithm = line.substring(0, line.indexOf("-Digest: "));
+                String digest = line.substring(line.indexOf("-Digest: ") + "-Digest: ".length());
+                byte[] expected = MessageDigest.getInstance(algorithm.equals("SHA1") ? "SHA-1" : algorithm)
+                        .digest(entries.get(name));
+                assertEquals(name, Base64.getEncoder().encodeToString(expected), digest);
+                checked++;
+                name = null;
+            }
+        }
+        assertEquals(entries.keySet().stream().filter(entry -> !entry.startsWith("META-INF/")).count(), checked);
+    }
+
+    private void writeApk(File apk, Map<String, String> entries) throws Exception {
+        try (AlignedZipWriter writer = new AlignedZipWriter(apk)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                File content = temporaryFolder.newFile();
+                Files.write(content.toPath(), entry.getValue().getBytes(StandardCharsets.UTF_8));
+                writer.writeEntry(entry.getKey(), content, true);
+            }
+        }
+    }
+}
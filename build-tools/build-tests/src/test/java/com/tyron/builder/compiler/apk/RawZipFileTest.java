@@ -0,0 +1,108 @@
+package com.tyron.builder.compiler.apk;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+
+public class RawZipFileTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void readsTheCentralDirectory() throws Exception {
+        Map<String, byte[]> content = new LinkedHashMap<>();
+        content.put("res/", new byte[0]);
+        content.put("res/layout/main.xml", text("<LinearLayout/>"));
+        content.put("resources.arsc", text("table"));
+        File zip = ZipTestUtil.writeZip(temporaryFolder.newFile("in.zip"), content, ".arsc");
+
+        try (RawZipFile zipFile = new RawZipFile(zip)) {
+            List<RawZipFile.Entry> entries = zipFile.getEntries();
+            assertEquals(3, entries.size());
+            assertTrue(entries.get(0).isDirectory());
+
+            RawZipFile.Entry layout = entries.get(1);
+            assertEquals("res/layout/main.xml", layout.name);
+            assertEquals(ZipEntry.DEFLATED, layout.method);
+            assertEquals(content.get(layout.name).length, layout.size);
+
+            RawZipFile.Entry table = entries.get(2);
+            assertEquals("resources.arsc", table.name);
+            assertEquals(ZipEntry.STORED, table.method);
+            assertEquals(content.get(table.name).length, table.compressedSize);
+            CRC32 crc = new CRC32();
+            crc.update(content.get(table.name));
+            assertEquals(crc.getValue(), table.crc);
+        }
+    }
+
+    @Test
+    public void transfersTheCompressedData() throws Exception {
+        Map<String, byte[]> content = new LinkedHashMap<>();
+        content.put("classes.dex", text("dex dex dex dex dex dex dex dex"));
+        File zip = ZipTestUtil.writeZip(temporaryFolder.newFile("in.zip"), content);
+        File copy = temporaryFolder.newFile("data");
+
+        try (RawZipFile zipFile = new RawZipFile(zip);
+             FileChannel target = FileChannel.open(copy.toPath(), StandardOpenOption.WRITE)) {
+            RawZipFile.Entry entry = zipFile.getEntries().get(0);
+            zipFile.transferData(entry, target);
+            assertEquals(entry.compressedSize, target.size());
+            assertArrayEquals(content.get("classes.dex"),
+                    inflate(ByteBuffer.wrap(Files.readAllBytes(copy.toPath())), (int) entry.size));
+        }
+    }
+
+    @Test
+    public void rejectsFilesWhichAreNotZipFiles() throws Exception {
+        File file = temporaryFolder.newFile("not.zip");
+        Files.write(file.toPath(), text("not a zip file, but long enough to have an end record"));
+        assertThrows(IOException.class, () -> new RawZipFile(file));
+    }
+
+    private static byte[] inflate(ByteBuffer data, int size) throws Exception {
+        byte[] compressed = new byte[data.remaining()];
+        data.get(compressed);
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            while (!inflater.finished() && out.size() < size) {
+                int read = inflater.inflate(buffer);
+                if (read == 0 && inflater.needsInput()) {
+                    break;
+                }
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] text(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,84 @@
+package com.tyron.builder.compiler.apk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes and reads zip files with the JDK classes, to check the zip files of this package against.
+ */
+class ZipTestUtil {
+
+    private ZipTestUtil() {
+
+    }
+
+    /**
+     * Writes a zip file, the entries whose name ends with one of the given suffixes are stored.
+     */
+    static File writeZip(File file, Map<String, byte[]> entries, String... storedSuffixes) throws IOException {
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+            for (Map.Entry<String, byte[]> mapEntry : entries.entrySet()) {
+                ZipEntry entry = new ZipEntry(mapEntry.getKey());
+                byte[] content = mapEntry.getValue();
+                for (String suffix : storedSuffixes) {
+                    if (mapEntry.getKey().endsWith(suffix)) {
+                        CRC32 crc = new CRC32();
+                        crc.update(content);
+                        entry.setMethod(ZipEntry.STORED);
+                        entry.setSize(content.length);
+                        entry.setCompressedSize(content.length);
+                        entry.setCrc(crc.getValue());
+                    }
+                }
+                out.putNextEntry(entry);
+                out.write(content);
+                out.closeEntry();
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Reads the entries of a zip file in order, the CRCs are checked while reading.
+     */
+    static Map<String, byte[]> readZip(File file) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (ZipFile zipFile = new ZipFile(file)) {
+            for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                try (InputStream in = zipFile.getInputStream(entry)) {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    byte[] buffer = new byte[8192];
+                    int read;
+                    while ((read = in.read(buffer)) >= 0) {
+                        out.write(buffer, 0, read);
+                    }
+                    entries.put(entry.getName(), out.toByteArray());
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Returns the offset of the data of the entry, read from its local header.
+     */
+    static long dataOffset(File zip, RawZipFile.Entry entry) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(zip, "r")) {
+            file.seek(entry.localHeaderOffset + 26);
+            int nameLength = file.read() | file.read() << 8;
+            int extraLength = file.read() | file.read() << 8;
+            return entry.localHeaderOffset + RawZipFile.LOCAL_HEADER_SIZE + nameLength + extraLength;
+        }
+    }
+}
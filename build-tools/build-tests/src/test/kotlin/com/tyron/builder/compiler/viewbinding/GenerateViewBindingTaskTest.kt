@@ -6,9 +6,12 @@ import com.tyron.builder.compiler.AndroidAppBuilderTestBase
 import com.tyron.builder.compiler.BuildType
 import com.tyron.builder.compiler.viewbinding.GenerateViewBindingTask.Companion.VIEW_BINDING_GEN_DIR
 import com.tyron.builder.log.ILogger
+import com.tyron.builder.model.DiagnosticWrapper
 import com.tyron.builder.model.ModuleSettings
 import org.apache.commons.io.FileUtils
+import org.junit.Rule
 import org.junit.Test
+import org.junit.rules.TemporaryFolder
 import org.junit.runner.RunWith
 import org.robolectric.RobolectricTestRunner
 import java.io.File
@@ -20,6 +23,23 @@ import java.nio.charset.StandardCharsets
 @RunWith(RobolectricTestRunner::class)
 class GenerateViewBindingTaskTest : AndroidAppBuilderTestBase() {
 
+    @get:Rule
+    val temporaryFolder = TemporaryFolder()
+
+    private val messages = mutableListOf<String>()
+
+    private val recordingLogger = object : ILogger {
+        override fun info(wrapper: DiagnosticWrapper) {}
+
+        override fun debug(wrapper: DiagnosticWrapper) {
+            messages.add(wrapper.getMessage(null))
+        }
+
+        override fun warning(wrapper: DiagnosticWrapper) {}
+
+        override fun error(wrapper: DiagnosticWrapper) {}
+    }
+
     @Test
     fun testBuild() {
         // enable ViewBinding
@@ -56,4 +76,81 @@ class GenerateViewBindingTaskTest : AndroidAppBuilderTestBase() {
         FileUtils.deleteQuietly(mProject.buildDirectory)
     }
 
+    @Test
+    fun testEditingPaddingDoesNotGenerateAgain() {
+        enableViewBinding(true)
+        mProject.open()
+        val outputDir = temporaryFolder.newFolder(VIEW_BINDING_GEN_DIR)
+
+        generate(outputDir)
+        assertThat(messages.last()).isEqualTo("Generated 1 of 1 view bindings")
+        val bindingClass =
+            File(outputDir, "com/tyron/test/databinding/ActivityMainBinding.java")
+        val contents = FileUtils.readFileToString(bindingClass, StandardCharsets.UTF_8)
+        assertThat(bindingClass.setLastModified(LAST_MODIFIED)).isTrue()
+
+        // the editor contents are used instead of the layout file on disk
+        val layout = File(mProject.androidResourcesDirectory, "layout/activity_main.xml")
+        val layoutContents = FileUtils.readFileToString(layout, StandardCharsets.UTF_8)
+        mFileManager.openFileForSnapshot(layout, layoutContents.replace(
+            "android:id=\"@+id/text_view\"",
+            "android:id=\"@+id/text_view\"\n        android:padding=\"16dp\""
+        ))
+        try {
+            generate(outputDir)
+        } finally {
+            mFileManager.closeFileForSnapshot(layout)
+        }
+
+        assertThat(messages.last()).isEqualTo("Generated 0 of 1 view bindings")
+        assertThat(bindingClass.lastModified()).isEqualTo(LAST_MODIFIED)
+        assertThat(FileUtils.readFileToString(bindingClass, StandardCharsets.UTF_8))
+            .isEqualTo(contents)
+    }
+
+    @Test
+    fun testRemovesBindingsWithoutState() {
+        enableViewBinding(true)
+        mProject.open()
+        val outputDir = temporaryFolder.newFolder(VIEW_BINDING_GEN_DIR)
+        val staleBinding = File(outputDir, "com/tyron/test/databinding/DeletedBinding.java")
+        FileUtils.writeStringToFile(staleBinding, "class DeletedBinding {}", StandardCharsets.UTF_8)
+
+        generate(outputDir)
+
+        assertThat(staleBinding.exists()).isFalse()
+        assertThat(
+            File(outputDir, "com/tyron/test/databinding/ActivityMainBinding.java").exists()
+        ).isTrue()
+    }
+
+    @Test
+    fun testDeletesBindingsWhenDisabled() {
+        enableViewBinding(true)
+        mProject.open()
+        val outputDir = temporaryFolder.newFolder(VIEW_BINDING_GEN_DIR)
+        generate(outputDir)
+        assertThat(outputDir.list()).isNotEmpty()
+
+        enableViewBinding(false)
+        generate(outputDir)
+
+        assertThat(outputDir.exists()).isFalse()
+    }
+
+    private fun enableViewBinding(enabled: Boolean) {
+        mProject.settings.edit()
+            .putBoolean(ModuleSettings.VIEW_BINDING_ENABLED, enabled)
+            .commit()
+    }
+
+    private fun generate(outputDir: File) {
+        val task = GenerateViewBindingTask(null, mProject, recordingLogger, false)
+        task.prepareWithOutputDir(outputDir)
+        task.run()
+    }
+
+    companion object {
+        private const val LAST_MODIFIED = 1_600_000_000_000L
+    }
 }
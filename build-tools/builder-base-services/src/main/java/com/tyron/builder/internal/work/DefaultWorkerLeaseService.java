@@ -45,7 +45,11 @@ public class DefaultWorkerLeaseService implements WorkerLeaseService, Stoppable
     private final ProjectLockStatisticsImpl projectLockStatistics = new ProjectLockStatisticsImpl();
 
     public DefaultWorkerLeaseService(ResourceLockCoordinationService coordinationService) {
-        this.maxWorkerCount = 1;
+        this(coordinationService, 1);
+    }
+
+    public DefaultWorkerLeaseService(ResourceLockCoordinationService coordinationService, int maxWorkerCount) {
+        this.maxWorkerCount = maxWorkerCount;
         this.coordinationService = coordinationService;
         this.projectLockRegistry = new ProjectLockRegistry(coordinationService, false);
         this.taskLockRegistry = new TaskExecutionLockRegistry(coordinationService, projectLockRegistry);
@@ -0,0 +1,40 @@
+package com.tyron.builder.internal.operations;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Notifies a {@link BuildOperationListener} of the operations run by a {@link DefaultBuildOperationRunner}, for runners
+ * that are used without the progress logging of the build operation executor.
+ */
+public class BuildOperationListenerAdapter implements DefaultBuildOperationRunner.BuildOperationExecutionListener {
+    private final BuildOperationListener listener;
+    private final DefaultBuildOperationRunner.TimeSupplier clock;
+
+    public BuildOperationListenerAdapter(BuildOperationListener listener, DefaultBuildOperationRunner.TimeSupplier clock) {
+        this.listener = listener;
+        this.clock = clock;
+    }
+
+    @Override
+    public void start(BuildOperationDescriptor descriptor, BuildOperationState operationState) {
+        listener.started(descriptor, new OperationStartEvent(operationState.getStartTime()));
+    }
+
+    @Override
+    public void progress(BuildOperationDescriptor descriptor, String status) {
+    }
+
+    @Override
+    public void progress(BuildOperationDescriptor descriptor, long progress, long total, String units, String status) {
+        listener.progress(descriptor.getId(), new OperationProgressEvent(clock.getCurrentTime(), new OperationProgressDetails(progress, total, units)));
+    }
+
+    @Override
+    public void stop(BuildOperationDescriptor descriptor, BuildOperationState operationState, @Nullable BuildOperationState parent, DefaultBuildOperationRunner.ReadableBuildOperationContext context) {
+        listener.finished(descriptor, new OperationFinishEvent(operationState.getStartTime(), clock.getCurrentTime(), context.getFailure(), context.getResult()));
+    }
+
+    @Override
+    public void close(BuildOperationDescriptor descriptor, BuildOperationState operationState) {
+    }
+}
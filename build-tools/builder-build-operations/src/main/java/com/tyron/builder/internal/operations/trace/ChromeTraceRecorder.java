@@ -0,0 +1,265 @@
+package com.tyron.builder.internal.operations.trace;
+
+import com.tyron.builder.internal.operations.BuildOperationDescriptor;
+import com.tyron.builder.internal.operations.BuildOperationListener;
+import com.tyron.builder.internal.operations.OperationFinishEvent;
+import com.tyron.builder.internal.operations.OperationIdentifier;
+import com.tyron.builder.internal.operations.OperationProgressEvent;
+import com.tyron.builder.internal.operations.OperationStartEvent;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the build operations it is notified of to a file in the Chrome trace event format, which can be opened with
+ * {@code chrome://tracing} or Perfetto.
+ *
+ * <p>Each operation is written as a complete event when it finishes, on the thread that started it. Its arguments are the
+ * id of the operation and of its parent, the type of its details, its failure if any, and whatever the
+ * {@link ResultDescriber} adds for its result. Progress events are not recorded.</p>
+ *
+ * <p>The events are written as a JSON array, which the trace viewers can read even when the array is not closed. The
+ * file is flushed when a root operation finishes, and when another operation finishes at least a second after the last
+ * flush, so a process that dies before this recorder is closed leaves a readable trace of the events written up to the
+ * last flush.</p>
+ */
+public class ChromeTraceRecorder implements BuildOperationListener, Closeable {
+    private static final int PID = 1;
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Writer writer;
+    private final ResultDescriber resultDescriber;
+    private final long startNanos = System.nanoTime();
+    private final Map<OperationIdentifier, Start> running = new ConcurrentHashMap<OperationIdentifier, Start>();
+    private final Set<Long> describedThreads = new HashSet<Long>();
+    private boolean empty = true;
+    private long lastFlushNanos = startNanos;
+    private boolean closed;
+
+    public ChromeTraceRecorder(File file) {
+        this(file, ResultDescriber.NONE);
+    }
+
+    public ChromeTraceRecorder(File file, ResultDescriber resultDescriber) {
+        this.resultDescriber = resultDescriber;
+        try {
+            File parent = file.getParentFile();
+            if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException("Could not create directory " + parent);
+            }
+            this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+            writer.write("[\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create build operation trace " + file, e);
+        }
+    }
+
+    @Override
+    public void started(BuildOperationDescriptor buildOperation, OperationStartEvent startEvent) {
+        if (buildOperation.getId() != null) {
+            running.put(buildOperation.getId(), new Start(System.nanoTime(), Thread.currentThread()));
+        }
+    }
+
+    @Override
+    public void progress(OperationIdentifier operationIdentifier, OperationProgressEvent progressEvent) {
+    }
+
+    @Override
+    public void finished(BuildOperationDescriptor buildOperation, OperationFinishEvent finishEvent) {
+        if (buildOperation.getId() == null) {
+            return;
+        }
+        Start start = running.remove(buildOperation.getId());
+        if (start == null) {
+            return;
+        }
+        long endNanos = System.nanoTime();
+
+        Map<String, Object> args = new LinkedHashMap<String, Object>();
+        args.put("id", buildOperation.getId().getId());
+        if (buildOperation.getParentId() != null) {
+            args.put("parentId", buildOperation.getParentId().getId());
+        }
+        Object details = buildOperation.getDetails();
+        if (details != null) {
+            args.put("details", details.getClass().getName());
+        }
+        if (finishEvent.getFailure() != null) {
+            args.put("failure", String.valueOf(finishEvent.getFailure()));
+        }
+        if (finishEvent.getResult() != null) {
+            resultDescriber.describe(finishEvent.getResult(), args);
+        }
+
+        StringBuilder event = new StringBuilder(256);
+        event.append("{\"name\":");
+        appendString(event, buildOperation.getDisplayName());
+        event.append(",\"cat\":");
+        appendString(event, details == null ? "operation" : details.getClass().getSimpleName());
+        event.append(",\"ph\":\"X\",\"ts\":").append(micros(start.nanos - startNanos));
+        event.append(",\"dur\":").append(micros(endNanos - start.nanos));
+        event.append(",\"pid\":").append(PID);
+        event.append(",\"tid\":").append(start.thread.getId());
+        event.append(",\"args\":");
+        appendObject(event, args);
+        event.append('}');
+
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (describedThreads.add(start.thread.getId())) {
+                StringBuilder metadata = new StringBuilder(64);
+                metadata.append("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":").append(PID);
+                metadata.append(",\"tid\":").append(start.thread.getId()).append(",\"args\":{\"name\":");
+                appendString(metadata, start.thread.getName());
+                metadata.append("}}");
+                write(metadata);
+            }
+            write(event);
+            if (buildOperation.getParentId() == null || endNanos - lastFlushNanos >= FLUSH_INTERVAL_NANOS) {
+                flush(endNanos);
+            }
+        }
+    }
+
+    private void flush(long nowNanos) {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        lastFlushNanos = nowNanos;
+    }
+
+    private void write(CharSequence event) {
+        try {
+            if (!empty) {
+                writer.write(",\n");
+            }
+            empty = false;
+            writer.append(event);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    private static void appendObject(StringBuilder builder, Map<String, Object> values) {
+        builder.append('{');
+        boolean first = true;
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            if (!first) {
+                builder.append(',');
+            }
+            first = false;
+            appendString(builder, entry.getKey());
+            builder.append(':');
+            Object value = entry.getValue();
+            if (value instanceof Number || value instanceof Boolean) {
+                builder.append(value);
+            } else {
+                appendString(builder, String.valueOf(value));
+            }
+        }
+        builder.append('}');
+    }
+
+    private static void appendString(StringBuilder builder, @Nullable String value) {
+        if (value == null) {
+            builder.append("null");
+            return;
+        }
+        builder.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+            }
+        }
+        builder.append('"');
+    }
+
+    /**
+     * Closes the trace file. Operations that finish afterwards are not recorded.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            writer.write("\n]\n");
+            writer.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Adds arguments that describe the result of an operation to its trace event, for example whether it was taken
+     * from a cache.
+     */
+    public interface ResultDescriber {
+        ResultDescriber NONE = new ResultDescriber() {
+            @Override
+            public void describe(Object result, Map<String, Object> args) {
+            }
+        };
+
+        /**
+         * Adds arguments for the given result. Values should be strings, numbers or booleans.
+         */
+        void describe(Object result, Map<String, Object> args);
+    }
+
+    private static class Start {
+        private final long nanos;
+        private final Thread thread;
+
+        private Start(long nanos, Thread thread) {
+            this.nanos = nanos;
+            this.thread = thread;
+        }
+    }
+}
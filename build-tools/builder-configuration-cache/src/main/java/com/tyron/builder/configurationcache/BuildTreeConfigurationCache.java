@@ -0,0 +1,24 @@
+package com.tyron.builder.configurationcache;
+
+import com.tyron.builder.internal.build.BuildLifecycleController;
+import com.tyron.builder.internal.buildtree.BuildTreeWorkGraph;
+
+import java.util.function.Consumer;
+
+/**
+ * Stores the calculated task graph of a build tree and reuses it in later builds whose
+ * configuration inputs have not changed.
+ */
+public interface BuildTreeConfigurationCache {
+    /**
+     * Schedules the requested tasks of the given build, either by loading them from the cache or,
+     * when there is no valid entry, by running the given scheduler and storing the resulting task graph.
+     */
+    void loadOrScheduleRequestedTasks(BuildLifecycleController build, BuildTreeWorkGraph graph, Consumer<? super BuildTreeWorkGraph> scheduler);
+
+    /**
+     * Returns true when the task graph of this build tree has been loaded from the cache, in which
+     * case the projects of the build are created but not configured.
+     */
+    boolean isLoaded();
+}
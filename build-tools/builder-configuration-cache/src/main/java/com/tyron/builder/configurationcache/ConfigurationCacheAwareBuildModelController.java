@@ -0,0 +1,80 @@
+package com.tyron.builder.configurationcache;
+
+import com.tyron.builder.api.internal.GradleInternal;
+import com.tyron.builder.api.internal.SettingsInternal;
+import com.tyron.builder.api.internal.initialization.ClassLoaderScope;
+import com.tyron.builder.execution.plan.ExecutionPlan;
+import com.tyron.builder.initialization.BuildLoader;
+import com.tyron.builder.internal.build.BuildModelController;
+
+/**
+ * A {@link BuildModelController} for the root build that, when the task graph has been loaded from
+ * the configuration cache, only creates the projects of the build instead of configuring them.
+ */
+public class ConfigurationCacheAwareBuildModelController implements BuildModelController {
+    private final BuildModelController delegate;
+    private final GradleInternal gradle;
+    private final BuildLoader buildLoader;
+    private final BuildTreeConfigurationCache cache;
+    private boolean projectsLoaded;
+
+    public ConfigurationCacheAwareBuildModelController(BuildModelController delegate, GradleInternal gradle, BuildLoader buildLoader, BuildTreeConfigurationCache cache) {
+        this.delegate = delegate;
+        this.gradle = gradle;
+        this.buildLoader = buildLoader;
+        this.cache = cache;
+    }
+
+    @Override
+    public SettingsInternal getLoadedSettings() {
+        return delegate.getLoadedSettings();
+    }
+
+    @Override
+    public GradleInternal getConfiguredModel() {
+        if (cache.isLoaded()) {
+            loadProjects();
+            return gradle;
+        }
+        return delegate.getConfiguredModel();
+    }
+
+    @Override
+    public void prepareToScheduleTasks() {
+        if (cache.isLoaded()) {
+            loadProjects();
+        } else {
+            delegate.prepareToScheduleTasks();
+        }
+    }
+
+    @Override
+    public void initializeWorkGraph(ExecutionPlan plan) {
+        // the stored task graph has already been filtered, so there is nothing to prepare
+        if (!cache.isLoaded()) {
+            delegate.initializeWorkGraph(plan);
+        }
+    }
+
+    @Override
+    public void scheduleRequestedTasks(ExecutionPlan plan) {
+        if (cache.isLoaded()) {
+            throw new IllegalStateException("The requested tasks are scheduled from the configuration cache.");
+        }
+        delegate.scheduleRequestedTasks(plan);
+    }
+
+    /**
+     * Creates the projects the same way as {@code BuildTreePreparingProjectsPreparer}, without evaluating them.
+     */
+    private void loadProjects() {
+        if (projectsLoaded) {
+            return;
+        }
+        SettingsInternal settings = delegate.getLoadedSettings();
+        ClassLoaderScope baseProjectClassLoaderScope = settings.getClassLoaderScope().createChild("buildSrc[" + gradle.getIdentityPath() + "]");
+        gradle.setBaseProjectClassLoaderScope(baseProjectClassLoaderScope);
+        buildLoader.load(settings, gradle);
+        projectsLoaded = true;
+    }
+}
@@ -0,0 +1,26 @@
+package com.tyron.builder.configurationcache;
+
+import com.tyron.builder.internal.build.BuildLifecycleController;
+import com.tyron.builder.internal.buildtree.BuildTreeWorkGraph;
+import com.tyron.builder.internal.buildtree.BuildTreeWorkPreparer;
+
+/**
+ * Schedules the requested tasks from the configuration cache when possible, falling back to the
+ * given preparer to configure the build and calculate the task graph.
+ */
+public class ConfigurationCacheAwareBuildTreeWorkPreparer implements BuildTreeWorkPreparer {
+    private final BuildTreeWorkPreparer delegate;
+    private final BuildLifecycleController targetBuild;
+    private final BuildTreeConfigurationCache cache;
+
+    public ConfigurationCacheAwareBuildTreeWorkPreparer(BuildTreeWorkPreparer delegate, BuildLifecycleController targetBuild, BuildTreeConfigurationCache cache) {
+        this.delegate = delegate;
+        this.targetBuild = targetBuild;
+        this.cache = cache;
+    }
+
+    @Override
+    public void scheduleRequestedTasks(BuildTreeWorkGraph graph) {
+        cache.loadOrScheduleRequestedTasks(targetBuild, graph, delegate::scheduleRequestedTasks);
+    }
+}
@@ -0,0 +1,318 @@
+package com.tyron.builder.configurationcache;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.tyron.builder.api.BuildProject;
+import com.tyron.builder.api.initialization.Settings;
+import com.tyron.builder.api.initialization.dsl.ScriptHandler;
+import com.tyron.builder.api.internal.GradleInternal;
+import com.tyron.builder.api.internal.StartParameterInternal;
+import com.tyron.builder.api.internal.initialization.ScriptHandlerInternal;
+import com.tyron.builder.api.internal.project.ProjectInternal;
+import com.tyron.builder.configurationcache.serialization.TaskTypes;
+import com.tyron.builder.configurationcache.serialization.UnsupportedStateException;
+import com.tyron.builder.groovy.scripts.ScriptSource;
+import com.tyron.builder.internal.UncheckedException;
+import com.tyron.builder.internal.hash.ClassLoaderHierarchyHasher;
+import com.tyron.builder.internal.hash.FileHasher;
+import com.tyron.builder.internal.hash.Hashes;
+import com.tyron.builder.internal.resource.ResourceLocation;
+import com.tyron.builder.internal.serialize.AbstractSerializer;
+import com.tyron.builder.internal.serialize.Decoder;
+import com.tyron.builder.internal.serialize.Encoder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+/**
+ * The inputs of the configuration of a build, used to decide whether a stored task graph is still valid:
+ * the content of every script applied to the build and of the properties files, the content of buildSrc,
+ * the classpath of the settings and the projects, and the structure of the stored task types.
+ *
+ * <p>An input that can not be checked on a later build, such as a script loaded from a remote location
+ * or a class loader unknown to the {@link ClassLoaderHierarchyHasher}, is reported with an
+ * {@link UnsupportedStateException} so that the task graph is not stored.</p>
+ */
+public class ConfigurationCacheFingerprint {
+    static final String SETTINGS_CLASS_LOADER = "settings";
+    private static final String MISSING = "";
+    private static final String BUILD_SRC = "buildSrc";
+
+    private final Map<String, String> inputFiles;
+    private final Map<String, String> inputDirectories;
+    private final Map<String, String> classLoaders;
+    private final Map<String, String> taskTypes;
+
+    public ConfigurationCacheFingerprint(Map<String, String> inputFiles,
+                                         Map<String, String> inputDirectories,
+                                         Map<String, String> classLoaders,
+                                         Map<String, String> taskTypes) {
+        this.inputFiles = ImmutableMap.copyOf(inputFiles);
+        this.inputDirectories = ImmutableMap.copyOf(inputDirectories);
+        this.classLoaders = ImmutableMap.copyOf(classLoaders);
+        this.taskTypes = ImmutableMap.copyOf(taskTypes);
+    }
+
+    /**
+     * Captures the fingerprint of the given configured build, whose task graph contains tasks of the given types.
+     *
+     * @param scripts the scripts applied while configuring the build
+     * @throws UnsupportedStateException when the configuration of the build has inputs that can not be tracked
+     */
+    public static ConfigurationCacheFingerprint capture(GradleInternal gradle,
+                                                        Collection<ScriptSource> scripts,
+                                                        Set<Class<?>> taskTypes,
+                                                        FileHasher fileHasher,
+                                                        ClassLoaderHierarchyHasher classLoaderHasher) {
+        Builder builder = new Builder(fileHasher, classLoaderHasher);
+        StartParameterInternal startParameter = gradle.getStartParameter();
+        File settingsDir = gradle.getSettings().getSettingsDir();
+        builder.addInputFile(new File(settingsDir, Settings.DEFAULT_SETTINGS_FILE));
+        builder.addInputFile(new File(startParameter.getGradleUserHomeDir(), BuildProject.GRADLE_PROPERTIES));
+        builder.addInputDirectory(new File(settingsDir, BUILD_SRC));
+        for (File initScript : startParameter.getAllInitScripts()) {
+            builder.addInputFile(initScript);
+        }
+        for (ScriptSource script : scripts) {
+            builder.addScript(script.getResource().getLocation(), script.getDisplayName());
+        }
+        builder.addClassLoader(SETTINGS_CLASS_LOADER, gradle.getSettings().getClassLoaderScope().getExportClassLoader());
+        for (BuildProject project : gradle.getRootProject().getAllprojects()) {
+            builder.addInputFile(project.getBuildFile());
+            builder.addInputFile(new File(project.getProjectDir(), BuildProject.GRADLE_PROPERTIES));
+            builder.addProjectClasspath((ProjectInternal) project);
+        }
+        for (Class<?> taskType : taskTypes) {
+            builder.addTaskType(taskType);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns why the build configuration has changed since this fingerprint was captured, or null when it has not changed.
+     *
+     * @param settingsClassLoader the export class loader of the settings, which the task types are loaded from
+     */
+    @Nullable
+    public String checkUpToDate(FileHasher fileHasher, ClassLoaderHierarchyHasher classLoaderHasher, ClassLoader settingsClassLoader) {
+        for (Map.Entry<String, String> entry : inputFiles.entrySet()) {
+            File file = new File(entry.getKey());
+            if (!hashOf(file, fileHasher).equals(entry.getValue())) {
+                return "file '" + file + "' has changed";
+            }
+        }
+        for (Map.Entry<String, String> entry : inputDirectories.entrySet()) {
+            File directory = new File(entry.getKey());
+            if (!hashOfDirectory(directory, fileHasher).equals(entry.getValue())) {
+                return "directory '" + directory + "' has changed";
+            }
+        }
+        HashCode settingsHash = classLoaderHasher.getClassLoaderHash(settingsClassLoader);
+        if (settingsHash == null || !Hashes.toCompactString(settingsHash).equals(classLoaders.get(SETTINGS_CLASS_LOADER))) {
+            return "the settings classpath has changed";
+        }
+        for (Map.Entry<String, String> entry : taskTypes.entrySet()) {
+            Class<?> type;
+            try {
+                type = Class.forName(entry.getKey(), false, settingsClassLoader);
+            } catch (ClassNotFoundException e) {
+                return "task type " + entry.getKey() + " is no longer available";
+            }
+            if (!TaskTypes.structureSignature(type).equals(entry.getValue())) {
+                return "task type " + entry.getKey() + " has changed";
+            }
+        }
+        return null;
+    }
+
+    private static String hashOf(File file, FileHasher fileHasher) {
+        if (!file.isFile()) {
+            return MISSING;
+        }
+        return Hashes.toCompactString(fileHasher.hash(file));
+    }
+
+    /**
+     * Hashes the relative paths and the content of the files in the given directory, skipping the
+     * output and cache directories of a build.
+     */
+    private static String hashOfDirectory(File directory, FileHasher fileHasher) {
+        if (!directory.isDirectory()) {
+            return MISSING;
+        }
+        Path root = directory.toPath();
+        List<Path> files = new ArrayList<>();
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (root.equals(dir.getParent())) {
+                        String name = dir.getFileName().toString();
+                        if (name.equals("build") || name.equals(".gradle")) {
+                            return FileVisitResult.SKIP_SUBTREE;
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile()) {
+                        files.add(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        Collections.sort(files);
+        Hasher hasher = Hashes.newHasher();
+        for (Path file : files) {
+            hasher.putString(root.relativize(file).toString().replace(File.separatorChar, '/'), StandardCharsets.UTF_8);
+            Hashes.putHash(hasher, fileHasher.hash(file.toFile()));
+        }
+        return Hashes.toCompactString(hasher.hash());
+    }
+
+    /**
+     * Collects the inputs of a fingerprint.
+     */
+    static class Builder {
+        private final FileHasher fileHasher;
+        private final ClassLoaderHierarchyHasher classLoaderHasher;
+        private final Map<String, String> inputFiles = new LinkedHashMap<>();
+        private final Map<String, String> inputDirectories = new LinkedHashMap<>();
+        private final Map<String, String> classLoaders = new LinkedHashMap<>();
+        private final Map<String, String> taskTypes = new LinkedHashMap<>();
+
+        Builder(FileHasher fileHasher, ClassLoaderHierarchyHasher classLoaderHasher) {
+            this.fileHasher = fileHasher;
+            this.classLoaderHasher = classLoaderHasher;
+        }
+
+        Builder addInputFile(File file) {
+            inputFiles.put(file.getAbsolutePath(), hashOf(file, fileHasher));
+            return this;
+        }
+
+        Builder addInputDirectory(File directory) {
+            inputDirectories.put(directory.getAbsolutePath(), hashOfDirectory(directory, fileHasher));
+            return this;
+        }
+
+        /**
+         * Adds the file of a script. Scripts without a location are created by the build itself, such as
+         * the empty settings script of a build without one, and have nothing to track.
+         */
+        Builder addScript(ResourceLocation location, String displayName) {
+            File file = location.getFile();
+            if (file != null) {
+                return addInputFile(file);
+            }
+            if (location.getURI() != null) {
+                throw new UnsupportedStateException(displayName + " is not a local file");
+            }
+            return this;
+        }
+
+        /**
+         * Adds a class loader the configuration ran in. Only the settings class loader can be checked
+         * again before the build is configured, so the other class loaders are only checked to be known
+         * to the hasher.
+         */
+        Builder addClassLoader(String name, ClassLoader classLoader) {
+            HashCode hash = classLoaderHasher.getClassLoaderHash(classLoader);
+            if (hash == null) {
+                throw new UnsupportedStateException("the classpath of " + name + " can not be tracked");
+            }
+            if (name.equals(SETTINGS_CLASS_LOADER)) {
+                classLoaders.put(name, Hashes.toCompactString(hash));
+            }
+            return this;
+        }
+
+        /**
+         * Adds the class loader of the given project, whose classpath is the settings classpath and the
+         * files of its build script classpath.
+         */
+        Builder addProjectClasspath(ProjectInternal project) {
+            addClassLoader("project '" + project.getPath() + "'", project.getClassLoaderScope().getExportClassLoader());
+            ScriptHandler buildscript = project.getBuildscript();
+            if (buildscript instanceof ScriptHandlerInternal) {
+                for (File file : ((ScriptHandlerInternal) buildscript).getScriptClassPath().getAsFiles()) {
+                    if (file.isDirectory()) {
+                        addInputDirectory(file);
+                    } else {
+                        addInputFile(file);
+                    }
+                }
+            }
+            return this;
+        }
+
+        Builder addTaskType(Class<?> taskType) {
+            taskTypes.put(taskType.getName(), TaskTypes.structureSignature(taskType));
+            return this;
+        }
+
+        ConfigurationCacheFingerprint build() {
+            if (!classLoaders.containsKey(SETTINGS_CLASS_LOADER)) {
+                throw new IllegalStateException("The settings class loader has not been added.");
+            }
+            return new ConfigurationCacheFingerprint(inputFiles, inputDirectories, classLoaders, taskTypes);
+        }
+    }
+
+    public static class Serializer extends AbstractSerializer<ConfigurationCacheFingerprint> {
+        @Override
+        public ConfigurationCacheFingerprint read(Decoder decoder) throws Exception {
+            Map<String, String> inputFiles = readMap(decoder);
+            Map<String, String> inputDirectories = readMap(decoder);
+            Map<String, String> classLoaders = readMap(decoder);
+            Map<String, String> taskTypes = readMap(decoder);
+            return new ConfigurationCacheFingerprint(inputFiles, inputDirectories, classLoaders, taskTypes);
+        }
+
+        @Override
+        public void write(Encoder encoder, ConfigurationCacheFingerprint value) throws Exception {
+            writeMap(encoder, value.inputFiles);
+            writeMap(encoder, value.inputDirectories);
+            writeMap(encoder, value.classLoaders);
+            writeMap(encoder, value.taskTypes);
+        }
+
+        private static Map<String, String> readMap(Decoder decoder) throws Exception {
+            int size = decoder.readSmallInt();
+            Map<String, String> map = new LinkedHashMap<>();
+            for (int i = 0; i < size; i++) {
+                map.put(decoder.readString(), decoder.readString());
+            }
+            return map;
+        }
+
+        private static void writeMap(Encoder encoder, Map<String, String> map) throws Exception {
+            encoder.writeSmallInt(map.size());
+            for (Map.Entry<String, String> entry : map.entrySet()) {
+                encoder.writeString(entry.getKey());
+                encoder.writeString(entry.getValue());
+            }
+        }
+    }
+}
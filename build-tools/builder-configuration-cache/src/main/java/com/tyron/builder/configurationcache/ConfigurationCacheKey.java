@@ -0,0 +1,78 @@
+package com.tyron.builder.configurationcache;
+
+import com.google.common.hash.Hasher;
+import com.tyron.builder.api.internal.StartParameterInternal;
+import com.tyron.builder.internal.buildtree.BuildActionModelRequirements;
+import com.tyron.builder.internal.hash.Hashes;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The key of the configuration cache entry for the current build invocation. Builds with the same
+ * requested tasks and command line options share an entry.
+ */
+public class ConfigurationCacheKey {
+    /**
+     * Changes whenever the format of the stored entries changes.
+     */
+    private static final int CACHE_VERSION = 2;
+
+    private final BuildActionModelRequirements requirements;
+    private String string;
+
+    public ConfigurationCacheKey(BuildActionModelRequirements requirements) {
+        this.requirements = requirements;
+    }
+
+    public String getString() {
+        if (string == null) {
+            string = calculateKey();
+        }
+        return string;
+    }
+
+    @Override
+    public String toString() {
+        return getString();
+    }
+
+    private String calculateKey() {
+        StartParameterInternal startParameter = requirements.getStartParameter();
+        Hasher hasher = Hashes.newHasher();
+        hasher.putInt(CACHE_VERSION);
+        putStrings(hasher, startParameter.getTaskNames());
+        putStrings(hasher, startParameter.getExcludedTaskNames());
+        putMap(hasher, startParameter.getProjectProperties());
+        putMap(hasher, startParameter.getSystemPropertiesArgs());
+        putFile(hasher, startParameter.getCurrentDir());
+        putFile(hasher, startParameter.getProjectDir());
+        putFile(hasher, startParameter.getSettingsFile());
+        hasher.putBoolean(startParameter.isOffline());
+        requirements.appendKeyTo(hasher);
+        return Hashes.toCompactString(hasher.hash());
+    }
+
+    private static void putStrings(Hasher hasher, Collection<String> strings) {
+        hasher.putInt(strings.size());
+        for (String string : strings) {
+            hasher.putString(string, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void putMap(Hasher hasher, Map<String, String> map) {
+        Map<String, String> sorted = new TreeMap<>(map);
+        hasher.putInt(sorted.size());
+        for (Map.Entry<String, String> entry : sorted.entrySet()) {
+            hasher.putString(entry.getKey(), StandardCharsets.UTF_8);
+            hasher.putString(String.valueOf(entry.getValue()), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void putFile(Hasher hasher, File file) {
+        hasher.putString(file == null ? "" : file.getAbsolutePath(), StandardCharsets.UTF_8);
+    }
+}
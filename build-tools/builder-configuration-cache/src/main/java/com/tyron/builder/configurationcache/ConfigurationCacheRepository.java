@@ -0,0 +1,133 @@
+package com.tyron.builder.configurationcache;
+
+import static com.tyron.builder.cache.internal.filelock.LockOptionsBuilder.mode;
+
+import com.tyron.builder.api.UncheckedIOException;
+import com.tyron.builder.cache.FileLockManager;
+import com.tyron.builder.cache.PersistentCache;
+import com.tyron.builder.cache.scopes.BuildTreeScopedCache;
+import com.tyron.builder.internal.UncheckedException;
+import com.tyron.builder.internal.serialize.Decoder;
+import com.tyron.builder.internal.serialize.Encoder;
+import com.tyron.builder.internal.serialize.kryo.KryoBackedDecoder;
+import com.tyron.builder.internal.serialize.kryo.KryoBackedEncoder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import javax.annotation.Nullable;
+
+/**
+ * Stores the configuration cache entries of a build tree, one file per entry.
+ */
+public class ConfigurationCacheRepository implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConfigurationCacheRepository.class);
+    private static final String ENTRY_SUFFIX = ".bin";
+
+    private final BuildTreeScopedCache scopedCache;
+    private PersistentCache cache;
+
+    public ConfigurationCacheRepository(BuildTreeScopedCache scopedCache) {
+        this.scopedCache = scopedCache;
+    }
+
+    /**
+     * Opens the cache on first use, so builds that do not use the configuration cache do not create it.
+     */
+    private synchronized PersistentCache getCache() {
+        if (cache == null) {
+            cache = scopedCache
+                    .cache("configuration-cache")
+                    .withDisplayName("configuration cache")
+                    .withLockOptions(mode(FileLockManager.LockMode.OnDemand))
+                    .open();
+        }
+        return cache;
+    }
+
+    /**
+     * Reads the entry with the given key.
+     *
+     * @return the value read, or null when there is no entry or the entry could not be read
+     */
+    @Nullable
+    public <T> T load(String key, EntryReader<T> reader) {
+        return getCache().withFileLock(() -> {
+            File file = entryFile(key);
+            if (!file.isFile()) {
+                return null;
+            }
+            try (KryoBackedDecoder decoder = new KryoBackedDecoder(new BufferedInputStream(new FileInputStream(file)))) {
+                return reader.read(decoder);
+            } catch (Exception e) {
+                LOGGER.warn("Could not read configuration cache entry {}, discarding it.", file, e);
+                deleteEntryFile(file);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Writes the entry with the given key, replacing any existing entry. The entry is only visible
+     * to {@link #load(String, EntryReader)} once it has been completely written.
+     */
+    public void store(String key, EntryWriter writer) {
+        getCache().withFileLock(() -> {
+            File file = entryFile(key);
+            File tempFile = new File(getCache().getBaseDir(), key + ".tmp");
+            try {
+                try (KryoBackedEncoder encoder = new KryoBackedEncoder(new FileOutputStream(tempFile))) {
+                    writer.write(encoder);
+                }
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                deleteEntryFile(tempFile);
+                throw new UncheckedIOException(e);
+            } catch (Exception e) {
+                deleteEntryFile(tempFile);
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        });
+    }
+
+    /**
+     * Removes the entry with the given key, if present.
+     */
+    public void discard(String key) {
+        getCache().withFileLock(() -> deleteEntryFile(entryFile(key)));
+    }
+
+    private File entryFile(String key) {
+        return new File(getCache().getBaseDir(), key + ENTRY_SUFFIX);
+    }
+
+    private static void deleteEntryFile(File file) {
+        if (file.exists() && !file.delete()) {
+            LOGGER.debug("Could not delete configuration cache file {}", file);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (cache != null) {
+            cache.close();
+        }
+    }
+
+    public interface EntryReader<T> {
+        T read(Decoder decoder) throws Exception;
+    }
+
+    public interface EntryWriter {
+        void write(Encoder encoder) throws Exception;
+    }
+}
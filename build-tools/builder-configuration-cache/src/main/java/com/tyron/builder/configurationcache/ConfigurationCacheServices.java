@@ -7,7 +7,9 @@ public class ConfigurationCacheServices extends AbstractPluginServiceRegistry {
 
     @Override
     public void registerBuildTreeServices(ServiceRegistration registration) {
-//        registration.add(ConfigurationCacheKey.class);
+        registration.add(ConfigurationCacheKey.class);
+        registration.add(ConfigurationCacheRepository.class);
+        registration.add(DefaultConfigurationCache.class);
         registration.add(DefaultBuildToolingModelControllerFactory.class);
         registration.add(DefaultBuildModelControllerServices.class);
     }
@@ -4,6 +4,7 @@ import com.tyron.builder.configuration.ScriptPluginFactory;
 import com.tyron.builder.configuration.project.ProjectEvaluator;
 import com.tyron.builder.execution.TaskSelector;
 import com.tyron.builder.initialization.BuildCancellationToken;
+import com.tyron.builder.initialization.BuildLoader;
 import com.tyron.builder.api.internal.BuildDefinition;
 import com.tyron.builder.internal.event.ListenerManager;
 import com.tyron.builder.invocation.DefaultGradle;
@@ -33,6 +34,7 @@ import com.tyron.builder.internal.build.BuildLifecycleControllerFactory;
 import com.tyron.builder.internal.build.BuildModelController;
 import com.tyron.builder.internal.build.BuildModelControllerServices;
 import com.tyron.builder.internal.build.BuildState;
+import com.tyron.builder.internal.buildtree.BuildModelParameters;
 import com.tyron.builder.internal.model.StateTransitionControllerFactory;
 
 import javax.annotation.Nullable;
@@ -91,14 +93,16 @@ public class DefaultBuildModelControllerServices implements BuildModelController
     private static class VintageBuildControllerProvider {
         BuildModelController createBuildModelController(
                 GradleInternal gradle,
-                StateTransitionControllerFactory factory
+                StateTransitionControllerFactory factory,
+                BuildModelParameters buildModelParameters,
+                BuildTreeConfigurationCache configurationCache
         ) {
             ProjectsPreparer projectsPreparer = gradle.getServices().get(ProjectsPreparer.class);
             DefaultTaskSchedulingPreparer taskSchedulingPreparer = new DefaultTaskSchedulingPreparer(new ExcludedTaskFilteringProjectsPreparer(
                     gradle.getServices().get(TaskSelector.class)));
             SettingsPreparer settingsPreparer = gradle.getServices().get(SettingsPreparer.class);
             TaskExecutionPreparer taskExecutionPreparer = gradle.getServices().get(TaskExecutionPreparer.class);
-            return new VintageBuildModelController(
+            VintageBuildModelController vintageController = new VintageBuildModelController(
                     gradle,
                     projectsPreparer,
                     taskSchedulingPreparer,
@@ -106,6 +110,11 @@ public class DefaultBuildModelControllerServices implements BuildModelController
                     taskExecutionPreparer,
                     factory
             );
+            if (buildModelParameters.isConfigurationCache() && gradle.isRootBuild()) {
+                BuildLoader buildLoader = gradle.getServices().get(BuildLoader.class);
+                return new ConfigurationCacheAwareBuildModelController(vintageController, gradle, buildLoader, configurationCache);
+            }
+            return vintageController;
         }
     }
 
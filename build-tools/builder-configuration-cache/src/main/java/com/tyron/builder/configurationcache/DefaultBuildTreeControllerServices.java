@@ -22,10 +22,11 @@ public class DefaultBuildTreeControllerServices implements BuildTreeModelControl
         }
 
         Boolean isolatedProjects = startParameter.getIsolatedProjects().get();
+        boolean configurationCache = startParameter.getConfigurationCache().get() || isolatedProjects;
         return registration -> {
             registration.add(BuildType.class, BuildType.TASKS);
             BuildModelParameters buildModelParameters =
-                    new BuildModelParameters(false, false, false, true, false, false, false);
+                    new BuildModelParameters(false, configurationCache, false, true, false, false, false);
             registerServices(registration, buildModelParameters, new RunTasksRequirements(startParameter));
         };
     }
@@ -35,9 +36,6 @@ public class DefaultBuildTreeControllerServices implements BuildTreeModelControl
                                   BuildActionModelRequirements requirements) {
         registration.add(BuildModelParameters.class, modelParameters);
         registration.add(BuildActionModelRequirements.class, requirements);
-        if (modelParameters.isConfigurationCache()) {
-
-        }
         registration.add(VintageBuildTreeLifecycleControllerFactory.class);
     }
 
@@ -0,0 +1,174 @@
+package com.tyron.builder.configurationcache;
+
+import com.tyron.builder.api.BuildException;
+import com.tyron.builder.api.Task;
+import com.tyron.builder.api.internal.GradleInternal;
+import com.tyron.builder.api.internal.StartParameterInternal;
+import com.tyron.builder.api.logging.Logger;
+import com.tyron.builder.api.logging.Logging;
+import com.tyron.builder.configurationcache.serialization.CachedTaskGraph;
+import com.tyron.builder.configurationcache.serialization.CachedTaskGraphSerializer;
+import com.tyron.builder.configurationcache.serialization.TaskGraphLoader;
+import com.tyron.builder.configurationcache.serialization.TaskGraphRecorder;
+import com.tyron.builder.configurationcache.serialization.UnsupportedStateException;
+import com.tyron.builder.groovy.scripts.ScriptSource;
+import com.tyron.builder.internal.build.BuildLifecycleController;
+import com.tyron.builder.internal.buildtree.BuildActionModelRequirements;
+import com.tyron.builder.internal.buildtree.BuildTreeWorkGraph;
+import com.tyron.builder.internal.event.ListenerManager;
+import com.tyron.builder.internal.hash.ClassLoaderHierarchyHasher;
+import com.tyron.builder.internal.hash.FileHasher;
+import com.tyron.builder.internal.scripts.ScriptSourceListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import javax.annotation.Nullable;
+
+/**
+ * Stores the task graph calculated for the requested tasks of the root build, keyed by
+ * {@link ConfigurationCacheKey}. A later build with the same key whose {@link ConfigurationCacheFingerprint}
+ * is unchanged evaluates the settings and creates the projects, but runs no build scripts: the tasks are
+ * recreated from the stored graph and scheduled directly.
+ *
+ * <p>When the task graph holds state that can not be stored, or the configuration of the build has inputs
+ * that can not be tracked, the build logs the reason and configures the projects as usual on the next run.</p>
+ */
+public class DefaultConfigurationCache implements BuildTreeConfigurationCache {
+    private static final Logger LOGGER = Logging.getLogger(DefaultConfigurationCache.class);
+
+    private final StartParameterInternal startParameter;
+    private final ConfigurationCacheKey cacheKey;
+    private final ConfigurationCacheRepository repository;
+    private final FileHasher fileHasher;
+    private final ClassLoaderHierarchyHasher classLoaderHasher;
+    private final ScriptRecorder scriptRecorder = new ScriptRecorder();
+    private final CachedTaskGraphSerializer taskGraphSerializer = new CachedTaskGraphSerializer();
+    private final ConfigurationCacheFingerprint.Serializer fingerprintSerializer = new ConfigurationCacheFingerprint.Serializer();
+    private boolean loaded;
+
+    public DefaultConfigurationCache(BuildActionModelRequirements requirements,
+                                     ConfigurationCacheKey cacheKey,
+                                     ConfigurationCacheRepository repository,
+                                     FileHasher fileHasher,
+                                     ClassLoaderHierarchyHasher classLoaderHasher,
+                                     ListenerManager listenerManager) {
+        this.startParameter = requirements.getStartParameter();
+        this.cacheKey = cacheKey;
+        this.repository = repository;
+        this.fileHasher = fileHasher;
+        this.classLoaderHasher = classLoaderHasher;
+        listenerManager.addListener(scriptRecorder);
+    }
+
+    @Override
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    @Override
+    public void loadOrScheduleRequestedTasks(BuildLifecycleController build, BuildTreeWorkGraph graph, Consumer<? super BuildTreeWorkGraph> scheduler) {
+        GradleInternal gradle = build.getGradle();
+        build.loadSettings();
+        ClassLoader classLoader = gradle.getSettings().getClassLoaderScope().getExportClassLoader();
+        String key = cacheKey.getString();
+
+        if (startParameter.isConfigurationCacheRecreateCache()) {
+            log("Recreating configuration cache.");
+        } else {
+            LoadResult result = repository.load(key, decoder -> {
+                ConfigurationCacheFingerprint fingerprint = fingerprintSerializer.read(decoder);
+                String reason = fingerprint.checkUpToDate(fileHasher, classLoaderHasher, classLoader);
+                if (reason != null) {
+                    return new LoadResult(reason, null);
+                }
+                return new LoadResult(null, taskGraphSerializer.read(decoder));
+            });
+            if (result == null) {
+                log("Calculating task graph as no configuration cache is available for tasks: " + String.join(" ", startParameter.getTaskNames()));
+            } else if (result.invalidReason != null) {
+                log("Calculating task graph as configuration cache cannot be reused because " + result.invalidReason + ".");
+            } else {
+                log("Reusing configuration cache.");
+                loadTaskGraph(build, graph, result.taskGraph, classLoader, key);
+                return;
+            }
+        }
+
+        scheduler.accept(graph);
+        storeTaskGraph(gradle, classLoader, key);
+    }
+
+    private void loadTaskGraph(BuildLifecycleController build, BuildTreeWorkGraph graph, CachedTaskGraph taskGraph, ClassLoader classLoader, String key) {
+        GradleInternal gradle = build.getGradle();
+        loaded = true;
+        try {
+            // creates the projects, without configuring them
+            build.prepareToScheduleTasks();
+            List<Task> entryTasks = new TaskGraphLoader(gradle.getRootProject(), classLoader).load(taskGraph);
+            graph.scheduleWork(builder -> builder.withWorkGraph(gradle.getOwner(), workGraph -> workGraph.addEntryTasks(entryTasks)));
+        } catch (RuntimeException e) {
+            repository.discard(key);
+            throw new BuildException("Could not load the configuration cache entry. The entry has been discarded, run the build again to recreate it.", e);
+        }
+    }
+
+    private void storeTaskGraph(GradleInternal gradle, ClassLoader classLoader, String key) {
+        try {
+            if (!gradle.includedBuilds().isEmpty()) {
+                throw new UnsupportedStateException("the build includes other builds");
+            }
+            TaskGraphRecorder recorder = new TaskGraphRecorder(classLoader);
+            CachedTaskGraph taskGraph = recorder.record(gradle.getTaskGraph().getScheduledWorkPlusDependencies());
+            ConfigurationCacheFingerprint fingerprint = ConfigurationCacheFingerprint.capture(gradle, scriptRecorder.getScripts(), recorder.getTaskTypes(), fileHasher, classLoaderHasher);
+            repository.store(key, encoder -> {
+                fingerprintSerializer.write(encoder, fingerprint);
+                taskGraphSerializer.write(encoder, taskGraph);
+            });
+            log("Configuration cache entry stored.");
+        } catch (UnsupportedStateException e) {
+            repository.discard(key);
+            log("Configuration cache entry not stored: " + e.getMessage() + ".");
+        } catch (RuntimeException e) {
+            // a state the recorder does not expect, the build itself did not fail
+            repository.discard(key);
+            log("Configuration cache entry not stored: " + e + ".");
+            LOGGER.debug("Failed to store the configuration cache entry.", e);
+        }
+    }
+
+    private void log(String message) {
+        if (startParameter.isConfigurationCacheQuiet()) {
+            LOGGER.info(message);
+        } else {
+            LOGGER.lifecycle(message);
+        }
+    }
+
+    /**
+     * Records the scripts applied by the builds of the build tree.
+     */
+    private static class ScriptRecorder implements ScriptSourceListener {
+        private final List<ScriptSource> scripts = new ArrayList<>();
+
+        @Override
+        public synchronized void onScriptSource(ScriptSource source) {
+            scripts.add(source);
+        }
+
+        public synchronized List<ScriptSource> getScripts() {
+            return new ArrayList<>(scripts);
+        }
+    }
+
+    private static class LoadResult {
+        private final String invalidReason;
+        private final CachedTaskGraph taskGraph;
+
+        private LoadResult(@Nullable String invalidReason, @Nullable CachedTaskGraph taskGraph) {
+            this.invalidReason = invalidReason;
+            this.taskGraph = taskGraph;
+        }
+    }
+}
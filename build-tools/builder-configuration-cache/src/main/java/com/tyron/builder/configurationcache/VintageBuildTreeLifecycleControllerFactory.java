@@ -9,6 +9,7 @@ import com.tyron.builder.internal.buildtree.BuildTreeFinishExecutor;
 import com.tyron.builder.internal.buildtree.BuildTreeLifecycleController;
 import com.tyron.builder.internal.buildtree.BuildTreeLifecycleControllerFactory;
 import com.tyron.builder.internal.buildtree.BuildTreeWorkExecutor;
+import com.tyron.builder.internal.buildtree.BuildTreeWorkPreparer;
 import com.tyron.builder.internal.buildtree.DefaultBuildTreeLifecycleController;
 import com.tyron.builder.internal.buildtree.DefaultBuildTreeModelCreator;
 import com.tyron.builder.internal.buildtree.DefaultBuildTreeWorkPreparer;
@@ -21,17 +22,20 @@ public class VintageBuildTreeLifecycleControllerFactory implements BuildTreeLife
     private final BuildOperationExecutor buildOperationExecutor;
     private final ProjectLeaseRegistry projectLeaseRegistry;
     private final StateTransitionControllerFactory stateTransitionControllerFactory;
+    private final BuildTreeConfigurationCache configurationCache;
 
     public VintageBuildTreeLifecycleControllerFactory(BuildModelParameters buildModelParameters,
                                                       BuildTreeWorkGraphController taskGraph,
                                                       BuildOperationExecutor buildOperationExecutor,
                                                       ProjectLeaseRegistry projectLeaseRegistry,
-                                                      StateTransitionControllerFactory stateTransitionControllerFactory) {
+                                                      StateTransitionControllerFactory stateTransitionControllerFactory,
+                                                      BuildTreeConfigurationCache configurationCache) {
         this.buildModelParameters = buildModelParameters;
         this.taskGraph = taskGraph;
         this.buildOperationExecutor = buildOperationExecutor;
         this.projectLeaseRegistry = projectLeaseRegistry;
         this.stateTransitionControllerFactory = stateTransitionControllerFactory;
+        this.configurationCache = configurationCache;
     }
 
     @Override
@@ -46,7 +50,7 @@ public class VintageBuildTreeLifecycleControllerFactory implements BuildTreeLife
     public BuildTreeLifecycleController createController(BuildLifecycleController targetBuild,
                                                          BuildTreeWorkExecutor workExecutor,
                                                          BuildTreeFinishExecutor finishExecutor) {
-        DefaultBuildTreeWorkPreparer workPreparer = createWorkPreparer(targetBuild);
+        BuildTreeWorkPreparer workPreparer = createWorkPreparer(targetBuild);
         DefaultBuildTreeModelCreator modelCreator = createModelCreator(targetBuild);
         return new DefaultBuildTreeLifecycleController(targetBuild, taskGraph, workPreparer, workExecutor, modelCreator, finishExecutor, stateTransitionControllerFactory);
     }
@@ -56,7 +60,11 @@ public class VintageBuildTreeLifecycleControllerFactory implements BuildTreeLife
         return new DefaultBuildTreeModelCreator(buildModelParameters, targetBuild.getGradle().getOwner(), buildOperationExecutor, projectLeaseRegistry);
     }
 
-    private DefaultBuildTreeWorkPreparer createWorkPreparer(BuildLifecycleController targetBuild) {
-        return new DefaultBuildTreeWorkPreparer(targetBuild.getGradle().getOwner(), targetBuild);
-}
+    private BuildTreeWorkPreparer createWorkPreparer(BuildLifecycleController targetBuild) {
+        DefaultBuildTreeWorkPreparer workPreparer = new DefaultBuildTreeWorkPreparer(targetBuild.getGradle().getOwner(), targetBuild);
+        if (buildModelParameters.isConfigurationCache() && targetBuild.getGradle().isRootBuild()) {
+            return new ConfigurationCacheAwareBuildTreeWorkPreparer(workPreparer, targetBuild, configurationCache);
+        }
+        return workPreparer;
+    }
 }
@@ -0,0 +1,245 @@
+package com.tyron.builder.configurationcache.serialization;
+
+import com.google.common.collect.ImmutableList;
+
+import java.io.File;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+/**
+ * The state of a calculated task graph, as stored in a configuration cache entry.
+ *
+ * <p>Tasks are referenced by their index in {@link #getTasks()}. The values of the task fields are
+ * plain values: {@code null}, strings, boxed primitives, files, lists, sets, maps and the value
+ * types declared in this class.</p>
+ */
+public class CachedTaskGraph {
+    private final List<CachedTask> tasks;
+    private final List<Integer> entryTasks;
+
+    public CachedTaskGraph(List<CachedTask> tasks, List<Integer> entryTasks) {
+        this.tasks = ImmutableList.copyOf(tasks);
+        this.entryTasks = ImmutableList.copyOf(entryTasks);
+    }
+
+    public List<CachedTask> getTasks() {
+        return tasks;
+    }
+
+    /**
+     * The tasks to add to the work graph, in order. All other tasks are reachable from these.
+     */
+    public List<Integer> getEntryTasks() {
+        return entryTasks;
+    }
+
+    public static class CachedTask {
+        private final String projectPath;
+        private final String name;
+        private final String type;
+        private final boolean enabled;
+        private final List<FieldState> fields;
+        private final List<Integer> dependencies;
+        private final List<Integer> mustRunAfter;
+        private final List<Integer> shouldRunAfter;
+
+        public CachedTask(String projectPath, String name, String type, boolean enabled, List<FieldState> fields,
+                          List<Integer> dependencies, List<Integer> mustRunAfter, List<Integer> shouldRunAfter) {
+            this.projectPath = projectPath;
+            this.name = name;
+            this.type = type;
+            this.enabled = enabled;
+            this.fields = ImmutableList.copyOf(fields);
+            this.dependencies = ImmutableList.copyOf(dependencies);
+            this.mustRunAfter = ImmutableList.copyOf(mustRunAfter);
+            this.shouldRunAfter = ImmutableList.copyOf(shouldRunAfter);
+        }
+
+        public String getProjectPath() {
+            return projectPath;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public List<FieldState> getFields() {
+            return fields;
+        }
+
+        public List<Integer> getDependencies() {
+            return dependencies;
+        }
+
+        public List<Integer> getMustRunAfter() {
+            return mustRunAfter;
+        }
+
+        public List<Integer> getShouldRunAfter() {
+            return shouldRunAfter;
+        }
+    }
+
+    /**
+     * The recorded value of a single field of a task.
+     */
+    public static class FieldState {
+        private final String declaringType;
+        private final String name;
+        private final FieldKind kind;
+        private final Object value;
+
+        public FieldState(String declaringType, String name, FieldKind kind, @Nullable Object value) {
+            this.declaringType = declaringType;
+            this.name = name;
+            this.kind = kind;
+            this.value = value;
+        }
+
+        public String getDeclaringType() {
+            return declaringType;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public FieldKind getKind() {
+            return kind;
+        }
+
+        @Nullable
+        public Object getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * How a recorded field value is applied to a newly created task.
+     */
+    public enum FieldKind {
+        /**
+         * The field is assigned the value.
+         */
+        VALUE,
+        /**
+         * The field holds a {@code Property}, {@code ListProperty}, {@code SetProperty} or {@code MapProperty} which is set to the value.
+         */
+        PROPERTY,
+        /**
+         * The field holds a {@code ConfigurableFileCollection} whose elements are set to the value.
+         */
+        FILE_COLLECTION,
+        /**
+         * The field is assigned a new file collection containing the value.
+         */
+        FILES,
+        /**
+         * The field holds a {@code PatternFilterable} whose patterns are set to the value.
+         */
+        PATTERNS,
+        /**
+         * The field holds a mutable collection or map whose contents are replaced with the value.
+         */
+        CONTENTS,
+        /**
+         * The field holds an object whose own fields are restored from the value, a {@link NestedValue}.
+         */
+        NESTED
+    }
+
+    /**
+     * An enum constant.
+     */
+    public static class EnumValue {
+        private final String type;
+        private final String name;
+
+        public EnumValue(String type, String name) {
+            this.type = type;
+            this.name = name;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    /**
+     * The recorded fields of an object held by a task field.
+     */
+    public static class NestedValue {
+        private final String type;
+        private final List<FieldState> fields;
+
+        public NestedValue(String type, List<FieldState> fields) {
+            this.type = type;
+            this.fields = ImmutableList.copyOf(fields);
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public List<FieldState> getFields() {
+            return fields;
+        }
+    }
+
+    /**
+     * The include and exclude patterns of a {@code PatternFilterable}.
+     */
+    public static class PatternsValue {
+        private final Set<String> includes;
+        private final Set<String> excludes;
+
+        public PatternsValue(Set<String> includes, Set<String> excludes) {
+            this.includes = includes;
+            this.excludes = excludes;
+        }
+
+        public Set<String> getIncludes() {
+            return includes;
+        }
+
+        public Set<String> getExcludes() {
+            return excludes;
+        }
+    }
+
+    /**
+     * A {@code ConfigurableFileTree} element of a file collection. The tree is recreated from its
+     * directory and patterns, so files added to the directory later are still seen.
+     */
+    public static class FileTreeValue {
+        private final File dir;
+        private final PatternsValue patterns;
+
+        public FileTreeValue(File dir, PatternsValue patterns) {
+            this.dir = dir;
+            this.patterns = patterns;
+        }
+
+        public File getDir() {
+            return dir;
+        }
+
+        public PatternsValue getPatterns() {
+            return patterns;
+        }
+    }
+}
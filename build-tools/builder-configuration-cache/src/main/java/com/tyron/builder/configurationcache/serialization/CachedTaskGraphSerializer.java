@@ -0,0 +1,284 @@
+package com.tyron.builder.configurationcache.serialization;
+
+import com.tyron.builder.configurationcache.serialization.CachedTaskGraph.CachedTask;
+import com.tyron.builder.configurationcache.serialization.CachedTaskGraph.EnumValue;
+import com.tyron.builder.configurationcache.serialization.CachedTaskGraph.FieldKind;
+import com.tyron.builder.configurationcache.serialization.CachedTaskGraph.FieldState;
+import com.tyron.builder.configurationcache.serialization.CachedTaskGraph.FileTreeValue;
+import com.tyron.builder.configurationcache.serialization.CachedTaskGraph.NestedValue;
+import com.tyron.builder.configurationcache.serialization.CachedTaskGraph.PatternsValue;
+import com.tyron.builder.internal.serialize.AbstractSerializer;
+import com.tyron.builder.internal.serialize.Decoder;
+import com.tyron.builder.internal.serialize.Encoder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class CachedTaskGraphSerializer extends AbstractSerializer<CachedTaskGraph> {
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte BOOLEAN = 2;
+    private static final byte BYTE = 3;
+    private static final byte SHORT = 4;
+    private static final byte CHAR = 5;
+    private static final byte INT = 6;
+    private static final byte LONG = 7;
+    private static final byte FLOAT = 8;
+    private static final byte DOUBLE = 9;
+    private static final byte FILE = 10;
+    private static final byte ENUM = 11;
+    private static final byte LIST = 12;
+    private static final byte SET = 13;
+    private static final byte MAP = 14;
+    private static final byte PATTERNS = 15;
+    private static final byte FILE_TREE = 16;
+    private static final byte NESTED = 17;
+
+    private static final FieldKind[] FIELD_KINDS = FieldKind.values();
+
+    @Override
+    public CachedTaskGraph read(Decoder decoder) throws Exception {
+        int taskCount = decoder.readSmallInt();
+        List<CachedTask> tasks = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            tasks.add(readTask(decoder));
+        }
+        List<Integer> entryTasks = readIndices(decoder);
+        return new CachedTaskGraph(tasks, entryTasks);
+    }
+
+    @Override
+    public void write(Encoder encoder, CachedTaskGraph value) throws Exception {
+        encoder.writeSmallInt(value.getTasks().size());
+        for (CachedTask task : value.getTasks()) {
+            writeTask(encoder, task);
+        }
+        writeIndices(encoder, value.getEntryTasks());
+    }
+
+    private static CachedTask readTask(Decoder decoder) throws IOException {
+        String projectPath = decoder.readString();
+        String name = decoder.readString();
+        String type = decoder.readString();
+        boolean enabled = decoder.readBoolean();
+        List<FieldState> fields = readFields(decoder);
+        List<Integer> dependencies = readIndices(decoder);
+        List<Integer> mustRunAfter = readIndices(decoder);
+        List<Integer> shouldRunAfter = readIndices(decoder);
+        return new CachedTask(projectPath, name, type, enabled, fields, dependencies, mustRunAfter, shouldRunAfter);
+    }
+
+    private static void writeTask(Encoder encoder, CachedTask task) throws IOException {
+        encoder.writeString(task.getProjectPath());
+        encoder.writeString(task.getName());
+        encoder.writeString(task.getType());
+        encoder.writeBoolean(task.isEnabled());
+        writeFields(encoder, task.getFields());
+        writeIndices(encoder, task.getDependencies());
+        writeIndices(encoder, task.getMustRunAfter());
+        writeIndices(encoder, task.getShouldRunAfter());
+    }
+
+    private static List<FieldState> readFields(Decoder decoder) throws IOException {
+        int count = decoder.readSmallInt();
+        List<FieldState> fields = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String declaringType = decoder.readString();
+            String name = decoder.readString();
+            FieldKind kind = FIELD_KINDS[decoder.readSmallInt()];
+            fields.add(new FieldState(declaringType, name, kind, readValue(decoder)));
+        }
+        return fields;
+    }
+
+    private static void writeFields(Encoder encoder, List<FieldState> fields) throws IOException {
+        encoder.writeSmallInt(fields.size());
+        for (FieldState field : fields) {
+            encoder.writeString(field.getDeclaringType());
+            encoder.writeString(field.getName());
+            encoder.writeSmallInt(field.getKind().ordinal());
+            writeValue(encoder, field.getValue());
+        }
+    }
+
+    private static List<Integer> readIndices(Decoder decoder) throws IOException {
+        int count = decoder.readSmallInt();
+        List<Integer> indices = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            indices.add(decoder.readSmallInt());
+        }
+        return indices;
+    }
+
+    private static void writeIndices(Encoder encoder, List<Integer> indices) throws IOException {
+        encoder.writeSmallInt(indices.size());
+        for (Integer index : indices) {
+            encoder.writeSmallInt(index);
+        }
+    }
+
+    private static Object readValue(Decoder decoder) throws IOException {
+        byte tag = decoder.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return decoder.readString();
+            case BOOLEAN:
+                return decoder.readBoolean();
+            case BYTE:
+                return decoder.readByte();
+            case SHORT:
+                return (short) decoder.readInt();
+            case CHAR:
+                return (char) decoder.readInt();
+            case INT:
+                return decoder.readInt();
+            case LONG:
+                return decoder.readLong();
+            case FLOAT:
+                return Float.intBitsToFloat(decoder.readInt());
+            case DOUBLE:
+                return Double.longBitsToDouble(decoder.readLong());
+            case FILE:
+                return new File(decoder.readString());
+            case ENUM:
+                return new EnumValue(decoder.readString(), decoder.readString());
+            case LIST:
+                return readElements(decoder, new ArrayList<>());
+            case SET:
+                return readElements(decoder, new LinkedHashSet<>());
+            case MAP:
+                int size = decoder.readSmallInt();
+                Map<Object, Object> map = new LinkedHashMap<>();
+                for (int i = 0; i < size; i++) {
+                    map.put(readValue(decoder), readValue(decoder));
+                }
+                return map;
+            case PATTERNS:
+                return readPatterns(decoder);
+            case FILE_TREE:
+                return new FileTreeValue(new File(decoder.readString()), readPatterns(decoder));
+            case NESTED:
+                return new NestedValue(decoder.readString(), readFields(decoder));
+            default:
+                throw new IllegalArgumentException("Unexpected value tag " + tag);
+        }
+    }
+
+    private static <T extends Collection<Object>> T readElements(Decoder decoder, T elements) throws IOException {
+        int size = decoder.readSmallInt();
+        for (int i = 0; i < size; i++) {
+            elements.add(readValue(decoder));
+        }
+        return elements;
+    }
+
+    private static PatternsValue readPatterns(Decoder decoder) throws IOException {
+        Set<String> includes = readStrings(decoder);
+        Set<String> excludes = readStrings(decoder);
+        return new PatternsValue(includes, excludes);
+    }
+
+    private static Set<String> readStrings(Decoder decoder) throws IOException {
+        int size = decoder.readSmallInt();
+        Set<String> strings = new LinkedHashSet<>();
+        for (int i = 0; i < size; i++) {
+            strings.add(decoder.readString());
+        }
+        return strings;
+    }
+
+    private static void writeValue(Encoder encoder, Object value) throws IOException {
+        if (value == null) {
+            encoder.writeByte(NULL);
+        } else if (value instanceof String) {
+            encoder.writeByte(STRING);
+            encoder.writeString((String) value);
+        } else if (value instanceof Boolean) {
+            encoder.writeByte(BOOLEAN);
+            encoder.writeBoolean((Boolean) value);
+        } else if (value instanceof Byte) {
+            encoder.writeByte(BYTE);
+            encoder.writeByte((Byte) value);
+        } else if (value instanceof Short) {
+            encoder.writeByte(SHORT);
+            encoder.writeInt((Short) value);
+        } else if (value instanceof Character) {
+            encoder.writeByte(CHAR);
+            encoder.writeInt((Character) value);
+        } else if (value instanceof Integer) {
+            encoder.writeByte(INT);
+            encoder.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            encoder.writeByte(LONG);
+            encoder.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            encoder.writeByte(FLOAT);
+            encoder.writeInt(Float.floatToIntBits((Float) value));
+        } else if (value instanceof Double) {
+            encoder.writeByte(DOUBLE);
+            encoder.writeLong(Double.doubleToLongBits((Double) value));
+        } else if (value instanceof File) {
+            encoder.writeByte(FILE);
+            encoder.writeString(((File) value).getPath());
+        } else if (value instanceof EnumValue) {
+            encoder.writeByte(ENUM);
+            encoder.writeString(((EnumValue) value).getType());
+            encoder.writeString(((EnumValue) value).getName());
+        } else if (value instanceof List) {
+            encoder.writeByte(LIST);
+            writeElements(encoder, (List<?>) value);
+        } else if (value instanceof Set) {
+            encoder.writeByte(SET);
+            writeElements(encoder, (Set<?>) value);
+        } else if (value instanceof Map) {
+            encoder.writeByte(MAP);
+            Map<?, ?> map = (Map<?, ?>) value;
+            encoder.writeSmallInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(encoder, entry.getKey());
+                writeValue(encoder, entry.getValue());
+            }
+        } else if (value instanceof PatternsValue) {
+            encoder.writeByte(PATTERNS);
+            writePatterns(encoder, (PatternsValue) value);
+        } else if (value instanceof FileTreeValue) {
+            encoder.writeByte(FILE_TREE);
+            encoder.writeString(((FileTreeValue) value).getDir().getPath());
+            writePatterns(encoder, ((FileTreeValue) value).getPatterns());
+        } else if (value instanceof NestedValue) {
+            encoder.writeByte(NESTED);
+            encoder.writeString(((NestedValue) value).getType());
+            writeFields(encoder, ((NestedValue) value).getFields());
+        } else {
+            throw new IllegalArgumentException("Unsupported value type " + value.getClass().getName());
+        }
+    }
+
+    private static void writeElements(Encoder encoder, Collection<?> elements) throws IOException {
+        encoder.writeSmallInt(elements.size());
+        for (Object element : elements) {
+            writeValue(encoder, element);
+        }
+    }
+
+    private static void writePatterns(Encoder encoder, PatternsValue patterns) throws IOException {
+        writeStrings(encoder, patterns.getIncludes());
+        writeStrings(encoder, patterns.getExcludes());
+    }
+
+    private static void writeStrings(Encoder encoder, Set<String> strings) throws IOException {
+        encoder.writeSmallInt(strings.size());
+        for (String string : strings) {
+            encoder.writeString(string);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.tyron.builder.configurationcache.serialization;
+
+import com.tyron.builder.api.Task;
+import com.tyron.builder.api.file.ConfigurableFileCollection;
+import com.tyron.builder.api.file.ConfigurableFileTree;
+import com.tyron.builder.api.file.FileSystemLocationProperty;
+import com.tyron.builder.api.internal.project.ProjectInternal;
+import com.tyron.builder.api.provider.HasMultipleValues;
+import com.tyron.builder.api.provider.MapProperty;
+import com.tyron.builder.api.provider.Property;
+import com.tyron.builder.api.tasks.util.PatternFilterable;
+import com.tyron.builder.configurationcache.serialization.CachedTaskGraph.CachedTask;
+import com.tyron.builder.configurationcache.serialization.CachedTaskGraph.EnumValue;
+import com.tyron.builder.configurationcache.serialization.CachedTaskGraph.FieldState;
+import com.tyron.builder.configurationcache.serialization.CachedTaskGraph.FileTreeValue;
+import com.tyron.builder.configurationcache.serialization.CachedTaskGraph.NestedValue;
+import com.tyron.builder.configurationcache.serialization.CachedTaskGraph.PatternsValue;
+
+import java.io.File;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Recreates the tasks of a {@link CachedTaskGraph} recorded by {@link TaskGraphRecorder}.
+ *
+ * <p>The projects of the build must have been created, but not configured.</p>
+ */
+public class TaskGraphLoader {
+    private final ProjectInternal rootProject;
+    private final ClassLoader classLoader;
+
+    public TaskGraphLoader(ProjectInternal rootProject, ClassLoader classLoader) {
+        this.rootProject = rootProject;
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * Creates the tasks of the given graph and restores their state.
+     *
+     * @return the entry tasks of the graph, to be added to the work graph in order
+     */
+    public List<Task> load(CachedTaskGraph graph) {
+        List<CachedTask> cachedTasks = graph.getTasks();
+        List<Task> tasks = new ArrayList<>(cachedTasks.size());
+        for (CachedTask cachedTask : cachedTasks) {
+            ProjectInternal project = findProject(cachedTask.getProjectPath());
+            Class<? extends Task> type = loadClass(cachedTask.getType()).asSubclass(Task.class);
+            project.getOwner().applyToMutableState(p -> {
+                Task task = p.getTasks().register(cachedTask.getName(), type).get();
+                task.setEnabled(cachedTask.isEnabled());
+                applyFields(task, cachedTask.getFields(), p);
+                tasks.add(task);
+            });
+        }
+
+        for (int i = 0; i < cachedTasks.size(); i++) {
+            CachedTask cachedTask = cachedTasks.get(i);
+            Task task = tasks.get(i);
+            ((ProjectInternal) task.getProject()).getOwner().applyToMutableState(p -> {
+                if (!cachedTask.getDependencies().isEmpty()) {
+                    task.dependsOn(tasksAt(cachedTask.getDependencies(), tasks));
+                }
+                if (!cachedTask.getMustRunAfter().isEmpty()) {
+                    task.mustRunAfter(tasksAt(cachedTask.getMustRunAfter(), tasks));
+                }
+                if (!cachedTask.getShouldRunAfter().isEmpty()) {
+                    task.shouldRunAfter(tasksAt(cachedTask.getShouldRunAfter(), tasks));
+                }
+            });
+        }
+
+        List<Task> entryTasks = new ArrayList<>(graph.getEntryTasks().size());
+        for (Integer index : graph.getEntryTasks()) {
+            entryTasks.add(tasks.get(index));
+        }
+        return entryTasks;
+    }
+
+    private static Object[] tasksAt(List<Integer> indices, List<Task> tasks) {
+        Object[] result = new Object[indices.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = tasks.get(indices.get(i));
+        }
+        return result;
+    }
+
+    private ProjectInternal findProject(String path) {
+        ProjectInternal project = path.equals(rootProject.getPath()) ? rootProject : rootProject.findProject(path);
+        if (project == null) {
+            throw new IllegalStateException("Project " + path + " does not exist.");
+        }
+        return project;
+    }
+
+    private Class<?> loadClass(String name) {
+        try {
+            return Class.forName(name, false, classLoader);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Could not load class " + name + ".", e);
+        }
+    }
+
+    private void applyFields(Object owner, List<FieldState> fields, ProjectInternal project) {
+        for (FieldState state : fields) {
+            Field field;
+            try {
+                field = loadClass(state.getDeclaringType()).getDeclaredField(state.getName());
+                field.setAccessible(true);
+                applyField(owner, field, state, project);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                throw new IllegalStateException("Could not restore field " + state.getDeclaringType() + "." + state.getName() + " of " + owner + ".", e);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void applyField(Object owner, Field field, FieldState state, ProjectInternal project) throws ReflectiveOperationException {
+        Object value = state.getValue();
+        switch (state.getKind()) {
+            case VALUE:
+                field.set(owner, fromValue(value));
+                break;
+            case PROPERTY:
+                Object property = field.get(owner);
+                if (property instanceof MapProperty) {
+                    ((MapProperty<Object, Object>) property).set((Map<Object, Object>) fromValue(value));
+                } else if (property instanceof HasMultipleValues) {
+                    ((HasMultipleValues<Object>) property).set((Iterable<Object>) fromValue(value));
+                } else if (property instanceof FileSystemLocationProperty) {
+                    ((FileSystemLocationProperty<?>) property).set((File) value);
+                } else {
+                    ((Property<Object>) property).set(fromValue(value));
+                }
+                break;
+            case FILE_COLLECTION:
+                ((ConfigurableFileCollection) field.get(owner)).setFrom(fileElements((List<?>) value, project));
+                break;
+            case FILES:
+                field.set(owner, project.files(fileElements((List<?>) value, project)));
+                break;
+            case PATTERNS:
+                applyPatterns((PatternFilterable) field.get(owner), (PatternsValue) value);
+                break;
+            case CONTENTS:
+                Object contents = field.get(owner);
+                if (contents instanceof Map) {
+                    ((Map<Object, Object>) contents).clear();
+                    ((Map<Object, Object>) contents).putAll((Map<Object, Object>) fromValue(value));
+                } else {
+                    ((Collection<Object>) contents).clear();
+                    ((Collection<Object>) contents).addAll((Collection<Object>) fromValue(value));
+                }
+                break;
+            case NESTED:
+                NestedValue nested = (NestedValue) value;
+                Object current = field.get(owner);
+                if (current == null || !current.getClass().getName().equals(nested.getType())) {
+                    if (Modifier.isFinal(field.getModifiers())) {
+                        throw new IllegalStateException("Field holds a " + (current == null ? null : current.getClass().getName()) + " instead of a " + nested.getType() + ".");
+                    }
+                    Constructor<?> constructor = loadClass(nested.getType()).getDeclaredConstructor();
+                    constructor.setAccessible(true);
+                    current = constructor.newInstance();
+                    field.set(owner, current);
+                }
+                applyFields(current, nested.getFields(), project);
+                break;
+            default:
+                throw new IllegalArgumentException("Unexpected field kind " + state.getKind());
+        }
+    }
+
+    private static List<Object> fileElements(List<?> values, ProjectInternal project) {
+        List<Object> elements = new ArrayList<>(values.size());
+        for (Object value : values) {
+            if (value instanceof FileTreeValue) {
+                FileTreeValue treeValue = (FileTreeValue) value;
+                ConfigurableFileTree tree = project.fileTree(treeValue.getDir());
+                applyPatterns(tree, treeValue.getPatterns());
+                elements.add(tree);
+            } else {
+                elements.add(value);
+            }
+        }
+        return elements;
+    }
+
+    private static void applyPatterns(PatternFilterable target, PatternsValue patterns) {
+        target.setIncludes(patterns.getIncludes());
+        target.setExcludes(patterns.getExcludes());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object fromValue(Object value) {
+        if (value instanceof EnumValue) {
+            EnumValue enumValue = (EnumValue) value;
+            return Enum.valueOf((Class<? extends Enum>) loadClass(enumValue.getType()), enumValue.getName());
+        }
+        if (value instanceof Set) {
+            Set<Object> set = new LinkedHashSet<>();
+            for (Object element : (Set<?>) value) {
+                set.add(fromValue(element));
+            }
+            return set;
+        }
+        if (value instanceof List) {
+            List<Object> list = new ArrayList<>();
+            for (Object element : (List<?>) value) {
+                list.add(fromValue(element));
+            }
+            return list;
+        }
+        if (value instanceof Map) {
+            Map<Object, Object> map = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                map.put(fromValue(entry.getKey()), fromValue(entry.getValue()));
+            }
+            return map;
+        }
+        return value;
+    }
+}
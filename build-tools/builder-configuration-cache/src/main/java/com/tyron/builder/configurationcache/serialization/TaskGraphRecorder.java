@@ -0,0 +1,395 @@
+package com.tyron.builder.configurationcache.serialization;
+
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableMap;
+import com.tyron.builder.api.BuildProject;
+import com.tyron.builder.api.Task;
+import com.tyron.builder.api.file.ConfigurableFileCollection;
+import com.tyron.builder.api.file.ConfigurableFileTree;
+import com.tyron.builder.api.file.FileCollection;
+import com.tyron.builder.api.file.FileSystemLocation;
+import com.tyron.builder.api.internal.TaskInternal;
+import com.tyron.builder.api.internal.project.ProjectInternal;
+import com.tyron.builder.api.internal.tasks.InputChangesAwareTaskAction;
+import com.tyron.builder.api.internal.tasks.properties.InputFilePropertyType;
+import com.tyron.builder.api.internal.tasks.properties.OutputFilePropertyType;
+import com.tyron.builder.api.internal.tasks.properties.PropertyValue;
+import com.tyron.builder.api.internal.tasks.properties.PropertyVisitor;
+import com.tyron.builder.api.provider.HasMultipleValues;
+import com.tyron.builder.api.provider.MapProperty;
+import com.tyron.builder.api.provider.Property;
+import com.tyron.builder.api.provider.Provider;
+import com.tyron.builder.api.tasks.FileNormalizer;
+import com.tyron.builder.api.tasks.util.PatternFilterable;
+import com.tyron.builder.api.tasks.util.PatternSet;
+import com.tyron.builder.configurationcache.serialization.CachedTaskGraph.CachedTask;
+import com.tyron.builder.configurationcache.serialization.CachedTaskGraph.EnumValue;
+import com.tyron.builder.configurationcache.serialization.CachedTaskGraph.FieldKind;
+import com.tyron.builder.configurationcache.serialization.CachedTaskGraph.FieldState;
+import com.tyron.builder.configurationcache.serialization.CachedTaskGraph.FileTreeValue;
+import com.tyron.builder.configurationcache.serialization.CachedTaskGraph.NestedValue;
+import com.tyron.builder.configurationcache.serialization.CachedTaskGraph.PatternsValue;
+import com.tyron.builder.execution.plan.LocalTaskNode;
+import com.tyron.builder.execution.plan.Node;
+import com.tyron.builder.execution.plan.OrdinalNode;
+import com.tyron.builder.execution.plan.ResolveMutationsNode;
+import com.tyron.builder.execution.plan.TaskNode;
+import com.tyron.builder.internal.hash.ClassLoaderHierarchyHasher;
+import com.tyron.builder.internal.fingerprint.DirectorySensitivity;
+import com.tyron.builder.internal.fingerprint.LineEndingSensitivity;
+import com.tyron.builder.util.Predicates;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Records the state of the tasks in a calculated work graph, so the graph can be recreated by
+ * {@link TaskGraphLoader} without configuring the build.
+ *
+ * <p>Tasks are recreated by running their constructor without arguments, so any state that
+ * the constructor creates is not recorded, and tasks registered with constructor arguments
+ * are not supported. Everything else must be a plain value, a property, a file
+ * collection or an object made of those. Anything else, such as actions or predicates
+ * added by a build script, can not be recreated and is reported with an
+ * {@link UnsupportedStateException}.</p>
+ */
+public class TaskGraphRecorder {
+    private static final int MAX_NESTING = 4;
+    private static final ClassLoaderHierarchyHasher NO_CLASS_LOADER_HASH = classLoader -> null;
+
+    private final ClassLoader taskClassLoader;
+    private final Set<Class<?>> taskTypes = new LinkedHashSet<>();
+
+    /**
+     * @param taskClassLoader the class loader that {@link TaskGraphLoader} will load the task types from
+     */
+    public TaskGraphRecorder(ClassLoader taskClassLoader) {
+        this.taskClassLoader = taskClassLoader;
+    }
+
+    /**
+     * The types of the recorded tasks.
+     */
+    public Set<Class<?>> getTaskTypes() {
+        return taskTypes;
+    }
+
+    public CachedTaskGraph record(List<Node> nodes) {
+        List<LocalTaskNode> taskNodes = new ArrayList<>();
+        Map<Node, Integer> indices = new IdentityHashMap<>();
+        for (Node node : nodes) {
+            if (node instanceof LocalTaskNode) {
+                indices.put(node, taskNodes.size());
+                taskNodes.add((LocalTaskNode) node);
+            } else if (!(node instanceof OrdinalNode) && !(node instanceof ResolveMutationsNode)) {
+                // ordinal and mutation nodes are added again when the tasks are scheduled
+                throw new UnsupportedStateException("work graph contains " + node + ", which is not a task");
+            }
+        }
+
+        List<CachedTask> tasks = new ArrayList<>(taskNodes.size());
+        Set<Integer> dependencies = new HashSet<>();
+        for (LocalTaskNode node : taskNodes) {
+            TaskInternal task = node.getTask();
+            checkTask(node, task);
+            List<Integer> taskDependencies = indicesOf(node.getDependencySuccessors(), indices);
+            dependencies.addAll(taskDependencies);
+            tasks.add(new CachedTask(
+                task.getProject().getPath(),
+                task.getName(),
+                task.getClass().getName(),
+                task.getEnabled(),
+                recordFields(task, task.getClass(), (ProjectInternal) task.getProject(), 0),
+                taskDependencies,
+                indicesOf(node.getMustSuccessors(), indices),
+                indicesOf(node.getShouldSuccessors(), indices)
+            ));
+            taskTypes.add(task.getClass());
+        }
+
+        List<Integer> entryTasks = new ArrayList<>();
+        for (int i = 0; i < taskNodes.size(); i++) {
+            if (!dependencies.contains(i)) {
+                entryTasks.add(i);
+            }
+        }
+        entryTasks.sort(Comparator.comparingInt(index -> taskNodes.get(index).getOrdinal()));
+        return new CachedTaskGraph(tasks, entryTasks);
+    }
+
+    private static List<Integer> indicesOf(Set<Node> successors, Map<Node, Integer> indices) {
+        List<Integer> result = new ArrayList<>(successors.size());
+        for (Node successor : successors) {
+            Integer index = indices.get(successor);
+            if (index != null) {
+                result.add(index);
+            }
+        }
+        return result;
+    }
+
+    private void checkTask(TaskNode node, TaskInternal task) {
+        Class<?> type = task.getClass();
+        try {
+            if (Class.forName(type.getName(), false, taskClassLoader) != type) {
+                throw new UnsupportedStateException(task + " has type " + type.getName() + ", which is not visible to the settings class loader");
+            }
+        } catch (ClassNotFoundException e) {
+            throw new UnsupportedStateException(task + " has type " + type.getName() + ", which is not visible to the settings class loader");
+        }
+        if (task.isRegisteredWithConstructorArguments()) {
+            throw new UnsupportedStateException(task + " was registered with constructor arguments");
+        }
+        for (InputChangesAwareTaskAction action : task.getTaskActions()) {
+            String implementation = action.getActionImplementation(NO_CLASS_LOADER_HASH).getTypeName();
+            if (!TaskTypes.isDeclaredBy(action.getClass().getName(), type) && !TaskTypes.isDeclaredBy(implementation, type)) {
+                throw new UnsupportedStateException(task + " has an action of type " + implementation + " that is not declared by the task type");
+            }
+        }
+        if (!Objects.equals(task.getOnlyIf(), Predicates.satisfyAll())) {
+            throw new UnsupportedStateException(task + " has an onlyIf predicate");
+        }
+        if (!Objects.equals(task.getOutputs().getUpToDateSpec(), Predicates.satisfyNone())) {
+            throw new UnsupportedStateException(task + " has an upToDateWhen predicate");
+        }
+        if (!node.getFinalizers().isEmpty()) {
+            throw new UnsupportedStateException(task + " has finalizer tasks");
+        }
+        RegisteredPropertiesVisitor visitor = new RegisteredPropertiesVisitor();
+        task.getInputs().visitRegisteredProperties(visitor);
+        task.getOutputs().visitRegisteredProperties(visitor);
+        if (visitor.found) {
+            throw new UnsupportedStateException(task + " has inputs or outputs registered at runtime");
+        }
+    }
+
+    private List<FieldState> recordFields(Object owner, Class<?> ownerType, ProjectInternal project, int depth) {
+        List<FieldState> fields = new ArrayList<>();
+        for (Field field : TaskTypes.storedFields(owner.getClass())) {
+            Object value;
+            try {
+                value = field.get(owner);
+            } catch (IllegalAccessException e) {
+                throw new UnsupportedStateException("field " + describe(field) + " is not accessible");
+            }
+            FieldState state = recordField(field, value, ownerType, project, depth);
+            if (state != null) {
+                fields.add(state);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Returns the state of the given field, or null when the state is created by the constructor of the owner.
+     */
+    private FieldState recordField(Field field, Object value, Class<?> ownerType, ProjectInternal project, int depth) {
+        boolean isFinal = Modifier.isFinal(field.getModifiers());
+        if (value == null) {
+            return isFinal ? null : state(field, FieldKind.VALUE, null);
+        }
+        if (value instanceof Property || value instanceof HasMultipleValues || value instanceof MapProperty) {
+            return state(field, FieldKind.PROPERTY, toValue(((Provider<?>) value).getOrNull(), field));
+        }
+        if (value instanceof ConfigurableFileCollection) {
+            List<Object> elements = fileCollectionElements((ConfigurableFileCollection) value, ownerType, field);
+            return elements == null ? null : state(field, FieldKind.FILE_COLLECTION, elements);
+        }
+        if (value instanceof PatternFilterable && !(value instanceof FileCollection)) {
+            return state(field, FieldKind.PATTERNS, patterns((PatternFilterable) value, field));
+        }
+        if (value instanceof Provider || value instanceof FileCollection) {
+            if (isFinal) {
+                // derived from other state of the owner
+                return null;
+            }
+            if (value instanceof Provider) {
+                throw new UnsupportedStateException("field " + describe(field) + " holds a provider");
+            }
+            return state(field, FieldKind.FILES, files((FileCollection) value, field));
+        }
+        if (isPlainValue(value)) {
+            return isFinal ? null : state(field, FieldKind.VALUE, toValue(value, field));
+        }
+        if (value instanceof Collection || value instanceof Map) {
+            if (isFinal) {
+                if (value instanceof ImmutableCollection || value instanceof ImmutableMap) {
+                    return null;
+                }
+                return state(field, FieldKind.CONTENTS, toValue(value, field));
+            }
+            Object converted = toValue(value, field);
+            if (!field.getType().isAssignableFrom(converted.getClass())) {
+                throw new UnsupportedStateException("field " + describe(field) + " can not hold a " + converted.getClass().getName());
+            }
+            return state(field, FieldKind.VALUE, converted);
+        }
+        if (value instanceof Task || value instanceof BuildProject) {
+            if (isFinal && value == project) {
+                return null;
+            }
+            throw new UnsupportedStateException("field " + describe(field) + " references " + value);
+        }
+        if (isFinal && (TaskTypes.isDeclaredBy(value.getClass().getName(), ownerType) || project.getServices().find(field.getType()) == value)) {
+            // created by the constructor of the owner, or an injected service
+            return null;
+        }
+        if (depth >= MAX_NESTING) {
+            throw new UnsupportedStateException("field " + describe(field) + " holds a " + value.getClass().getName() + ", which is nested too deeply");
+        }
+        if (!isFinal) {
+            try {
+                value.getClass().getDeclaredConstructor();
+            } catch (NoSuchMethodException e) {
+                throw new UnsupportedStateException("field " + describe(field) + " holds a " + value.getClass().getName() + ", which has no default constructor");
+            }
+        }
+        List<FieldState> nested = recordFields(value, value.getClass(), project, depth + 1);
+        return state(field, FieldKind.NESTED, new NestedValue(value.getClass().getName(), nested));
+    }
+
+    /**
+     * Returns the elements of the given file collection, or null when all of them are created by the owner type.
+     */
+    private static List<Object> fileCollectionElements(ConfigurableFileCollection collection, Class<?> ownerType, Field field) {
+        List<Object> elements = new ArrayList<>();
+        boolean derived = false;
+        for (Object element : collection.getFrom()) {
+            if (element != null && TaskTypes.isDeclaredBy(element.getClass().getName(), ownerType)) {
+                derived = true;
+            } else {
+                addFileElement(element, elements, field);
+            }
+        }
+        if (derived && !elements.isEmpty()) {
+            throw new UnsupportedStateException("field " + describe(field) + " holds a file collection that mixes derived and configured files");
+        }
+        return derived ? null : elements;
+    }
+
+    private static void addFileElement(Object element, List<Object> elements, Field field) {
+        if (element instanceof File || element instanceof String) {
+            elements.add(element);
+        } else if (element instanceof FileSystemLocation) {
+            elements.add(((FileSystemLocation) element).getAsFile());
+        } else if (element instanceof ConfigurableFileTree) {
+            ConfigurableFileTree tree = (ConfigurableFileTree) element;
+            elements.add(new FileTreeValue(tree.getDir(), patterns(tree, field)));
+        } else if (element instanceof ConfigurableFileCollection) {
+            for (Object nested : ((ConfigurableFileCollection) element).getFrom()) {
+                addFileElement(nested, elements, field);
+            }
+        } else if (element instanceof Provider) {
+            addFileElement(((Provider<?>) element).getOrNull(), elements, field);
+        } else if (element instanceof Iterable) {
+            for (Object nested : (Iterable<?>) element) {
+                addFileElement(nested, elements, field);
+            }
+        } else if (element instanceof FileCollection) {
+            elements.addAll(((FileCollection) element).getFiles());
+        } else if (element != null) {
+            throw new UnsupportedStateException("field " + describe(field) + " holds a file collection containing a " + element.getClass().getName());
+        }
+    }
+
+    private static List<Object> files(FileCollection collection, Field field) {
+        List<Object> elements = new ArrayList<>();
+        addFileElement(collection, elements, field);
+        return elements;
+    }
+
+    private static PatternsValue patterns(PatternFilterable patterns, Field field) {
+        PatternSet patternSet = null;
+        if (patterns instanceof PatternSet) {
+            patternSet = (PatternSet) patterns;
+        } else if (patterns instanceof ConfigurableFileTree) {
+            patternSet = ((ConfigurableFileTree) patterns).getPatterns();
+        }
+        if (patternSet != null && (!patternSet.getIncludeSpecs().isEmpty() || !patternSet.getExcludeSpecs().isEmpty())) {
+            throw new UnsupportedStateException("field " + describe(field) + " uses include or exclude specs");
+        }
+        return new PatternsValue(new LinkedHashSet<>(patterns.getIncludes()), new LinkedHashSet<>(patterns.getExcludes()));
+    }
+
+    private static boolean isPlainValue(Object value) {
+        return value instanceof String || value instanceof Boolean || value instanceof Number
+               || value instanceof Character || value instanceof File || value instanceof Enum;
+    }
+
+    private static Object toValue(Object value, Field field) {
+        if (value == null || value instanceof String || value instanceof Boolean || value instanceof Character
+            || value instanceof Byte || value instanceof Short || value instanceof Integer
+            || value instanceof Long || value instanceof Float || value instanceof Double
+            || value instanceof File) {
+            return value;
+        }
+        if (value instanceof FileSystemLocation) {
+            return ((FileSystemLocation) value).getAsFile();
+        }
+        if (value instanceof Enum) {
+            Enum<?> constant = (Enum<?>) value;
+            return new EnumValue(constant.getDeclaringClass().getName(), constant.name());
+        }
+        if (value instanceof Set) {
+            Set<Object> set = new LinkedHashSet<>();
+            for (Object element : (Set<?>) value) {
+                set.add(toValue(element, field));
+            }
+            return set;
+        }
+        if (value instanceof Collection) {
+            List<Object> list = new ArrayList<>();
+            for (Object element : (Collection<?>) value) {
+                list.add(toValue(element, field));
+            }
+            return list;
+        }
+        if (value instanceof Map) {
+            Map<Object, Object> map = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                map.put(toValue(entry.getKey(), field), toValue(entry.getValue(), field));
+            }
+            return map;
+        }
+        throw new UnsupportedStateException("field " + describe(field) + " holds a value of type " + value.getClass().getName());
+    }
+
+    private static FieldState state(Field field, FieldKind kind, Object value) {
+        return new FieldState(field.getDeclaringClass().getName(), field.getName(), kind, value);
+    }
+
+    private static String describe(Field field) {
+        return field.getDeclaringClass().getName() + "." + field.getName();
+    }
+
+    private static class RegisteredPropertiesVisitor extends PropertyVisitor.Adapter {
+        private boolean found;
+
+        @Override
+        public void visitInputFileProperty(String propertyName, boolean optional, boolean skipWhenEmpty, DirectorySensitivity directorySensitivity, LineEndingSensitivity lineEndingSensitivity, boolean incremental, Class<? extends FileNormalizer> fileNormalizer, PropertyValue value, InputFilePropertyType filePropertyType) {
+            found = true;
+        }
+
+        @Override
+        public void visitInputProperty(String propertyName, PropertyValue value, boolean optional) {
+            found = true;
+        }
+
+        @Override
+        public void visitOutputFileProperty(String propertyName, boolean optional, PropertyValue value, OutputFilePropertyType filePropertyType) {
+            found = true;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.tyron.builder.configurationcache.serialization;
+
+import com.tyron.builder.api.DefaultTask;
+import com.tyron.builder.internal.hash.Hashes;
+import com.tyron.builder.internal.hash.PrimitiveHasher;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Reflection helpers for the task types stored in the configuration cache.
+ */
+public class TaskTypes {
+
+    private TaskTypes() {
+    }
+
+    /**
+     * Returns the fields whose state is stored for instances of the given type, declared by the
+     * type and its super classes below {@link DefaultTask}. Fields are returned in a stable order.
+     */
+    public static List<Field> storedFields(Class<?> type) {
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> current = type; current != null && current != DefaultTask.class && current != Object.class; current = current.getSuperclass()) {
+            Field[] declaredFields = current.getDeclaredFields();
+            Arrays.sort(declaredFields, Comparator.comparing(Field::getName));
+            for (Field field : declaredFields) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                    continue;
+                }
+                field.setAccessible(true);
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Returns whether the class with the given name is the given task type, one of its super
+     * classes, or a class nested in one of them. This includes anonymous classes and the classes
+     * generated for lambdas, both by the JDK and by D8.
+     */
+    public static boolean isDeclaredBy(String className, Class<?> taskType) {
+        for (Class<?> current = taskType; current != null && current != Object.class; current = current.getSuperclass()) {
+            String name = current.getName();
+            if (className.equals(name) || className.startsWith(name + "$")) {
+                return true;
+            }
+            Package pkg = current.getPackage();
+            String prefix = pkg == null ? "" : pkg.getName() + ".";
+            if (className.startsWith(prefix + "-$$Lambda$" + current.getSimpleName() + "$")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a signature of the stored fields of the given type, which changes when a field is
+     * added, removed, renamed or changes its type.
+     */
+    public static String structureSignature(Class<?> type) {
+        PrimitiveHasher hasher = Hashes.newPrimitiveHasher();
+        for (Field field : storedFields(type)) {
+            hasher.putString(field.getDeclaringClass().getName());
+            hasher.putString(field.getName());
+            hasher.putString(field.getType().getName());
+        }
+        return Hashes.toCompactString(hasher.hash());
+    }
+}
@@ -0,0 +1,11 @@
+package com.tyron.builder.configurationcache.serialization;
+
+/**
+ * Thrown when the task graph holds state that cannot be stored in the configuration cache.
+ * The build continues, but the task graph is not stored.
+ */
+public class UnsupportedStateException extends RuntimeException {
+    public UnsupportedStateException(String message) {
+        super(message);
+    }
+}
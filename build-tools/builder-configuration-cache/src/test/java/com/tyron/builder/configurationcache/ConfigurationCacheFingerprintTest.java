@@ -0,0 +1,200 @@
+package com.tyron.builder.configurationcache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.hash.HashCode;
+import com.tyron.builder.configurationcache.serialization.UnsupportedStateException;
+import com.tyron.builder.internal.hash.ClassLoaderHierarchyHasher;
+import com.tyron.builder.internal.hash.DefaultFileHasher;
+import com.tyron.builder.internal.hash.DefaultStreamHasher;
+import com.tyron.builder.internal.hash.FileHasher;
+import com.tyron.builder.internal.hash.Hashes;
+import com.tyron.builder.internal.resource.ResourceLocation;
+import com.tyron.builder.internal.serialize.kryo.KryoBackedDecoder;
+import com.tyron.builder.internal.serialize.kryo.KryoBackedEncoder;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ConfigurationCacheFingerprintTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final FileHasher fileHasher = new DefaultFileHasher(new DefaultStreamHasher());
+    private final Map<ClassLoader, HashCode> classLoaderHashes = new HashMap<>();
+    private final ClassLoaderHierarchyHasher classLoaderHasher = classLoaderHashes::get;
+    private final ClassLoader settingsClassLoader = getClass().getClassLoader();
+
+    @Test
+    public void storedFingerprintIsUpToDateWhenNothingChanged() throws Exception {
+        File script = write("build.gradle", "println 'hello'");
+        File buildSrc = temporaryFolder.newFolder("buildSrc");
+        write("buildSrc/src/main/java/Plugin.java", "class Plugin {}");
+        classLoaderHashes.put(settingsClassLoader, Hashes.hashString("settings"));
+
+        ConfigurationCacheFingerprint fingerprint = roundTrip(newBuilder()
+                .addScript(location(script, script.toURI()), "build file 'build.gradle'")
+                .addInputFile(new File(temporaryFolder.getRoot(), "gradle.properties"))
+                .addInputDirectory(buildSrc)
+                .addClassLoader(ConfigurationCacheFingerprint.SETTINGS_CLASS_LOADER, settingsClassLoader)
+                .addTaskType(SampleTask.class)
+                .build());
+
+        assertNull(fingerprint.checkUpToDate(fileHasher, classLoaderHasher, settingsClassLoader));
+    }
+
+    @Test
+    public void changedScriptInvalidatesFingerprint() throws Exception {
+        File script = write("other.gradle", "println 'hello'");
+        ConfigurationCacheFingerprint fingerprint = roundTrip(withSettings()
+                .addScript(location(script, script.toURI()), "script 'other.gradle'")
+                .build());
+
+        write("other.gradle", "println 'changed'");
+
+        assertEquals("file '" + script.getAbsolutePath() + "' has changed",
+                fingerprint.checkUpToDate(fileHasher, classLoaderHasher, settingsClassLoader));
+    }
+
+    @Test
+    public void createdFileInvalidatesFingerprint() throws Exception {
+        File properties = new File(temporaryFolder.getRoot(), "gradle.properties");
+        ConfigurationCacheFingerprint fingerprint = roundTrip(withSettings()
+                .addInputFile(properties)
+                .build());
+
+        write("gradle.properties", "org.gradle.caching=true");
+
+        assertEquals("file '" + properties.getAbsolutePath() + "' has changed",
+                fingerprint.checkUpToDate(fileHasher, classLoaderHasher, settingsClassLoader));
+    }
+
+    @Test
+    public void buildSrcChangesInvalidateFingerprint() throws Exception {
+        File buildSrc = temporaryFolder.newFolder("buildSrc");
+        write("buildSrc/src/main/java/Plugin.java", "class Plugin {}");
+        ConfigurationCacheFingerprint fingerprint = roundTrip(withSettings()
+                .addInputDirectory(buildSrc)
+                .build());
+
+        write("buildSrc/build/classes/Plugin.class", "output");
+        write("buildSrc/.gradle/state.bin", "cache");
+        assertNull(fingerprint.checkUpToDate(fileHasher, classLoaderHasher, settingsClassLoader));
+
+        write("buildSrc/src/main/java/Other.java", "class Other {}");
+        assertEquals("directory '" + buildSrc.getAbsolutePath() + "' has changed",
+                fingerprint.checkUpToDate(fileHasher, classLoaderHasher, settingsClassLoader));
+    }
+
+    @Test
+    public void changedSettingsClasspathInvalidatesFingerprint() throws Exception {
+        ConfigurationCacheFingerprint fingerprint = roundTrip(withSettings().build());
+
+        classLoaderHashes.put(settingsClassLoader, Hashes.hashString("other settings"));
+
+        assertEquals("the settings classpath has changed",
+                fingerprint.checkUpToDate(fileHasher, classLoaderHasher, settingsClassLoader));
+    }
+
+    @Test
+    public void missingTaskTypeInvalidatesFingerprint() throws Exception {
+        ConfigurationCacheFingerprint fingerprint = roundTrip(withSettings()
+                .addTaskType(SampleTask.class)
+                .build());
+
+        ClassLoader otherClassLoader = new URLClassLoader(new URL[0], null);
+        classLoaderHashes.put(otherClassLoader, Hashes.hashString("settings"));
+
+        assertEquals("task type " + SampleTask.class.getName() + " is no longer available",
+                fingerprint.checkUpToDate(fileHasher, classLoaderHasher, otherClassLoader));
+    }
+
+    @Test
+    public void remoteScriptIsNotStored() {
+        URI uri = URI.create("https://example.com/common.gradle");
+        assertThrows(UnsupportedStateException.class,
+                () -> withSettings().addScript(location(null, uri), "script '" + uri + "'"));
+    }
+
+    @Test
+    public void unknownClassLoaderIsNotStored() {
+        ClassLoader unknown = new URLClassLoader(new URL[0], settingsClassLoader);
+        assertThrows(UnsupportedStateException.class,
+                () -> withSettings().addClassLoader("project ':app'", unknown));
+    }
+
+    @Test
+    public void scriptWithoutLocationIsIgnored() throws Exception {
+        ConfigurationCacheFingerprint fingerprint = roundTrip(withSettings()
+                .addScript(location(null, null), "empty settings script")
+                .build());
+
+        assertNull(fingerprint.checkUpToDate(fileHasher, classLoaderHasher, settingsClassLoader));
+    }
+
+    private ConfigurationCacheFingerprint.Builder newBuilder() {
+        return new ConfigurationCacheFingerprint.Builder(fileHasher, classLoaderHasher);
+    }
+
+    private ConfigurationCacheFingerprint.Builder withSettings() {
+        classLoaderHashes.put(settingsClassLoader, Hashes.hashString("settings"));
+        return newBuilder().addClassLoader(ConfigurationCacheFingerprint.SETTINGS_CLASS_LOADER, settingsClassLoader);
+    }
+
+    private File write(String path, String text) throws IOException {
+        File file = new File(temporaryFolder.getRoot(), path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static ConfigurationCacheFingerprint roundTrip(ConfigurationCacheFingerprint fingerprint) throws Exception {
+        ConfigurationCacheFingerprint.Serializer serializer = new ConfigurationCacheFingerprint.Serializer();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (KryoBackedEncoder encoder = new KryoBackedEncoder(output)) {
+            serializer.write(encoder, fingerprint);
+        }
+        try (KryoBackedDecoder decoder = new KryoBackedDecoder(new ByteArrayInputStream(output.toByteArray()))) {
+            return serializer.read(decoder);
+        }
+    }
+
+    private static ResourceLocation location(File file, URI uri) {
+        return new ResourceLocation() {
+            @Override
+            public String getDisplayName() {
+                return String.valueOf(uri);
+            }
+
+            @Override
+            public File getFile() {
+                return file;
+            }
+
+            @Override
+            public URI getURI() {
+                return uri;
+            }
+        };
+    }
+
+    static class SampleTask {
+        private String message;
+    }
+}
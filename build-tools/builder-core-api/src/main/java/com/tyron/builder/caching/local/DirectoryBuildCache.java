@@ -13,6 +13,7 @@ import org.jetbrains.annotations.Nullable;
 public class DirectoryBuildCache extends AbstractBuildCache {
     private Object directory;
     private int removeUnusedEntriesAfterDays = 7;
+    private long maximumSize;
 
     /**
      * Returns the directory to use to store the build cache.
@@ -53,4 +54,24 @@ public class DirectoryBuildCache extends AbstractBuildCache {
         }
         this.removeUnusedEntriesAfterDays = removeUnusedEntriesAfterDays;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the maximum size of the build cache in bytes. Defaults to 0, which does not limit the size.
+     */
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Sets the maximum size of the build cache in bytes. When a stored entry makes the cache larger,
+     * the least recently used entries are removed. Defaults to 0, which does not limit the size.
+     *
+     * Must not be negative.
+     */
+    public void setMaximumSize(long maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("Directory build cache maximum size must not be negative.");
+        }
+        this.maximumSize = maximumSize;
+    }
+}
@@ -17,15 +17,17 @@ import java.util.function.Predicate;
 public abstract class AbstractTask implements TaskInternal {
 
     private static final ThreadLocal<TaskInfo> NEXT_INSTANCE = new ThreadLocal<TaskInfo>();
+    private static final Object[] NO_ARGS = new Object[0];
 
     private Predicate<? super Task> onlyIf = Predicates.satisfyAll();
+    private final boolean registeredWithConstructorArguments;
 
     protected AbstractTask() {
         this(taskInfo());
     }
 
     protected AbstractTask(TaskInfo taskInfo) {
-
+        registeredWithConstructorArguments = taskInfo != null && taskInfo.constructorArgs.length > 0;
     }
 
     protected static TaskInfo taskInfo() {
@@ -38,6 +40,12 @@ public abstract class AbstractTask implements TaskInternal {
         return false;
     }
 
+    @Internal
+    @Override
+    public boolean isRegisteredWithConstructorArguments() {
+        return registeredWithConstructorArguments;
+    }
+
     @Internal
     @Override
     public Predicate<? super TaskInternal> getOnlyIf() {
@@ -57,15 +65,21 @@ public abstract class AbstractTask implements TaskInternal {
     protected static class TaskInfo {
         public final TaskIdentity<?> identity;
         public final ProjectInternal project;
+        public final Object[] constructorArgs;
 
-        private TaskInfo(TaskIdentity<?> identity, ProjectInternal project) {
+        private TaskInfo(TaskIdentity<?> identity, ProjectInternal project, Object[] constructorArgs) {
             this.identity = identity;
             this.project = project;
+            this.constructorArgs = constructorArgs;
         }
     }
 
     public static <T extends Task> T injectIntoNewInstance(ProjectInternal project, TaskIdentity<T> identity, Callable<T> factory) {
-        NEXT_INSTANCE.set(new TaskInfo(identity, project));
+        return injectIntoNewInstance(project, identity, NO_ARGS, factory);
+    }
+
+    public static <T extends Task> T injectIntoNewInstance(ProjectInternal project, TaskIdentity<T> identity, Object[] constructorArgs, Callable<T> factory) {
+        NEXT_INSTANCE.set(new TaskInfo(identity, project, constructorArgs == null ? NO_ARGS : constructorArgs));
         try {
             return uncheckedCall(factory);
         } finally {
@@ -50,6 +50,12 @@ public interface TaskInternal extends Task {
 
     boolean getImpliesSubProjects();
 
+    /**
+     * Whether the task was registered with arguments for its constructor.
+     */
+    @Internal
+    boolean isRegisteredWithConstructorArguments();
+
     @Internal
     StandardOutputCapture getStandardOutputCapture();
 
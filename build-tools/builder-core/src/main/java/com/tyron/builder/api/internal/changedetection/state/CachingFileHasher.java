@@ -0,0 +1,171 @@
+package com.tyron.builder.api.internal.changedetection.state;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.HashCode;
+import com.tyron.builder.cache.PersistentIndexedCache;
+import com.tyron.builder.cache.PersistentIndexedCacheParameters;
+import com.tyron.builder.internal.cache.StringInterner;
+import com.tyron.builder.internal.file.FileMetadata;
+import com.tyron.builder.internal.file.Stat;
+import com.tyron.builder.internal.hash.FileHasher;
+import com.tyron.builder.internal.serialize.AbstractSerializer;
+import com.tyron.builder.internal.serialize.Decoder;
+import com.tyron.builder.internal.serialize.Encoder;
+import com.tyron.builder.internal.serialize.HashCodeSerializer;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A {@link FileHasher} which remembers the hashes of files across builds.
+ *
+ * A cached hash is reused as long as the length, the modification time and the file key (the inode on Unix)
+ * of the file have not changed, so unchanged files are not read again.
+ */
+public class CachingFileHasher implements FileHasher {
+
+    /**
+     * Files modified less than this amount of milliseconds before hashing are not cached,
+     * a later change within the timestamp granularity of the file system would go unnoticed.
+     */
+    private static final long TIMESTAMP_GRANULARITY_MILLIS = 2000;
+
+    private final PersistentIndexedCache<String, FileInfo> cache;
+    private final FileHasher delegate;
+    private final Stat stat;
+    private final StringInterner stringInterner;
+    private final FileHasherStatistics.Collector statisticsCollector;
+
+    public CachingFileHasher(
+            FileHasher delegate,
+            CrossBuildFileHashCache store,
+            StringInterner stringInterner,
+            String cacheName,
+            Stat stat,
+            int inMemorySize,
+            FileHasherStatistics.Collector statisticsCollector
+    ) {
+        this(delegate, store.createCache(PersistentIndexedCacheParameters.of(cacheName, String.class, new FileInfoSerializer()), inMemorySize, true),
+                stringInterner, stat, statisticsCollector);
+    }
+
+    @VisibleForTesting
+    CachingFileHasher(
+            FileHasher delegate,
+            PersistentIndexedCache<String, FileInfo> cache,
+            StringInterner stringInterner,
+            Stat stat,
+            FileHasherStatistics.Collector statisticsCollector
+    ) {
+        this.delegate = delegate;
+        this.stat = stat;
+        this.cache = cache;
+        this.stringInterner = stringInterner;
+        this.statisticsCollector = statisticsCollector;
+    }
+
+    @Override
+    public HashCode hash(File file) {
+        FileMetadata fileMetadata = stat.stat(file);
+        return snapshot(file, fileMetadata.getLength(), fileMetadata.getLastModified(), null).getHash();
+    }
+
+    @Override
+    public HashCode hash(File file, long length, long lastModified) {
+        return snapshot(file, length, lastModified, null).getHash();
+    }
+
+    @Override
+    public HashCode hash(File file, long length, long lastModified, @Nullable Object fileKey) {
+        return snapshot(file, length, lastModified, fileKey).getHash();
+    }
+
+    private FileInfo snapshot(File file, long length, long timestamp, @Nullable Object fileKey) {
+        String absolutePath = file.getAbsolutePath();
+        int fileKeyHash = fileKey == null ? 0 : fileKey.hashCode();
+        FileInfo info = cache.getIfPresent(absolutePath);
+        if (info != null && info.isUpToDate(length, timestamp, fileKeyHash)) {
+            return info;
+        }
+
+        statisticsCollector.reportFileHashed(length);
+        HashCode hash = delegate.hash(file);
+        info = new FileInfo(hash, length, timestamp, fileKeyHash);
+        if (timestamp < System.currentTimeMillis() - TIMESTAMP_GRANULARITY_MILLIS) {
+            cache.put(stringInterner.intern(absolutePath), info);
+        } else {
+            cache.remove(absolutePath);
+        }
+        return info;
+    }
+
+    public void discard(String path) {
+        cache.remove(path);
+    }
+
+    public static class FileInfo {
+        private final HashCode hash;
+        private final long timestamp;
+        private final long length;
+        private final int fileKeyHash;
+
+        public FileInfo(HashCode hash, long length, long timestamp, int fileKeyHash) {
+            this.hash = hash;
+            this.length = length;
+            this.timestamp = timestamp;
+            this.fileKeyHash = fileKeyHash;
+        }
+
+        public HashCode getHash() {
+            return hash;
+        }
+
+        /**
+         * A file key of 0 means the caller did not know the key of the file,
+         * only the length and the timestamp are compared in that case.
+         */
+        private boolean isUpToDate(long length, long timestamp, int fileKeyHash) {
+            return this.length == length
+                   && this.timestamp == timestamp
+                   && (fileKeyHash == 0 || this.fileKeyHash == 0 || this.fileKeyHash == fileKeyHash);
+        }
+    }
+
+    private static class FileInfoSerializer extends AbstractSerializer<FileInfo> {
+        private final HashCodeSerializer hashCodeSerializer = new HashCodeSerializer();
+
+        @Override
+        public FileInfo read(Decoder decoder) throws IOException {
+            HashCode hash = hashCodeSerializer.read(decoder);
+            long timestamp = decoder.readLong();
+            long length = decoder.readSmallLong();
+            int fileKeyHash = decoder.readInt();
+            return new FileInfo(hash, length, timestamp, fileKeyHash);
+        }
+
+        @Override
+        public void write(Encoder encoder, FileInfo value) throws IOException {
+            hashCodeSerializer.write(encoder, value.hash);
+            encoder.writeLong(value.timestamp);
+            encoder.writeSmallLong(value.length);
+            encoder.writeInt(value.fileKeyHash);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!super.equals(obj)) {
+                return false;
+            }
+
+            FileInfoSerializer rhs = (FileInfoSerializer) obj;
+            return hashCodeSerializer.equals(rhs.hashCodeSerializer);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCodeSerializer.hashCode();
+        }
+    }
+}
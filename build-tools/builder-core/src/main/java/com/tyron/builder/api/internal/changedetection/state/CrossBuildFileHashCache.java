@@ -9,6 +9,7 @@ import com.tyron.builder.cache.PersistentIndexedCache;
 import com.tyron.builder.cache.PersistentIndexedCacheParameters;
 import com.tyron.builder.cache.internal.InMemoryCacheDecoratorFactory;
 import com.tyron.builder.cache.scopes.ScopedCache;
+import com.tyron.builder.internal.hash.Hashes;
 
 import java.io.Closeable;
 
@@ -19,7 +20,8 @@ public class CrossBuildFileHashCache implements Closeable {
 
     public CrossBuildFileHashCache(ScopedCache scopedCache, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory, Kind cacheKind) {
         this.inMemoryCacheDecoratorFactory = inMemoryCacheDecoratorFactory;
-        cache = scopedCache.cache(cacheKind.cacheId)
+        // the stored hashes are only valid for the hash function they were created with
+        cache = scopedCache.cache(cacheKind.cacheId + "-" + Hashes.getDefaultFunction().getId())
                 .withDisplayName(cacheKind.description)
                 .withLockOptions(mode(FileLockManager.LockMode.OnDemand)) // Lock on demand
                 .open();
@@ -2,11 +2,14 @@ package com.tyron.builder.api.internal.changedetection.state;
 
 import static com.tyron.builder.cache.internal.filelock.LockOptionsBuilder.mode;
 
+import com.google.common.collect.ImmutableMap;
 import com.tyron.builder.internal.execution.history.ExecutionHistoryCacheAccess;
+import com.tyron.builder.internal.execution.history.impl.DefaultPreviousExecutionStateSerializer;
 import com.tyron.builder.cache.FileLockManager;
 import com.tyron.builder.cache.PersistentCache;
 import com.tyron.builder.cache.internal.filelock.LockOptionsBuilder;
 import com.tyron.builder.cache.scopes.ScopedCache;
+import com.tyron.builder.internal.hash.Hashes;
 
 import java.io.Closeable;
 
@@ -17,6 +20,10 @@ public class DefaultExecutionHistoryCacheAccess implements ExecutionHistoryCache
         this.cache = cacheRepository
                 .cache("executionHistory")
                 .withDisplayName("execution history cache")
+                .withProperties(ImmutableMap.of(
+                        "format", DefaultPreviousExecutionStateSerializer.FORMAT_VERSION,
+                        // the stored fingerprints are only valid for the hash function they were created with
+                        "hashFunction", Hashes.getDefaultFunction().getId()))
                 .withLockOptions(mode(FileLockManager.LockMode.OnDemand)) // Lock on demand
                 .open();
     }
@@ -44,7 +44,7 @@ public class DefaultTaskProvider<T extends Task> implements TaskProvider<T>, Pro
         }
 
         try {
-            value = AbstractTask.injectIntoNewInstance(project, taskIdentity, () -> {
+            value = AbstractTask.injectIntoNewInstance(project, taskIdentity, constructorArgs, () -> {
                 Constructor<T> declaredConstructor = type.getDeclaredConstructor();
                 return declaredConstructor.newInstance();
             });
@@ -15,6 +15,7 @@ import com.tyron.builder.caching.internal.controller.impl.DefaultBuildCacheComma
 import com.tyron.builder.caching.internal.origin.OriginMetadataFactory;
 import com.tyron.builder.caching.internal.packaging.BuildCacheEntryPacker;
 import com.tyron.builder.caching.internal.packaging.impl.DefaultTarPackerFileSystemSupport;
+import com.tyron.builder.caching.internal.packaging.impl.DeflateBuildCacheEntryPacker;
 import com.tyron.builder.caching.internal.packaging.impl.FilePermissionAccess;
 import com.tyron.builder.caching.internal.packaging.impl.GZipBuildCacheEntryPacker;
 import com.tyron.builder.caching.internal.packaging.impl.TarBuildCacheEntryPacker;
@@ -25,6 +26,7 @@ import com.tyron.builder.caching.local.internal.DirectoryBuildCacheFileStoreFact
 import com.tyron.builder.caching.local.internal.DirectoryBuildCacheServiceFactory;
 import com.tyron.builder.internal.SystemProperties;
 import com.tyron.builder.internal.cache.StringInterner;
+import com.tyron.builder.internal.concurrent.ExecutorFactory;
 import com.tyron.builder.internal.file.Deleter;
 import com.tyron.builder.internal.file.FileException;
 import com.tyron.builder.internal.hash.ChecksumService;
@@ -49,6 +51,13 @@ import java.util.List;
 
 public class BuildCacheServices extends AbstractPluginServiceRegistry {
 
+    /**
+     * Stores new build cache entries with the {@link DeflateBuildCacheEntryPacker} instead of
+     * as a gzipped TAR. Entries stored in the TAR format can still be loaded.
+     */
+    public static final String DEFLATE_PACKER_PROPERTY = "com.tyron.builder.caching.deflatePacker";
+    private static final int UNPACK_THREADS = 4;
+
     @Override
     public void registerBuildTreeServices(ServiceRegistration registration) {
         registration.addProvider(new Object() {
@@ -101,10 +110,18 @@ public class BuildCacheServices extends AbstractPluginServiceRegistry {
                     TarPackerFileSystemSupport fileSystemSupport,
                     FileSystem fileSystem,
                     StreamHasher fileHasher,
-                    StringInterner stringInterner
+                    StringInterner stringInterner,
+                    ExecutorFactory executorFactory
             ) {
-                return new GZipBuildCacheEntryPacker(
-                        new TarBuildCacheEntryPacker(fileSystemSupport, new FilePermissionsAccessAdapter(fileSystem), fileHasher, stringInterner));
+                FilePermissionsAccessAdapter filePermissionAccess = new FilePermissionsAccessAdapter(fileSystem);
+                BuildCacheEntryPacker tarPacker = new GZipBuildCacheEntryPacker(
+                        new TarBuildCacheEntryPacker(fileSystemSupport, filePermissionAccess, fileHasher, stringInterner));
+                if (Boolean.getBoolean(DEFLATE_PACKER_PROPERTY)) {
+                    int threads = Math.min(UNPACK_THREADS, Runtime.getRuntime().availableProcessors());
+                    return new DeflateBuildCacheEntryPacker(fileSystemSupport, filePermissionAccess, fileHasher, stringInterner, tarPacker,
+                            executorFactory.create("Build cache unpacker", threads));
+                }
+                return tarPacker;
             }
 
             OriginMetadataFactory createOriginMetadataFactory(
@@ -7,6 +7,7 @@ import com.tyron.builder.groovy.scripts.ScriptSource;
 import com.tyron.builder.internal.UncheckedException;
 import com.tyron.builder.internal.operations.BuildOperationExecutor;
 import com.tyron.builder.internal.reflect.Instantiator;
+import com.tyron.builder.internal.scripts.ScriptSourceListener;
 import com.tyron.builder.internal.scripts.ScriptingLanguages;
 import com.tyron.builder.scripts.ScriptingLanguage;
 
@@ -22,7 +23,8 @@ import java.util.List;
  * with a suffix of choice, e.g. "build.groovy" or "my.build" instead of the typical
  * "build.gradle" while preserving default behaviour which is to fallback to Groovy support.
  *
- * This factory wraps each {@link ScriptPlugin} implementation in a {@link BuildOperationScriptPlugin}.
+ * This factory wraps each {@link ScriptPlugin} implementation in a {@link BuildOperationScriptPlugin},
+ * and notifies the {@link ScriptSourceListener} of every script it creates a plugin for.
  *
  * @since 2.14
  */
@@ -67,19 +69,23 @@ public class ScriptPluginFactorySelector implements ScriptPluginFactory {
     private final ProviderInstantiator providerInstantiator;
     private final BuildOperationExecutor buildOperationExecutor;
     private final UserCodeApplicationContext userCodeApplicationContext;
+    private final ScriptSourceListener scriptSourceListener;
 
     public ScriptPluginFactorySelector(ScriptPluginFactory defaultScriptPluginFactory,
                                        ProviderInstantiator providerInstantiator,
-                                       BuildOperationExecutor buildOperationExecutor, UserCodeApplicationContext userCodeApplicationContext) {
+                                       BuildOperationExecutor buildOperationExecutor, UserCodeApplicationContext userCodeApplicationContext,
+                                       ScriptSourceListener scriptSourceListener) {
         this.defaultScriptPluginFactory = defaultScriptPluginFactory;
         this.providerInstantiator = providerInstantiator;
         this.buildOperationExecutor = buildOperationExecutor;
         this.userCodeApplicationContext = userCodeApplicationContext;
+        this.scriptSourceListener = scriptSourceListener;
     }
 
     @Override
     public ScriptPlugin create(ScriptSource scriptSource, ScriptHandler scriptHandler, ClassLoaderScope targetScope,
                                ClassLoaderScope baseScope, boolean topLevelScript) {
+        scriptSourceListener.onScriptSource(scriptSource);
         ScriptPlugin scriptPlugin = scriptPluginFactoryFor(scriptSource.getFileName())
             .create(scriptSource, scriptHandler, targetScope, baseScope, topLevelScript);
         return new BuildOperationScriptPlugin(scriptPlugin, buildOperationExecutor, userCodeApplicationContext);
@@ -654,6 +654,15 @@ public class DefaultExecutionPlan implements ExecutionPlan {
 
     @Override
     public NodeSelection selectNext() {
+        return selectNext(false);
+    }
+
+    @Override
+    public NodeSelection selectNextWithoutLocks() {
+        return selectNext(true);
+    }
+
+    private NodeSelection selectNext(boolean withoutLocks) {
         lockCoordinator.assertHasStateLock();
         if (executionQueue.isEmpty()) {
             return NO_MORE_NODES_TO_START;
@@ -666,6 +675,7 @@ public class DefaultExecutionPlan implements ExecutionPlan {
         Iterator<Node> iterator = executionQueue.iterator();
         boolean foundReadyNode = false;
         boolean foundNotReadyNode = false;
+        boolean skippedNodeWithLocks = false;
         while (iterator.hasNext()) {
             Node node = iterator.next();
             if (node.isReady() && node.allDependenciesComplete()) {
@@ -684,6 +694,10 @@ public class DefaultExecutionPlan implements ExecutionPlan {
                         prepareNode.require();
                     }
                     if (prepareNode.isReady()) {
+                        if (withoutLocks && needsLocks(prepareNode)) {
+                            skippedNodeWithLocks = true;
+                            continue;
+                        }
                         if (attemptToStart(prepareNode, resources)) {
                             node.addDependencySuccessor(prepareNode);
                             node.forceAllDependenciesCompleteUpdate();
@@ -696,6 +710,10 @@ public class DefaultExecutionPlan implements ExecutionPlan {
                     // else prepare node has already completed
                 }
 
+                if (withoutLocks && needsLocks(node)) {
+                    skippedNodeWithLocks = true;
+                    continue;
+                }
                 if (attemptToStart(node, resources)) {
                     iterator.remove();
                     return NodeSelection.of(node);
@@ -708,6 +726,10 @@ public class DefaultExecutionPlan implements ExecutionPlan {
             }
         }
 
+        if (skippedNodeWithLocks) {
+            // the skipped nodes may still be selectable
+            return NO_NODES_READY_TO_START;
+        }
         LOGGER.debug("No node could be selected, nodes ready: {}", foundReadyNode);
         maybeNodesReady = foundReadyNode;
         maybeNodesSelectable = false;
@@ -727,6 +749,10 @@ public class DefaultExecutionPlan implements ExecutionPlan {
         }
     }
 
+    private static boolean needsLocks(Node node) {
+        return node.getProjectToLock() != null || !node.getResourcesToLock().isEmpty();
+    }
+
     private boolean attemptToStart(Node node, List<ResourceLock> resources) {
         resources.clear();
         if (!tryAcquireLocksForNode(node, resources)) {
@@ -28,17 +28,28 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 public class DefaultPlanExecutor implements PlanExecutor, Stoppable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger("DefaultPlanExecutor");
 
+    /**
+     * Set to {@code true} to run the plan with {@link WorkStealingWorker}s, which keep the nodes they selected
+     * in their own queue instead of selecting every node from the shared {@link Queue}.
+     */
+    public static final String WORK_STEALING_PROPERTY = "com.tyron.builder.execution.workStealing";
+
     private final int executorCount;
     private final WorkerLeaseService workerLeaseService;
     private final BuildCancellationToken cancellationToken;
@@ -46,22 +57,35 @@ public class DefaultPlanExecutor implements PlanExecutor, Stoppable {
     private final ManagedExecutor executor;
     private final Queue queue;
     private final AtomicBoolean workersStarted = new AtomicBoolean();
+    @Nullable
+    private final WorkStealingPool workStealingPool;
 
     public DefaultPlanExecutor(ExecutorFactory executorFactory,
                                WorkerLeaseService workerLeaseService,
                                BuildCancellationToken cancellationToken,
                                ResourceLockCoordinationService coordinationService) {
-        this.executorCount = 1;
+        this(executorFactory, workerLeaseService, cancellationToken, coordinationService, Boolean.getBoolean(WORK_STEALING_PROPERTY));
+    }
+
+    public DefaultPlanExecutor(ExecutorFactory executorFactory,
+                               WorkerLeaseService workerLeaseService,
+                               BuildCancellationToken cancellationToken,
+                               ResourceLockCoordinationService coordinationService,
+                               boolean workStealing) {
+        // there can be no more nodes running at the same time than there are worker leases
+        this.executorCount = workStealing ? Math.max(1, workerLeaseService.getMaxWorkerCount()) : 1;
         this.workerLeaseService = workerLeaseService;
         this.cancellationToken = cancellationToken;
         this.coordinationService = coordinationService;
         this.queue = new Queue(coordinationService, false);
         this.executor = executorFactory.create("Execution worker");
+        this.workStealingPool = workStealing ? new WorkStealingPool() : null;
     }
 
     @Override
     public void stop() {
-        CompositeStoppable.stoppable(queue, executor).stop();
+        // the pool wakes up the idle workers, so they see that the queue has been closed
+        CompositeStoppable.stoppable(queue, workStealingPool, executor).stop();
     }
 
     @Override
@@ -77,7 +101,13 @@ public class DefaultPlanExecutor implements PlanExecutor, Stoppable {
         Queue thisPlanOnly = new Queue(coordinationService, true);
         thisPlanOnly.add(planDetails);
 
-        new ExecutorWorker(thisPlanOnly, currentWorkerLease, cancellationToken, coordinationService, workerLeaseService).run();
+        if (workStealingPool != null) {
+            // the idle workers do not wait for state changes, let them look at the new plan
+            workStealingPool.wakeAll();
+            new WorkStealingWorker(thisPlanOnly, executionPlan, currentWorkerLease, workStealingPool, cancellationToken, coordinationService, workerLeaseService).run();
+        } else {
+            new ExecutorWorker(thisPlanOnly, currentWorkerLease, cancellationToken, coordinationService, workerLeaseService).run();
+        }
 
         awaitCompletion(executionPlan, currentWorkerLease, failures);
     }
@@ -115,7 +145,11 @@ public class DefaultPlanExecutor implements PlanExecutor, Stoppable {
         if (workersStarted.compareAndSet(false, true)) {
             LOGGER.info("Using " + executorCount + " parallel executor threads");
             for (int i = 1; i < executorCount; i++) {
-                executor.execute(new ExecutorWorker(queue, null, cancellationToken, coordinationService, workerLeaseService));
+                if (workStealingPool != null) {
+                    executor.execute(new WorkStealingWorker(queue, null, null, workStealingPool, cancellationToken, coordinationService, workerLeaseService));
+                } else {
+                    executor.execute(new ExecutorWorker(queue, null, cancellationToken, coordinationService, workerLeaseService));
+                }
             }
         }
     }
@@ -176,11 +210,22 @@ public class DefaultPlanExecutor implements PlanExecutor, Stoppable {
         }
 
         public WorkItem selectNext() {
+            return selectNext(false);
+        }
+
+        /**
+         * Selects a node that needs no project or shared resource lock, see {@link ExecutionPlan#selectNextWithoutLocks()}.
+         */
+        public WorkItem selectNextWithoutLocks() {
+            return selectNext(true);
+        }
+
+        private WorkItem selectNext(boolean withoutLocks) {
             coordinationService.assertHasStateLock();
             Iterator<PlanDetails> iterator = queues.iterator();
             while (iterator.hasNext()) {
                 PlanDetails details = iterator.next();
-                ExecutionPlan.NodeSelection selection = details.plan.selectNext();
+                ExecutionPlan.NodeSelection selection = withoutLocks ? details.plan.selectNextWithoutLocks() : details.plan.selectNext();
                 if (selection == ExecutionPlan.NO_MORE_NODES_TO_START) {
                     iterator.remove();
                 } else if (selection != ExecutionPlan.NO_NODES_READY_TO_START) {
@@ -413,4 +458,344 @@ public class DefaultPlanExecutor implements PlanExecutor, Stoppable {
             }
         }
     }
+
+    /**
+     * The workers of the work stealing mode. Workers that have no nodes to run are parked instead of waiting for a state
+     * change of the {@link ResourceLockCoordinationService}, so the completion of a node wakes only as many workers as
+     * there are nodes ready to run.
+     */
+    private static class WorkStealingPool implements Stoppable {
+        /**
+         * Idle workers check for work that became ready without a wake-up after this long, such as nodes of other builds
+         * or resources released outside of the plan.
+         */
+        private static final long IDLE_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+        private final List<WorkStealingWorker> workers = new CopyOnWriteArrayList<>();
+        private final Deque<WorkStealingWorker> idleWorkers = new ConcurrentLinkedDeque<>();
+
+        void register(WorkStealingWorker worker) {
+            workers.add(worker);
+        }
+
+        void unregister(WorkStealingWorker worker) {
+            workers.remove(worker);
+            idleWorkers.remove(worker);
+        }
+
+        int getIdleCount() {
+            // size() traverses the deque
+            return idleWorkers.isEmpty() ? 0 : idleWorkers.size();
+        }
+
+        /**
+         * Takes a node that another worker selected but has not started yet.
+         */
+        @Nullable
+        WorkItem steal(WorkStealingWorker thief) {
+            for (WorkStealingWorker victim : workers) {
+                if (victim == thief) {
+                    continue;
+                }
+                Iterator<WorkItem> iterator = victim.localItems.descendingIterator();
+                while (iterator.hasNext()) {
+                    WorkItem item = iterator.next();
+                    // the victim may take the item concurrently, only one of them removes it
+                    if (thief.accepts(item) && victim.localItems.removeLastOccurrence(item)) {
+                        return item;
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Marks the worker as idle, must be called while holding the state lock before the worker parks.
+         */
+        void idle(WorkStealingWorker worker) {
+            idleWorkers.push(worker);
+        }
+
+        void park(WorkStealingWorker worker) {
+            LockSupport.parkNanos(this, IDLE_TIMEOUT_NANOS);
+            idleWorkers.remove(worker);
+        }
+
+        /**
+         * Wakes the most recently idle workers.
+         */
+        void wake(int count) {
+            for (int i = 0; i < count; i++) {
+                WorkStealingWorker worker = idleWorkers.poll();
+                if (worker == null) {
+                    return;
+                }
+                LockSupport.unpark(worker.thread);
+            }
+        }
+
+        void wakeAll() {
+            wake(Integer.MAX_VALUE);
+        }
+
+        /**
+         * Wakes the idle worker running the given plan on the thread that called {@link #process}, which needs to
+         * return once no more nodes of the plan can start.
+         */
+        void wakeWorkersOf(ExecutionPlan plan) {
+            for (WorkStealingWorker worker : idleWorkers) {
+                if (worker.plan == plan && idleWorkers.remove(worker)) {
+                    LockSupport.unpark(worker.thread);
+                }
+            }
+        }
+
+        @Override
+        public void stop() {
+            wakeAll();
+        }
+    }
+
+    private static class WorkStealingWorker implements Runnable {
+        /**
+         * The maximum number of nodes selected for idle workers at once.
+         */
+        private static final int MAX_BATCH_SIZE = 16;
+        private static final WorkItem IDLE = new WorkItem(ExecutionPlan.NO_NODES_READY_TO_START, null, null);
+
+        private final Queue queue;
+        @Nullable
+        private final ExecutionPlan plan;
+        private WorkerLease workerLease;
+        private final WorkStealingPool pool;
+        private final BuildCancellationToken cancellationToken;
+        private final ResourceLockCoordinationService coordinationService;
+        private final WorkerLeaseService workerLeaseService;
+        /**
+         * The nodes this worker selected and has not started yet. The worker takes them from the head, other workers
+         * steal them from the tail.
+         */
+        private final ConcurrentLinkedDeque<WorkItem> localItems = new ConcurrentLinkedDeque<>();
+        private Thread thread;
+
+        private WorkStealingWorker(
+                Queue queue,
+                @Nullable ExecutionPlan plan,
+                @Nullable WorkerLease workerLease,
+                WorkStealingPool pool,
+                BuildCancellationToken cancellationToken,
+                ResourceLockCoordinationService coordinationService,
+                WorkerLeaseService workerLeaseService
+        ) {
+            this.queue = queue;
+            this.plan = plan;
+            this.workerLease = workerLease;
+            this.pool = pool;
+            this.cancellationToken = cancellationToken;
+            this.coordinationService = coordinationService;
+            this.workerLeaseService = workerLeaseService;
+        }
+
+        /**
+         * The worker running a single plan on the thread that called {@link #process} only runs the nodes of that plan.
+         */
+        boolean accepts(WorkItem item) {
+            return plan == null || item.plan == plan;
+        }
+
+        @Override
+        public void run() {
+            long busy = 0;
+            Timer totalTimer = Time.startTimer();
+            Timer executionTimer = Time.startTimer();
+
+            boolean releaseLeaseOnCompletion;
+            if (workerLease == null) {
+                workerLease = workerLeaseService.getWorkerLease();
+                releaseLeaseOnCompletion = true;
+            } else {
+                releaseLeaseOnCompletion = false;
+            }
+
+            thread = Thread.currentThread();
+            pool.register(this);
+            try {
+                WorkItem workItem = null;
+                while (true) {
+                    if (workItem == null) {
+                        // the worker lease is still held when there are local items
+                        workItem = localItems.pollFirst();
+                    }
+                    if (workItem == null) {
+                        workItem = getNextItem();
+                        if (workItem == null) {
+                            break;
+                        } else if (workItem == IDLE) {
+                            pool.park(this);
+                            workItem = null;
+                            continue;
+                        }
+                    }
+
+                    Node node = workItem.selection.getNode();
+                    LOGGER.info("{} ({}) started.", node, Thread.currentThread());
+                    executionTimer.reset();
+                    try {
+                        workItem.executor.execute(node);
+                    } catch (Throwable e) {
+                        node.setExecutionFailure(e);
+                    }
+                    long duration = executionTimer.getElapsedMillis();
+                    busy += duration;
+                    if (LOGGER.isInfoEnabled()) {
+                        LOGGER.info("{} ({}) completed. Took {}.", node, Thread.currentThread(), TimeFormatting.formatDurationVerbose(duration));
+                    }
+                    workItem = finishAndSelectNext(workItem);
+                }
+            } finally {
+                pool.unregister(this);
+            }
+
+            if (releaseLeaseOnCompletion) {
+                coordinationService.withStateLock(() -> workerLease.unlock());
+            }
+
+            long total = totalTimer.getElapsedMillis();
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Execution worker [{}] finished, busy: {}, idle: {}", Thread.currentThread(), TimeFormatting.formatDurationVerbose(busy), TimeFormatting.formatDurationVerbose(total - busy));
+            }
+        }
+
+        /**
+         * Steals a node from another worker or selects the next nodes from the queue.
+         *
+         * @return the node to execute, {@link #IDLE} when no node is ready or {@code null} when there are no nodes remaining
+         */
+        @Nullable
+        private WorkItem getNextItem() {
+            MutableReference<WorkItem> selected = MutableReference.empty();
+            coordinationService.withStateLock(resourceLockState -> {
+                if (cancellationToken.isCancellationRequested()) {
+                    queue.cancelExecution();
+                }
+
+                ExecutionPlan.State state = queue.executionState();
+                if (state == ExecutionPlan.State.NoMoreNodesToStart) {
+                    return Disposition.FINISHED;
+                }
+
+                boolean hasWorkerLease = workerLease.isLockedByCurrentThread();
+                if (!hasWorkerLease && !workerLease.tryLock()) {
+                    // Cannot get a lease to run work, leases are released with a state change
+                    return Disposition.RETRY;
+                }
+
+                WorkItem stolen = pool.steal(this);
+                if (stolen != null) {
+                    selected.set(stolen);
+                    return Disposition.FINISHED;
+                }
+                if (state == ExecutionPlan.State.NoNodesReadyToStart) {
+                    goIdle(selected);
+                    return Disposition.FINISHED;
+                }
+
+                WorkItem workItem;
+                try {
+                    workItem = selectBatch();
+                } catch (Throwable t) {
+                    resourceLockState.releaseLocks();
+                    queue.abortAllAndFail(t);
+                    return Disposition.FINISHED;
+                }
+                if (workItem.selection == ExecutionPlan.NO_NODES_READY_TO_START) {
+                    goIdle(selected);
+                } else if (workItem.selection != ExecutionPlan.NO_MORE_NODES_TO_START) {
+                    selected.set(workItem);
+                }
+                return Disposition.FINISHED;
+            });
+            return selected.get();
+        }
+
+        private void goIdle(MutableReference<WorkItem> selected) {
+            // Release worker lease while waiting
+            workerLease.unlock();
+            pool.idle(this);
+            selected.set(IDLE);
+        }
+
+        /**
+         * Marks the node as finished and, while still holding the state lock and the worker lease, selects the next
+         * nodes when this worker has none left.
+         *
+         * @return the node to execute next or {@code null} to look for one in {@link #getNextItem()}
+         */
+        @Nullable
+        private WorkItem finishAndSelectNext(WorkItem finished) {
+            MutableReference<WorkItem> selected = MutableReference.empty();
+            coordinationService.withStateLock(resourceLockState -> {
+                try {
+                    finished.plan.finishedExecuting(finished.selection.getNode());
+                } catch (Throwable t) {
+                    queue.abortAllAndFail(t);
+                }
+                // Notify the threads waiting for the plan to complete, the idle workers are woken up by selectBatch()
+                coordinationService.notifyStateChange();
+                if (finished.plan.executionState() == ExecutionPlan.State.NoMoreNodesToStart) {
+                    pool.wakeWorkersOf(finished.plan);
+                }
+
+                if (queue.executionState() != ExecutionPlan.State.MaybeNodesReadyToStart) {
+                    return Disposition.FINISHED;
+                }
+                if (!localItems.isEmpty() || cancellationToken.isCancellationRequested()) {
+                    // this worker runs its own nodes first, let an idle worker select the nodes that became ready
+                    pool.wake(1);
+                    return Disposition.FINISHED;
+                }
+                try {
+                    WorkItem workItem = selectBatch();
+                    if (workItem.selection != ExecutionPlan.NO_NODES_READY_TO_START && workItem.selection != ExecutionPlan.NO_MORE_NODES_TO_START) {
+                        selected.set(workItem);
+                    }
+                } catch (Throwable t) {
+                    resourceLockState.releaseLocks();
+                    queue.abortAllAndFail(t);
+                }
+                return Disposition.FINISHED;
+            });
+            return selected.get();
+        }
+
+        /**
+         * Selects a node for this worker and, when other workers are idle, more nodes for them to steal. Only nodes that
+         * need no project or shared resource lock are selected ahead of time: such locks are owned by the thread holding
+         * them, which would let this worker select more nodes of a project it already holds, and finishing one of them
+         * releases the lock for all of them.
+         */
+        private WorkItem selectBatch() {
+            coordinationService.assertHasStateLock();
+            WorkItem workItem = queue.selectNext();
+            if (workItem.selection == ExecutionPlan.NO_NODES_READY_TO_START || workItem.selection == ExecutionPlan.NO_MORE_NODES_TO_START) {
+                return workItem;
+            }
+
+            int wanted = Math.min(pool.getIdleCount(), MAX_BATCH_SIZE);
+            int selected = 0;
+            while (selected < wanted) {
+                WorkItem extra = queue.selectNextWithoutLocks();
+                if (extra.selection == ExecutionPlan.NO_NODES_READY_TO_START || extra.selection == ExecutionPlan.NO_MORE_NODES_TO_START) {
+                    break;
+                }
+                localItems.addLast(extra);
+                selected++;
+            }
+            // Wake a worker for each node to steal, and one more to select the nodes that may still be ready, such as
+            // the nodes that need locks
+            boolean mayHaveMore = selected < wanted && queue.executionState() == ExecutionPlan.State.MaybeNodesReadyToStart;
+            pool.wake(mayHaveMore ? selected + 1 : selected);
+            return workItem;
+        }
+    }
 }
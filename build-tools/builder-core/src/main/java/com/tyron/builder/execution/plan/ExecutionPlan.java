@@ -70,6 +70,11 @@ public interface ExecutionPlan extends Closeable {
             return NO_MORE_NODES_TO_START;
         }
 
+        @Override
+        public NodeSelection selectNextWithoutLocks() {
+            return NO_MORE_NODES_TO_START;
+        }
+
         @Override
         public void finishedExecuting(Node node) {
             throw new IllegalStateException();
@@ -190,6 +195,15 @@ public interface ExecutionPlan extends Closeable {
      */
     NodeSelection selectNext();
 
+    /**
+     * Selects a node to start like {@link #selectNext()}, but only a node that needs no project or shared resource
+     * lock. Such a node can be started by another thread than the one that selected it.
+     *
+     * <p>Returns {@link #NO_NODES_READY_TO_START} when the only nodes ready to start need locks, which leaves them for
+     * the next call to {@link #selectNext()}.</p>
+     */
+    NodeSelection selectNextWithoutLocks();
+
     void finishedExecuting(Node node);
 
     void abortAllAndFail(Throwable t);
@@ -55,6 +55,8 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.lang.reflect.Field;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.security.CodeSource;
 import java.util.ArrayList;
 import java.util.List;
@@ -348,14 +350,7 @@ public class DefaultScriptCompilationHandler implements ScriptCompilationHandler
                 List<File> dexFiles = new ArrayList<>();
                 return GUtil.uncheckedCall(() -> {
                     for (File file : asFiles) {
-                        File compiledDex = ScriptFactory.dexJar(file, file.getParentFile());
-
-                        File renamed = new File(file.getParent() + "/" + FilenameUtils.getBaseName(file.getName()) + ".dex");
-                        GFileUtils.deleteIfExists(renamed);
-                        boolean b = compiledDex.renameTo(renamed);
-                        if (b) {
-                            dexFiles.add(renamed);
-                        }
+                        dexFiles.add(dexedJar(file));
                     }
 
                     ClassPath dexClassPath = DefaultClassPath.of(dexFiles);
@@ -366,6 +361,35 @@ public class DefaultScriptCompilationHandler implements ScriptCompilationHandler
         }
     }
 
+    /**
+     * Returns the dex file for the given script jar, converting the jar only when it has not been dexed before.
+     *
+     * <p>The script jars live in the content addressed classpath transformer cache, so a jar never changes
+     * once written and the dex file next to it stays valid across builds and restarts. The dex file is
+     * written to a temporary directory first and then moved in place, so a dex file that exists is always complete.</p>
+     */
+    private static File dexedJar(File jar) throws IOException {
+        File dexFile = new File(jar.getParentFile(), FilenameUtils.getBaseName(jar.getName()) + ".dex");
+        if (dexFile.isFile()) {
+            return dexFile;
+        }
+        File tempDir = Files.createTempDirectory(jar.getParentFile().toPath(), "dex").toFile();
+        try {
+            File compiledDex = ScriptFactory.dexJar(jar, tempDir);
+            try {
+                Files.move(compiledDex.toPath(), dexFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                // another thread may have dexed the same jar in the meantime
+                if (!dexFile.isFile()) {
+                    throw e;
+                }
+            }
+        } finally {
+            FileUtils.deleteQuietly(tempDir);
+        }
+        return dexFile;
+    }
+
     /**
      * A specialized ClassLoader that avoids unnecessary delegation to the parent ClassLoader, and the resulting cascade of ClassNotFoundExceptions for those classes that are known to be available only in this ClassLoader and nowhere else.
      */
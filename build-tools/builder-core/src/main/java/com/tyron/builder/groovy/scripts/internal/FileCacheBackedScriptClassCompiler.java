@@ -38,6 +38,7 @@ import com.tyron.builder.internal.hash.PrimitiveHasher;
 import com.tyron.builder.internal.logging.progress.ProgressLogger;
 import com.tyron.builder.internal.logging.progress.ProgressLoggerFactory;
 
+import groovy.lang.GroovySystem;
 import groovy.lang.Script;
 
 /**
@@ -45,6 +46,11 @@ import groovy.lang.Script;
  */
 public class FileCacheBackedScriptClassCompiler implements ScriptClassCompiler, Closeable {
     private static final Object[] EMPTY_OBJECT_ARRAY = new Object[0];
+    /**
+     * The version of the compiled script layout, increase this when the compiled output changes
+     * so that scripts compiled by an older version are not loaded.
+     */
+    private static final int SCRIPT_CACHE_VERSION = 1;
     private final ScriptCompilationHandler scriptCompilationHandler;
     private final ProgressLoggerFactory progressLoggerFactory;
     private final GlobalScopedCache cacheRepository;
@@ -86,6 +92,9 @@ public class FileCacheBackedScriptClassCompiler implements ScriptClassCompiler,
         hasher.putString(dslId);
         hasher.putHash(sourceHashCode);
         hasher.putHash(classLoaderHash);
+        // the class loader hash does not cover the compiler, as the core class loaders are hashed by name
+        hasher.putString(GroovySystem.getVersion());
+        hasher.putInt(SCRIPT_CACHE_VERSION);
         String key = Hashes.toCompactString(hasher.hash());
 
         // Caching involves 2 distinct caches, so that 2 scripts with the same (hash, classpath) do not get compiled twice
@@ -0,0 +1,72 @@
+package com.tyron.builder.internal.operations.trace;
+
+import com.tyron.builder.StartParameter;
+import com.tyron.builder.api.internal.tasks.TaskExecutionOutcome;
+import com.tyron.builder.api.internal.tasks.execution.ExecuteTaskBuildOperationType;
+import com.tyron.builder.internal.concurrent.Stoppable;
+import com.tyron.builder.internal.operations.BuildOperationListenerManager;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ * Writes the build operations of a build session to a Chrome trace file.
+ *
+ * <p>Tracing is enabled for a build by setting the {@value #SYSPROP} system property, either as a system property
+ * argument of the build or on the JVM. Its value is the path of the trace file, without the {@code -trace.json}
+ * suffix, relative to the current directory of the build.</p>
+ *
+ * <p>Task executions are traced with their outcome, and whether their outputs were loaded from the build cache.</p>
+ */
+public class BuildOperationTrace implements Stoppable {
+    public static final String SYSPROP = "com.tyron.builder.internal.operations.trace";
+    private static final String TRACE_FILE_SUFFIX = "-trace.json";
+
+    private final BuildOperationListenerManager listenerManager;
+    private final ChromeTraceRecorder recorder;
+
+    public BuildOperationTrace(StartParameter startParameter, BuildOperationListenerManager listenerManager) {
+        this.listenerManager = listenerManager;
+
+        String basePath = startParameter.getSystemPropertiesArgs().get(SYSPROP);
+        if (basePath == null) {
+            basePath = System.getProperty(SYSPROP);
+        }
+        if (basePath == null || basePath.isEmpty()) {
+            this.recorder = null;
+            return;
+        }
+
+        File file = new File(basePath + TRACE_FILE_SUFFIX);
+        if (!file.isAbsolute()) {
+            file = new File(startParameter.getCurrentDir(), file.getPath());
+        }
+        this.recorder = new ChromeTraceRecorder(file, new TaskResultDescriber());
+        listenerManager.addListener(recorder);
+    }
+
+    @Override
+    public void stop() {
+        if (recorder != null) {
+            listenerManager.removeListener(recorder);
+            recorder.close();
+        }
+    }
+
+    private static class TaskResultDescriber implements ChromeTraceRecorder.ResultDescriber {
+        @Override
+        public void describe(Object result, Map<String, Object> args) {
+            if (!(result instanceof ExecuteTaskBuildOperationType.Result)) {
+                return;
+            }
+            ExecuteTaskBuildOperationType.Result taskResult = (ExecuteTaskBuildOperationType.Result) result;
+            String skipMessage = taskResult.getSkipMessage();
+            args.put("outcome", skipMessage == null ? "EXECUTED" : skipMessage);
+            args.put("cacheHit", TaskExecutionOutcome.FROM_CACHE.getMessage().equals(skipMessage));
+            args.put("incremental", taskResult.isIncremental());
+            if (taskResult.getCachingDisabledReasonMessage() != null) {
+                args.put("cachingDisabledReason", taskResult.getCachingDisabledReasonMessage());
+            }
+        }
+    }
+}
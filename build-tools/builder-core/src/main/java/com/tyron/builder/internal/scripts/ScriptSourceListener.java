@@ -0,0 +1,14 @@
+package com.tyron.builder.internal.scripts;
+
+import com.tyron.builder.groovy.scripts.ScriptSource;
+import com.tyron.builder.internal.service.scopes.EventScope;
+import com.tyron.builder.internal.service.scopes.Scopes;
+
+/**
+ * Notified of every script applied to the build, including scripts whose class is never loaded
+ * because they do nothing.
+ */
+@EventScope(Scopes.Build.class)
+public interface ScriptSourceListener {
+    void onScriptSource(ScriptSource source);
+}
@@ -142,6 +142,7 @@ import com.tyron.builder.internal.resource.local.FileResourceListener;
 import com.tyron.builder.internal.resources.ResourceLockCoordinationService;
 import com.tyron.builder.internal.scopeids.id.BuildInvocationScopeId;
 import com.tyron.builder.internal.scripts.ScriptExecutionListener;
+import com.tyron.builder.internal.scripts.ScriptSourceListener;
 import com.tyron.builder.internal.snapshot.CaseSensitivity;
 import com.tyron.builder.internal.vfs.FileSystemAccess;
 import com.tyron.builder.internal.work.WorkerLeaseService;
@@ -427,11 +428,12 @@ public class BuildScopeServices extends DefaultServiceRegistry {
     protected ScriptPluginFactory createScriptPluginFactory(
             InstantiatorFactory instantiatorFactory,
             BuildOperationExecutor buildOperationExecutor,
-            UserCodeApplicationContext userCodeApplicationContext
+            UserCodeApplicationContext userCodeApplicationContext,
+            ListenerManager listenerManager
     ) {
         DefaultScriptPluginFactory defaultScriptPluginFactory = defaultScriptPluginFactory();
         ScriptPluginFactorySelector.ProviderInstantiator instantiator = ScriptPluginFactorySelector.defaultProviderInstantiatorFor(instantiatorFactory.inject(this));
-        ScriptPluginFactorySelector scriptPluginFactorySelector = new ScriptPluginFactorySelector(defaultScriptPluginFactory, instantiator, buildOperationExecutor, userCodeApplicationContext);
+        ScriptPluginFactorySelector scriptPluginFactorySelector = new ScriptPluginFactorySelector(defaultScriptPluginFactory, instantiator, buildOperationExecutor, userCodeApplicationContext, listenerManager.getBroadcaster(ScriptSourceListener.class));
         defaultScriptPluginFactory.setScriptPluginFactory(scriptPluginFactorySelector);
         return scriptPluginFactorySelector;
     }
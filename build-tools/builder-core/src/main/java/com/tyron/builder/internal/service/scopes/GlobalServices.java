@@ -79,7 +79,6 @@ import com.tyron.builder.internal.vfs.impl.DefaultFileSystemAccess;
 import com.tyron.builder.internal.vfs.impl.DefaultSnapshotHierarchy;
 import com.tyron.builder.internal.vfs.impl.VfsRootReference;
 import com.tyron.builder.internal.watch.registry.FileWatcherRegistryFactory;
-import com.tyron.builder.internal.watch.registry.impl.LinuxFileWatcherRegistryFactory;
 import com.tyron.builder.internal.watch.registry.impl.WindowsFileWatcherRegistryFactory;
 import com.tyron.builder.internal.watch.vfs.BuildLifecycleAwareVirtualFileSystem;
 import com.tyron.builder.internal.watch.vfs.FileChangeListeners;
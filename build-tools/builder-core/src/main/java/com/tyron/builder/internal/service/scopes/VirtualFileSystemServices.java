@@ -2,8 +2,10 @@ package com.tyron.builder.internal.service.scopes;
 
 import com.google.common.hash.HashCode;
 import com.tyron.builder.StartParameter;
+import com.tyron.builder.api.internal.changedetection.state.CachingFileHasher;
 import com.tyron.builder.api.internal.changedetection.state.CrossBuildFileHashCache;
 import com.tyron.builder.api.internal.changedetection.state.DefaultResourceSnapshotterCacheService;
+import com.tyron.builder.api.internal.changedetection.state.FileHasherStatistics;
 import com.tyron.builder.api.internal.changedetection.state.ResourceEntryFilter;
 import com.tyron.builder.api.internal.changedetection.state.ResourceFilter;
 import com.tyron.builder.api.internal.changedetection.state.ResourceSnapshotterCacheService;
@@ -48,7 +50,7 @@ import com.tyron.builder.internal.vfs.impl.DefaultFileSystemAccess;
 import com.tyron.builder.internal.vfs.impl.DefaultSnapshotHierarchy;
 import com.tyron.builder.internal.vfs.impl.VfsRootReference;
 import com.tyron.builder.internal.watch.registry.FileWatcherRegistryFactory;
-import com.tyron.builder.internal.watch.registry.impl.LinuxFileWatcherRegistryFactory;
+import com.tyron.builder.internal.watch.registry.impl.WatchServiceFileWatcherRegistryFactory;
 import com.tyron.builder.internal.watch.registry.impl.WindowsFileWatcherRegistryFactory;
 import com.tyron.builder.internal.watch.vfs.BuildLifecycleAwareVirtualFileSystem;
 import com.tyron.builder.internal.watch.vfs.FileChangeListeners;
@@ -58,6 +60,7 @@ import com.tyron.builder.internal.watch.vfs.impl.LocationsWrittenByCurrentBuild;
 import com.tyron.builder.internal.watch.vfs.impl.WatchingNotSupportedVirtualFileSystem;
 import com.tyron.builder.internal.watch.vfs.impl.WatchingVirtualFileSystem;
 
+import net.rubygrapefruit.platform.NativeIntegrationUnavailableException;
 import net.rubygrapefruit.platform.file.FileSystems;
 
 import org.jetbrains.annotations.Nullable;
@@ -119,9 +122,9 @@ public class VirtualFileSystemServices extends AbstractPluginServiceRegistry {
     }
 
     private static class GlobalScopeServices {
-//        FileHasherStatistics.Collector createCachingFileHasherStatisticsCollector() {
-//            return new FileHasherStatistics.Collector();
-//        }
+        FileHasherStatistics.Collector createCachingFileHasherStatisticsCollector() {
+            return new FileHasherStatistics.Collector();
+        }
 
         DirectorySnapshotterStatistics.Collector createDirectorySnapshotterStatisticsCollector() {
             return new DirectorySnapshotterStatistics.Collector();
@@ -133,18 +136,15 @@ public class VirtualFileSystemServices extends AbstractPluginServiceRegistry {
             return new CrossBuildFileHashCache(scopedCache, inMemoryCacheDecoratorFactory, CrossBuildFileHashCache.Kind.FILE_HASHES);
         }
 
-//        FileHasher createCachingFileHasher(
-//                FileHasherStatistics.Collector statisticsCollector,
-//                CrossBuildFileHashCache fileStore,
-//                FileSystem fileSystem,
-//                GradleUserHomeScopeFileTimeStampInspector fileTimeStampInspector,
-//                StreamHasher streamHasher,
-//                StringInterner stringInterner
-//        ) {
-//            CachingFileHasher fileHasher = new CachingFileHasher(new DefaultFileHasher(streamHasher), fileStore, stringInterner, fileTimeStampInspector, "fileHashes", fileSystem, FILE_HASHER_MEMORY_CACHE_SIZE, statisticsCollector);
-//            fileTimeStampInspector.attach(fileHasher);
-//            return fileHasher;
-//        }
+        FileHasher createCachingFileHasher(
+                FileHasherStatistics.Collector statisticsCollector,
+                CrossBuildFileHashCache fileStore,
+                Stat stat,
+                StreamHasher streamHasher,
+                StringInterner stringInterner
+        ) {
+            return new CachingFileHasher(new DefaultFileHasher(streamHasher), fileStore, stringInterner, "fileHashes", stat, FILE_HASHER_MEMORY_CACHE_SIZE, statisticsCollector);
+        }
 
         LocationsWrittenByCurrentBuild createLocationsUpdatedByCurrentBuild(ListenerManager listenerManager) {
             LocationsWrittenByCurrentBuild locationsWrittenByCurrentBuild = new LocationsWrittenByCurrentBuild();
@@ -200,11 +200,15 @@ public class VirtualFileSystemServices extends AbstractPluginServiceRegistry {
                 Predicate<String> watchingFilter
         ) {
             if (operatingSystem.isWindows()) {
-                return Optional.of(new WindowsFileWatcherRegistryFactory(watchingFilter));
-            } else {
-                // TODO: MacOS?
-                return Optional.of(new LinuxFileWatcherRegistryFactory(watchingFilter));
+                try {
+                    return Optional.of(new WindowsFileWatcherRegistryFactory(watchingFilter));
+                } catch (NativeIntegrationUnavailableException e) {
+                    LOGGER.info("Native file system watching is not available, falling back to the watch service", e);
+                }
             }
+            // the native file events are not available on our runtime,
+            // the watch service keeps the VFS up-to-date without them
+            return Optional.of(new WatchServiceFileWatcherRegistryFactory(watchingFilter));
         }
 
         FileSystemAccess createFileSystemAccess(
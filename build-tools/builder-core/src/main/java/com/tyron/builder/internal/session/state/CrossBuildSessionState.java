@@ -20,6 +20,7 @@ import com.tyron.builder.internal.operations.DefaultBuildOperationQueueFactory;
 import com.tyron.builder.internal.operations.logging.LoggingBuildOperationProgressBroadcaster;
 import com.tyron.builder.internal.operations.notify.BuildOperationNotificationBridge;
 import com.tyron.builder.internal.operations.notify.BuildOperationNotificationValve;
+import com.tyron.builder.internal.operations.trace.BuildOperationTrace;
 import com.tyron.builder.internal.reflect.service.ServiceRegistration;
 import com.tyron.builder.internal.reflect.service.ServiceRegistry;
 import com.tyron.builder.internal.reflect.service.ServiceRegistryBuilder;
@@ -56,7 +57,7 @@ public class CrossBuildSessionState implements Closeable {
                 .provider(new Services(startParameter))
                 .build();
         // Trigger listener to wire itself in
-//        services.get(BuildOperationTrace.class);
+        services.get(BuildOperationTrace.class);
     }
 
     public ServiceRegistry getServices() {
@@ -101,9 +102,9 @@ public class CrossBuildSessionState implements Closeable {
             return new DefaultCollectionCallbackActionDecorator(buildOperationExecutor, userCodeApplicationContext);
         }
 
-//        BuildOperationTrace createBuildOperationTrace(BuildOperationListenerManager buildOperationListenerManager) {
-//            return new BuildOperationTrace(startParameter, buildOperationListenerManager);
-//        }
+        BuildOperationTrace createBuildOperationTrace(BuildOperationListenerManager buildOperationListenerManager) {
+            return new BuildOperationTrace(startParameter, buildOperationListenerManager);
+        }
 
         BuildOperationNotificationBridge createBuildOperationNotificationBridge(BuildOperationListenerManager buildOperationListenerManager, ListenerManager generalListenerManager) {
             return new BuildOperationNotificationBridge(buildOperationListenerManager, generalListenerManager);
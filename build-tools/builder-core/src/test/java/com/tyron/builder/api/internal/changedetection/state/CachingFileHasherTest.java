@@ -0,0 +1,162 @@
+package com.tyron.builder.api.internal.changedetection.state;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assume.assumeTrue;
+
+import com.google.common.hash.HashCode;
+import com.tyron.builder.cache.PersistentIndexedCache;
+import com.tyron.builder.internal.cache.StringInterner;
+import com.tyron.builder.internal.file.FileMetadata;
+import com.tyron.builder.internal.file.Stat;
+import com.tyron.builder.internal.file.impl.DefaultFileMetadata;
+import com.tyron.builder.internal.hash.DefaultFileHasher;
+import com.tyron.builder.internal.hash.DefaultStreamHasher;
+import com.tyron.builder.internal.hash.FileHasher;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+public class CachingFileHasherTest {
+
+    private static final long LONG_AGO = 1_600_000_000_000L;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final CountingFileHasher delegate = new CountingFileHasher();
+    private final FileHasherStatistics.Collector statistics = new FileHasherStatistics.Collector();
+    private final CachingFileHasher hasher = new CachingFileHasher(delegate, new InMemoryIndexedCache<>(), new StringInterner(), new MetadataStat(), statistics);
+
+    @Test
+    public void reusesTheHashOfAnUnchangedFile() throws IOException {
+        File file = write("file.txt", "content", LONG_AGO);
+
+        HashCode first = hash(file);
+        HashCode second = hash(file);
+
+        assertEquals(first, second);
+        assertEquals(1, delegate.count);
+        assertEquals(1, statistics.collect().getHashedFileCount());
+    }
+
+    @Test
+    public void detectsARewriteWithTheSameLength() throws IOException {
+        File file = write("file.txt", "aaaa", LONG_AGO);
+        HashCode first = hash(file);
+
+        write("file.txt", "bbbb", LONG_AGO + 1000);
+        HashCode second = hash(file);
+
+        assertNotEquals(first, second);
+        assertEquals(2, delegate.count);
+    }
+
+    @Test
+    public void detectsAReplacedFileWithTheSameLengthAndTimestamp() throws IOException {
+        File file = write("file.txt", "aaaa", LONG_AGO);
+        Object fileKey = fileKey(file);
+        HashCode first = hash(file);
+
+        // a different file moved in place, with the same length and modification time
+        File replacement = write("replacement.txt", "bbbb", LONG_AGO);
+        Files.move(replacement.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        assumeTrue(fileKey != null && !fileKey.equals(fileKey(file)));
+        HashCode second = hash(file);
+
+        assertNotEquals(first, second);
+        assertEquals(2, delegate.count);
+    }
+
+    @Test
+    public void doesNotCacheRecentlyModifiedFiles() throws IOException {
+        File file = write("file.txt", "content", System.currentTimeMillis());
+
+        hasher.hash(file);
+        hasher.hash(file);
+
+        assertEquals(2, delegate.count);
+    }
+
+    private HashCode hash(File file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        return hasher.hash(file, attributes.size(), attributes.lastModifiedTime().toMillis(), attributes.fileKey());
+    }
+
+    private static Object fileKey(File file) throws IOException {
+        return Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+    }
+
+    private File write(String name, String content, long lastModified) throws IOException {
+        File file = new File(temporaryFolder.getRoot(), name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        if (!file.setLastModified(lastModified)) {
+            throw new IOException("Could not set the modification time of " + file);
+        }
+        return file;
+    }
+
+    private static class CountingFileHasher implements FileHasher {
+        private final FileHasher delegate = new DefaultFileHasher(new DefaultStreamHasher());
+        private int count;
+
+        @Override
+        public HashCode hash(File file) {
+            count++;
+            return delegate.hash(file);
+        }
+
+        @Override
+        public HashCode hash(File file, long length, long lastModified) {
+            count++;
+            return delegate.hash(file, length, lastModified);
+        }
+    }
+
+    private static class MetadataStat implements Stat {
+        @Override
+        public int getUnixMode(File f) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public FileMetadata stat(File f) {
+            return DefaultFileMetadata.file(f.lastModified(), f.length(), FileMetadata.AccessType.DIRECT);
+        }
+    }
+
+    private static class InMemoryIndexedCache<K, V> implements PersistentIndexedCache<K, V> {
+        private final Map<K, V> entries = new HashMap<>();
+
+        @Override
+        public V getIfPresent(K key) {
+            return entries.get(key);
+        }
+
+        @Override
+        public V get(K key, Function<? super K, ? extends V> producer) {
+            return entries.computeIfAbsent(key, producer);
+        }
+
+        @Override
+        public void put(K key, V value) {
+            entries.put(key, value);
+        }
+
+        @Override
+        public void remove(K key) {
+            entries.remove(key);
+        }
+    }
+}
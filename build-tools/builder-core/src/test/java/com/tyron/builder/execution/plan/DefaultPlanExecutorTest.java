@@ -0,0 +1,112 @@
+package com.tyron.builder.execution.plan;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.tyron.builder.api.Action;
+import com.tyron.builder.initialization.DefaultBuildCancellationToken;
+import com.tyron.builder.internal.concurrent.DefaultExecutorFactory;
+import com.tyron.builder.internal.resources.DefaultResourceLockCoordinationService;
+import com.tyron.builder.internal.resources.ResourceLock;
+import com.tyron.builder.internal.work.DefaultWorkerLeaseService;
+import com.tyron.builder.util.Path;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DefaultPlanExecutorTest {
+
+    private final DefaultExecutorFactory executorFactory = new DefaultExecutorFactory();
+    private final DefaultResourceLockCoordinationService coordinationService = new DefaultResourceLockCoordinationService();
+    private final DefaultWorkerLeaseService workerLeaseService = new DefaultWorkerLeaseService(coordinationService, 4);
+    private final List<DefaultPlanExecutor> executors = new ArrayList<>();
+
+    @After
+    public void stop() {
+        for (DefaultPlanExecutor executor : executors) {
+            executor.stop();
+        }
+        executorFactory.stop();
+    }
+
+    @Test
+    public void testRunsEveryNodeAfterItsDependencies() {
+        for (boolean workStealing : new boolean[]{false, true}) {
+            List<SyntheticExecutionPlan.SyntheticNode> nodes = SyntheticExecutionPlan.layers(20, 50, i -> null);
+            ConcurrentHashMap<Node, Integer> executions = new ConcurrentHashMap<>();
+            AtomicInteger outOfOrder = new AtomicInteger();
+
+            List<Throwable> failures = process(createExecutor(workStealing), nodes, node -> {
+                executions.merge(node, 1, Integer::sum);
+                for (SyntheticExecutionPlan.SyntheticNode dependency : ((SyntheticExecutionPlan.SyntheticNode) node).dependencies) {
+                    if (!dependency.complete) {
+                        outOfOrder.incrementAndGet();
+                    }
+                }
+            });
+
+            assertTrue(failures.isEmpty());
+            assertEquals(nodes.size(), executions.size());
+            for (Integer count : executions.values()) {
+                assertEquals(1, count.intValue());
+            }
+            assertEquals(0, outOfOrder.get());
+        }
+    }
+
+    @Test
+    public void testNodesOfTheSameProjectDoNotRunConcurrently() {
+        ResourceLock[] projectLocks = {
+                workerLeaseService.getProjectLock(Path.ROOT, Path.path(":a")),
+                workerLeaseService.getProjectLock(Path.ROOT, Path.path(":b"))
+        };
+        // every third node needs no project lock, so the workers also select nodes for each other
+        List<SyntheticExecutionPlan.SyntheticNode> nodes = SyntheticExecutionPlan.layers(10, 30,
+                i -> i % 3 == 0 ? null : projectLocks[i % 3 - 1]);
+        AtomicInteger[] running = {new AtomicInteger(), new AtomicInteger()};
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger executed = new AtomicInteger();
+
+        List<Throwable> failures = process(createExecutor(true), nodes, node -> {
+            executed.incrementAndGet();
+            ResourceLock projectLock = node.getProjectToLock();
+            if (projectLock == null) {
+                return;
+            }
+            AtomicInteger count = running[projectLock == projectLocks[0] ? 0 : 1];
+            if (count.incrementAndGet() > 1) {
+                concurrent.incrementAndGet();
+            }
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            count.decrementAndGet();
+        });
+
+        assertTrue(failures.isEmpty());
+        assertEquals(nodes.size(), executed.get());
+        assertEquals(0, concurrent.get());
+    }
+
+    private DefaultPlanExecutor createExecutor(boolean workStealing) {
+        DefaultPlanExecutor executor = new DefaultPlanExecutor(executorFactory, workerLeaseService,
+                new DefaultBuildCancellationToken(), coordinationService, workStealing);
+        executors.add(executor);
+        return executor;
+    }
+
+    private List<Throwable> process(DefaultPlanExecutor executor, List<SyntheticExecutionPlan.SyntheticNode> nodes, Action<Node> action) {
+        SyntheticExecutionPlan plan = new SyntheticExecutionPlan(nodes);
+        List<Throwable> failures = new ArrayList<>();
+        workerLeaseService.runAsWorkerThread(() -> executor.process(plan, failures, action));
+        assertTrue(plan.allExecutionComplete());
+        return failures;
+    }
+}
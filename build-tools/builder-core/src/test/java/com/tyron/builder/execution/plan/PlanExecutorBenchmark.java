@@ -0,0 +1,54 @@
+package com.tyron.builder.execution.plan;
+
+import com.tyron.builder.initialization.DefaultBuildCancellationToken;
+import com.tyron.builder.internal.concurrent.DefaultExecutorFactory;
+import com.tyron.builder.internal.resources.DefaultResourceLockCoordinationService;
+import com.tyron.builder.internal.work.DefaultWorkerLeaseService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a 10,000 node plan of 100 layers in the default and the work stealing mode. Not a unit test, run it with the
+ * number of worker leases and the work per node in microseconds as arguments.
+ */
+public class PlanExecutorBenchmark {
+
+    private static volatile long sink;
+
+    public static void main(String[] args) {
+        int leases = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        long workNanos = args.length > 1 ? Long.parseLong(args[1]) * 1000 : 0;
+        int iterations = Integer.getInteger("iterations", 100);
+        for (boolean workStealing : new boolean[]{false, true}) {
+            DefaultExecutorFactory executorFactory = new DefaultExecutorFactory();
+            DefaultResourceLockCoordinationService coordinationService = new DefaultResourceLockCoordinationService();
+            DefaultWorkerLeaseService workerLeaseService = new DefaultWorkerLeaseService(coordinationService, leases);
+            DefaultPlanExecutor executor = new DefaultPlanExecutor(executorFactory, workerLeaseService,
+                    new DefaultBuildCancellationToken(), coordinationService, workStealing);
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < iterations; i++) {
+                SyntheticExecutionPlan plan = new SyntheticExecutionPlan(SyntheticExecutionPlan.layers(100, 100, node -> null));
+                List<Throwable> failures = new ArrayList<>();
+                long start = System.nanoTime();
+                workerLeaseService.runAsWorkerThread(() -> executor.process(plan, failures, node -> work(workNanos)));
+                best = Math.min(best, System.nanoTime() - start);
+                if (!plan.allExecutionComplete() || !failures.isEmpty()) {
+                    throw new AssertionError("The plan did not complete: " + failures);
+                }
+            }
+            executor.stop();
+            executorFactory.stop();
+            System.out.printf("leases=%d workStealing=%s work=%dus best=%.1fms%n", leases, workStealing, workNanos / 1000, best / 1e6);
+        }
+    }
+
+    private static void work(long nanos) {
+        long end = System.nanoTime() + nanos;
+        long count = 0;
+        while (System.nanoTime() < end) {
+            count++;
+        }
+        sink += count;
+    }
+}
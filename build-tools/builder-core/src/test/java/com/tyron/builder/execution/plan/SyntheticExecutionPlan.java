@@ -0,0 +1,271 @@
+package com.tyron.builder.execution.plan;
+
+import com.tyron.builder.api.Action;
+import com.tyron.builder.api.Task;
+import com.tyron.builder.api.internal.project.ProjectInternal;
+import com.tyron.builder.internal.resources.ResourceLock;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A plan of nodes without tasks, where selecting a node only looks at the nodes that are ready, so running it measures
+ * the cost of the executor. Nodes with a project lock acquire it when they are selected and release it when they
+ * finish, like the nodes of a {@link DefaultExecutionPlan}.
+ */
+class SyntheticExecutionPlan implements ExecutionPlan {
+
+    static class SyntheticNode extends Node {
+        final int id;
+        @Nullable
+        final ResourceLock projectLock;
+        final List<SyntheticNode> dependencies = new ArrayList<>();
+        final List<SyntheticNode> dependents = new ArrayList<>();
+        int pending;
+        volatile boolean complete;
+
+        SyntheticNode(int id, @Nullable ResourceLock projectLock) {
+            this.id = id;
+            this.projectLock = projectLock;
+        }
+
+        @Override
+        public Throwable getNodeFailure() {
+            return null;
+        }
+
+        @Override
+        public void rethrowNodeFailure() {
+        }
+
+        @Override
+        public void resolveDependencies(TaskDependencyResolver dependencyResolver, Action<Node> processHardSuccessor) {
+        }
+
+        @Override
+        public ResourceLock getProjectToLock() {
+            return projectLock;
+        }
+
+        @Override
+        public ProjectInternal getOwningProject() {
+            return null;
+        }
+
+        @Override
+        public List<? extends ResourceLock> getResourcesToLock() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public String toString() {
+            return "node" + id;
+        }
+
+        @Override
+        public int compareTo(Node other) {
+            return Integer.compare(id, ((SyntheticNode) other).id);
+        }
+    }
+
+    /**
+     * Creates layers of nodes, where each node depends on up to two nodes of the previous layer.
+     *
+     * @param projectLock the project lock of a node, or {@code null} when it needs none
+     */
+    static List<SyntheticNode> layers(int layers, int width, Function<Integer, ResourceLock> projectLock) {
+        Random random = new Random(42);
+        List<SyntheticNode> nodes = new ArrayList<>();
+        for (int layer = 0; layer < layers; layer++) {
+            for (int i = 0; i < width; i++) {
+                SyntheticNode node = new SyntheticNode(nodes.size(), projectLock.apply(nodes.size()));
+                if (layer > 0) {
+                    for (int d = 0; d < 2; d++) {
+                        SyntheticNode dependency = nodes.get((layer - 1) * width + random.nextInt(width));
+                        if (!dependency.dependents.contains(node)) {
+                            dependency.dependents.add(node);
+                            node.dependencies.add(dependency);
+                            node.pending++;
+                        }
+                    }
+                }
+                nodes.add(node);
+            }
+        }
+        return nodes;
+    }
+
+    private final LinkedList<SyntheticNode> ready = new LinkedList<>();
+    private int notStarted;
+    private int running;
+    private final List<Throwable> failures = new ArrayList<>();
+
+    SyntheticExecutionPlan(List<SyntheticNode> nodes) {
+        notStarted = nodes.size();
+        for (SyntheticNode node : nodes) {
+            if (node.pending == 0) {
+                ready.add(node);
+            }
+        }
+    }
+
+    @Override
+    public boolean allExecutionComplete() {
+        return notStarted == 0 && running == 0;
+    }
+
+    @Override
+    public State executionState() {
+        if (notStarted == 0) {
+            return State.NoMoreNodesToStart;
+        }
+        return ready.isEmpty() ? State.NoNodesReadyToStart : State.MaybeNodesReadyToStart;
+    }
+
+    @Override
+    public NodeSelection selectNext() {
+        return selectNext(false);
+    }
+
+    @Override
+    public NodeSelection selectNextWithoutLocks() {
+        return selectNext(true);
+    }
+
+    private NodeSelection selectNext(boolean withoutLocks) {
+        if (notStarted == 0) {
+            return NO_MORE_NODES_TO_START;
+        }
+        Iterator<SyntheticNode> iterator = ready.iterator();
+        while (iterator.hasNext()) {
+            SyntheticNode node = iterator.next();
+            if (node.projectLock != null && (withoutLocks || !node.projectLock.tryLock())) {
+                continue;
+            }
+            iterator.remove();
+            notStarted--;
+            running++;
+            return NodeSelection.of(node);
+        }
+        return NO_NODES_READY_TO_START;
+    }
+
+    @Override
+    public void finishedExecuting(Node node) {
+        SyntheticNode finished = (SyntheticNode) node;
+        running--;
+        finished.complete = true;
+        if (finished.projectLock != null) {
+            finished.projectLock.unlock();
+        }
+        for (SyntheticNode dependent : finished.dependents) {
+            if (--dependent.pending == 0) {
+                ready.add(dependent);
+            }
+        }
+    }
+
+    @Override
+    public void abortAllAndFail(Throwable t) {
+        failures.add(t);
+        notStarted = 0;
+        ready.clear();
+    }
+
+    @Override
+    public void cancelExecution() {
+    }
+
+    @Override
+    public Diagnostics healthDiagnostics() {
+        return new Diagnostics(true, Collections.emptyList());
+    }
+
+    @Override
+    public void useFilter(Predicate<? super Task> filter) {
+    }
+
+    @Override
+    public void setContinueOnFailure(boolean continueOnFailure) {
+    }
+
+    @Override
+    public TaskNode getNode(Task task) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void addNodes(Collection<? extends Node> nodes) {
+    }
+
+    @Override
+    public void addEntryTasks(Collection<? extends Task> tasks) {
+    }
+
+    @Override
+    public void addEntryTasks(Collection<? extends Task> tasks, int ordinal) {
+    }
+
+    @Override
+    public void determineExecutionPlan() {
+    }
+
+    @Override
+    public Set<Task> getTasks() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public Set<Task> getRequestedTasks() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public List<Node> getScheduledNodes() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public List<Node> getScheduledNodesPlusDependencies() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Set<Task> getFilteredTasks() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public void collectFailures(Collection<? super Throwable> failures) {
+        failures.addAll(this.failures);
+    }
+
+    @Override
+    public void onComplete(Consumer<LocalTaskNode> handler) {
+    }
+
+    @Override
+    public int size() {
+        return 0;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "synthetic plan";
+    }
+
+    @Override
+    public void close() {
+    }
+}
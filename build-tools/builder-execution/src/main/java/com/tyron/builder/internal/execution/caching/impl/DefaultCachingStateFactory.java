@@ -3,7 +3,6 @@ package com.tyron.builder.internal.execution.caching.impl;
 import com.google.common.collect.ImmutableList;
 import com.google.common.hash.HashCode;
 import com.google.common.hash.Hasher;
-import com.google.common.hash.Hashing;
 import com.tyron.builder.internal.execution.caching.CachingDisabledReason;
 import com.tyron.builder.internal.execution.caching.CachingState;
 import com.tyron.builder.internal.execution.caching.CachingStateFactory;
@@ -24,7 +23,7 @@ public class DefaultCachingStateFactory implements CachingStateFactory {
 
     @Override
     public final CachingState createCachingState(BeforeExecutionState beforeExecutionState, ImmutableList<CachingDisabledReason> cachingDisabledReasons) {
-        Hasher cacheKeyHasher = Hashing.md5().newHasher();
+        Hasher cacheKeyHasher = Hashes.newHasher();
 
         logger.warn("Appending implementation to build cache key: " +
                        beforeExecutionState.getImplementation());
@@ -10,6 +10,8 @@ import com.tyron.builder.internal.serialize.AbstractSerializer;
 import com.tyron.builder.internal.serialize.Decoder;
 import com.tyron.builder.internal.serialize.Encoder;
 import com.tyron.builder.internal.serialize.Serializer;
+import com.tyron.builder.internal.serialize.StringDeduplicatingDecoder;
+import com.tyron.builder.internal.serialize.StringDeduplicatingEncoder;
 import com.tyron.builder.internal.snapshot.FileSystemSnapshot;
 import com.tyron.builder.internal.snapshot.ValueSnapshot;
 import com.tyron.builder.internal.snapshot.impl.ImplementationSnapshot;
@@ -20,7 +22,16 @@ import com.tyron.builder.caching.internal.origin.OriginMetadata;
 import java.time.Duration;
 import java.util.Map;
 
+/**
+ * Serializes the state of a previous execution. Every distinct string, such as a file name or a property name,
+ * is written once per execution state.
+ */
 public class DefaultPreviousExecutionStateSerializer extends AbstractSerializer<PreviousExecutionState> {
+    /**
+     * The version of the serialized form, to be changed whenever the serialized form changes.
+     */
+    public static final int FORMAT_VERSION = 2;
+
     private final Serializer<FileCollectionFingerprint> fileCollectionFingerprintSerializer;
     private final Serializer<FileSystemSnapshot> fileSystemSnapshotSerializer;
     private final Serializer<ImplementationSnapshot> implementationSnapshotSerializer;
@@ -39,6 +50,7 @@ public class DefaultPreviousExecutionStateSerializer extends AbstractSerializer<
 
     @Override
     public PreviousExecutionState read(Decoder decoder) throws Exception {
+        decoder = new StringDeduplicatingDecoder(decoder);
         OriginMetadata originMetadata = new OriginMetadata(
                 decoder.readString(),
                 Duration.ofMillis(decoder.readLong())
@@ -74,6 +86,7 @@ public class DefaultPreviousExecutionStateSerializer extends AbstractSerializer<
 
     @Override
     public void write(Encoder encoder, PreviousExecutionState execution) throws Exception {
+        encoder = new StringDeduplicatingEncoder(encoder);
         OriginMetadata originMetadata = execution.getOriginMetadata();
         encoder.writeString(originMetadata.getBuildInvocationId());
         encoder.writeLong(originMetadata.getExecutionTime().toMillis());
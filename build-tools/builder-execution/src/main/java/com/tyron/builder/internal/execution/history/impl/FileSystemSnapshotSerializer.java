@@ -22,7 +22,6 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Deque;
 import java.util.List;
 
@@ -45,31 +44,35 @@ public class FileSystemSnapshotSerializer implements Serializer<FileSystemSnapsh
     public FileSystemSnapshot read(Decoder decoder) throws Exception {
         SnapshotStack stack = new SnapshotStack();
         stack.push();
-        Deque<String> pathTracker = new ArrayDeque<>();
+        // the absolute paths and names of the directories being read
+        Deque<String> directoryPaths = new ArrayDeque<>();
+        Deque<String> directoryNames = new ArrayDeque<>();
         while (true) {
             EntryType type = readEntryType(decoder);
             if (type == EntryType.END) {
                 break;
             }
-            if (type != EntryType.DIR_CLOSE) {
+            String internedAbsolutePath;
+            String internedName;
+            if (type == EntryType.DIR_CLOSE) {
+                internedAbsolutePath = directoryPaths.removeLast();
+                internedName = directoryNames.removeLast();
+            } else {
                 String path = decoder.readString();
-                String internedPath = stringInterner.intern(path);
-                pathTracker.addLast(internedPath);
+                if (directoryPaths.isEmpty()) {
+                    internedAbsolutePath = stringInterner.intern(path);
+                    internedName = stringInterner.intern(PathUtil.getFileName(internedAbsolutePath));
+                } else {
+                    internedAbsolutePath = stringInterner.intern(directoryPaths.getLast() + File.separatorChar + path);
+                    internedName = stringInterner.intern(path);
+                }
                 if (type == EntryType.DIR_OPEN) {
+                    directoryPaths.addLast(internedAbsolutePath);
+                    directoryNames.addLast(internedName);
                     stack.push();
                     continue;
                 }
             }
-            String internedAbsolutePath;
-            String internedName;
-            String path = pathTracker.removeLast();
-            if (pathTracker.isEmpty()) {
-                internedAbsolutePath = path;
-                internedName = stringInterner.intern(PathUtil.getFileName(internedAbsolutePath));
-            } else {
-                internedAbsolutePath = stringInterner.intern(toAbsolutePath(pathTracker, path));
-                internedName = path;
-            }
             FileMetadata.AccessType accessType = readAccessType(decoder);
             switch (type) {
                 case REGULAR_FILE:
@@ -208,17 +211,4 @@ public class FileSystemSnapshotSerializer implements Serializer<FileSystemSnapsh
             return stack.isEmpty();
         }
     }
-
-    private static String toAbsolutePath(Collection<String> parents, String fileName) {
-        int length = fileName.length() + parents.size()  + parents.stream()
-                .mapToInt(String::length)
-                .sum();
-        StringBuilder buffer = new StringBuilder(length);
-        for (String parent : parents) {
-            buffer.append(parent);
-            buffer.append(File.separatorChar);
-        }
-        buffer.append(fileName);
-        return buffer.toString();
-    }
 }
\ No newline at end of file
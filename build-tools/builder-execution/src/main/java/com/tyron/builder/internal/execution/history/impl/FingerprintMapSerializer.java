@@ -19,6 +19,7 @@ import java.util.Map;
 public class FingerprintMapSerializer extends AbstractSerializer<Map<String, FileSystemLocationFingerprint>> {
     private static final byte DEFAULT_NORMALIZATION = 1;
     private static final byte IGNORED_PATH_NORMALIZATION = 2;
+    private static final byte SUFFIX_NORMALIZATION = 3;
 
     private static final byte DIR_FINGERPRINT = 1;
     private static final byte MISSING_FILE_FINGERPRINT = 2;
@@ -31,19 +32,30 @@ public class FingerprintMapSerializer extends AbstractSerializer<Map<String, Fil
         this.stringInterner = stringInterner;
     }
 
+    /**
+     * Reads the fingerprints. Each absolute path is stored as the length of the prefix it shares with the previous
+     * path, followed by the rest of the path.
+     */
     @Override
     public Map<String, FileSystemLocationFingerprint> read(Decoder decoder) throws IOException {
         int fingerprintCount = decoder.readSmallInt();
         ImmutableMap.Builder<String, FileSystemLocationFingerprint> fingerprints = ImmutableMap.builderWithExpectedSize(fingerprintCount);
+        StringBuilder pathBuilder = new StringBuilder();
         for (int i = 0; i < fingerprintCount; i++) {
-            String absolutePath = stringInterner.intern(decoder.readString());
-            FileSystemLocationFingerprint fingerprint = readFingerprint(decoder);
+            int prefixLength = decoder.readSmallInt();
+            if (prefixLength > pathBuilder.length()) {
+                throw new RuntimeException("Unable to read serialized file fingerprint. Unrecognized value found in the data stream.");
+            }
+            pathBuilder.setLength(prefixLength);
+            pathBuilder.append(decoder.readString());
+            String absolutePath = stringInterner.intern(pathBuilder.toString());
+            FileSystemLocationFingerprint fingerprint = readFingerprint(absolutePath, decoder);
             fingerprints.put(absolutePath, fingerprint);
         }
         return fingerprints.build();
     }
 
-    private FileSystemLocationFingerprint readFingerprint(Decoder decoder) throws IOException {
+    private FileSystemLocationFingerprint readFingerprint(String absolutePath, Decoder decoder) throws IOException {
         FileType fileType = readFileType(decoder);
         HashCode contentHash = readContentHash(fileType, decoder);
 
@@ -52,6 +64,10 @@ public class FingerprintMapSerializer extends AbstractSerializer<Map<String, Fil
             case DEFAULT_NORMALIZATION:
                 String normalizedPath = decoder.readString();
                 return new DefaultFileSystemLocationFingerprint(stringInterner.intern(normalizedPath), fileType, contentHash);
+            case SUFFIX_NORMALIZATION:
+                int suffixLength = decoder.readSmallInt();
+                String suffix = absolutePath.substring(absolutePath.length() - suffixLength);
+                return new DefaultFileSystemLocationFingerprint(stringInterner.intern(suffix), fileType, contentHash);
             case IGNORED_PATH_NORMALIZATION:
                 return IgnoredPathFileSystemLocationFingerprint.create(fileType, contentHash);
             default:
@@ -89,11 +105,28 @@ public class FingerprintMapSerializer extends AbstractSerializer<Map<String, Fil
     @Override
     public void write(Encoder encoder, Map<String, FileSystemLocationFingerprint> value) throws Exception {
         encoder.writeSmallInt(value.size());
-        for (String key : value.keySet()) {
-            encoder.writeString(key);
-            FileSystemLocationFingerprint fingerprint = value.get(key);
-            writeFingerprint(encoder, fingerprint);
+        String previousPath = "";
+        for (Map.Entry<String, FileSystemLocationFingerprint> entry : value.entrySet()) {
+            String absolutePath = entry.getKey();
+            int prefixLength = commonPrefixLength(previousPath, absolutePath);
+            encoder.writeSmallInt(prefixLength);
+            encoder.writeString(absolutePath.substring(prefixLength));
+            writeFingerprint(encoder, absolutePath, entry.getValue());
+            previousPath = absolutePath;
+        }
+    }
+
+    private static int commonPrefixLength(String previous, String current) {
+        int maxLength = Math.min(previous.length(), current.length());
+        int length = 0;
+        while (length < maxLength && previous.charAt(length) == current.charAt(length)) {
+            length++;
+        }
+        // do not split a surrogate pair between the prefix and the rest of the path
+        if (length > 0 && Character.isHighSurrogate(current.charAt(length - 1))) {
+            length--;
         }
+        return length;
     }
 
     @Override
@@ -111,7 +144,7 @@ public class FingerprintMapSerializer extends AbstractSerializer<Map<String, Fil
         return Objects.hashCode(super.hashCode(), hashCodeSerializer);
     }
 
-    private void writeFingerprint(Encoder encoder, FileSystemLocationFingerprint value) throws IOException {
+    private void writeFingerprint(Encoder encoder, String absolutePath, FileSystemLocationFingerprint value) throws IOException {
         switch (value.getType()) {
             case Directory:
                 encoder.writeByte(DIR_FINGERPRINT);
@@ -128,8 +161,14 @@ public class FingerprintMapSerializer extends AbstractSerializer<Map<String, Fil
         }
 
         if (value instanceof DefaultFileSystemLocationFingerprint) {
-            encoder.writeByte(DEFAULT_NORMALIZATION);
-            encoder.writeString(value.getNormalizedPath());
+            String normalizedPath = value.getNormalizedPath();
+            if (!normalizedPath.isEmpty() && absolutePath.endsWith(normalizedPath)) {
+                encoder.writeByte(SUFFIX_NORMALIZATION);
+                encoder.writeSmallInt(normalizedPath.length());
+            } else {
+                encoder.writeByte(DEFAULT_NORMALIZATION);
+                encoder.writeString(normalizedPath);
+            }
         } else if (value instanceof IgnoredPathFileSystemLocationFingerprint) {
             encoder.writeByte(IGNORED_PATH_NORMALIZATION);
         } else {
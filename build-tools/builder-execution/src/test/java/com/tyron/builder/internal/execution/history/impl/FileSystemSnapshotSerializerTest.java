@@ -0,0 +1,177 @@
+package com.tyron.builder.internal.execution.history.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Interners;
+import com.google.common.hash.HashCode;
+import com.tyron.builder.internal.file.FileMetadata;
+import com.tyron.builder.internal.file.FileMetadata.AccessType;
+import com.tyron.builder.internal.file.impl.DefaultFileMetadata;
+import com.tyron.builder.internal.serialize.StringDeduplicatingDecoder;
+import com.tyron.builder.internal.serialize.StringDeduplicatingEncoder;
+import com.tyron.builder.internal.serialize.kryo.KryoBackedDecoder;
+import com.tyron.builder.internal.serialize.kryo.KryoBackedEncoder;
+import com.tyron.builder.internal.snapshot.CompositeFileSystemSnapshot;
+import com.tyron.builder.internal.snapshot.DirectorySnapshot;
+import com.tyron.builder.internal.snapshot.FileSystemLocationSnapshot;
+import com.tyron.builder.internal.snapshot.FileSystemSnapshot;
+import com.tyron.builder.internal.snapshot.MissingFileSnapshot;
+import com.tyron.builder.internal.snapshot.RegularFileSnapshot;
+import com.tyron.builder.internal.snapshot.RootTrackingFileSystemSnapshotHierarchyVisitor;
+import com.tyron.builder.internal.snapshot.SnapshotVisitResult;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class FileSystemSnapshotSerializerTest {
+
+    private static final String ROOT = File.separator + "project";
+
+    private final FileSystemSnapshotSerializer serializer = new FileSystemSnapshotSerializer(Interners.newStrongInterner());
+
+    @Test
+    public void rebuildsPathsOfNestedDirectories() throws Exception {
+        String out = path(ROOT, "out");
+        String classes = path(out, "classes");
+        String pkg = path(classes, "pkg");
+        DirectorySnapshot tree = directory(out, AccessType.DIRECT, 1,
+                directory(classes, AccessType.DIRECT, 2,
+                        directory(pkg, AccessType.DIRECT, 3,
+                                file(path(pkg, "A.class"), 10, AccessType.DIRECT),
+                                file(path(pkg, "B.class"), 11, AccessType.VIA_SYMLINK)),
+                        file(path(classes, "C.class"), 12, AccessType.DIRECT),
+                        directory(path(classes, "empty"), AccessType.DIRECT, 4)),
+                // an entry after leaving two directories
+                file(path(out, "manifest.txt"), 13, AccessType.DIRECT));
+
+        assertRoundTrips(tree);
+    }
+
+    @Test
+    public void roundTripsSeveralRoots() throws Exception {
+        String out = path(ROOT, "out");
+        FileSystemSnapshot snapshot = CompositeFileSystemSnapshot.of(Arrays.asList(
+                file(path(ROOT, "lib.jar"), 1, AccessType.DIRECT),
+                new MissingFileSnapshot(path(ROOT, "missing"), "missing", AccessType.VIA_SYMLINK),
+                directory(out, AccessType.DIRECT, 2,
+                        file(path(out, "a.txt"), 3, AccessType.DIRECT)),
+                directory(path(ROOT, "other"), AccessType.VIA_SYMLINK, 4)));
+
+        assertRoundTrips(snapshot);
+    }
+
+    @Test
+    public void roundTripsNamesWithSurrogatePairs() throws Exception {
+        String dir = path(ROOT, "\uD83D\uDCC1");
+        DirectorySnapshot tree = directory(dir, AccessType.DIRECT, 1,
+                file(path(dir, "\uD83D\uDE00.txt"), 2, AccessType.DIRECT),
+                file(path(dir, "\uD83D\uDE01.txt"), 3, AccessType.DIRECT),
+                file(path(dir, "\u00E9t\u00E9.txt"), 4, AccessType.DIRECT));
+
+        assertRoundTrips(tree);
+    }
+
+    @Test
+    public void roundTripsEmptySnapshot() throws Exception {
+        assertEquals(describe(FileSystemSnapshot.EMPTY), describe(roundTrip(FileSystemSnapshot.EMPTY)));
+    }
+
+    @Test
+    public void internsRepeatedNames() throws Exception {
+        String first = path(ROOT, "first");
+        String second = path(ROOT, "second");
+        FileSystemSnapshot snapshot = CompositeFileSystemSnapshot.of(Arrays.asList(
+                directory(first, AccessType.DIRECT, 1, file(path(first, "index.html"), 2, AccessType.DIRECT)),
+                directory(second, AccessType.DIRECT, 3, file(path(second, "index.html"), 4, AccessType.DIRECT))));
+
+        List<FileSystemLocationSnapshot> files = new ArrayList<>();
+        roundTrip(snapshot).accept(new RootTrackingFileSystemSnapshotHierarchyVisitor() {
+            @Override
+            public SnapshotVisitResult visitEntry(FileSystemLocationSnapshot entry, boolean isRoot) {
+                if (entry instanceof RegularFileSnapshot) {
+                    files.add(entry);
+                }
+                return SnapshotVisitResult.CONTINUE;
+            }
+        });
+
+        assertEquals(2, files.size());
+        assertSame(files.get(0).getName(), files.get(1).getName());
+    }
+
+    private void assertRoundTrips(FileSystemSnapshot snapshot) throws Exception {
+        assertEquals(describe(snapshot), describe(roundTrip(snapshot)));
+    }
+
+    private FileSystemSnapshot roundTrip(FileSystemSnapshot snapshot) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (KryoBackedEncoder encoder = new KryoBackedEncoder(output)) {
+            serializer.write(new StringDeduplicatingEncoder(encoder), snapshot);
+        }
+        try (KryoBackedDecoder decoder = new KryoBackedDecoder(new ByteArrayInputStream(output.toByteArray()))) {
+            return serializer.read(new StringDeduplicatingDecoder(decoder));
+        }
+    }
+
+    /**
+     * Describes every entry of the snapshot, in visiting order, with the depth it is found at.
+     */
+    private static List<String> describe(FileSystemSnapshot snapshot) {
+        List<String> descriptions = new ArrayList<>();
+        snapshot.accept(new RootTrackingFileSystemSnapshotHierarchyVisitor() {
+            private int depth;
+
+            @Override
+            public void enterDirectory(DirectorySnapshot directorySnapshot, boolean isRoot) {
+                depth++;
+            }
+
+            @Override
+            public SnapshotVisitResult visitEntry(FileSystemLocationSnapshot entry, boolean isRoot) {
+                String description = depth + " " + isRoot + " " + entry.getType() + " " + entry.getAbsolutePath()
+                        + " " + entry.getName() + " " + entry.getAccessType() + " " + entry.getHash();
+                if (entry instanceof RegularFileSnapshot) {
+                    FileMetadata metadata = ((RegularFileSnapshot) entry).getMetadata();
+                    description += " " + metadata.getLastModified() + " " + metadata.getLength() + " " + metadata.getAccessType();
+                }
+                descriptions.add(description);
+                return SnapshotVisitResult.CONTINUE;
+            }
+
+            @Override
+            public void leaveDirectory(DirectorySnapshot directorySnapshot, boolean isRoot) {
+                depth--;
+                descriptions.add("leave " + directorySnapshot.getAbsolutePath());
+            }
+        });
+        return descriptions;
+    }
+
+    private static String path(String parent, String name) {
+        return parent + File.separatorChar + name;
+    }
+
+    private static String nameOf(String path) {
+        return path.substring(path.lastIndexOf(File.separatorChar) + 1);
+    }
+
+    private static DirectorySnapshot directory(String path, AccessType accessType, int hash, FileSystemLocationSnapshot... children) {
+        return new DirectorySnapshot(path, nameOf(path), accessType, hash(hash), ImmutableList.copyOf(children));
+    }
+
+    private static RegularFileSnapshot file(String path, int hash, AccessType accessType) {
+        return new RegularFileSnapshot(path, nameOf(path), hash(hash), DefaultFileMetadata.file(1_600_000_000_000L + hash, 100L * hash, accessType));
+    }
+
+    private static HashCode hash(int value) {
+        return HashCode.fromBytes(new byte[]{(byte) value, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15});
+    }
+}
@@ -0,0 +1,150 @@
+package com.tyron.builder.internal.execution.history.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Interners;
+import com.google.common.hash.HashCode;
+import com.tyron.builder.internal.file.FileType;
+import com.tyron.builder.internal.fingerprint.FileSystemLocationFingerprint;
+import com.tyron.builder.internal.fingerprint.impl.DefaultFileSystemLocationFingerprint;
+import com.tyron.builder.internal.fingerprint.impl.IgnoredPathFileSystemLocationFingerprint;
+import com.tyron.builder.internal.serialize.StringDeduplicatingDecoder;
+import com.tyron.builder.internal.serialize.StringDeduplicatingEncoder;
+import com.tyron.builder.internal.serialize.kryo.KryoBackedDecoder;
+import com.tyron.builder.internal.serialize.kryo.KryoBackedEncoder;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class FingerprintMapSerializerTest {
+
+    private final FingerprintMapSerializer serializer = new FingerprintMapSerializer(Interners.newStrongInterner());
+
+    @Test
+    public void roundTripsPathsSharingPrefixes() throws Exception {
+        Map<String, FileSystemLocationFingerprint> fingerprints = ImmutableMap.<String, FileSystemLocationFingerprint>builder()
+                .put("/project/src/main/java", directory(""))
+                .put("/project/src/main/java/com/example/A.java", file("com/example/A.java", 1))
+                .put("/project/src/main/java/com/example/B.java", file("com/example/B.java", 2))
+                .put("/project/src/main/java/com/other/C.java", file("com/other/C.java", 3))
+                .put("/project/src/main", missing("main"))
+                .put("/other/lib.jar", file("lib.jar", 4))
+                .put("/other/lib.jar.old", file("lib.jar.old", 5))
+                .build();
+
+        assertRoundTrips(fingerprints);
+    }
+
+    @Test
+    public void roundTripsSuffixAndOtherNormalizedPaths() throws Exception {
+        Map<String, FileSystemLocationFingerprint> fingerprints = ImmutableMap.<String, FileSystemLocationFingerprint>builder()
+                // suffix of the absolute path
+                .put("/project/build/classes/A.class", file("A.class", 1))
+                // the whole absolute path
+                .put("/project/build/classes/B.class", file("/project/build/classes/B.class", 2))
+                // not a suffix
+                .put("/project/build/classes/C.class", file("classes-C", 3))
+                // empty normalized path, as for a root directory
+                .put("/project/build/classes", directory(""))
+                .put("/project/build/ignored.txt", IgnoredPathFileSystemLocationFingerprint.create(FileType.RegularFile, hash(4)))
+                .put("/project/build/ignored", IgnoredPathFileSystemLocationFingerprint.DIRECTORY)
+                .build();
+
+        assertRoundTrips(fingerprints);
+    }
+
+    @Test
+    public void doesNotSplitSurrogatePairsBetweenPrefixAndRest() throws Exception {
+        // both paths start with the same high surrogate, followed by different low surrogates
+        String first = "/files/\uD83D\uDE00.txt";
+        String second = "/files/\uD83D\uDE01.txt";
+        String third = "/files/\uD83D\uDE01/\u00e9t\u00e9.txt";
+        Map<String, FileSystemLocationFingerprint> fingerprints = ImmutableMap.<String, FileSystemLocationFingerprint>builder()
+                .put(first, file("\uD83D\uDE00.txt", 1))
+                .put(second, file("\uD83D\uDE01.txt", 2))
+                .put(third, file("\u00e9t\u00e9.txt", 3))
+                .build();
+
+        List<String> written = new ArrayList<>();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (KryoBackedEncoder encoder = new KryoBackedEncoder(output)) {
+            serializer.write(new StringDeduplicatingEncoder(encoder) {
+                @Override
+                public void writeString(CharSequence value) throws IOException {
+                    written.add(value.toString());
+                    super.writeString(value);
+                }
+            }, fingerprints);
+        }
+        for (String string : written) {
+            assertFalse(string, !string.isEmpty() && Character.isLowSurrogate(string.charAt(0)));
+        }
+        assertRoundTrips(fingerprints);
+    }
+
+    @Test
+    public void roundTripsEmptyMap() throws Exception {
+        assertRoundTrips(ImmutableMap.of());
+    }
+
+    @Test
+    public void internsPathsAcrossMaps() throws Exception {
+        Map<String, FileSystemLocationFingerprint> fingerprints = ImmutableMap.of("/project/A.java", file("A.java", 1));
+
+        Map<String, FileSystemLocationFingerprint> first = roundTrip(fingerprints);
+        Map<String, FileSystemLocationFingerprint> second = roundTrip(fingerprints);
+
+        assertSame(first.keySet().iterator().next(), second.keySet().iterator().next());
+    }
+
+    private void assertRoundTrips(Map<String, FileSystemLocationFingerprint> fingerprints) throws Exception {
+        Map<String, FileSystemLocationFingerprint> read = roundTrip(fingerprints);
+        assertEquals(new ArrayList<>(fingerprints.keySet()), new ArrayList<>(read.keySet()));
+        assertEquals(describe(fingerprints), describe(read));
+    }
+
+    private Map<String, FileSystemLocationFingerprint> roundTrip(Map<String, FileSystemLocationFingerprint> fingerprints) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (KryoBackedEncoder encoder = new KryoBackedEncoder(output)) {
+            serializer.write(new StringDeduplicatingEncoder(encoder), fingerprints);
+        }
+        try (KryoBackedDecoder decoder = new KryoBackedDecoder(new ByteArrayInputStream(output.toByteArray()))) {
+            return serializer.read(new StringDeduplicatingDecoder(decoder));
+        }
+    }
+
+    private static List<String> describe(Map<String, FileSystemLocationFingerprint> fingerprints) {
+        List<String> descriptions = new ArrayList<>();
+        for (Map.Entry<String, FileSystemLocationFingerprint> entry : fingerprints.entrySet()) {
+            FileSystemLocationFingerprint fingerprint = entry.getValue();
+            descriptions.add(entry.getKey() + " " + fingerprint.getClass().getSimpleName() + " " + fingerprint.getType()
+                    + " '" + fingerprint.getNormalizedPath() + "' " + fingerprint.getNormalizedContentHash());
+        }
+        return descriptions;
+    }
+
+    private static FileSystemLocationFingerprint file(String normalizedPath, int hash) {
+        return new DefaultFileSystemLocationFingerprint(normalizedPath, FileType.RegularFile, hash(hash));
+    }
+
+    private static FileSystemLocationFingerprint directory(String normalizedPath) {
+        return new DefaultFileSystemLocationFingerprint(normalizedPath, FileType.Directory, FileSystemLocationFingerprint.DIR_SIGNATURE);
+    }
+
+    private static FileSystemLocationFingerprint missing(String normalizedPath) {
+        return new DefaultFileSystemLocationFingerprint(normalizedPath, FileType.Missing, FileSystemLocationFingerprint.MISSING_FILE_SIGNATURE);
+    }
+
+    private static HashCode hash(int value) {
+        return HashCode.fromBytes(new byte[]{(byte) value, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15});
+    }
+}
@@ -0,0 +1,219 @@
+package com.tyron.builder.internal.execution.history.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Interners;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.tyron.builder.caching.internal.origin.OriginMetadata;
+import com.tyron.builder.internal.execution.history.PreviousExecutionState;
+import com.tyron.builder.internal.file.FileMetadata.AccessType;
+import com.tyron.builder.internal.file.FileType;
+import com.tyron.builder.internal.file.impl.DefaultFileMetadata;
+import com.tyron.builder.internal.fingerprint.FileCollectionFingerprint;
+import com.tyron.builder.internal.fingerprint.FileSystemLocationFingerprint;
+import com.tyron.builder.internal.fingerprint.impl.DefaultFileSystemLocationFingerprint;
+import com.tyron.builder.internal.serialize.StringDeduplicatingDecoder;
+import com.tyron.builder.internal.serialize.StringDeduplicatingEncoder;
+import com.tyron.builder.internal.serialize.kryo.KryoBackedDecoder;
+import com.tyron.builder.internal.serialize.kryo.KryoBackedEncoder;
+import com.tyron.builder.internal.snapshot.CaseSensitivity;
+import com.tyron.builder.internal.snapshot.DirectorySnapshot;
+import com.tyron.builder.internal.snapshot.FileSystemLocationSnapshot;
+import com.tyron.builder.internal.snapshot.FileSystemSnapshot;
+import com.tyron.builder.internal.snapshot.PathUtil;
+import com.tyron.builder.internal.snapshot.RegularFileSnapshot;
+import com.tyron.builder.internal.snapshot.ValueSnapshot;
+import com.tyron.builder.internal.snapshot.impl.BooleanValueSnapshot;
+import com.tyron.builder.internal.snapshot.impl.ImplementationSnapshot;
+import com.tyron.builder.internal.snapshot.impl.IntegerValueSnapshot;
+import com.tyron.builder.internal.snapshot.impl.StringValueSnapshot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures the bytes written and the time taken to write and read the execution state of a compile task with
+ * {@link DefaultPreviousExecutionStateSerializer}, and of its source fingerprints alone with
+ * {@link FingerprintMapSerializer}. Not a unit test, run it with the number of source files and, optionally, the
+ * number of iterations.
+ * <p>
+ * The task has a class path of 100 jars, sources spread over packages of 20 files each and one class file per
+ * source file in its output directory.
+ */
+public class PreviousExecutionStateSerializerBenchmark {
+
+    private static final String PROJECT = "/storage/emulated/0/CodeAssistProjects/Benchmark/app";
+
+    /**
+     * Keeps the values read alive, so reading them is not optimized away.
+     */
+    private static volatile Object sink;
+
+    public static void main(String[] args) throws Exception {
+        int files = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        Map<String, FileSystemLocationFingerprint> sources = sources(files);
+        PreviousExecutionState state = state(sources, files);
+
+        DefaultPreviousExecutionStateSerializer stateSerializer = new DefaultPreviousExecutionStateSerializer(
+                new FileCollectionFingerprintSerializer(Interners.newStrongInterner()),
+                new FileSystemSnapshotSerializer(Interners.newStrongInterner()),
+                classLoader -> null);
+        FingerprintMapSerializer mapSerializer = new FingerprintMapSerializer(Interners.newStrongInterner());
+
+        Codec<PreviousExecutionState> stateCodec = new Codec<PreviousExecutionState>() {
+            @Override
+            public void write(KryoBackedEncoder encoder, PreviousExecutionState value) throws Exception {
+                stateSerializer.write(encoder, value);
+            }
+
+            @Override
+            public PreviousExecutionState read(KryoBackedDecoder decoder) throws Exception {
+                return stateSerializer.read(decoder);
+            }
+        };
+        Codec<Map<String, FileSystemLocationFingerprint>> mapCodec = new Codec<Map<String, FileSystemLocationFingerprint>>() {
+            @Override
+            public void write(KryoBackedEncoder encoder, Map<String, FileSystemLocationFingerprint> value) throws Exception {
+                mapSerializer.write(new StringDeduplicatingEncoder(encoder), value);
+            }
+
+            @Override
+            public Map<String, FileSystemLocationFingerprint> read(KryoBackedDecoder decoder) throws Exception {
+                return mapSerializer.read(new StringDeduplicatingDecoder(decoder));
+            }
+        };
+
+        System.out.printf("%d source files, %d iterations%n", files, iterations);
+        for (int i = 0; i < 2; i++) {
+            run("execution state", stateCodec, state, iterations);
+            run("fingerprint map", mapCodec, sources, iterations);
+        }
+    }
+
+    private static <T> void run(String name, Codec<T> codec, T value, int iterations) throws Exception {
+        byte[] bytes = write(codec, value);
+        // warm up
+        for (int i = 0; i < iterations / 10 + 1; i++) {
+            write(codec, value);
+            read(codec, bytes);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            write(codec, value);
+        }
+        long writeNanos = (System.nanoTime() - start) / iterations;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink = read(codec, bytes);
+        }
+        long readNanos = (System.nanoTime() - start) / iterations;
+
+        System.out.printf("%s: %d bytes, write %d ns/op, read %d ns/op%n",
+                name, bytes.length, writeNanos, readNanos);
+    }
+
+    private static <T> byte[] write(Codec<T> codec, T value) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (KryoBackedEncoder encoder = new KryoBackedEncoder(output)) {
+            codec.write(encoder, value);
+        }
+        return output.toByteArray();
+    }
+
+    private static <T> T read(Codec<T> codec, byte[] bytes) throws Exception {
+        try (KryoBackedDecoder decoder = new KryoBackedDecoder(new ByteArrayInputStream(bytes))) {
+            return codec.read(decoder);
+        }
+    }
+
+    private static Map<String, FileSystemLocationFingerprint> sources(int files) {
+        String root = PROJECT + "/src/main/java";
+        Map<String, FileSystemLocationFingerprint> sources = new LinkedHashMap<>();
+        sources.put(root, new DefaultFileSystemLocationFingerprint("", FileType.Directory, FileSystemLocationFingerprint.DIR_SIGNATURE));
+        for (int i = 0; i < files; i++) {
+            String relativePath = "com/example/benchmark/pkg" + i / 20 + "/Source" + i + ".java";
+            sources.put(root + "/" + relativePath, new DefaultFileSystemLocationFingerprint(relativePath, FileType.RegularFile, hash(relativePath)));
+        }
+        return sources;
+    }
+
+    private static PreviousExecutionState state(Map<String, FileSystemLocationFingerprint> sources, int files) {
+        Map<String, FileSystemLocationFingerprint> classpath = new LinkedHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            String path = "/data/user/0/com.tyron.code/files/.gradle/caches/library" + i + "/classes.jar";
+            classpath.put(path, new DefaultFileSystemLocationFingerprint(path, FileType.RegularFile, hash(path)));
+        }
+
+        ImmutableSortedMap<String, ValueSnapshot> inputProperties = ImmutableSortedMap.of(
+                "debug", BooleanValueSnapshot.TRUE,
+                "release", new IntegerValueSnapshot(8),
+                "sourceCompatibility", new StringValueSnapshot("1.8"));
+        ImmutableSortedMap<String, FileCollectionFingerprint> inputFiles = ImmutableSortedMap.of(
+                "classpath", fingerprint(classpath, "/data/user/0/com.tyron.code/files/.gradle/caches"),
+                "sources", fingerprint(sources, PROJECT + "/src/main/java"));
+        ImmutableSortedMap<String, FileSystemSnapshot> outputs = ImmutableSortedMap.of(
+                "destinationDirectory", classes(PROJECT + "/build/intermediate/classes", files));
+
+        return new DefaultPreviousExecutionState(
+                new OriginMetadata("abcdefghijklmnopqrstuvwxyz", Duration.ofMillis(1234)),
+                ImplementationSnapshot.of("com.tyron.builder.api.tasks.compile.JavaCompile", hash("task")),
+                ImmutableList.of(ImplementationSnapshot.of("com.tyron.builder.api.tasks.compile.JavaCompile$1", hash("action"))),
+                inputProperties,
+                inputFiles,
+                outputs,
+                true);
+    }
+
+    private static FileCollectionFingerprint fingerprint(Map<String, FileSystemLocationFingerprint> fingerprints, String root) {
+        return new SerializableFileCollectionFingerprint(fingerprints, ImmutableMultimap.of(root, hash(root)), hash("strategy"));
+    }
+
+    private static DirectorySnapshot classes(String root, int files) {
+        String packages = root + "/com/example/benchmark";
+        List<FileSystemLocationSnapshot> packageSnapshots = new ArrayList<>();
+        for (int first = 0; first < files; first += 20) {
+            String packagePath = packages + "/pkg" + first / 20;
+            List<FileSystemLocationSnapshot> classFiles = new ArrayList<>();
+            for (int i = first; i < Math.min(first + 20, files); i++) {
+                String name = "Source" + i + ".class";
+                classFiles.add(new RegularFileSnapshot(packagePath + "/" + name, name, hash(name),
+                        DefaultFileMetadata.file(1_600_000_000_000L + i, 1000 + i, AccessType.DIRECT)));
+            }
+            packageSnapshots.add(directory(packagePath, classFiles));
+        }
+        return directory(root, ImmutableList.of(
+                directory(root + "/com", ImmutableList.of(
+                        directory(root + "/com/example", ImmutableList.of(
+                                directory(packages, packageSnapshots)))))));
+    }
+
+    private static DirectorySnapshot directory(String path, List<FileSystemLocationSnapshot> children) {
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        List<FileSystemLocationSnapshot> sorted = new ArrayList<>(children);
+        // the children of a snapshot are sorted by name, "Source10" comes before "Source2"
+        sorted.sort(Comparator.comparing(FileSystemLocationSnapshot::getName, PathUtil.getPathComparator(CaseSensitivity.CASE_SENSITIVE)));
+        return new DirectorySnapshot(path, name, AccessType.DIRECT, hash(path), sorted);
+    }
+
+    private static HashCode hash(String value) {
+        return Hashing.md5().hashUnencodedChars(value);
+    }
+
+    private interface Codec<T> {
+        void write(KryoBackedEncoder encoder, T value) throws Exception;
+
+        T read(KryoBackedDecoder decoder) throws Exception;
+    }
+}
@@ -0,0 +1,54 @@
+package com.tyron.builder.internal.hash;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.util.Locale;
+
+/**
+ * The hash functions which can be used for content hashes and cache keys.
+ *
+ * The function is selected with the {@value #PROPERTY} system property, {@link #MURMUR3_128} is used by default.
+ * None of them is used for security purposes, they only need to be collision resistant for non-malicious inputs.
+ */
+public enum ContentHashFunction {
+    MD5("md5", 1, Hashing.md5()),
+    MURMUR3_128("murmur3", 1, Hashing.murmur3_128());
+
+    public static final String PROPERTY = "com.tyron.builder.hash.function";
+
+    private final String name;
+    private final int version;
+    private final HashFunction hashFunction;
+
+    ContentHashFunction(String name, int version, HashFunction hashFunction) {
+        this.name = name;
+        this.version = version;
+        this.hashFunction = hashFunction;
+    }
+
+    public HashFunction getHashFunction() {
+        return hashFunction;
+    }
+
+    /**
+     * Identifies the function and the way it is fed with data.
+     * Caches which store hashes should include it in their name, so they are invalidated when the function changes.
+     */
+    public String getId() {
+        return name + "-v" + version;
+    }
+
+    static ContentHashFunction fromSystemProperty() {
+        String name = System.getProperty(PROPERTY);
+        if (name == null || name.isEmpty()) {
+            return MURMUR3_128;
+        }
+        for (ContentHashFunction function : values()) {
+            if (function.name.equals(name.toLowerCase(Locale.ROOT))) {
+                return function;
+            }
+        }
+        throw new IllegalArgumentException("Unknown hash function '" + name + "' set in " + PROPERTY);
+    }
+}
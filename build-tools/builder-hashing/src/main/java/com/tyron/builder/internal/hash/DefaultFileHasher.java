@@ -6,10 +6,16 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
 
 public class DefaultFileHasher implements FileHasher {
+    /**
+     * Files of at least this size are hashed through their {@link java.nio.channels.FileChannel},
+     * smaller files fit in a few reads of the stream buffer.
+     */
+    private static final long CHANNEL_HASHING_THRESHOLD = 1024 * 1024;
+
     private final StreamHasher streamHasher;
 
     public DefaultFileHasher(StreamHasher streamHasher) {
@@ -18,14 +24,20 @@ public class DefaultFileHasher implements FileHasher {
 
     @Override
     public HashCode hash(File file) {
-        InputStream inputStream;
+        FileInputStream inputStream;
         try {
             inputStream = new FileInputStream(file);
         } catch (FileNotFoundException e) {
-            throw new UncheckedIOException(String.format("Failed to create MD5 hash for file '%s' as it does not exist.", file), e);
+            throw new UncheckedIOException(String.format("Failed to create hash for file '%s' as it does not exist.", file), e);
         }
         try {
+            FileChannel channel = inputStream.getChannel();
+            if (channel.size() >= CHANNEL_HASHING_THRESHOLD) {
+                return streamHasher.hash(channel);
+            }
             return streamHasher.hash(inputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Failed to create hash for file '%s'.", file), e);
         } finally {
             try {
                 inputStream.close();
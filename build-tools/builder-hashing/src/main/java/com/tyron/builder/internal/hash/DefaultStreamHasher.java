@@ -8,20 +8,29 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
 
 public class DefaultStreamHasher implements StreamHasher {
     private static final HashCode SIGNATURE = Hashes.signature(DefaultStreamHasher.class);
 
+    /**
+     * Size of the direct buffers large files are read into. Reading through a direct buffer avoids the copy from the heap
+     * buffer of a stream, without holding on to mapped memory or locking the file until the mapping is collected.
+     */
+    private static final int DIRECT_BUFFER_SIZE = 256 * 1024;
+
     private final Queue<byte[]> buffers = new ArrayBlockingQueue<byte[]>(16);
+    private final Queue<ByteBuffer> directBuffers = new ArrayBlockingQueue<ByteBuffer>(4);
 
     @Override
     public HashCode hash(InputStream inputStream) {
         try {
             return doHash(inputStream, ByteStreams.nullOutputStream());
         } catch (IOException e) {
-            throw new UncheckedIOException("Failed to create MD5 hash for file content.", e);
+            throw new UncheckedIOException("Failed to create hash for file content.", e);
         }
     }
 
@@ -30,6 +39,27 @@ public class DefaultStreamHasher implements StreamHasher {
         return doHash(inputStream, outputStream);
     }
 
+    /**
+     * Hashes the content of the channel by reading it into a reused direct buffer.
+     */
+    @Override
+    public HashCode hash(FileChannel channel) throws IOException {
+        ByteBuffer buffer = takeDirectBuffer();
+        try {
+            PrimitiveHasher hasher = Hashes.newPrimitiveHasher();
+            hasher.putHash(SIGNATURE);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                hasher.putBytes(buffer);
+                buffer.clear();
+            }
+            return hasher.hash();
+        } finally {
+            buffer.clear();
+            directBuffers.offer(buffer);
+        }
+    }
+
     private HashCode doHash(InputStream inputStream, OutputStream outputStream) throws IOException {
         byte[] buffer = takeBuffer();
         try {
@@ -54,6 +84,14 @@ public class DefaultStreamHasher implements StreamHasher {
         buffers.offer(buffer);
     }
 
+    private ByteBuffer takeDirectBuffer() {
+        ByteBuffer buffer = directBuffers.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(DIRECT_BUFFER_SIZE);
+        }
+        return buffer;
+    }
+
     private byte[] takeBuffer() {
         byte[] buffer = buffers.poll();
         if (buffer == null) {
@@ -2,6 +2,8 @@ package com.tyron.builder.internal.hash;
 
 import com.google.common.hash.HashCode;
 
+import org.jetbrains.annotations.Nullable;
+
 import java.io.File;
 
 public interface FileHasher {
@@ -14,4 +16,14 @@ public interface FileHasher {
      * Returns the hash of the current content of the given file, assuming the given file metadata. The provided file must exist and be a file (rather than, say, a directory).
      */
     HashCode hash(File file, long length, long lastModified);
+
+    /**
+     * Returns the hash of the current content of the given file, assuming the given file metadata and file key.
+     * The file key identifies the file on file systems that support it, e.g. the device and inode on Unix.
+     *
+     * @see java.nio.file.attribute.BasicFileAttributes#fileKey()
+     */
+    default HashCode hash(File file, long length, long lastModified, @Nullable Object fileKey) {
+        return hash(file, length, lastModified);
+    }
 }
\ No newline at end of file
@@ -8,6 +8,7 @@ import com.google.common.hash.Hashing;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 public class Hashes {
@@ -25,7 +26,18 @@ public class Hashes {
     private static final HashFunction SHA512 = Hashing.sha512();
 
 
-    private static final HashFunction DEFAULT = MD5;
+    private static final ContentHashFunction DEFAULT_FUNCTION = ContentHashFunction.fromSystemProperty();
+
+    private static final HashFunction DEFAULT = DEFAULT_FUNCTION.getHashFunction();
+
+    private static final DefaultStreamHasher STREAM_HASHER = new DefaultStreamHasher();
+
+    /**
+     * Returns the function used for content hashes and cache keys.
+     */
+    public static ContentHashFunction getDefaultFunction() {
+        return DEFAULT_FUNCTION;
+    }
 
     public static HashCode signature(String signature) {
         Hasher hasher = DEFAULT.newHasher();
@@ -57,6 +69,11 @@ public class Hashes {
                 hasher.putBytes(bytes, off, len);
             }
 
+            @Override
+            public void putBytes(ByteBuffer buffer) {
+                hasher.putBytes(buffer);
+            }
+
             @Override
             public void putByte(byte value) {
                 hasher.putByte(value);
@@ -107,7 +124,7 @@ public class Hashes {
      * Hash the contents of the given {@link java.io.InputStream} with the default hash function.
      */
     public static HashCode hashStream(InputStream stream) throws IOException {
-        return new DefaultStreamHasher().hash(stream);
+        return STREAM_HASHER.hash(stream);
     }
 
     public static HashCode hashBytes(byte[] bytes) {
@@ -5,6 +5,8 @@ import com.google.common.hash.HashCode;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 
 public interface StreamHasher {
     /**
@@ -17,4 +19,12 @@ public interface StreamHasher {
      * The method will not close either stream.
      */
     HashCode hashCopy(InputStream inputStream, OutputStream outputStream) throws IOException;
+
+    /**
+     * Returns the hash of the content of the given channel, from its current position to its end.
+     * The result is the same as hashing the content through {@link #hash(InputStream)}. The channel will not be closed by the method.
+     */
+    default HashCode hash(FileChannel channel) throws IOException {
+        return hash(Channels.newInputStream(channel));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,74 @@
+package com.tyron.builder.internal.hash;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.common.hash.HashCode;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.Random;
+
+public class DefaultFileHasherTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final DefaultStreamHasher streamHasher = new DefaultStreamHasher();
+    private final DefaultFileHasher fileHasher = new DefaultFileHasher(streamHasher);
+
+    @Test
+    public void testChannelHashMatchesStreamHash() throws IOException {
+        // spans the threshold for hashing through the channel
+        for (int size : new int[]{0, 1, 8191, 8192, 1024 * 1024 - 1, 1024 * 1024, 3 * 1024 * 1024 + 17}) {
+            byte[] content = randomBytes(size);
+            File file = writeFile("file" + size, content);
+
+            HashCode expected = streamHasher.hash(new ByteArrayInputStream(content));
+            assertEquals(expected, fileHasher.hash(file));
+            try (FileInputStream inputStream = new FileInputStream(file)) {
+                assertEquals(expected, streamHasher.hash(inputStream.getChannel()));
+            }
+        }
+    }
+
+    @Test
+    public void testDefaultFunctionIsVersioned() {
+        assertEquals(ContentHashFunction.MURMUR3_128, Hashes.getDefaultFunction());
+        assertEquals("murmur3-v1", Hashes.getDefaultFunction().getId());
+    }
+
+    @Test
+    public void testChannelHashStartsAtCurrentPosition() throws IOException {
+        byte[] content = randomBytes(2 * 1024 * 1024);
+        File file = writeFile("file", content);
+        int offset = 12345;
+
+        HashCode expected = streamHasher.hash(new ByteArrayInputStream(content, offset, content.length - offset));
+        try (FileInputStream inputStream = new FileInputStream(file)) {
+            FileChannel channel = inputStream.getChannel();
+            channel.position(offset);
+            assertEquals(expected, streamHasher.hash(channel));
+            assertEquals(content.length, channel.position());
+        }
+    }
+
+    private File writeFile(String name, byte[] content) throws IOException {
+        File file = new File(temporaryFolder.getRoot(), name);
+        Files.write(file.toPath(), content);
+        return file;
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+}
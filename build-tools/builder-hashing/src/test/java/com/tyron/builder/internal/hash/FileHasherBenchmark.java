@@ -0,0 +1,122 @@
+package com.tyron.builder.internal.hash;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares hashing files with MD5 through a stream, as done before {@link ContentHashFunction#MURMUR3_128} became the
+ * default, with the {@link DefaultFileHasher}, which uses murmur3 and reads large files through their channel. Not a
+ * unit test, run it with the number of runs and, optionally, a jar to hash instead of the generated one.
+ * <p>
+ * The small file workload is 2000 files of 500 bytes to 8 KiB, like the sources and resources of a project. The large
+ * file workload is a single 50 MiB file, like a dependency jar.
+ */
+public class FileHasherBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        if (Hashes.getDefaultFunction() != ContentHashFunction.MURMUR3_128) {
+            throw new IllegalStateException("Run without setting " + ContentHashFunction.PROPERTY);
+        }
+        File directory = Files.createTempDirectory("hash-benchmark").toFile();
+        try {
+            Random random = new Random(42);
+            List<File> smallFiles = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                smallFiles.add(write(directory, "small" + i, 500 + random.nextInt(8 * 1024 - 500), random));
+            }
+            List<File> largeFiles = new ArrayList<>();
+            largeFiles.add(args.length > 1 ? new File(args[1]) : write(directory, "large.jar", 50 * 1024 * 1024, random));
+
+            FileHasher md5Stream = new Md5StreamFileHasher();
+            FileHasher murmurChannel = new DefaultFileHasher(new DefaultStreamHasher());
+            for (int i = 0; i < 2; i++) {
+                report("small files", smallFiles, runs, md5Stream, murmurChannel);
+                report("large file", largeFiles, runs, md5Stream, murmurChannel);
+            }
+        } finally {
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    Files.delete(file.toPath());
+                }
+            }
+            Files.delete(directory.toPath());
+        }
+    }
+
+    private static void report(String workload, List<File> files, int runs, FileHasher md5Stream, FileHasher murmurChannel) {
+        long bytes = 0;
+        for (File file : files) {
+            bytes += file.length();
+        }
+        double md5 = run(md5Stream, files, runs);
+        double murmur = run(murmurChannel, files, runs);
+        System.out.printf("%s: md5/stream %.1fms (%.0f MB/s), murmur3/channel %.1fms (%.0f MB/s)%n",
+                workload, md5, bytes / 1e3 / md5, murmur, bytes / 1e3 / murmur);
+    }
+
+    /**
+     * Returns the mean duration of hashing all the files once, excluding the first run.
+     */
+    private static double run(FileHasher hasher, List<File> files, int runs) {
+        long total = 0;
+        for (int i = 0; i <= runs; i++) {
+            long start = System.nanoTime();
+            for (File file : files) {
+                hasher.hash(file);
+            }
+            if (i > 0) {
+                total += System.nanoTime() - start;
+            }
+        }
+        return total / 1e6 / Math.max(1, runs);
+    }
+
+    private static File write(File directory, String name, int size, Random random) throws IOException {
+        byte[] content = new byte[size];
+        random.nextBytes(content);
+        File file = new File(directory, name);
+        Files.write(file.toPath(), content);
+        return file;
+    }
+
+    /**
+     * Hashes the whole file with MD5 through an 8 KiB stream buffer.
+     */
+    private static class Md5StreamFileHasher implements FileHasher {
+        private final HashFunction md5 = Hashing.md5();
+        private final byte[] buffer = new byte[8192];
+
+        @Override
+        public HashCode hash(File file) {
+            Hasher hasher = md5.newHasher();
+            try (InputStream inputStream = new FileInputStream(file)) {
+                int read;
+                while ((read = inputStream.read(buffer)) >= 0) {
+                    hasher.putBytes(buffer, 0, read);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return hasher.hash();
+        }
+
+        @Override
+        public HashCode hash(File file, long length, long lastModified) {
+            return hash(file);
+        }
+    }
+}
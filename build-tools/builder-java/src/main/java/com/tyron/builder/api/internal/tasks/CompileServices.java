@@ -1,11 +1,13 @@
 package com.tyron.builder.api.internal.tasks;
 
 import com.tyron.builder.api.internal.file.FileOperations;
+import com.tyron.builder.internal.hash.DefaultFileHasher;
 import com.tyron.builder.internal.hash.FileHasher;
 import com.tyron.builder.internal.hash.StreamHasher;
 import com.tyron.builder.internal.operations.BuildOperationExecutor;
 import com.tyron.builder.internal.reflect.service.ServiceRegistration;
 import com.tyron.builder.api.internal.tasks.compile.incremental.IncrementalCompilerFactory;
+import com.tyron.builder.api.internal.tasks.compile.javac.WarmJavaCompilerPool;
 import com.tyron.builder.api.internal.tasks.compile.incremental.analyzer.CachingClassDependenciesAnalyzer;
 import com.tyron.builder.api.internal.tasks.compile.incremental.analyzer.ClassDependenciesAnalyzer;
 import com.tyron.builder.api.internal.tasks.compile.incremental.analyzer.DefaultClassDependenciesAnalyzer;
@@ -22,6 +24,11 @@ import com.tyron.builder.internal.vfs.FileSystemAccess;
 
 public class CompileServices extends AbstractPluginServiceRegistry {
 
+    @Override
+    public void registerGlobalServices(ServiceRegistration registration) {
+        registration.addProvider(new GlobalScopeCompileServices());
+    }
+
     @Override
     public void registerGradleServices(ServiceRegistration registration) {
         registration.addProvider(new GradleScopeCompileServices());
@@ -32,6 +39,12 @@ public class CompileServices extends AbstractPluginServiceRegistry {
         registration.addProvider(new UserHomeScopeServices());
     }
 
+    private static class GlobalScopeCompileServices {
+        WarmJavaCompilerPool createWarmJavaCompilerPool(StreamHasher streamHasher) {
+            return new WarmJavaCompilerPool(new DefaultFileHasher(streamHasher));
+        }
+    }
+
     private static class GradleScopeCompileServices {
 //        void configure(ServiceRegistration registration, JdkToolsInitializer initializer) {
 //            // Hackery
@@ -17,6 +17,7 @@ import com.tyron.builder.api.internal.project.taskfactory.IncrementalTaskAction;
 import com.tyron.builder.api.internal.tasks.compile.incremental.IncrementalCompilerFactory;
 import com.tyron.builder.api.internal.tasks.compile.incremental.recomp.JavaRecompilationSpecProvider;
 import com.tyron.builder.api.internal.tasks.compile.javac.DefaultIncrementalCompilationAwareJavaCompiler;
+import com.tyron.builder.api.internal.tasks.compile.javac.WarmJavaCompilerPool;
 import com.tyron.builder.api.model.ObjectFactory;
 import com.tyron.builder.api.provider.Property;
 import com.tyron.builder.api.provider.Provider;
@@ -175,9 +176,11 @@ public class  JavaCompile extends AbstractCompile {
      }
 
     private Compiler<JavaCompileSpec> createToolchainCompiler() {
+        WarmJavaCompilerPool compilerPool = getServices().get(WarmJavaCompilerPool.class);
         return spec -> {
             JdkJavaCompiler javaCompiler = new JdkJavaCompiler(
-                    () -> new DefaultIncrementalCompilationAwareJavaCompiler(ToolProvider.getSystemJavaCompiler()));
+                    () -> new DefaultIncrementalCompilationAwareJavaCompiler(ToolProvider.getSystemJavaCompiler()),
+                    compilerPool);
             return javaCompiler.execute(spec);
         };
     }
@@ -2,6 +2,7 @@ package com.tyron.builder.api.internal.tasks.compile;
 
 import com.tyron.builder.internal.Factory;
 import com.tyron.builder.internal.classpath.DefaultClassPath;
+import com.tyron.builder.api.internal.tasks.compile.javac.WarmJavaCompilerPool;
 import com.tyron.builder.api.internal.tasks.compile.processing.AnnotationProcessorDeclaration;
 import com.tyron.builder.api.internal.tasks.compile.reflect.GradleStandardJavaFileManager;
 import com.tyron.builder.api.tasks.WorkResult;
@@ -10,12 +11,15 @@ import com.tyron.builder.language.base.internal.compile.Compiler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.Serializable;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
+import javax.annotation.Nullable;
 import javax.tools.JavaCompiler;
 import javax.tools.JavaFileManager;
 import javax.tools.JavaFileObject;
@@ -25,10 +29,20 @@ public class JdkJavaCompiler implements Compiler<JavaCompileSpec>, Serializable
 
     private static final Logger LOGGER = LoggerFactory.getLogger(JdkJavaCompiler.class);
     private final Factory<JavaCompiler> javaHomeBasedJavaCompilerFactory;
+    private final transient WarmJavaCompilerPool compilerPool;
 
 //    @Inject
     public JdkJavaCompiler(Factory<JavaCompiler> javaHomeBasedJavaCompilerFactory) {
+        this(javaHomeBasedJavaCompilerFactory, null);
+    }
+
+    /**
+     * Creates a compiler that uses the warm compilers of the given pool, when it is enabled, for the compilations
+     * that do not run annotation processors.
+     */
+    public JdkJavaCompiler(Factory<JavaCompiler> javaHomeBasedJavaCompilerFactory, @Nullable WarmJavaCompilerPool compilerPool) {
         this.javaHomeBasedJavaCompilerFactory = javaHomeBasedJavaCompilerFactory;
+        this.compilerPool = compilerPool;
     }
 
     @Override
@@ -36,33 +50,83 @@ public class JdkJavaCompiler implements Compiler<JavaCompileSpec>, Serializable
         LOGGER.info("Compiling with JDK Java compiler API.");
 
         ApiCompilerResult result = new ApiCompilerResult();
-        JavaCompiler.CompilationTask task = createCompileTask(spec, result);
-        boolean success = task.call();
+        boolean success = compile(spec, result);
         if (!success) {
             throw new CompilationFailedException();
         }
         return result;
     }
 
+    private boolean compile(JavaCompileSpec spec, ApiCompilerResult result) {
+        // the annotation processing environment is kept in the compiler context, so it can not be reused
+        if (compilerPool != null && compilerPool.isEnabled() && !spec.annotationProcessingConfigured()) {
+            List<String> options = new JavaCompilerArgumentsBuilder(spec).build();
+            WarmJavaCompilerPool.Lease lease = compilerPool.lease(options, charsetOf(spec), classpathOf(spec));
+            if (lease != null) {
+                LOGGER.debug("Compiling with a warm Java compiler.");
+                try {
+                    StandardJavaFileManager standardFileManager = lease.getFileManager();
+                    Iterable<? extends JavaFileObject> compilationUnits = standardFileManager.getJavaFileObjectsFromFiles(spec.getSourceFiles());
+                    JavaFileManager fileManager = wrap(standardFileManager, spec);
+                    JavaCompiler compiler = javaHomeBasedJavaCompilerFactory.create();
+                    return lease.call(fileManager, spec.getClasses(), compilationUnits, task -> decorate(task, compiler, spec, result).call());
+                } finally {
+                    lease.close();
+                }
+            }
+        }
+        return createCompileTask(spec, result).call();
+    }
+
     private JavaCompiler.CompilationTask createCompileTask(JavaCompileSpec spec, ApiCompilerResult result) {
         List<String> options = new JavaCompilerArgumentsBuilder(spec).build();
         JavaCompiler compiler = javaHomeBasedJavaCompilerFactory.create();
-        MinimalJavaCompileOptions compileOptions = spec.getCompileOptions();
-        Charset charset = compileOptions.getEncoding() != null ? Charset.forName(compileOptions.getEncoding()) : null;
-        StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(null, null, charset);
+        StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(null, null, charsetOf(spec));
         Iterable<? extends JavaFileObject> compilationUnits = standardFileManager.getJavaFileObjectsFromFiles(spec.getSourceFiles());
+        JavaFileManager fileManager = wrap(standardFileManager, spec);
+        JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, options, spec.getClasses(), compilationUnits);
+        task = decorate(task, compiler, spec, result);
+        task = new ResourceCleaningCompilationTask(task, fileManager);
+        return task;
+    }
+
+    private static JavaFileManager wrap(StandardJavaFileManager standardFileManager, JavaCompileSpec spec) {
         boolean hasEmptySourcepaths = false; //JavaVersion.current().isJava9Compatible() && emptySourcepathIn(options);
-        JavaFileManager fileManager = GradleStandardJavaFileManager
+        return GradleStandardJavaFileManager
                 .wrap(standardFileManager, DefaultClassPath
                 .of(spec.getAnnotationProcessorPath()), hasEmptySourcepaths);
-        JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, options, spec.getClasses(), compilationUnits);
+    }
+
+    private static JavaCompiler.CompilationTask decorate(JavaCompiler.CompilationTask task, JavaCompiler compiler, JavaCompileSpec spec, ApiCompilerResult result) {
         if (compiler instanceof IncrementalCompilationAwareJavaCompiler) {
             task = ((IncrementalCompilationAwareJavaCompiler) compiler).makeIncremental(task, result.getSourceClassesMapping(), result.getConstantsAnalysisResult(), new CompilationSourceDirs(spec));
         }
         Set<AnnotationProcessorDeclaration> annotationProcessors = spec.getEffectiveAnnotationProcessors();
-        task = new AnnotationProcessingCompileTask(task, annotationProcessors, spec.getAnnotationProcessorPath(), result.getAnnotationProcessingResult());
-        task = new ResourceCleaningCompilationTask(task, fileManager);
-        return task;
+        return new AnnotationProcessingCompileTask(task, annotationProcessors, spec.getAnnotationProcessorPath(), result.getAnnotationProcessingResult());
+    }
+
+    @Nullable
+    private static Charset charsetOf(JavaCompileSpec spec) {
+        MinimalJavaCompileOptions compileOptions = spec.getCompileOptions();
+        return compileOptions.getEncoding() != null ? Charset.forName(compileOptions.getEncoding()) : null;
+    }
+
+    /**
+     * The files whose classes a compiler context may have loaded.
+     */
+    private static List<File> classpathOf(JavaCompileSpec spec) {
+        List<File> classpath = new ArrayList<>();
+        String bootClasspath = spec.getCompileOptions().getBootClasspath();
+        if (bootClasspath != null) {
+            for (String path : bootClasspath.split(File.pathSeparator)) {
+                if (!path.isEmpty()) {
+                    classpath.add(new File(path));
+                }
+            }
+        }
+        classpath.addAll(spec.getCompileClasspath());
+        classpath.addAll(spec.getModulePath());
+        return classpath;
     }
 
     private static boolean emptySourcepathIn(List<String> options) {
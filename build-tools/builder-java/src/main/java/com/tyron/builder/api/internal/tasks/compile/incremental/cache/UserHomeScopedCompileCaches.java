@@ -13,10 +13,12 @@ import com.tyron.builder.cache.PersistentCache;
 import com.tyron.builder.cache.PersistentIndexedCacheParameters;
 import com.tyron.builder.internal.cache.StringInterner;
 import com.tyron.builder.cache.internal.InMemoryCacheDecoratorFactory;
+import com.tyron.builder.internal.hash.Hashes;
 import com.tyron.builder.cache.internal.MinimalPersistentCache;
 import com.tyron.builder.cache.scopes.GlobalScopedCache;
 
 import java.io.Closeable;
+import java.util.Collections;
 
 public class UserHomeScopedCompileCaches implements GeneralCompileCaches, Closeable {
     private final Cache<HashCode, ClassSetAnalysisData> classpathEntrySnapshotCache;
@@ -27,6 +29,8 @@ public class UserHomeScopedCompileCaches implements GeneralCompileCaches, Closea
         cache = cacheRepository
                 .cache("javaCompile")
                 .withDisplayName("Java compile cache")
+                // the entries are keyed by content hashes
+                .withProperties(Collections.singletonMap("hashFunction", Hashes.getDefaultFunction().getId()))
                 .withLockOptions(mode(FileLockManager.LockMode.OnDemand)) // Lock on demand
                 .open();
         PersistentIndexedCacheParameters<HashCode, ClassSetAnalysisData> jarCacheParameters = PersistentIndexedCacheParameters.of(
@@ -0,0 +1,192 @@
+package com.tyron.builder.api.internal.tasks.compile.javac;
+
+import com.google.common.hash.HashCode;
+import com.tyron.builder.internal.hash.FileHasher;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * The state of the files of a class path, as seen by a pooled compiler: the content hash of every file entry, and of
+ * every class file below a directory entry.
+ *
+ * <p>A hash is only reused from the previous state when the length and modification time of the file are unchanged,
+ * and the file had not been modified within {@link #MODIFICATION_TIME_RESOLUTION} of the previous capture. A file
+ * rewritten right after a capture, such as the output of a fast incremental compile, may keep both its length and its
+ * modification time, so it is hashed again.</p>
+ */
+class ClasspathState {
+    /**
+     * The resolution of file modification times assumed, which is coarse on some file systems.
+     */
+    static final long MODIFICATION_TIME_RESOLUTION = 2000;
+
+    private static final String CLASS_FILE_SUFFIX = ".class";
+
+    private final long timestamp;
+    private final Map<File, FileState> files;
+    private final Map<File, Map<String, FileState>> directories;
+
+    private ClasspathState(long timestamp, Map<File, FileState> files, Map<File, Map<String, FileState>> directories) {
+        this.timestamp = timestamp;
+        this.files = files;
+        this.directories = directories;
+    }
+
+    /**
+     * Captures the state of the given class path.
+     *
+     * @param previous a previous state of the class path, whose hashes are reused for the files that have not changed
+     */
+    static ClasspathState capture(Collection<File> classpath, @Nullable ClasspathState previous, FileHasher hasher) {
+        long timestamp = System.currentTimeMillis();
+        Map<File, FileState> files = new LinkedHashMap<>();
+        Map<File, Map<String, FileState>> directories = new LinkedHashMap<>();
+        for (File entry : classpath) {
+            if (entry.isDirectory()) {
+                Map<String, FileState> previousClassFiles = previous == null ? null : previous.directories.get(entry);
+                Map<String, FileState> classFiles = new HashMap<>();
+                visitClassFiles(entry, "", classFiles, previousClassFiles, previous, hasher);
+                directories.put(entry, classFiles);
+            } else if (entry.isFile()) {
+                FileState previousState = previous == null ? null : previous.files.get(entry);
+                files.put(entry, FileState.of(entry, previousState, previous, hasher));
+            } else {
+                files.put(entry, FileState.MISSING);
+            }
+        }
+        return new ClasspathState(timestamp, files, directories);
+    }
+
+    private static void visitClassFiles(File dir, String prefix, Map<String, FileState> classFiles,
+                                        @Nullable Map<String, FileState> previousClassFiles, @Nullable ClasspathState previous,
+                                        FileHasher hasher) {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            String name = child.getName();
+            if (child.isDirectory()) {
+                visitClassFiles(child, prefix + name + "/", classFiles, previousClassFiles, previous, hasher);
+            } else if (name.endsWith(CLASS_FILE_SUFFIX)) {
+                String path = prefix + name.substring(0, name.length() - CLASS_FILE_SUFFIX.length());
+                FileState previousState = previousClassFiles == null ? null : previousClassFiles.get(path);
+                classFiles.put(path, FileState.of(child, previousState, previous, hasher));
+            }
+        }
+    }
+
+    /**
+     * Returns the class files that have changed since the given state was captured, or null when the files of the class
+     * path have changed in a way that can not be expressed as changed class files, for example when a jar has changed.
+     */
+    @Nullable
+    Changes changesSince(ClasspathState previous) {
+        if (!files.equals(previous.files) || !directories.keySet().equals(previous.directories.keySet())) {
+            return null;
+        }
+        List<String> added = new ArrayList<>();
+        List<String> changed = new ArrayList<>();
+        for (Map.Entry<File, Map<String, FileState>> entry : directories.entrySet()) {
+            Map<String, FileState> current = entry.getValue();
+            Map<String, FileState> before = previous.directories.get(entry.getKey());
+            for (Map.Entry<String, FileState> classFile : current.entrySet()) {
+                FileState previousState = before.get(classFile.getKey());
+                if (previousState == null) {
+                    added.add(classFile.getKey());
+                } else if (!previousState.equals(classFile.getValue())) {
+                    changed.add(classFile.getKey());
+                }
+            }
+            for (String path : before.keySet()) {
+                if (!current.containsKey(path)) {
+                    changed.add(path);
+                }
+            }
+        }
+        return new Changes(added, changed);
+    }
+
+    /**
+     * Class files that have changed between two states of a class path, as paths relative to their class path entry
+     * without the {@code .class} suffix.
+     */
+    static class Changes {
+        private final List<String> added;
+        private final List<String> changed;
+
+        private Changes(List<String> added, List<String> changed) {
+            this.added = added;
+            this.changed = changed;
+        }
+
+        /**
+         * The class files that did not exist before.
+         */
+        List<String> getAdded() {
+            return added;
+        }
+
+        /**
+         * The class files that have been modified or removed.
+         */
+        List<String> getChanged() {
+            return changed;
+        }
+
+        boolean isEmpty() {
+            return added.isEmpty() && changed.isEmpty();
+        }
+    }
+
+    private static class FileState {
+        static final FileState MISSING = new FileState(-1, 0, null);
+
+        private final long length;
+        private final long lastModified;
+        private final HashCode hash;
+
+        private FileState(long length, long lastModified, @Nullable HashCode hash) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+
+        static FileState of(File file, @Nullable FileState previousState, @Nullable ClasspathState previous, FileHasher hasher) {
+            long length = file.length();
+            long lastModified = file.lastModified();
+            if (previousState != null
+                    && previousState.length == length
+                    && previousState.lastModified == lastModified
+                    && lastModified + MODIFICATION_TIME_RESOLUTION <= previous.timestamp) {
+                return previousState;
+            }
+            return new FileState(length, lastModified, hasher.hash(file, length, lastModified));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            FileState that = (FileState) o;
+            return length == that.length && (hash == null ? that.hash == null : hash.equals(that.hash));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash == null ? 0 : hash.hashCode();
+        }
+    }
+}
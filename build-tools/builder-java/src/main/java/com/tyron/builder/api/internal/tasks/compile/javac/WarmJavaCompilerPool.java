@@ -0,0 +1,301 @@
+package com.tyron.builder.api.internal.tasks.compile.javac;
+
+import com.sun.source.util.JavacTask;
+import com.sun.tools.javac.api.BasicJavacTask;
+import com.sun.tools.javac.api.JavacTaskPool;
+import com.sun.tools.javac.api.JavacTool;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Symtab;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Names;
+import com.tyron.builder.internal.concurrent.CompositeStoppable;
+import com.tyron.builder.internal.hash.FileHasher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+
+/**
+ * Keeps the compiler contexts and file managers of recent compilations, so consecutive compilations with the same
+ * options do not have to load the classes of the boot class path and the class path again.
+ *
+ * <p>Entries are keyed by the compiler options, which include the boot class path and the class path, and the source
+ * encoding. An entry is used by one compilation at a time. It is discarded when the content of a file of its class path
+ * changes, as seen by {@link ClasspathState}, except
+ * for class files below a class path directory: those only discard the entry when the compiler has already loaded the
+ * changed class, or listed the package of a new class.</p>
+ *
+ * <p>The pool is disabled unless the {@value #WARM_COMPILER_PROPERTY} system property is set to {@code true}.</p>
+ */
+public class WarmJavaCompilerPool implements Closeable {
+    public static final String WARM_COMPILER_PROPERTY = "com.tyron.builder.compile.warmJavac";
+    public static final int DEFAULT_MAX_ENTRIES = 2;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WarmJavaCompilerPool.class);
+
+    private final FileHasher fileHasher;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private boolean closed;
+
+    public WarmJavaCompilerPool(FileHasher fileHasher) {
+        this(fileHasher, Boolean.getBoolean(WARM_COMPILER_PROPERTY), DEFAULT_MAX_ENTRIES);
+    }
+
+    public WarmJavaCompilerPool(FileHasher fileHasher, boolean enabled, int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1: " + maxEntries);
+        }
+        this.fileHasher = fileHasher;
+        this.enabled = enabled && isSupported();
+        this.maxEntries = maxEntries;
+    }
+
+    private static boolean isSupported() {
+        try {
+            Class.forName("com.sun.tools.javac.api.JavacTaskPool");
+            return true;
+        } catch (ClassNotFoundException e) {
+            LOGGER.debug("The Java compiler does not support reusing compiler contexts.");
+            return false;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Checks out the entry for the given options, creating it when there is none.
+     *
+     * @param options the compiler options
+     * @param charset the encoding of the source files, or null for the platform encoding
+     * @param classpath the files of the boot class path and the class path of the compilation
+     * @return the lease of the entry, or null when the pool is disabled or the entry is used by another compilation
+     */
+    @Nullable
+    public synchronized Lease lease(List<String> options, @Nullable Charset charset, Collection<File> classpath) {
+        if (!enabled || closed) {
+            return null;
+        }
+        Key key = new Key(options, charset);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.leased) {
+            return null;
+        }
+        ClasspathState classpathState = ClasspathState.capture(classpath, entry == null ? null : entry.classpathState, fileHasher);
+        ClasspathState.Changes changes = null;
+        if (entry != null) {
+            changes = classpathState.changesSince(entry.classpathState);
+            if (changes == null) {
+                LOGGER.debug("Discarding warm Java compiler as its class path has changed.");
+                entries.remove(key);
+                entry.close();
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            entry = new Entry(charset);
+            entries.put(key, entry);
+            evictLeastRecentlyUsed();
+        }
+        entry.leased = true;
+        return new Lease(key, entry, classpath, classpathState, changes);
+    }
+
+    private void evictLeastRecentlyUsed() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (!entry.leased) {
+                iterator.remove();
+                entry.close();
+            }
+        }
+    }
+
+    private synchronized void release(Key key, Entry entry, @Nullable ClasspathState classpathState) {
+        entry.leased = false;
+        if (classpathState == null || closed) {
+            if (entries.get(key) == entry) {
+                entries.remove(key);
+            }
+            entry.close();
+        } else {
+            entry.classpathState = classpathState;
+            evictLeastRecentlyUsed();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (Entry entry : entries.values()) {
+            if (!entry.leased) {
+                entry.close();
+            }
+        }
+        entries.clear();
+    }
+
+    /**
+     * An entry of the pool, checked out for one compilation. The lease must be closed once the compilation has finished.
+     */
+    public class Lease implements Closeable {
+        private final Key key;
+        private final Entry entry;
+        private final Collection<File> classpath;
+        private final ClasspathState classpathState;
+        private ClasspathState.Changes changes;
+        private boolean valid = true;
+
+        private Lease(Key key, Entry entry, Collection<File> classpath, ClasspathState classpathState, @Nullable ClasspathState.Changes changes) {
+            this.key = key;
+            this.entry = entry;
+            this.classpath = classpath;
+            this.classpathState = classpathState;
+            this.changes = changes;
+        }
+
+        /**
+         * The file manager of this entry. It is kept open between compilations, so it must not be closed by the caller.
+         */
+        public StandardJavaFileManager getFileManager() {
+            return entry.fileManager;
+        }
+
+        /**
+         * Creates the compilation task with a compiler context of this entry and runs the given action with it. The task
+         * is only valid while the action runs.
+         */
+        public Boolean call(JavaFileManager fileManager,
+                            @Nullable Iterable<String> classes,
+                            Iterable<? extends JavaFileObject> compilationUnits,
+                            Function<JavaCompiler.CompilationTask, Boolean> action) {
+            try {
+                try {
+                    return entry.taskPool.getTask(null, fileManager, null, key.options, classes, compilationUnits, task -> {
+                        if (isStale(task)) {
+                            throw new StaleContextException();
+                        }
+                        return action.apply(task);
+                    });
+                } catch (StaleContextException e) {
+                    LOGGER.debug("Discarding warm Java compiler context as classes it has loaded have changed.");
+                    entry.resetContexts();
+                    changes = null;
+                    return entry.taskPool.getTask(null, fileManager, null, key.options, classes, compilationUnits, action::apply);
+                }
+            } catch (RuntimeException | Error e) {
+                // the context may be left in an inconsistent state
+                valid = false;
+                throw e;
+            }
+        }
+
+        /**
+         * Returns true when the context of the given task has loaded a class whose class file has changed since the
+         * previous compilation, or has listed the package of a class file that has been added since.
+         */
+        private boolean isStale(JavacTask task) {
+            if (changes == null || changes.isEmpty()) {
+                return false;
+            }
+            Context context = ((BasicJavacTask) task).getContext();
+            Symtab symtab = Symtab.instance(context);
+            Names names = Names.instance(context);
+            for (String path : changes.getChanged()) {
+                if (symtab.getClassesForName(names.fromString(path.replace('/', '.'))).iterator().hasNext()) {
+                    return true;
+                }
+            }
+            for (String path : changes.getAdded()) {
+                int separator = path.lastIndexOf('/');
+                String packageName = separator < 0 ? "" : path.substring(0, separator).replace('/', '.');
+                for (Symbol.PackageSymbol packageSymbol : symtab.getPackagesForName(names.fromString(packageName))) {
+                    if (packageSymbol.members_field != null) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Returns the entry to the pool, recording the state of the class path after the compilation.
+         */
+        @Override
+        public void close() {
+            release(key, entry, valid ? ClasspathState.capture(classpath, classpathState, fileHasher) : null);
+        }
+    }
+
+    private static class StaleContextException extends RuntimeException {
+        StaleContextException() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static class Entry {
+        private final StandardJavaFileManager fileManager;
+        private JavacTaskPool taskPool = new JavacTaskPool(1);
+        private ClasspathState classpathState;
+        private boolean leased;
+
+        private Entry(@Nullable Charset charset) {
+            this.fileManager = JavacTool.create().getStandardFileManager(null, null, charset);
+        }
+
+        void resetContexts() {
+            taskPool = new JavacTaskPool(1);
+        }
+
+        void close() {
+            CompositeStoppable.stoppable(fileManager).stop();
+        }
+    }
+
+    private static class Key {
+        private final List<String> options;
+        private final String charset;
+
+        private Key(List<String> options, @Nullable Charset charset) {
+            this.options = new ArrayList<>(options);
+            this.charset = charset == null ? null : charset.name();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return options.equals(key.options) && (charset == null ? key.charset == null : charset.equals(key.charset));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * options.hashCode() + (charset == null ? 0 : charset.hashCode());
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.tyron.builder.api.internal.tasks.compile.javac;
+
+import com.tyron.builder.internal.hash.DefaultFileHasher;
+import com.tyron.builder.internal.hash.DefaultStreamHasher;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Compares consecutive incremental compiles with a new compiler per run and with a warm pooled compiler. Not a unit
+ * test, run it with the number of runs and, optionally, a jar to add to the class path.
+ * <p>
+ * Each run changes one class of a 60 class project and recompiles it, with the output directory of the previous runs
+ * on the class path, as the incremental compiler does.
+ */
+public class WarmJavaCompilerPoolBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+        File directory = Files.createTempDirectory("warm-javac").toFile();
+        File sources = new File(directory, "src");
+        File output = new File(directory, "out");
+        if (!sources.mkdirs() || !output.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        List<File> classpath = new ArrayList<>();
+        if (args.length > 1) {
+            classpath.add(new File(args[1]));
+        }
+        classpath.add(output);
+
+        List<File> allSources = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            allSources.add(write(sources, "C" + i, "package p; import java.util.*; public class C" + i
+                    + " { Map<String, List<Integer>> m = new HashMap<>(); public int foo() { return new A().foo() + m.size(); } }"));
+        }
+        allSources.add(write(sources, "A", "package p; public class A { public int foo() { return 0; } }"));
+
+        WarmJavaCompilerPool pool = new WarmJavaCompilerPool(new DefaultFileHasher(new DefaultStreamHasher()), true, 1);
+        try {
+            compile(null, output, classpath, allSources);
+            for (int i = 0; i < 2; i++) {
+                System.out.printf("cold compiler: %.1fms per run%n", run(null, sources, output, classpath, runs));
+                System.out.printf("warm compiler: %.1fms per run%n", run(pool, sources, output, classpath, runs));
+            }
+        } finally {
+            pool.close();
+        }
+    }
+
+    /**
+     * Returns the mean duration of the runs after the first one.
+     */
+    private static double run(WarmJavaCompilerPool pool, File sources, File output, List<File> classpath, int runs) throws IOException {
+        long total = 0;
+        for (int i = 0; i < runs; i++) {
+            File changed = write(sources, "A", "package p; public class A { public int foo() { return " + i + "; } }");
+            long start = System.nanoTime();
+            compile(pool, output, classpath, Collections.singletonList(changed));
+            if (i > 0) {
+                total += System.nanoTime() - start;
+            }
+        }
+        return total / 1e6 / Math.max(1, runs - 1);
+    }
+
+    private static void compile(WarmJavaCompilerPool pool, File output, List<File> classpath, List<File> sources) throws IOException {
+        StringBuilder path = new StringBuilder();
+        for (File file : classpath) {
+            path.append(path.length() == 0 ? "" : File.pathSeparator).append(file.getPath());
+        }
+        List<String> options = Arrays.asList("-d", output.getPath(), "-classpath", path.toString(), "-proc:none", "-implicit:none");
+        boolean success;
+        if (pool != null) {
+            WarmJavaCompilerPool.Lease lease = pool.lease(options, null, classpath);
+            try {
+                StandardJavaFileManager fileManager = lease.getFileManager();
+                success = lease.call(fileManager, null, fileManager.getJavaFileObjectsFromFiles(sources), JavaCompiler.CompilationTask::call);
+            } finally {
+                lease.close();
+            }
+        } else {
+            JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+            try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null)) {
+                success = compiler.getTask(null, fileManager, null, options, null, fileManager.getJavaFileObjectsFromFiles(sources)).call();
+            }
+        }
+        if (!success) {
+            throw new IllegalStateException("Compilation failed");
+        }
+    }
+
+    private static File write(File sources, String name, String text) throws IOException {
+        File file = new File(sources, name + ".java");
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,124 @@
+package com.tyron.builder.api.internal.tasks.compile.javac;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.tyron.builder.internal.hash.DefaultFileHasher;
+import com.tyron.builder.internal.hash.DefaultStreamHasher;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+public class WarmJavaCompilerPoolTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private WarmJavaCompilerPool pool;
+    private File sources;
+    private File classes;
+    private File output;
+
+    @Before
+    public void setUp() throws IOException {
+        pool = new WarmJavaCompilerPool(new DefaultFileHasher(new DefaultStreamHasher()), true, 1);
+        sources = temporaryFolder.newFolder("src");
+        classes = temporaryFolder.newFolder("classes");
+        output = temporaryFolder.newFolder("out");
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    public void signatureChangeIsSeenByDependents() throws IOException {
+        compileLibrary("Lib", "package p; public class Lib { public static int value() { return 1; } }");
+        File user = source("User", "package q; public class User { int x = p.Lib.value(); }");
+        assertTrue(compileWithPool(user));
+
+        compileLibrary("Lib", "package p; public class Lib { public static String value() { return \"1\"; } }");
+
+        assertFalse(compileWithPool(user));
+    }
+
+    @Test
+    public void deletedClassNoLongerResolves() throws IOException {
+        compileLibrary("Lib", "package p; public class Lib {}");
+        File user = source("User", "package q; public class User { p.Lib lib; }");
+        assertTrue(compileWithPool(user));
+
+        assertTrue(new File(classes, "p/Lib.class").delete());
+
+        assertFalse(compileWithPool(user));
+    }
+
+    @Test
+    public void newClassInListedPackageIsVisible() throws IOException {
+        compileLibrary("Lib", "package p; public class Lib {}");
+        assertTrue(compileWithPool(source("User", "package q; public class User { p.Lib lib; }")));
+
+        compileLibrary("Other", "package p; public class Other {}");
+
+        assertTrue(compileWithPool(source("OtherUser", "package q; public class OtherUser { p.Other other; }")));
+    }
+
+    @Test
+    public void contentChangeWithSameLengthAndModificationTimeIsSeen() throws IOException {
+        compileLibrary("Lib", "package p; public class Lib { public static int alpha() { return 1; } }");
+        File classFile = new File(classes, "p/Lib.class");
+        long length = classFile.length();
+        long lastModified = classFile.lastModified();
+        File user = source("User", "package q; public class User { int x = p.Lib.alpha(); }");
+        assertTrue(compileWithPool(user));
+
+        compileLibrary("Lib", "package p; public class Lib { public static int gamma() { return 1; } }");
+        assertTrue(classFile.setLastModified(lastModified));
+        assertEquals(length, classFile.length());
+
+        assertFalse(compileWithPool(user));
+    }
+
+    private File source(String name, String text) throws IOException {
+        File file = new File(sources, name + ".java");
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private void compileLibrary(String name, String text) throws IOException {
+        File file = source(name, text);
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null)) {
+            List<String> options = Arrays.asList("-d", classes.getPath(), "-proc:none");
+            assertTrue(compiler.getTask(null, fileManager, null, options, null, fileManager.getJavaFileObjects(file)).call());
+        }
+    }
+
+    private boolean compileWithPool(File source) {
+        List<String> options = Arrays.asList("-d", output.getPath(), "-classpath", classes.getPath(), "-proc:none", "-implicit:none");
+        WarmJavaCompilerPool.Lease lease = pool.lease(options, null, Collections.singletonList(classes));
+        try {
+            StandardJavaFileManager fileManager = lease.getFileManager();
+            return lease.call(fileManager, null, fileManager.getJavaFileObjects(source), JavaCompiler.CompilationTask::call);
+        } finally {
+            lease.close();
+        }
+    }
+}
@@ -143,6 +143,16 @@ public abstract class LoggingServiceRegistry extends DefaultServiceRegistry {
         return new OutputEventRenderer(Time.clock());
     }
 
+    @Override
+    public void close() {
+        try {
+            super.close();
+        } finally {
+            // Not a service, so it is not stopped with them
+            renderer.stop();
+        }
+    }
+
     private static class CommandLineLogging extends LoggingServiceRegistry {
     }
 
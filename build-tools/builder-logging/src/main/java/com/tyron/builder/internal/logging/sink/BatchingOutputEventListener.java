@@ -0,0 +1,209 @@
+package com.tyron.builder.internal.logging.sink;
+
+import com.tyron.builder.internal.UncheckedException;
+import com.tyron.builder.internal.concurrent.Stoppable;
+import com.tyron.builder.internal.logging.events.EndOutputEvent;
+import com.tyron.builder.internal.logging.events.FlushOutputEvent;
+import com.tyron.builder.internal.logging.events.OutputEvent;
+import com.tyron.builder.internal.logging.events.OutputEventListener;
+import com.tyron.builder.internal.logging.events.ProgressCompleteEvent;
+import com.tyron.builder.internal.logging.events.ProgressEvent;
+import com.tyron.builder.internal.logging.events.UpdateNowEvent;
+import com.tyron.builder.internal.operations.OperationIdentifier;
+import com.tyron.builder.internal.time.Clock;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queues output events and forwards them to a listener in batches, once per frame interval, from a rendering thread.
+ * The threads that generate output only add to the queue, so a slow destination does not slow down the build.
+ *
+ * <ul>
+ *     <li>A {@link ProgressEvent} replaces a queued progress event of the same operation that has not been forwarded yet.</li>
+ *     <li>When more than the maximum number of events are queued, the oldest queued progress event is discarded. When there is
+ *     no progress event left to discard, the thread adding the event forwards the queued events itself.</li>
+ *     <li>A {@link FlushOutputEvent} or an {@link EndOutputEvent} is queued like other events, and it is forwarded, after the
+ *     events queued before it, before {@link #onOutput(OutputEvent)} returns.</li>
+ *     <li>Each batch of events is followed by an {@link UpdateNowEvent}, which marks the end of the batch for the listener.</li>
+ * </ul>
+ *
+ * <p>Events are forwarded in the order they were received, and never concurrently. A failure to forward events on the
+ * rendering thread is rethrown to the next thread that generates output.</p>
+ */
+public class BatchingOutputEventListener implements OutputEventListener, Stoppable {
+    private final OutputEventListener listener;
+    private final Clock clock;
+    private final int maxQueued;
+    private final ScheduledExecutorService executor;
+
+    private final Object lock = new Object();
+    private final ArrayDeque<QueuedEvent> queue = new ArrayDeque<QueuedEvent>();
+    private final ArrayDeque<QueuedEvent> queuedProgress = new ArrayDeque<QueuedEvent>();
+    private final Map<OperationIdentifier, QueuedEvent> latestProgress = new HashMap<OperationIdentifier, QueuedEvent>();
+    private Throwable failure;
+
+    // Held while events are forwarded, so batches are forwarded one at a time and in order
+    private final Object renderLock = new Object();
+
+    public BatchingOutputEventListener(OutputEventListener listener, Clock clock, int frameIntervalMs, int maxQueued) {
+        this.listener = listener;
+        this.clock = clock;
+        this.maxQueued = maxQueued;
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Build output");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    renderQueued();
+                } catch (Throwable t) {
+                    synchronized (lock) {
+                        failure = t;
+                    }
+                }
+            }
+        }, frameIntervalMs, frameIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void onOutput(OutputEvent event) {
+        if (queue(event)) {
+            renderQueued();
+        }
+    }
+
+    /**
+     * Adds the event to the queue without forwarding any events, so it can be called while holding locks that a
+     * listener may need.
+     *
+     * @return true when the caller should forward the queued events with {@link #renderQueued()}, because the event
+     * is a {@link FlushOutputEvent} or an {@link EndOutputEvent}, or because the queue is full
+     */
+    public boolean queue(OutputEvent event) {
+        synchronized (lock) {
+            rethrowFailure();
+            if (event instanceof FlushOutputEvent || event instanceof EndOutputEvent) {
+                // Forwarded right away, so no event is discarded to make room for it
+                queue.add(new QueuedEvent(event));
+                return true;
+            }
+            return enqueue(event);
+        }
+    }
+
+    /**
+     * Adds the event to the queue.
+     *
+     * @return true when the queue is full, and the caller should forward the queued events
+     */
+    private boolean enqueue(OutputEvent event) {
+        if (event instanceof ProgressEvent) {
+            OperationIdentifier operationId = ((ProgressEvent) event).getProgressOperationId();
+            QueuedEvent queued = latestProgress.get(operationId);
+            if (queued != null) {
+                queued.event = event;
+                return false;
+            }
+            queued = new QueuedEvent(event);
+            queue.add(queued);
+            queuedProgress.add(queued);
+            latestProgress.put(operationId, queued);
+        } else {
+            if (event instanceof ProgressCompleteEvent) {
+                latestProgress.remove(((ProgressCompleteEvent) event).getProgressOperationId());
+            }
+            queue.add(new QueuedEvent(event));
+        }
+
+        if (queue.size() <= maxQueued) {
+            return false;
+        }
+        QueuedEvent oldestProgress = queuedProgress.poll();
+        if (oldestProgress == null) {
+            return true;
+        }
+        queue.remove(oldestProgress);
+        OperationIdentifier operationId = ((ProgressEvent) oldestProgress.event).getProgressOperationId();
+        if (latestProgress.get(operationId) == oldestProgress) {
+            latestProgress.remove(operationId);
+        }
+        return false;
+    }
+
+    /**
+     * Forwards the queued events, then runs the given action while no events are forwarded. Used to send events directly
+     * to the listener, or to change it, without interleaving with a batch.
+     */
+    public void renderQueuedAndRun(Runnable action) {
+        synchronized (renderLock) {
+            renderQueued();
+            action.run();
+        }
+    }
+
+    /**
+     * Forwards the queued events. When another thread is forwarding events, waits until it has finished, so the events
+     * queued before this call have been forwarded when it returns.
+     */
+    public void renderQueued() {
+        synchronized (renderLock) {
+            List<OutputEvent> batch;
+            synchronized (lock) {
+                if (queue.isEmpty()) {
+                    return;
+                }
+                batch = new ArrayList<OutputEvent>(queue.size());
+                for (QueuedEvent queued : queue) {
+                    batch.add(queued.event);
+                }
+                queue.clear();
+                queuedProgress.clear();
+                latestProgress.clear();
+            }
+            for (OutputEvent event : batch) {
+                listener.onOutput(event);
+            }
+            listener.onOutput(new UpdateNowEvent(clock.getCurrentTime()));
+        }
+    }
+
+    private void rethrowFailure() {
+        if (failure != null) {
+            Throwable t = failure;
+            failure = null;
+            throw UncheckedException.throwAsUncheckedException(t);
+        }
+    }
+
+    /**
+     * Forwards the queued events and stops the rendering thread. Events received afterwards are forwarded once the queue
+     * is full or flushed.
+     */
+    @Override
+    public void stop() {
+        executor.shutdown();
+        renderQueued();
+    }
+
+    private static class QueuedEvent {
+        private OutputEvent event;
+
+        private QueuedEvent(OutputEvent event) {
+            this.event = event;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.tyron.builder.internal.logging.sink;
 
 import com.tyron.builder.internal.Factory;
+import com.tyron.builder.internal.concurrent.Stoppable;
 import com.tyron.builder.internal.event.ListenerBroadcast;
 import com.tyron.builder.internal.logging.events.OutputEvent;
 import com.tyron.builder.internal.logging.events.OutputEventListener;
@@ -29,6 +30,7 @@ import com.tyron.builder.internal.logging.events.LogLevelChangeEvent;
 import com.tyron.builder.internal.logging.events.ProgressCompleteEvent;
 import com.tyron.builder.internal.logging.events.ProgressEvent;
 import com.tyron.builder.internal.logging.events.ProgressStartEvent;
+import com.tyron.builder.internal.logging.events.UpdateNowEvent;
 import com.tyron.builder.internal.logging.format.PrettyPrefixedLogHeaderFormatter;
 import com.tyron.builder.internal.logging.StreamBackedStandardOutputListener;
 import com.tyron.builder.internal.logging.StreamingStyledTextOutput;
@@ -44,14 +46,28 @@ import java.util.concurrent.atomic.AtomicReference;
 /**
  * A {@link OutputEventListener} implementation which renders output events to various
  * destinations. This implementation is thread-safe.
+ *
+ * <p>Events are rendered in batches by a {@link BatchingOutputEventListener}, once every {@value #DEFAULT_FRAME_INTERVAL_MS}
+ * milliseconds by default. The interval can be changed with the {@value #FRAME_INTERVAL_PROPERTY} system property, and
+ * setting it to 0 renders every event on the thread that generates it. The renderer must be stopped to stop the rendering
+ * thread.</p>
  */
 @ThreadSafe
-public class OutputEventRenderer implements OutputEventListener, LoggingRouter {
+public class OutputEventRenderer implements OutputEventListener, LoggingRouter, Stoppable {
+    public static final String FRAME_INTERVAL_PROPERTY = "com.tyron.builder.logging.frameInterval";
+    public static final int DEFAULT_FRAME_INTERVAL_MS = 50;
+    private static final int MAX_QUEUED_EVENTS = 10000;
+
     private final Object lock = new Object();
+    // Held while an event is transformed and queued, but never while events are rendered, as a listener may generate output
+    private final Object queueLock = new Object();
+    private boolean renderRequested;
     private final AtomicReference<LogLevel> logLevel = new AtomicReference<LogLevel>(LogLevel.LIFECYCLE);
     private final Clock clock;
     private final ListenerBroadcast<OutputEventListener> formatters = new ListenerBroadcast<OutputEventListener>(OutputEventListener.class);
-    private final OutputEventTransformer transformer = new OutputEventTransformer(formatters.getSource());
+    @Nullable
+    private final BatchingOutputEventListener batcher;
+    private final OutputEventTransformer transformer;
 
     private ColorMap colourMap;
     private OutputStream originalStdOut;
@@ -64,7 +80,25 @@ public class OutputEventRenderer implements OutputEventListener, LoggingRouter {
     private ListenerBroadcast<StandardOutputListener> userStderrListeners;
 
     public OutputEventRenderer(final Clock clock) {
+        this(clock, Integer.getInteger(FRAME_INTERVAL_PROPERTY, DEFAULT_FRAME_INTERVAL_MS));
+    }
+
+    public OutputEventRenderer(final Clock clock, int frameIntervalMs) {
         this.clock = clock;
+        this.batcher = frameIntervalMs > 0 ? new BatchingOutputEventListener(formatters.getSource(), clock, frameIntervalMs, MAX_QUEUED_EVENTS) : null;
+        this.transformer = new OutputEventTransformer(batcher != null ? new QueueingListener() : formatters.getSource());
+    }
+
+    /**
+     * Runs an action that sends events directly to the formatters, or changes them, after the events queued for them
+     * have been rendered.
+     */
+    private void withFormatters(Runnable action) {
+        if (batcher != null) {
+            batcher.renderQueuedAndRun(action);
+        } else {
+            action.run();
+        }
     }
 
     @Override
@@ -95,14 +129,24 @@ public class OutputEventRenderer implements OutputEventListener, LoggingRouter {
         }
     }
 
-    private void addChain(OutputEventListener listener) {
-        listener.onOutput(new LogLevelChangeEvent(logLevel.get()));
-        formatters.add(listener);
+    private void addChain(final OutputEventListener listener) {
+        withFormatters(new Runnable() {
+            @Override
+            public void run() {
+                listener.onOutput(new LogLevelChangeEvent(logLevel.get()));
+                formatters.add(listener);
+            }
+        });
     }
 
-    private void removeChain(OutputEventListener listener) {
-        formatters.remove(listener);
-        listener.onOutput(new EndOutputEvent());
+    private void removeChain(final OutputEventListener listener) {
+        withFormatters(new Runnable() {
+            @Override
+            public void run() {
+                formatters.remove(listener);
+                listener.onOutput(new EndOutputEvent());
+            }
+        });
     }
 
     public ColorMap getColourMap() {
@@ -322,12 +366,19 @@ public class OutputEventRenderer implements OutputEventListener, LoggingRouter {
             if (userStdoutListeners == null) {
                 userStdoutListeners = new ListenerBroadcast<StandardOutputListener>(StandardOutputListener.class);
                 userStderrListeners = new ListenerBroadcast<StandardOutputListener>(StandardOutputListener.class);
-                final OutputEventListener stdOutChain = new StyledTextOutputBackedRenderer(new StreamingStyledTextOutput(userStdoutListeners.getSource()));
-                final OutputEventListener stdErrChain = new StyledTextOutputBackedRenderer(new StreamingStyledTextOutput(userStderrListeners.getSource()));
+                // When events are batched, hand the text of a whole batch to the listeners at once
+                final BufferedStandardOutputListener stdOutBuffer = new BufferedStandardOutputListener(userStdoutListeners.getSource(), batcher != null);
+                final BufferedStandardOutputListener stdErrBuffer = new BufferedStandardOutputListener(userStderrListeners.getSource(), batcher != null);
+                final OutputEventListener stdOutChain = new StyledTextOutputBackedRenderer(new StreamingStyledTextOutput(stdOutBuffer));
+                final OutputEventListener stdErrChain = new StyledTextOutputBackedRenderer(new StreamingStyledTextOutput(stdErrBuffer));
                 userListenerChain = new BuildLogLevelFilterRenderer(
                         new ProgressLogEventGenerator(new OutputEventListener() {
                             @Override
                             public void onOutput(OutputEvent event) {
+                                if (event instanceof UpdateNowEvent || event instanceof FlushOutputEvent || event instanceof EndOutputEvent) {
+                                    stdOutBuffer.flush();
+                                    stdErrBuffer.flush();
+                                }
                                 // Do not forward events for rendering when there are no listeners to receive
                                 if (event instanceof LogLevelChangeEvent) {
                                     stdOutChain.onOutput(event);
@@ -353,18 +404,28 @@ public class OutputEventRenderer implements OutputEventListener, LoggingRouter {
     }
 
     @Override
-    public void addStandardErrorListener(StandardOutputListener listener) {
+    public void addStandardErrorListener(final StandardOutputListener listener) {
         synchronized (lock) {
-            assertUserListenersEnabled();
-            userStderrListeners.add(listener);
+            withFormatters(new Runnable() {
+                @Override
+                public void run() {
+                    assertUserListenersEnabled();
+                    userStderrListeners.add(listener);
+                }
+            });
         }
     }
 
     @Override
-    public void addStandardOutputListener(StandardOutputListener listener) {
+    public void addStandardOutputListener(final StandardOutputListener listener) {
         synchronized (lock) {
-            assertUserListenersEnabled();
-            userStdoutListeners.add(listener);
+            withFormatters(new Runnable() {
+                @Override
+                public void run() {
+                    assertUserListenersEnabled();
+                    userStdoutListeners.add(listener);
+                }
+            });
         }
     }
 
@@ -379,18 +440,28 @@ public class OutputEventRenderer implements OutputEventListener, LoggingRouter {
     }
 
     @Override
-    public void removeStandardOutputListener(StandardOutputListener listener) {
+    public void removeStandardOutputListener(final StandardOutputListener listener) {
         synchronized (lock) {
-            assertUserListenersEnabled();
-            userStdoutListeners.remove(listener);
+            withFormatters(new Runnable() {
+                @Override
+                public void run() {
+                    assertUserListenersEnabled();
+                    userStdoutListeners.remove(listener);
+                }
+            });
         }
     }
 
     @Override
-    public void removeStandardErrorListener(StandardOutputListener listener) {
+    public void removeStandardErrorListener(final StandardOutputListener listener) {
         synchronized (lock) {
-            assertUserListenersEnabled();
-            userStderrListeners.remove(listener);
+            withFormatters(new Runnable() {
+                @Override
+                public void run() {
+                    assertUserListenersEnabled();
+                    userStderrListeners.remove(listener);
+                }
+            });
         }
     }
 
@@ -412,8 +483,30 @@ public class OutputEventRenderer implements OutputEventListener, LoggingRouter {
             }
             this.logLevel.set(newLogLevel);
         }
-        synchronized (lock) {
+        if (batcher == null) {
+            synchronized (lock) {
+                transformer.onOutput(event);
+            }
+            return;
+        }
+        boolean render;
+        synchronized (queueLock) {
+            renderRequested = false;
             transformer.onOutput(event);
+            render = renderRequested;
+        }
+        if (render) {
+            batcher.renderQueued();
+        }
+    }
+
+    /**
+     * Renders the queued events and stops the rendering thread.
+     */
+    @Override
+    public void stop() {
+        if (batcher != null) {
+            batcher.stop();
         }
     }
 
@@ -421,6 +514,18 @@ public class OutputEventRenderer implements OutputEventListener, LoggingRouter {
         return event instanceof ProgressStartEvent || event instanceof ProgressEvent || event instanceof ProgressCompleteEvent;
     }
 
+    /**
+     * Queues the transformed events, and records whether the queued events should be rendered once the lock is released.
+     */
+    private class QueueingListener implements OutputEventListener {
+        @Override
+        public void onOutput(OutputEvent event) {
+            if (batcher.queue(event)) {
+                renderRequested = true;
+            }
+        }
+    }
+
     private static class SnapshotImpl implements Snapshot {
         private final LogLevel logLevel;
         private final OutputEventListener console;
@@ -431,6 +536,36 @@ public class OutputEventRenderer implements OutputEventListener, LoggingRouter {
         }
     }
 
+    /**
+     * Collects the text written to a listener until it is flushed, when enabled.
+     */
+    private static class BufferedStandardOutputListener implements StandardOutputListener {
+        private final StandardOutputListener delegate;
+        private final StringBuilder buffer;
+
+        private BufferedStandardOutputListener(StandardOutputListener delegate, boolean enabled) {
+            this.delegate = delegate;
+            this.buffer = enabled ? new StringBuilder() : null;
+        }
+
+        @Override
+        public void onOutput(CharSequence output) {
+            if (buffer == null) {
+                delegate.onOutput(output);
+            } else {
+                buffer.append(output);
+            }
+        }
+
+        void flush() {
+            if (buffer != null && buffer.length() > 0) {
+                String text = buffer.toString();
+                buffer.setLength(0);
+                delegate.onOutput(text);
+            }
+        }
+    }
+
     private static class LazyListener implements OutputEventListener {
         private Factory<OutputEventListener> factory;
         private OutputEventListener delegate;
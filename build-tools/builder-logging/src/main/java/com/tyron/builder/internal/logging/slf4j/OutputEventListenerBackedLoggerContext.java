@@ -25,6 +25,8 @@ public class OutputEventListenerBackedLoggerContext implements ILoggerFactory {
     private final AtomicReference<LogLevel> level = new AtomicReference<>();
     private final AtomicReference<OutputEventListener> outputEventListener = new AtomicReference<>();
     private final Clock clock;
+    // The renderer created by reset(), which is stopped when it is replaced
+    private volatile OutputEventRenderer defaultRenderer;
 
     public OutputEventListenerBackedLoggerContext(Clock clock) {
         this.clock = clock;
@@ -48,7 +50,10 @@ public class OutputEventListenerBackedLoggerContext implements ILoggerFactory {
     }
 
     public void setOutputEventListener(OutputEventListener outputEventListener) {
-        this.outputEventListener.set(outputEventListener);
+        OutputEventListener previous = this.outputEventListener.getAndSet(outputEventListener);
+        if (previous != null && previous != outputEventListener && previous == defaultRenderer) {
+            ((OutputEventRenderer) previous).stop();
+        }
     }
 
     public OutputEventListener getOutputEventListener() {
@@ -71,6 +76,7 @@ public class OutputEventListenerBackedLoggerContext implements ILoggerFactory {
         OutputEventRenderer renderer = new OutputEventRenderer(clock);
         renderer.attachSystemOutAndErr();
         setOutputEventListener(renderer);
+        defaultRenderer = renderer;
     }
 
     public LogLevel getLevel() {
@@ -0,0 +1,177 @@
+package com.tyron.builder.internal.logging.sink;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.tyron.builder.api.logging.LogLevel;
+import com.tyron.builder.internal.logging.events.EndOutputEvent;
+import com.tyron.builder.internal.logging.events.FlushOutputEvent;
+import com.tyron.builder.internal.logging.events.LogEvent;
+import com.tyron.builder.internal.logging.events.OutputEvent;
+import com.tyron.builder.internal.logging.events.OutputEventListener;
+import com.tyron.builder.internal.logging.events.ProgressCompleteEvent;
+import com.tyron.builder.internal.logging.events.ProgressEvent;
+import com.tyron.builder.internal.logging.events.UpdateNowEvent;
+import com.tyron.builder.internal.operations.OperationIdentifier;
+import com.tyron.builder.internal.time.Time;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class BatchingOutputEventListenerTest {
+    // Long enough for the rendering thread never to forward events during a test
+    private static final int FRAME_INTERVAL_MS = 3_600_000;
+
+    private final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+    private final OutputEventListener listener = new OutputEventListener() {
+        @Override
+        public void onOutput(OutputEvent event) {
+            received.add(describe(event));
+        }
+    };
+    private BatchingOutputEventListener batcher;
+
+    @After
+    public void tearDown() {
+        if (batcher != null) {
+            batcher.stop();
+        }
+    }
+
+    @Test
+    public void coalescesProgressOfTheSameOperation() {
+        batcher = batcher(100);
+
+        batcher.onOutput(progress(1, "a"));
+        batcher.onOutput(progress(2, "b"));
+        batcher.onOutput(progress(1, "c"));
+        batcher.onOutput(log("message"));
+        batcher.onOutput(progress(1, "d"));
+        assertTrue(received.isEmpty());
+
+        batcher.onOutput(new FlushOutputEvent());
+
+        // the latest progress of an operation takes the place of its first queued progress
+        assertEquals(Arrays.asList("progress 1 d", "progress 2 b", "log message", "flush", "update"), received);
+    }
+
+    @Test
+    public void doesNotCoalesceProgressAcrossTheCompletionOfAnOperation() {
+        batcher = batcher(100);
+
+        batcher.onOutput(progress(1, "a"));
+        batcher.onOutput(new ProgressCompleteEvent(new OperationIdentifier(1), 0, "done", false));
+        batcher.onOutput(progress(1, "b"));
+        batcher.onOutput(new FlushOutputEvent());
+
+        assertEquals(Arrays.asList("progress 1 a", "complete 1", "progress 1 b", "flush", "update"), received);
+    }
+
+    @Test
+    public void dropsOldestProgressWhenTheQueueIsFull() {
+        batcher = batcher(3);
+
+        batcher.onOutput(progress(1, "a"));
+        batcher.onOutput(log("first"));
+        batcher.onOutput(progress(2, "b"));
+        batcher.onOutput(log("second"));
+        batcher.onOutput(progress(3, "c"));
+        assertTrue(received.isEmpty());
+
+        batcher.onOutput(new FlushOutputEvent());
+
+        assertEquals(Arrays.asList("log first", "log second", "progress 3 c", "flush", "update"), received);
+    }
+
+    @Test
+    public void forwardsQueuedEventsWhenTheQueueIsFullOfOtherEvents() {
+        batcher = batcher(2);
+
+        batcher.onOutput(log("1"));
+        batcher.onOutput(log("2"));
+        assertTrue(received.isEmpty());
+
+        batcher.onOutput(log("3"));
+
+        assertEquals(Arrays.asList("log 1", "log 2", "log 3", "update"), received);
+    }
+
+    @Test
+    public void flushForwardsTheEventsQueuedBeforeItInOrder() {
+        batcher = batcher(100);
+
+        batcher.onOutput(log("1"));
+        batcher.onOutput(progress(1, "a"));
+        batcher.onOutput(log("2"));
+        batcher.onOutput(new FlushOutputEvent());
+        batcher.onOutput(log("3"));
+        batcher.onOutput(new EndOutputEvent());
+
+        assertEquals(Arrays.asList("log 1", "progress 1 a", "log 2", "flush", "update", "log 3", "end", "update"), received);
+    }
+
+    @Test
+    public void queueDoesNotForwardEvents() {
+        batcher = batcher(1);
+
+        assertFalse(batcher.queue(log("1")));
+        assertTrue(batcher.queue(log("2")));
+        assertTrue(batcher.queue(new FlushOutputEvent()));
+        assertTrue(received.isEmpty());
+
+        batcher.renderQueued();
+
+        assertEquals(Arrays.asList("log 1", "log 2", "flush", "update"), received);
+    }
+
+    @Test
+    public void stopForwardsQueuedEvents() {
+        batcher = batcher(100);
+
+        batcher.onOutput(log("1"));
+        batcher.stop();
+
+        assertEquals(Arrays.asList("log 1", "update"), received);
+    }
+
+    private BatchingOutputEventListener batcher(int maxQueued) {
+        return new BatchingOutputEventListener(listener, Time.clock(), FRAME_INTERVAL_MS, maxQueued);
+    }
+
+    private static ProgressEvent progress(long operationId, String status) {
+        return new ProgressEvent(new OperationIdentifier(operationId), status, false);
+    }
+
+    private static LogEvent log(String message) {
+        return new LogEvent(0, "category", LogLevel.LIFECYCLE, message, null);
+    }
+
+    private static String describe(OutputEvent event) {
+        if (event instanceof ProgressEvent) {
+            ProgressEvent progress = (ProgressEvent) event;
+            return "progress " + progress.getProgressOperationId().getId() + " " + progress.getStatus();
+        }
+        if (event instanceof ProgressCompleteEvent) {
+            return "complete " + ((ProgressCompleteEvent) event).getProgressOperationId().getId();
+        }
+        if (event instanceof LogEvent) {
+            return "log " + ((LogEvent) event).getMessage();
+        }
+        if (event instanceof FlushOutputEvent) {
+            return "flush";
+        }
+        if (event instanceof EndOutputEvent) {
+            return "end";
+        }
+        if (event instanceof UpdateNowEvent) {
+            return "update";
+        }
+        return event.toString();
+    }
+}
@@ -0,0 +1,89 @@
+package com.tyron.builder.internal.logging.sink;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import com.tyron.builder.api.logging.LogLevel;
+import com.tyron.builder.internal.logging.events.LogEvent;
+import com.tyron.builder.internal.logging.events.OutputEvent;
+import com.tyron.builder.internal.logging.events.OutputEventListener;
+import com.tyron.builder.internal.time.Time;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class OutputEventRendererTest {
+    private final OutputEventRenderer renderer = new OutputEventRenderer(Time.clock(), 3_600_000);
+
+    @After
+    public void tearDown() {
+        renderer.stop();
+    }
+
+    @Test
+    public void listenerCanWaitForOutputFromAnotherThreadWhileEventsAreRendered() {
+        final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+        final AtomicBoolean blocked = new AtomicBoolean();
+        renderer.addOutputEventListener(new OutputEventListener() {
+            @Override
+            public void onOutput(OutputEvent event) {
+                if (!(event instanceof LogEvent)) {
+                    return;
+                }
+                String message = ((LogEvent) event).getMessage();
+                received.add(message);
+                if (message.equals("trigger")) {
+                    Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            renderer.onOutput(log("nested"));
+                        }
+                    });
+                    thread.start();
+                    try {
+                        thread.join(5000);
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    blocked.set(thread.isAlive());
+                }
+            }
+        });
+
+        renderer.onOutput(log("trigger"));
+        renderer.flush();
+
+        assertFalse(blocked.get());
+        renderer.flush();
+        assertEquals(Arrays.asList("trigger", "nested"), received);
+    }
+
+    @Test
+    public void stopRendersQueuedEvents() {
+        final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+        renderer.addOutputEventListener(new OutputEventListener() {
+            @Override
+            public void onOutput(OutputEvent event) {
+                if (event instanceof LogEvent) {
+                    received.add(((LogEvent) event).getMessage());
+                }
+            }
+        });
+
+        renderer.onOutput(log("1"));
+        renderer.onOutput(log("2"));
+        renderer.stop();
+
+        assertEquals(Arrays.asList("1", "2"), received);
+    }
+
+    private static LogEvent log(String message) {
+        return new LogEvent(0, "category", LogLevel.LIFECYCLE, message, null);
+    }
+}
@@ -4,6 +4,7 @@ import com.tyron.builder.internal.UncheckedException;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 
 public class ReflectionDispatch implements Dispatch<MethodInvocation> {
     private final Object target;
@@ -16,7 +17,11 @@ public class ReflectionDispatch implements Dispatch<MethodInvocation> {
     public void dispatch(MethodInvocation message) {
         try {
             Method method = message.getMethod();
-            method.setAccessible(true);
+            // Calling setAccessible() on every dispatch costs more than the invocation itself, and it is only
+            // needed when the method or the type declaring it is not public
+            if (!isPublic(method)) {
+                method.setAccessible(true);
+            }
             method.invoke(target, message.getArguments());
         } catch (InvocationTargetException e) {
             throw UncheckedException.throwAsUncheckedException(e.getCause());
@@ -24,4 +29,8 @@ public class ReflectionDispatch implements Dispatch<MethodInvocation> {
             throw UncheckedException.throwAsUncheckedException(throwable);
         }
     }
-}
\ No newline at end of file
+
+    private static boolean isPublic(Method method) {
+        return Modifier.isPublic(method.getModifiers()) && Modifier.isPublic(method.getDeclaringClass().getModifiers());
+    }
+}
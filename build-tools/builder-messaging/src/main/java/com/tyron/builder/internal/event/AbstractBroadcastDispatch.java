@@ -7,7 +7,6 @@ import com.tyron.builder.internal.operations.BuildOperationInvocationException;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
 
 public abstract class AbstractBroadcastDispatch<T> implements Dispatch<MethodInvocation> {
@@ -36,11 +35,10 @@ public abstract class AbstractBroadcastDispatch<T> implements Dispatch<MethodInv
         }
     }
 
-    protected void dispatch(MethodInvocation invocation, Iterator<? extends Dispatch<MethodInvocation>> handlers) {
+    protected void dispatch(MethodInvocation invocation, Dispatch<MethodInvocation>[] handlers) {
         // Defer creation of failures list, assume dispatch will succeed
         List<Throwable> failures = null;
-        while (handlers.hasNext()) {
-            Dispatch<MethodInvocation> handler = handlers.next();
+        for (Dispatch<MethodInvocation> handler : handlers) {
             try {
                 handler.dispatch(invocation);
             } catch (ListenerNotificationException e) {
@@ -232,10 +232,12 @@ public abstract class BroadcastDispatch<T> extends AbstractBroadcastDispatch<T>
 
     private static class CompositeDispatch<T> extends BroadcastDispatch<T> {
         private final List<SingletonDispatch<T>> dispatchers;
+        private final Dispatch<MethodInvocation>[] dispatchArray;
 
         CompositeDispatch(Class<T> type, List<SingletonDispatch<T>> dispatchers) {
             super(type);
             this.dispatchers = dispatchers;
+            this.dispatchArray = Cast.uncheckedNonnullCast(dispatchers.toArray(new Dispatch<?>[0]));
         }
 
         @Override
@@ -327,7 +329,7 @@ public abstract class BroadcastDispatch<T> extends AbstractBroadcastDispatch<T>
 
         @Override
         public void dispatch(MethodInvocation message) {
-            dispatch(message, dispatchers.iterator());
+            dispatch(message, dispatchArray);
         }
     }
 }
\ No newline at end of file
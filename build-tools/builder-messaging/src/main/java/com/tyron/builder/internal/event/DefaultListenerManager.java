@@ -12,7 +12,6 @@ import com.tyron.builder.internal.service.scopes.StatefulListener;
 
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
@@ -24,6 +23,8 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class DefaultListenerManager implements ListenerManager, AnnotatedServiceLifecycleHandler {
+    private static final Dispatch<?>[] NO_DISPATCHERS = new Dispatch<?>[0];
+
     private final Map<Object, ListenerDetails> allListeners = new LinkedHashMap<Object, ListenerDetails>();
     private final Map<Object, ListenerDetails> allLoggers = new LinkedHashMap<Object, ListenerDetails>();
     private final Map<Class<?>, EventBroadcast<?>> broadcasters = new ConcurrentHashMap<Class<?>, EventBroadcast<?>>();
@@ -185,9 +186,12 @@ public class DefaultListenerManager implements ListenerManager, AnnotatedService
         private final ReentrantLock broadcasterLock = new ReentrantLock();
         private ListenerDetails logger;
         private Dispatch<MethodInvocation> parentDispatch;
-        private List<Dispatch<MethodInvocation>> allWithLogger = Collections.emptyList();
-        private List<Dispatch<MethodInvocation>> allWithNoLogger = Collections.emptyList();
-        private boolean notified;
+        // Replaced rather than modified when the listeners change, so a notification can use them without copying
+        private volatile Dispatch<MethodInvocation>[] allWithLogger = noDispatchers();
+        private volatile Dispatch<MethodInvocation>[] allWithNoLogger = noDispatchers();
+        private volatile boolean notified;
+        // Set while there are queued operations, so that a notification with no dispatchers still applies them
+        private volatile boolean hasQueuedOperations;
 
         EventBroadcast(Class<T> type) {
             this.type = type;
@@ -236,14 +240,12 @@ public class DefaultListenerManager implements ListenerManager, AnnotatedService
                         broadcasterLock.unlock();
                     }
                 } else {
-                    synchronized (queuedOperations) {
-                        queuedOperations.add(new Runnable() {
-                            @Override
-                            public void run() {
-                                listeners.add(listener);
-                            }
-                        });
-                    }
+                    queue(new Runnable() {
+                        @Override
+                        public void run() {
+                            listeners.add(listener);
+                        }
+                    });
                 }
             }
         }
@@ -258,14 +260,12 @@ public class DefaultListenerManager implements ListenerManager, AnnotatedService
                     broadcasterLock.unlock();
                 }
             } else {
-                synchronized (queuedOperations) {
-                    queuedOperations.add(new Runnable() {
-                        @Override
-                        public void run() {
-                            listeners.remove(listener);
-                        }
-                    });
-                }
+                queue(new Runnable() {
+                    @Override
+                    public void run() {
+                        listeners.remove(listener);
+                    }
+                });
             }
         }
 
@@ -279,18 +279,23 @@ public class DefaultListenerManager implements ListenerManager, AnnotatedService
                         broadcasterLock.unlock();
                     }
                 } else {
-                    synchronized (queuedOperations) {
-                        queuedOperations.add(new Runnable() {
-                            @Override
-                            public void run() {
-                                doSetLogger(candidate);
-                            }
-                        });
-                    }
+                    queue(new Runnable() {
+                        @Override
+                        public void run() {
+                            doSetLogger(candidate);
+                        }
+                    });
                 }
             }
         }
 
+        private void queue(Runnable operation) {
+            synchronized (queuedOperations) {
+                queuedOperations.add(operation);
+                hasQueuedOperations = true;
+            }
+        }
+
         public void checkRegistration(Registration registration) {
             if (type.isAssignableFrom(registration.getDeclaredType())) {
                 broadcasterLock.lock();
@@ -316,7 +321,16 @@ public class DefaultListenerManager implements ListenerManager, AnnotatedService
             logger = candidate;
         }
 
-        private List<Dispatch<MethodInvocation>> startNotification(boolean includeLogger) {
+        /**
+         * Returns true when an event would not be delivered to any listener, so the notification can be skipped
+         * without taking the lock. This is only known once the pending registrations have been added by the first
+         * notification and the queued operations have been applied.
+         */
+        private boolean hasNoDispatchers(boolean includeLogger) {
+            return notified && !hasQueuedOperations && (includeLogger ? allWithLogger : allWithNoLogger).length == 0;
+        }
+
+        private Dispatch<MethodInvocation>[] startNotification(boolean includeLogger) {
             takeOwnership();
 
             if (!notified) {
@@ -325,12 +339,12 @@ public class DefaultListenerManager implements ListenerManager, AnnotatedService
             }
 
             // Take a snapshot while holding lock
-            List<Dispatch<MethodInvocation>> result = includeLogger ? allWithLogger : allWithNoLogger;
+            Dispatch<MethodInvocation>[] result = includeLogger ? allWithLogger : allWithNoLogger;
             doStartNotification(result);
             return result;
         }
 
-        private void doStartNotification(List<Dispatch<MethodInvocation>> result) {
+        private void doStartNotification(Dispatch<MethodInvocation>[] result) {
             for (Dispatch<MethodInvocation> dispatch : result) {
                 if (dispatch instanceof ListenerDetails) {
                     ListenerDetails listenerDetails = (ListenerDetails) dispatch;
@@ -341,20 +355,20 @@ public class DefaultListenerManager implements ListenerManager, AnnotatedService
 
         private void ensureAllWithoutLoggerInitialized() {
             if (parentDispatch == null && listeners.isEmpty()) {
-                allWithNoLogger = Collections.emptyList();
+                allWithNoLogger = noDispatchers();
             } else {
                 List<Dispatch<MethodInvocation>> dispatchers = new ArrayList<Dispatch<MethodInvocation>>();
                 if (parentDispatch != null) {
                     dispatchers.add(parentDispatch);
                 }
                 dispatchers.addAll(listeners);
-                allWithNoLogger = dispatchers;
+                allWithNoLogger = toArray(dispatchers);
             }
         }
 
         private void ensureAllWithLoggerInitialized() {
             if (logger == null && parentDispatch == null && listeners.isEmpty()) {
-                allWithLogger = Collections.emptyList();
+                allWithLogger = noDispatchers();
             } else {
                 allWithLogger = buildAllWithLogger();
             }
@@ -369,7 +383,7 @@ public class DefaultListenerManager implements ListenerManager, AnnotatedService
             broadcasterLock.lock();
         }
 
-        private List<Dispatch<MethodInvocation>> buildAllWithLogger() {
+        private Dispatch<MethodInvocation>[] buildAllWithLogger() {
             List<Dispatch<MethodInvocation>> result = new ArrayList<Dispatch<MethodInvocation>>();
             if (logger != null) {
                 result.add(logger);
@@ -378,10 +392,10 @@ public class DefaultListenerManager implements ListenerManager, AnnotatedService
                 result.add(parentDispatch);
             }
             result.addAll(listeners);
-            return result;
+            return toArray(result);
         }
 
-        private void endNotification(List<Dispatch<MethodInvocation>> dispatchers) {
+        private void endNotification(Dispatch<MethodInvocation>[] dispatchers) {
             for (Dispatch<MethodInvocation> dispatcher : dispatchers) {
                 if (dispatcher instanceof ListenerDetails) {
                     ListenerDetails listener = (ListenerDetails) dispatcher;
@@ -394,6 +408,8 @@ public class DefaultListenerManager implements ListenerManager, AnnotatedService
                         for (Runnable queuedOperation : queuedOperations) {
                             queuedOperation.run();
                         }
+                        queuedOperations.clear();
+                        hasQueuedOperations = false;
                         invalidateDispatchCache();
                     }
                 }
@@ -412,10 +428,13 @@ public class DefaultListenerManager implements ListenerManager, AnnotatedService
 
             @Override
             public void dispatch(MethodInvocation invocation) {
-                List<Dispatch<MethodInvocation>> dispatchers = startNotification(includeLogger);
+                if (hasNoDispatchers(includeLogger)) {
+                    return;
+                }
+                Dispatch<MethodInvocation>[] dispatchers = startNotification(includeLogger);
                 try {
-                    if (!dispatchers.isEmpty()) {
-                        dispatch(invocation, dispatchers.iterator());
+                    if (dispatchers.length != 0) {
+                        dispatch(invocation, dispatchers);
                     }
                 } finally {
                     endNotification(dispatchers);
@@ -424,6 +443,14 @@ public class DefaultListenerManager implements ListenerManager, AnnotatedService
         }
     }
 
+    private static Dispatch<MethodInvocation>[] noDispatchers() {
+        return Cast.uncheckedNonnullCast(NO_DISPATCHERS);
+    }
+
+    private static Dispatch<MethodInvocation>[] toArray(List<Dispatch<MethodInvocation>> dispatchers) {
+        return Cast.uncheckedNonnullCast(dispatchers.toArray(NO_DISPATCHERS));
+    }
+
     /**
      * Holds state about a particular listener
      */
@@ -0,0 +1,82 @@
+package com.tyron.builder.internal.serialize;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the streams written by a {@link StringDeduplicatingEncoder}. Repeated strings are returned as the same instance.
+ */
+public class StringDeduplicatingDecoder extends AbstractDecoder {
+    private final Decoder delegate;
+    private final List<String> strings = new ArrayList<>();
+
+    public StringDeduplicatingDecoder(Decoder delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String readString() throws EOFException, IOException {
+        int index = delegate.readSmallInt();
+        if (index == StringDeduplicatingEncoder.NEW_STRING) {
+            String string = delegate.readString();
+            strings.add(string);
+            return string;
+        }
+        if (index > strings.size()) {
+            throw new IOException("Unexpected string reference " + index + " in a stream with " + strings.size() + " strings.");
+        }
+        return strings.get(index - 1);
+    }
+
+    @Override
+    public long readLong() throws EOFException, IOException {
+        return delegate.readLong();
+    }
+
+    @Override
+    public long readSmallLong() throws EOFException, IOException {
+        return delegate.readSmallLong();
+    }
+
+    @Override
+    public int readInt() throws EOFException, IOException {
+        return delegate.readInt();
+    }
+
+    @Override
+    public int readSmallInt() throws EOFException, IOException {
+        return delegate.readSmallInt();
+    }
+
+    @Override
+    public boolean readBoolean() throws EOFException, IOException {
+        return delegate.readBoolean();
+    }
+
+    @Override
+    public byte readByte() throws EOFException, IOException {
+        return delegate.readByte();
+    }
+
+    @Override
+    public void readBytes(byte[] buffer, int offset, int count) throws EOFException, IOException {
+        delegate.readBytes(buffer, offset, count);
+    }
+
+    @Override
+    public void skipBytes(long count) throws EOFException, IOException {
+        delegate.skipBytes(count);
+    }
+
+    @Override
+    protected int maybeReadBytes(byte[] buffer, int offset, int count) throws IOException {
+        return delegate.getInputStream().read(buffer, offset, count);
+    }
+
+    @Override
+    protected long maybeSkip(long count) throws IOException {
+        return delegate.getInputStream().skip(count);
+    }
+}
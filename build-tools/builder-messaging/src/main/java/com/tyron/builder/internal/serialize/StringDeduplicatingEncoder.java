@@ -0,0 +1,68 @@
+package com.tyron.builder.internal.serialize;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An {@link Encoder} that writes each distinct string once per stream. Later occurrences of the string are written as
+ * a reference to the first one. Must be read with a {@link StringDeduplicatingDecoder}.
+ */
+public class StringDeduplicatingEncoder extends AbstractEncoder {
+    static final int NEW_STRING = 0;
+
+    private final Encoder delegate;
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    public StringDeduplicatingEncoder(Encoder delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void writeString(CharSequence value) throws IOException {
+        String string = value.toString();
+        Integer index = strings.get(string);
+        if (index == null) {
+            strings.put(string, strings.size());
+            delegate.writeSmallInt(NEW_STRING);
+            delegate.writeString(string);
+        } else {
+            delegate.writeSmallInt(index + 1);
+        }
+    }
+
+    @Override
+    public void writeByte(byte value) throws IOException {
+        delegate.writeByte(value);
+    }
+
+    @Override
+    public void writeBytes(byte[] bytes, int offset, int count) throws IOException {
+        delegate.writeBytes(bytes, offset, count);
+    }
+
+    @Override
+    public void writeLong(long value) throws IOException {
+        delegate.writeLong(value);
+    }
+
+    @Override
+    public void writeSmallLong(long value) throws IOException {
+        delegate.writeSmallLong(value);
+    }
+
+    @Override
+    public void writeInt(int value) throws IOException {
+        delegate.writeInt(value);
+    }
+
+    @Override
+    public void writeSmallInt(int value) throws IOException {
+        delegate.writeSmallInt(value);
+    }
+
+    @Override
+    public void writeBoolean(boolean value) throws IOException {
+        delegate.writeBoolean(value);
+    }
+}
@@ -0,0 +1,147 @@
+package com.tyron.builder.internal.serialize;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.tyron.builder.internal.serialize.kryo.KryoBackedDecoder;
+import com.tyron.builder.internal.serialize.kryo.KryoBackedEncoder;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+public class StringDeduplicatingEncoderTest {
+
+    @Test
+    public void repeatedStringsAreWrittenAsReferences() throws Exception {
+        String name = "a-rather-long-file-name.class";
+        byte[] once = encode(encoder -> encoder.writeString(name));
+        byte[] three = encode(encoder -> {
+            encoder.writeString(name);
+            encoder.writeString(new StringBuilder(name));
+            encoder.writeString(name);
+        });
+        // each reference is a single small int
+        assertEquals(once.length + 2, three.length);
+
+        StringDeduplicatingDecoder decoder = decoder(three);
+        String first = decoder.readString();
+        assertEquals(name, first);
+        assertSame(first, decoder.readString());
+        assertSame(first, decoder.readString());
+    }
+
+    @Test
+    public void newStringsAndReferencesCanBeInterleaved() throws Exception {
+        byte[] bytes = encode(encoder -> {
+            encoder.writeString("a");
+            encoder.writeString("b");
+            encoder.writeString("a");
+            encoder.writeString("");
+            encoder.writeString("c");
+            encoder.writeString("b");
+            encoder.writeString("");
+        });
+
+        StringDeduplicatingDecoder decoder = decoder(bytes);
+        for (String expected : new String[]{"a", "b", "a", "", "c", "b", ""}) {
+            assertEquals(expected, decoder.readString());
+        }
+    }
+
+    @Test
+    public void roundTripsSurrogatePairs() throws Exception {
+        String emoji = "\uD83D\uDE00";
+        String path = "/home/\uD83D\uDCC1/\u00e9t\u00e9/" + emoji + ".txt";
+        byte[] bytes = encode(encoder -> {
+            encoder.writeString(path);
+            encoder.writeString(emoji);
+            encoder.writeString(path);
+        });
+
+        StringDeduplicatingDecoder decoder = decoder(bytes);
+        assertEquals(path, decoder.readString());
+        assertEquals(emoji, decoder.readString());
+        assertEquals(path, decoder.readString());
+    }
+
+    @Test
+    public void roundTripsNullableStrings() throws Exception {
+        byte[] bytes = encode(encoder -> {
+            encoder.writeNullableString(null);
+            encoder.writeNullableString("value");
+            encoder.writeNullableString(null);
+            encoder.writeNullableString("value");
+            encoder.writeString("value");
+        });
+
+        StringDeduplicatingDecoder decoder = decoder(bytes);
+        assertNull(decoder.readNullableString());
+        String value = decoder.readNullableString();
+        assertEquals("value", value);
+        assertNull(decoder.readNullableString());
+        assertSame(value, decoder.readNullableString());
+        assertSame(value, decoder.readString());
+    }
+
+    @Test
+    public void passesOtherValuesThrough() throws Exception {
+        byte[] bytes = encode(encoder -> {
+            encoder.writeString("first");
+            encoder.writeSmallInt(300);
+            encoder.writeLong(Long.MIN_VALUE);
+            encoder.writeSmallLong(1L << 40);
+            encoder.writeInt(-1);
+            encoder.writeBoolean(true);
+            encoder.writeBinary(new byte[]{1, 2, 3});
+            encoder.writeString("first");
+        });
+
+        StringDeduplicatingDecoder decoder = decoder(bytes);
+        assertEquals("first", decoder.readString());
+        assertEquals(300, decoder.readSmallInt());
+        assertEquals(Long.MIN_VALUE, decoder.readLong());
+        assertEquals(1L << 40, decoder.readSmallLong());
+        assertEquals(-1, decoder.readInt());
+        assertTrue(decoder.readBoolean());
+        byte[] binary = decoder.readBinary();
+        assertEquals(3, binary.length);
+        assertEquals(3, binary[2]);
+        assertEquals("first", decoder.readString());
+    }
+
+    @Test
+    public void rejectsUnknownReferences() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (KryoBackedEncoder encoder = new KryoBackedEncoder(output)) {
+            encoder.writeSmallInt(StringDeduplicatingEncoder.NEW_STRING);
+            encoder.writeString("a");
+            encoder.writeSmallInt(2);
+        }
+
+        StringDeduplicatingDecoder decoder = decoder(output.toByteArray());
+        assertEquals("a", decoder.readString());
+        assertThrows(IOException.class, decoder::readString);
+    }
+
+    private interface EncodeAction {
+        void write(Encoder encoder) throws Exception;
+    }
+
+    private static byte[] encode(EncodeAction action) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (KryoBackedEncoder encoder = new KryoBackedEncoder(output)) {
+            action.write(new StringDeduplicatingEncoder(encoder));
+        }
+        return output.toByteArray();
+    }
+
+    private static StringDeduplicatingDecoder decoder(byte[] bytes) {
+        return new StringDeduplicatingDecoder(new KryoBackedDecoder(new ByteArrayInputStream(bytes)));
+    }
+}
@@ -0,0 +1,96 @@
+package com.tyron.builder.cache.internal;
+
+import com.tyron.builder.cache.CleanableStore;
+import com.tyron.builder.cache.CleanupAction;
+import com.tyron.builder.cache.CleanupProgressMonitor;
+import com.tyron.builder.internal.file.FileAccessTimeJournal;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Deletes the least recently used cache entries until the total size of the entries is within
+ * the specified maximum size. Entries are ordered by the last access time in the journal.
+ * Only the files accepted by the entry filter are counted, so lock files and other files kept
+ * next to the entries do not trigger a cleanup.
+ */
+public class LeastRecentlyUsedSizeCacheCleanup implements CleanupAction {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LeastRecentlyUsedSizeCacheCleanup.class);
+
+    private final FilesFinder eligibleFilesFinder;
+    private final FileAccessTimeJournal journal;
+    private final long maximumSize;
+    private final FileFilter entryFilter;
+
+    public LeastRecentlyUsedSizeCacheCleanup(FilesFinder eligibleFilesFinder, FileAccessTimeJournal journal, long maximumSize, FileFilter entryFilter) {
+        this.eligibleFilesFinder = eligibleFilesFinder;
+        this.journal = journal;
+        this.maximumSize = maximumSize;
+        this.entryFilter = entryFilter;
+    }
+
+    @Override
+    public void clean(CleanableStore cleanableStore, CleanupProgressMonitor progressMonitor) {
+        List<Entry> entries = new ArrayList<Entry>();
+        long totalSize = 0;
+        final NonReservedFileFilter nonReservedFilter = new NonReservedFileFilter(cleanableStore.getReservedCacheFiles());
+        FileFilter filter = new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return nonReservedFilter.accept(file) && entryFilter.accept(file);
+            }
+        };
+        for (File file : eligibleFilesFinder.find(cleanableStore.getBaseDir(), filter)) {
+            Entry entry = new Entry(file, file.length(), journal.getLastAccessTime(file));
+            entries.add(entry);
+            totalSize += entry.size;
+        }
+        if (totalSize <= maximumSize) {
+            progressMonitor.incrementSkipped(entries.size());
+            return;
+        }
+
+        LOGGER.info("{} is {} bytes, removing least recently used files down to {} bytes.", cleanableStore.getDisplayName(), totalSize, maximumSize);
+        Collections.sort(entries, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry left, Entry right) {
+                return Long.compare(left.lastAccessTime, right.lastAccessTime);
+            }
+        });
+
+        int filesDeleted = 0;
+        for (Entry entry : entries) {
+            if (totalSize <= maximumSize) {
+                progressMonitor.incrementSkipped();
+                continue;
+            }
+            progressMonitor.incrementDeleted();
+            if (FileUtils.deleteQuietly(entry.file)) {
+                journal.deleteLastAccessTime(entry.file);
+                totalSize -= entry.size;
+                filesDeleted++;
+            }
+        }
+        LOGGER.info("{} cleanup deleted {} files.", cleanableStore.getDisplayName(), filesDeleted);
+    }
+
+    private static class Entry {
+        private final File file;
+        private final long size;
+        private final long lastAccessTime;
+
+        private Entry(File file, long size, long lastAccessTime) {
+            this.file = file;
+            this.size = size;
+            this.lastAccessTime = lastAccessTime;
+        }
+    }
+}
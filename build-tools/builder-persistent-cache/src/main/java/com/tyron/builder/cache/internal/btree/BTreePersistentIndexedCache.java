@@ -35,6 +35,11 @@ import java.util.List;
 // todo - use more efficient lookup for free block with nearest size
 @SuppressWarnings("unchecked")
 public class BTreePersistentIndexedCache<K, V> {
+    /**
+     * System property to store the caches in a {@link MappedFileBlockStore}.
+     */
+    public static final String MAPPED_BLOCK_STORE_PROPERTY = "com.tyron.builder.cache.mappedBlockStore";
+
     private static final Logger LOGGER = LoggerFactory.getLogger(BTreePersistentIndexedCache.class.getSimpleName());
     private final File cacheFile;
     private final KeyHasher<K> keyHasher;
@@ -50,14 +55,30 @@ public class BTreePersistentIndexedCache<K, V> {
 
     public BTreePersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer,
                                        short maxChildIndexEntries, int maxFreeListEntries) {
+        this(cacheFile, keySerializer, valueSerializer, maxChildIndexEntries, maxFreeListEntries,
+                Boolean.getBoolean(MAPPED_BLOCK_STORE_PROPERTY));
+    }
+
+    /**
+     * @param memoryMapped whether to use a {@link MappedFileBlockStore}, which manages its own
+     * free space, instead of a {@link FileBackedBlockStore} with a {@link FreeListBlockStore}
+     */
+    public BTreePersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer,
+                                       short maxChildIndexEntries, int maxFreeListEntries, boolean memoryMapped) {
         this.cacheFile = cacheFile;
         this.keyHasher = new KeyHasher<K>(keySerializer);
         this.serializer = valueSerializer;
         this.maxChildIndexEntries = maxChildIndexEntries;
         this.minIndexChildNodes = maxChildIndexEntries / 2;
-        BlockStore cachingStore = new CachingBlockStore(new FileBackedBlockStore(cacheFile), ImmutableSet
-                .of(IndexBlock.class, FreeListBlockStore.FreeListBlock.class));
-        this.store = new StateCheckBlockStore(new FreeListBlockStore(cachingStore, maxFreeListEntries));
+        if (memoryMapped) {
+            BlockStore cachingStore = new CachingBlockStore(new MappedFileBlockStore(cacheFile),
+                    ImmutableSet.of(IndexBlock.class));
+            this.store = new StateCheckBlockStore(cachingStore);
+        } else {
+            BlockStore cachingStore = new CachingBlockStore(new FileBackedBlockStore(cacheFile), ImmutableSet
+                    .of(IndexBlock.class, FreeListBlockStore.FreeListBlock.class));
+            this.store = new StateCheckBlockStore(new FreeListBlockStore(cachingStore, maxFreeListEntries));
+        }
         try {
             open();
         } catch (Exception e) {
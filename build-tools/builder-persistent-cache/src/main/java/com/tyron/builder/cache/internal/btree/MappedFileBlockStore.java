@@ -0,0 +1,580 @@
+package com.tyron.builder.cache.internal.btree;
+
+import com.tyron.builder.api.UncheckedIOException;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * A {@link BlockStore} that reads and writes blocks through a memory mapping of the cache file,
+ * instead of seeking a {@link RandomAccessFile} for every block.
+ *
+ * <p>This store also manages its free space, so it replaces both the {@link FileBackedBlockStore}
+ * and the {@link FreeListBlockStore}:
+ * <ul>
+ *     <li>New blocks do not cross a page boundary unless they are larger than a page, in which
+ *     case they start on one. The space skipped to align a block is added to the free list.</li>
+ *     <li>Free blocks are bucketed by size, allocation takes the smallest free block that fits
+ *     and splits off the remainder. Adjacent free blocks are merged, and free blocks at the end
+ *     of the file are given back to the end.</li>
+ *     <li>The free list is kept in memory and only written when the store is closed, which is
+ *     also the only time the mapping is forced to disk and the file is truncated to the space
+ *     in use. A store that is not closed loses its free list, which leaks the free space but
+ *     does not corrupt the blocks.</li>
+ * </ul>
+ *
+ * <p>The file is mapped in chunks of at least {@value #MIN_MAPPED_SIZE} bytes, so its length
+ * does not tell whether it holds any blocks. A file without the magic number at the start of
+ * its header has never been initialised, and is treated like an empty one.
+ *
+ * <p>The file format is not compatible with {@link FileBackedBlockStore}, a cache file written
+ * by it is reported as corrupt and discarded.
+ */
+public class MappedFileBlockStore implements BlockStore {
+    private static final int MAGIC = 0x4D424C4B;
+    private static final int VERSION = 1;
+
+    static final int PAGE_SIZE = 4096;
+    private static final int ALIGNMENT = 8;
+    private static final int MIN_FREE_BLOCK_SIZE = 16;
+    private static final int MIN_MAPPED_SIZE = 1024 * 1024;
+
+    // magic, version, end of the blocks, position and count of the free list written on close
+    private static final int END_OFFSET = 8;
+    private static final int FREE_LIST_POS_OFFSET = 16;
+    private static final int FREE_LIST_COUNT_OFFSET = 24;
+    private static final long FIRST_BLOCK = 64;
+
+    private final File cacheFile;
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private Factory factory;
+    private Runnable initAction;
+    private long end;
+
+    private final TreeMap<Long, Integer> freeBlocksByPos = new TreeMap<Long, Integer>();
+    private final TreeMap<Integer, Set<Long>> freeBlocksBySize = new TreeMap<Integer, Set<Long>>();
+
+    public MappedFileBlockStore(File cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    @Override
+    public String toString() {
+        return "cache '" + cacheFile + "'";
+    }
+
+    @Override
+    public void open(Runnable initAction, Factory factory) {
+        this.factory = factory;
+        this.initAction = initAction;
+        try {
+            cacheFile.getParentFile().mkdirs();
+            file = new RandomAccessFile(cacheFile, "rw");
+            channel = file.getChannel();
+            map(Math.max(file.length(), MIN_MAPPED_SIZE));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (!isInitialised()) {
+            initialise();
+            return;
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new CorruptedCacheException(String.format("Unsupported format of %s.", this));
+        }
+        end = buffer.getLong(END_OFFSET);
+        if (end < FIRST_BLOCK || end > buffer.capacity()) {
+            throw new CorruptedCacheException(String.format("Corrupted header found in %s.", this));
+        }
+        readFreeList();
+    }
+
+    private boolean isInitialised() {
+        return buffer.getInt(0) != 0 || buffer.getLong(END_OFFSET) != 0;
+    }
+
+    private void initialise() {
+        reset();
+        initAction.run();
+    }
+
+    private void readFreeList() {
+        long pos = buffer.getLong(FREE_LIST_POS_OFFSET);
+        int count = buffer.getInt(FREE_LIST_COUNT_OFFSET);
+        // the free list is only valid until the next block is allocated after it
+        buffer.putLong(FREE_LIST_POS_OFFSET, -1);
+        if (pos < end || pos + (long) count * 12 > buffer.capacity()) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            long offset = pos + i * 12L;
+            addFreeBlock(buffer.getLong((int) offset), buffer.getInt((int) offset + 8));
+        }
+    }
+
+    /**
+     * Writes the free list after the last block, and returns the end of the space in use.
+     */
+    private long writeFreeList() {
+        int count = freeBlocksByPos.size();
+        if (count == 0) {
+            return end;
+        }
+        long pos = end;
+        ensureCapacity(pos + count * 12L);
+        int offset = (int) pos;
+        for (Map.Entry<Long, Integer> entry : freeBlocksByPos.entrySet()) {
+            buffer.putLong(offset, entry.getKey());
+            buffer.putInt(offset + 8, entry.getValue());
+            offset += 12;
+        }
+        buffer.putLong(FREE_LIST_POS_OFFSET, pos);
+        buffer.putInt(FREE_LIST_COUNT_OFFSET, count);
+        return offset;
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (buffer != null) {
+                long length = writeFreeList();
+                buffer.force();
+                unmap();
+                channel.truncate(length);
+            }
+            file.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            buffer = null;
+            channel = null;
+            initAction = null;
+            freeBlocksByPos.clear();
+            freeBlocksBySize.clear();
+        }
+    }
+
+    @Override
+    public void clear() {
+        try {
+            unmap();
+            channel.truncate(0);
+            map(MIN_MAPPED_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        initialise();
+    }
+
+    private void reset() {
+        freeBlocksByPos.clear();
+        freeBlocksBySize.clear();
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(FREE_LIST_POS_OFFSET, -1);
+        buffer.putInt(FREE_LIST_COUNT_OFFSET, 0);
+        setEnd(FIRST_BLOCK);
+    }
+
+    @Override
+    public void attach(BlockPayload block) {
+        if (block.getBlock() == null) {
+            block.setBlock(new BlockImpl(block));
+        }
+    }
+
+    @Override
+    public void remove(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        long pos = blockImpl.getPos().getPos();
+        int size = blockImpl.getSize();
+        blockImpl.detach();
+        free(pos, size);
+    }
+
+    @Override
+    public void flush() {
+        // the mapping is only forced to disk on close
+    }
+
+    @Override
+    public <T extends BlockPayload> T readFirst(Class<T> payloadType) {
+        return read(BlockPointer.pos(FIRST_BLOCK), payloadType);
+    }
+
+    @Override
+    public <T extends BlockPayload> T read(BlockPointer pos, Class<T> payloadType) {
+        assert !pos.isNull();
+        try {
+            T payload = payloadType.cast(factory.create(payloadType));
+            BlockImpl block = new BlockImpl(payload, pos);
+            block.read();
+            return payload;
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void write(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        try {
+            blockImpl.write();
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void map(long capacity) throws IOException {
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IOException("Cache file " + cacheFile + " exceeds the maximum size");
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    /**
+     * Releases the current mapping instead of waiting for it to be garbage collected, which
+     * would keep the old pages mapped after a remap and prevent truncating the file on some
+     * platforms. The buffer must not be used afterwards.
+     */
+    private void unmap() {
+        MappedByteBuffer mapped = buffer;
+        buffer = null;
+        if (mapped != null) {
+            Unmapper.unmap(mapped);
+        }
+    }
+
+    private void ensureCapacity(long required) {
+        if (required <= buffer.capacity()) {
+            return;
+        }
+        long capacity = buffer.capacity();
+        while (capacity < required) {
+            capacity *= 2;
+        }
+        try {
+            buffer.force();
+            unmap();
+            map(Math.min(capacity, Integer.MAX_VALUE));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void setEnd(long end) {
+        this.end = end;
+        // written on every change, blocks beyond the end are never read after a crash
+        buffer.putLong(END_OFFSET, end);
+    }
+
+    /**
+     * Allocates space for the block, which may be given a larger free block than it asked for.
+     */
+    private long alloc(BlockImpl block) {
+        int size = align(block.getSize());
+
+        Map.Entry<Integer, Set<Long>> bucket = freeBlocksBySize.ceilingEntry(size);
+        if (bucket != null) {
+            long pos = bucket.getValue().iterator().next();
+            int freeSize = bucket.getKey();
+            removeFreeBlock(pos, freeSize);
+            if (freeSize - size >= MIN_FREE_BLOCK_SIZE) {
+                addFreeBlock(pos + size, freeSize - size);
+            } else {
+                block.setSize(freeSize);
+            }
+            return pos;
+        }
+
+        long pos = end;
+        long offsetInPage = pos % PAGE_SIZE;
+        if (offsetInPage != 0 && (size > PAGE_SIZE || offsetInPage + size > PAGE_SIZE)) {
+            int gap = (int) (PAGE_SIZE - offsetInPage);
+            if (gap >= MIN_FREE_BLOCK_SIZE) {
+                addFreeBlock(pos, gap);
+            }
+            pos += gap;
+        }
+        ensureCapacity(pos + size);
+        setEnd(pos + size);
+        return pos;
+    }
+
+    private static int align(int size) {
+        return (size + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+    private void free(long pos, int size) {
+        size = align(size);
+
+        Map.Entry<Long, Integer> previous = freeBlocksByPos.lowerEntry(pos);
+        if (previous != null && previous.getKey() + previous.getValue() == pos) {
+            removeFreeBlock(previous.getKey(), previous.getValue());
+            pos = previous.getKey();
+            size += previous.getValue();
+        }
+        Integer nextSize = freeBlocksByPos.get(pos + size);
+        if (nextSize != null) {
+            removeFreeBlock(pos + size, nextSize);
+            size += nextSize;
+        }
+
+        if (pos + size >= end) {
+            setEnd(pos);
+        } else {
+            addFreeBlock(pos, size);
+        }
+    }
+
+    private void addFreeBlock(long pos, int size) {
+        freeBlocksByPos.put(pos, size);
+        Set<Long> bucket = freeBlocksBySize.get(size);
+        if (bucket == null) {
+            bucket = new LinkedHashSet<Long>();
+            freeBlocksBySize.put(size, bucket);
+        }
+        bucket.add(pos);
+    }
+
+    private void removeFreeBlock(long pos, int size) {
+        freeBlocksByPos.remove(pos);
+        Set<Long> bucket = freeBlocksBySize.get(size);
+        bucket.remove(pos);
+        if (bucket.isEmpty()) {
+            freeBlocksBySize.remove(size);
+        }
+    }
+
+    private final class BlockImpl extends Block {
+        private static final int HEADER_SIZE = 1 + INT_SIZE; // type, payload size
+        private static final int TAIL_SIZE = INT_SIZE;
+
+        private BlockPointer pos;
+        private int payloadSize;
+
+        private BlockImpl(BlockPayload payload, BlockPointer pos) {
+            this(payload);
+            setPos(pos);
+        }
+
+        public BlockImpl(BlockPayload payload) {
+            super(payload);
+            pos = null;
+            payloadSize = -1;
+        }
+
+        @Override
+        public boolean hasPos() {
+            return pos != null;
+        }
+
+        @Override
+        public BlockPointer getPos() {
+            if (pos == null) {
+                pos = BlockPointer.pos(alloc(this));
+            }
+            return pos;
+        }
+
+        @Override
+        public void setPos(BlockPointer pos) {
+            assert this.pos == null && !pos.isNull();
+            this.pos = pos;
+        }
+
+        @Override
+        public int getSize() {
+            if (payloadSize < 0) {
+                payloadSize = getPayload().getSize();
+            }
+            return payloadSize + HEADER_SIZE + TAIL_SIZE;
+        }
+
+        @Override
+        public void setSize(int size) {
+            int newPayloadSize = size - HEADER_SIZE - TAIL_SIZE;
+            assert newPayloadSize >= payloadSize;
+            payloadSize = newPayloadSize;
+        }
+
+        public void write() throws Exception {
+            int size = getSize();
+            long pos = getPos().getPos();
+            ByteBuffer target = slice(pos, size);
+
+            BlockPayload payload = getPayload();
+            target.put(payload.getType());
+            target.putInt(payloadSize);
+
+            DataOutputStream outputStream = new DataOutputStream(new ByteBufferOutputStream(target));
+            try {
+                payload.write(outputStream);
+                outputStream.flush();
+                int bytesWritten = target.position() - HEADER_SIZE;
+                target.putInt(bytesWritten);
+            } catch (BufferOverflowException e) {
+                throw new IllegalArgumentException("Block payload exceeds the size of " + this);
+            }
+        }
+
+        public void read() throws Exception {
+            long pos = getPos().getPos();
+            if (pos < FIRST_BLOCK || pos + HEADER_SIZE >= end) {
+                throw blockCorruptedException();
+            }
+
+            BlockPayload payload = getPayload();
+            byte type = buffer.get((int) pos);
+            if (type != payload.getType()) {
+                throw blockCorruptedException();
+            }
+            payloadSize = buffer.getInt((int) pos + 1);
+            if (payloadSize < 0 || pos + HEADER_SIZE + TAIL_SIZE + payloadSize > end) {
+                throw blockCorruptedException();
+            }
+
+            ByteBuffer source = slice(pos, getSize());
+            source.position(HEADER_SIZE);
+            source.limit(HEADER_SIZE + payloadSize);
+            payload.read(new DataInputStream(new ByteBufferInputStream(source)));
+
+            int actualCount = source.position() - HEADER_SIZE;
+            source.limit(source.capacity());
+            if (source.getInt() != actualCount) {
+                throw blockCorruptedException();
+            }
+        }
+
+        private ByteBuffer slice(long pos, int size) {
+            ByteBuffer duplicate = buffer.duplicate();
+            duplicate.position((int) pos);
+            duplicate.limit((int) pos + size);
+            return duplicate.slice();
+        }
+
+        @Override
+        public RuntimeException blockCorruptedException() {
+            return new CorruptedCacheException(String.format("Corrupted %s found in %s.", this,
+                    MappedFileBlockStore.this));
+        }
+    }
+
+    /**
+     * Releases mappings through the cleaner of the JDK that is running, when it can be reached.
+     * Otherwise the mapping is released when the buffer is garbage collected.
+     */
+    private static class Unmapper {
+        private static final Object UNSAFE;
+        private static final Method INVOKE_CLEANER;
+
+        static {
+            Object unsafe = null;
+            Method invokeCleaner = null;
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                unsafe = theUnsafe.get(null);
+            } catch (Exception e) {
+                // not Java 9 or later, use the cleaner of the buffer
+                invokeCleaner = null;
+            }
+            UNSAFE = unsafe;
+            INVOKE_CLEANER = invokeCleaner;
+        }
+
+        static void unmap(MappedByteBuffer buffer) {
+            try {
+                if (INVOKE_CLEANER != null) {
+                    INVOKE_CLEANER.invoke(UNSAFE, buffer);
+                    return;
+                }
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            } catch (Exception e) {
+                // left to the garbage collector
+            }
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.min(n, buffer.remaining());
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    private static class ByteBufferOutputStream extends OutputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferOutputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void write(int b) {
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            buffer.put(bytes, offset, length);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.tyron.builder.cache.internal.btree;
+
+import com.tyron.builder.internal.serialize.BaseSerializerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Compares the file-backed and the memory-mapped block stores. Not a unit test, run it with
+ * the number of entries as the only argument.
+ * <p>
+ * Each run writes every entry, then reads random entries as many times as there are entries,
+ * replacing a quarter of the entries read with a larger value.
+ */
+public class MappedFileBlockStoreBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        for (int i = 0; i < 3; i++) {
+            System.out.println("file-backed: " + run(count, false) + "ms");
+            System.out.println("mapped: " + run(count, true) + "ms");
+        }
+    }
+
+    private static long run(int count, boolean memoryMapped) throws IOException {
+        File directory = Files.createTempDirectory("btree").toFile();
+        File file = new File(directory, "cache.bin");
+        Random random = new Random(count);
+        long start = System.nanoTime();
+        BTreePersistentIndexedCache<Integer, String> cache = new BTreePersistentIndexedCache<>(file,
+                BaseSerializerFactory.INTEGER_SERIALIZER, BaseSerializerFactory.STRING_SERIALIZER,
+                (short) 512, 512, memoryMapped);
+        try {
+            for (int i = 0; i < count; i++) {
+                cache.put(i, "value " + i);
+            }
+            for (int i = 0; i < count; i++) {
+                int key = random.nextInt(count);
+                String value = cache.get(key);
+                if (random.nextInt(4) == 0) {
+                    cache.put(key, value + " replaced");
+                }
+            }
+        } finally {
+            cache.close();
+            file.delete();
+            directory.delete();
+        }
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
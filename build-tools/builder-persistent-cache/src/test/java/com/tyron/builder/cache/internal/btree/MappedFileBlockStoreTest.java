@@ -0,0 +1,143 @@
+package com.tyron.builder.cache.internal.btree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.tyron.builder.internal.serialize.BaseSerializerFactory;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MappedFileBlockStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final List<BTreePersistentIndexedCache<String, String>> caches = new ArrayList<>();
+
+    @After
+    public void closeCaches() {
+        for (BTreePersistentIndexedCache<String, String> cache : caches) {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testReopen() {
+        File file = new File(temporaryFolder.getRoot(), "cache.bin");
+        BTreePersistentIndexedCache<String, String> cache = open(file, true);
+        for (int i = 0; i < 1000; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        cache.remove("key500");
+        cache.close();
+        assertTrue("file is truncated on close", file.length() < 1024 * 1024);
+
+        cache = open(file, true);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i == 500 ? null : "value" + i, cache.get("key" + i));
+        }
+        cache.verify();
+    }
+
+    @Test
+    public void testGrowsBeyondTheFirstMapping() {
+        File file = new File(temporaryFolder.getRoot(), "cache.bin");
+        String value = repeat('x', 10000);
+        BTreePersistentIndexedCache<String, String> cache = open(file, true);
+        for (int i = 0; i < 500; i++) {
+            cache.put("key" + i, value + i);
+        }
+        cache.close();
+        assertTrue(file.length() > 1024 * 1024);
+
+        cache = open(file, true);
+        for (int i = 0; i < 500; i++) {
+            assertEquals(value + i, cache.get("key" + i));
+        }
+        for (int i = 0; i < 500; i++) {
+            cache.remove("key" + i);
+        }
+        cache.close();
+        assertTrue("free tail is given back on close", file.length() < 1024 * 1024);
+    }
+
+    @Test
+    public void testClear() {
+        File file = new File(temporaryFolder.getRoot(), "cache.bin");
+        BTreePersistentIndexedCache<String, String> cache = open(file, true);
+        for (int i = 0; i < 100; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+
+        cache.clear();
+        assertTrue(cache.isOpen());
+        assertNull(cache.get("key1"));
+        cache.put("key1", "new value");
+        assertEquals("new value", cache.get("key1"));
+        cache.close();
+
+        cache = open(file, true);
+        assertEquals("new value", cache.get("key1"));
+        assertNull(cache.get("key2"));
+        cache.verify();
+    }
+
+    @Test
+    public void testDiscardsFileWrittenByTheFileBackedStore() {
+        File file = new File(temporaryFolder.getRoot(), "cache.bin");
+        BTreePersistentIndexedCache<String, String> cache = open(file, false);
+        cache.put("key", "old value");
+        cache.close();
+
+        cache = open(file, true);
+        assertTrue(cache.isOpen());
+        assertNull(cache.get("key"));
+        cache.put("key", "value");
+        cache.close();
+
+        cache = open(file, true);
+        assertEquals("value", cache.get("key"));
+    }
+
+    @Test
+    public void testTreatsZeroFilledFileAsEmpty() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), "cache.bin");
+        // a crash after the file was extended by the mapping but before the header was written
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(1024 * 1024);
+        }
+
+        BTreePersistentIndexedCache<String, String> cache = open(file, true);
+        assertNull(cache.get("key"));
+        cache.put("key", "value");
+        cache.close();
+
+        cache = open(file, true);
+        assertEquals("value", cache.get("key"));
+    }
+
+    private BTreePersistentIndexedCache<String, String> open(File file, boolean memoryMapped) {
+        BTreePersistentIndexedCache<String, String> cache = new BTreePersistentIndexedCache<>(file,
+                BaseSerializerFactory.STRING_SERIALIZER, BaseSerializerFactory.STRING_SERIALIZER,
+                (short) 4, 100, memoryMapped);
+        caches.add(cache);
+        return cache;
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder builder = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+}
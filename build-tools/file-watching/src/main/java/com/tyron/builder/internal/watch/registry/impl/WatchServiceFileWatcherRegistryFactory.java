@@ -0,0 +1,380 @@
+package com.tyron.builder.internal.watch.registry.impl;
+
+import static com.tyron.builder.internal.watch.registry.impl.HierarchicalFileWatcherUpdater.FileSystemLocationToWatchValidator.NO_VALIDATION;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import com.tyron.builder.internal.watch.registry.FileWatcherProbeRegistry;
+import com.tyron.builder.internal.watch.registry.FileWatcherUpdater;
+
+import net.rubygrapefruit.platform.file.FileWatchEvent;
+import net.rubygrapefruit.platform.file.FileWatcher;
+import net.rubygrapefruit.platform.internal.jni.AbstractFileEventFunctions;
+import net.rubygrapefruit.platform.internal.jni.InsufficientResourcesForWatchingException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * A file watcher registry factory backed by {@link WatchService}, for runtimes where the native
+ * file events integration is not available.
+ *
+ * {@link WatchService} only reports changes to the direct children of a registered directory, so
+ * the watcher registers every directory of a watched hierarchy and keeps registering directories
+ * as they are created. This makes it behave like a hierarchical watcher towards the
+ * {@link HierarchicalFileWatcherUpdater}.
+ */
+public class WatchServiceFileWatcherRegistryFactory extends AbstractFileWatcherRegistryFactory<WatchServiceFileWatcherRegistryFactory.WatchServiceFileEventFunctions, WatchServiceFileWatcherRegistryFactory.WatchServiceFileWatcher> {
+
+    public WatchServiceFileWatcherRegistryFactory(Predicate<String> watchFilter) {
+        super(new WatchServiceFileEventFunctions(), watchFilter);
+    }
+
+    @Override
+    protected WatchServiceFileWatcher createFileWatcher(BlockingQueue<FileWatchEvent> fileEvents) throws InterruptedException {
+        return fileEventFunctions.newWatcher(fileEvents).start();
+    }
+
+    @Override
+    protected FileWatcherUpdater createFileWatcherUpdater(
+            WatchServiceFileWatcher watcher,
+            FileWatcherProbeRegistry probeRegistry,
+            WatchableHierarchies watchableHierarchies
+    ) {
+        return new HierarchicalFileWatcherUpdater(watcher, NO_VALIDATION, probeRegistry, watchableHierarchies, root -> watcher.stopWatchingMovedPaths());
+    }
+
+    protected static class WatchServiceFileEventFunctions extends AbstractFileEventFunctions<WatchServiceFileWatcher> {
+
+        @Override
+        public void invalidateLogLevelCache() {
+
+        }
+
+        @Override
+        public AbstractWatcherBuilder<WatchServiceFileWatcher> newWatcher(BlockingQueue<FileWatchEvent> blockingQueue) {
+            return new AbstractWatcherBuilder<WatchServiceFileWatcher>(blockingQueue) {
+                @Override
+                protected Object startWatcher(NativeFileWatcherCallback callback) {
+                    try {
+                        return FileSystems.getDefault().newWatchService();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Unable to create a watch service", e);
+                    }
+                }
+
+                @Override
+                protected WatchServiceFileWatcher createWatcher(Object server,
+                                                                long startTimeout,
+                                                                TimeUnit startTimeoutUnit,
+                                                                NativeFileWatcherCallback callback) {
+                    return new WatchServiceFileWatcher((WatchService) server, callback);
+                }
+            };
+        }
+    }
+
+    protected static class WatchServiceFileWatcher implements FileWatcher {
+        private static final Logger LOGGER = LoggerFactory.getLogger(WatchServiceFileWatcher.class);
+
+        /**
+         * Time to wait for further events after the first one, so that bursts of changes
+         * (e.g. a build writing many outputs) are reported once per path.
+         */
+        private static final long COALESCING_WINDOW_MILLIS = 50;
+
+        private final WatchService watchService;
+        private final AbstractFileEventFunctions.NativeFileWatcherCallback callback;
+        private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+        /**
+         * The watched roots and their file key at the time watching started, used to detect
+         * roots that have been moved or replaced.
+         */
+        private final Map<Path, Object> watchedRoots = new ConcurrentHashMap<>();
+        private final Thread eventThread;
+        private volatile boolean stopping;
+
+        public WatchServiceFileWatcher(WatchService watchService, AbstractFileEventFunctions.NativeFileWatcherCallback callback) {
+            this.watchService = watchService;
+            this.callback = callback;
+            this.eventThread = new Thread(this::processEvents, "File watcher (WatchService)");
+            this.eventThread.setDaemon(true);
+            this.eventThread.start();
+        }
+
+        @Override
+        public synchronized void startWatching(Collection<File> roots) throws InsufficientResourcesForWatchingException {
+            for (File root : roots) {
+                Path path = root.toPath().toAbsolutePath();
+                if (watchedRoots.containsKey(path) || !Files.isDirectory(path)) {
+                    continue;
+                }
+                watchedRoots.put(path, fileKey(path));
+                try {
+                    registerRecursively(path, null);
+                } catch (IOException e) {
+                    throw new InsufficientResourcesForWatchingException("Unable to watch " + path + ": " + e.getMessage());
+                }
+            }
+        }
+
+        @Override
+        public synchronized boolean stopWatching(Collection<File> roots) {
+            boolean stoppedAny = false;
+            for (File root : roots) {
+                Path path = root.toPath().toAbsolutePath();
+                if (watchedRoots.remove(path) == null) {
+                    continue;
+                }
+                stoppedAny = true;
+                Iterator<Map.Entry<WatchKey, Path>> iterator = watchedDirectories.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    Map.Entry<WatchKey, Path> entry = iterator.next();
+                    Path directory = entry.getValue();
+                    if (directory.startsWith(path) && !isInWatchedRoot(directory)) {
+                        entry.getKey().cancel();
+                        iterator.remove();
+                    }
+                }
+            }
+            return stoppedAny;
+        }
+
+        /**
+         * Stops watching the roots which no longer exist or have been replaced by another
+         * directory since watching started.
+         *
+         * @return the roots which have been moved
+         */
+        public Collection<File> stopWatchingMovedPaths() {
+            List<File> movedRoots = new ArrayList<>();
+            watchedRoots.forEach((root, fileKey) -> {
+                if (!Files.isDirectory(root) || !Objects.equals(fileKey, fileKey(root))) {
+                    movedRoots.add(root.toFile());
+                }
+            });
+            if (!movedRoots.isEmpty()) {
+                stopWatching(movedRoots);
+            }
+            return movedRoots;
+        }
+
+        @Override
+        public void shutdown() {
+            stopping = true;
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                LOGGER.debug("Unable to close watch service", e);
+            }
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit timeUnit) throws InterruptedException {
+            eventThread.join(timeUnit.toMillis(timeout));
+            return !eventThread.isAlive();
+        }
+
+        private boolean isInWatchedRoot(Path directory) {
+            for (Path root : watchedRoots.keySet()) {
+                if (directory.startsWith(root)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Registers the directory and all of its subdirectories.
+         *
+         * @param createdChanges if not null, the entries found inside the directory are recorded
+         *                       as created since they may have been written before the directory
+         *                       was registered.
+         */
+        private synchronized void registerRecursively(Path start, Map<Path, FileWatchEvent.ChangeType> createdChanges) throws IOException {
+            Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    if (createdChanges != null && !dir.equals(start)) {
+                        mergeChange(createdChanges, dir, FileWatchEvent.ChangeType.CREATED);
+                    }
+                    WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+                    watchedDirectories.put(key, dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (createdChanges != null) {
+                        mergeChange(createdChanges, file, FileWatchEvent.ChangeType.CREATED);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    // the file has been deleted in the meantime, its removal is reported separately
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+
+        private void processEvents() {
+            LOGGER.debug("Started watch service event loop");
+            try {
+                while (!stopping) {
+                    WatchKey key = watchService.take();
+                    Map<Path, FileWatchEvent.ChangeType> changes = new LinkedHashMap<>();
+                    Set<Path> overflows = new LinkedHashSet<>();
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(COALESCING_WINDOW_MILLIS);
+                    while (key != null) {
+                        collectEvents(key, changes, overflows);
+                        long remaining = deadline - System.nanoTime();
+                        key = remaining > 0
+                                ? watchService.poll(remaining, TimeUnit.NANOSECONDS)
+                                : watchService.poll();
+                    }
+                    if (!stopping) {
+                        report(changes, overflows);
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                // stop watching
+            } catch (Throwable t) {
+                callback.reportFailure(t);
+            } finally {
+                callback.reportTermination();
+                LOGGER.debug("Finished watch service event loop");
+            }
+        }
+
+        private void collectEvents(WatchKey key, Map<Path, FileWatchEvent.ChangeType> changes, Set<Path> overflows) {
+            Path directory = watchedDirectories.get(key);
+            if (directory == null) {
+                key.cancel();
+                return;
+            }
+            for (WatchEvent<?> event : key.pollEvents()) {
+                WatchEvent.Kind<?> kind = event.kind();
+                if (kind == OVERFLOW) {
+                    overflows.add(directory);
+                    continue;
+                }
+                Path child = directory.resolve((Path) event.context());
+                if (kind == ENTRY_CREATE) {
+                    mergeChange(changes, child, FileWatchEvent.ChangeType.CREATED);
+                    if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                        try {
+                            registerRecursively(child, changes);
+                        } catch (IOException e) {
+                            LOGGER.debug("Unable to watch created directory {}", child, e);
+                            overflows.add(directory);
+                        }
+                    }
+                } else if (kind == ENTRY_DELETE) {
+                    mergeChange(changes, child, FileWatchEvent.ChangeType.REMOVED);
+                } else {
+                    mergeChange(changes, child, FileWatchEvent.ChangeType.MODIFIED);
+                }
+            }
+            if (!key.reset()) {
+                // the directory is no longer accessible, its removal is reported by the parent
+                watchedDirectories.remove(key);
+            }
+        }
+
+        private void report(Map<Path, FileWatchEvent.ChangeType> changes, Set<Path> overflows) {
+            for (Path overflow : overflows) {
+                LOGGER.info("Watch service overflow for '{}', invalidating", overflow);
+                callback.reportOverflow(overflow.toString());
+            }
+            changes.forEach((path, type) -> {
+                if (!isCoveredByOverflow(path, overflows)) {
+                    callback.reportChangeEvent(nativeChangeType(type), path.toString());
+                }
+            });
+        }
+
+        private static boolean isCoveredByOverflow(Path path, Set<Path> overflows) {
+            for (Path overflow : overflows) {
+                if (path.startsWith(overflow)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Coalesces a change with an earlier change to the same path reported in the same window.
+         */
+        private static void mergeChange(Map<Path, FileWatchEvent.ChangeType> changes, Path path, FileWatchEvent.ChangeType type) {
+            changes.merge(path, type, (previous, current) -> {
+                if (current == FileWatchEvent.ChangeType.REMOVED) {
+                    return FileWatchEvent.ChangeType.REMOVED;
+                }
+                if (previous == FileWatchEvent.ChangeType.REMOVED) {
+                    // removed and recreated
+                    return FileWatchEvent.ChangeType.MODIFIED;
+                }
+                return previous;
+            });
+        }
+
+        /**
+         * Returns the code the native watchers report for the change type, as expected by
+         * {@link AbstractFileEventFunctions.NativeFileWatcherCallback#reportChangeEvent(int, String)}.
+         */
+        private static int nativeChangeType(FileWatchEvent.ChangeType type) {
+            switch (type) {
+                case CREATED:
+                    return 0;
+                case REMOVED:
+                    return 1;
+                case MODIFIED:
+                    return 2;
+                case INVALIDATED:
+                    return 3;
+                default:
+                    throw new IllegalArgumentException("Unknown change type " + type);
+            }
+        }
+
+        private static Object fileKey(Path path) {
+            try {
+                return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+            } catch (IOException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.tyron.builder.internal.watch.registry.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import net.rubygrapefruit.platform.file.FileWatchEvent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+public class WatchServiceFileWatcherRegistryFactoryTest {
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final BlockingQueue<FileWatchEvent> events = new LinkedBlockingQueue<>();
+    private WatchServiceFileWatcherRegistryFactory.WatchServiceFileWatcher watcher;
+    private File root;
+
+    @Before
+    public void setUp() throws Exception {
+        root = temporaryFolder.newFolder("root");
+        watcher = new WatchServiceFileWatcherRegistryFactory.WatchServiceFileEventFunctions().newWatcher(events).start();
+        watcher.startWatching(Collections.singletonList(root));
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        watcher.shutdown();
+        assertTrue(watcher.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void reportsCreatedModifiedAndRemovedFiles() throws Exception {
+        File file = new File(root, "file.txt");
+
+        write(file, "created");
+        assertEquals("CREATED " + file, nextChangeOf(file));
+
+        write(file, "modified");
+        assertEquals("MODIFIED " + file, nextChangeOf(file));
+
+        assertTrue(file.delete());
+        assertEquals("REMOVED " + file, nextChangeOf(file));
+    }
+
+    @Test
+    public void reportsChangesInDirectoriesCreatedAfterWatchingStarted() throws Exception {
+        File directory = new File(root, "directory");
+        assertTrue(directory.mkdir());
+        assertEquals("CREATED " + directory, nextChangeOf(directory));
+
+        File file = new File(directory, "file.txt");
+        write(file, "created");
+        assertEquals("CREATED " + file, nextChangeOf(file));
+
+        assertTrue(file.delete());
+        assertEquals("REMOVED " + file, nextChangeOf(file));
+    }
+
+    @Test
+    public void doesNotReportChangesAfterWatchingStopped() throws Exception {
+        watcher.stopWatching(Collections.singletonList(root));
+        File file = new File(root, "file.txt");
+        write(file, "created");
+
+        List<String> received = drain(500);
+        assertTrue(received.toString(), received.isEmpty());
+    }
+
+    private static void write(File file, String text) throws IOException {
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the next change event reported for the given file, ignoring changes to other paths.
+     */
+    private String nextChangeOf(File file) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (true) {
+            long remaining = deadline - System.currentTimeMillis();
+            FileWatchEvent event = remaining > 0 ? events.poll(remaining, TimeUnit.MILLISECONDS) : null;
+            if (event == null) {
+                fail("No change reported for " + file);
+            }
+            String description = describe(event);
+            if (description.endsWith(" " + file.getAbsolutePath())) {
+                return description;
+            }
+        }
+    }
+
+    private List<String> drain(long millis) throws InterruptedException {
+        List<String> received = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + millis;
+        long remaining;
+        while ((remaining = deadline - System.currentTimeMillis()) > 0) {
+            FileWatchEvent event = events.poll(remaining, TimeUnit.MILLISECONDS);
+            if (event != null) {
+                received.add(describe(event));
+            }
+        }
+        return received;
+    }
+
+    private static String describe(FileWatchEvent event) {
+        StringBuilder description = new StringBuilder();
+        event.handleEvent(new FileWatchEvent.Handler() {
+            @Override
+            public void handleChangeEvent(FileWatchEvent.ChangeType type, String absolutePath) {
+                description.append(type).append(' ').append(absolutePath);
+            }
+
+            @Override
+            public void handleUnknownEvent(String absolutePath) {
+                description.append("UNKNOWN ").append(absolutePath);
+            }
+
+            @Override
+            public void handleOverflow(FileWatchEvent.OverflowType type, @Nullable String absolutePath) {
+                description.append("OVERFLOW ").append(absolutePath);
+            }
+
+            @Override
+            public void handleFailure(Throwable failure) {
+                description.append("FAILURE ").append(failure);
+            }
+
+            @Override
+            public void handleTerminated() {
+                description.append("TERMINATED");
+            }
+        });
+        return description.toString();
+    }
+}
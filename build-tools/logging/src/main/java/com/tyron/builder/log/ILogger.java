@@ -2,6 +2,8 @@ package com.tyron.builder.log;
 
 import com.tyron.builder.model.DiagnosticWrapper;
 
+import java.util.List;
+
 import javax.tools.Diagnostic;
 
 public interface ILogger {
@@ -71,6 +73,16 @@ public interface ILogger {
             public void error(DiagnosticWrapper wrapper) {
                 logViewModel.e(LogViewModel.BUILD_LOG, wrapper);
             }
+
+            @Override
+            public void info(List<DiagnosticWrapper> wrappers) {
+                logViewModel.addAll(LogViewModel.BUILD_LOG, wrappers);
+            }
+
+            @Override
+            public void error(List<DiagnosticWrapper> wrappers) {
+                logViewModel.addAll(LogViewModel.BUILD_LOG, wrappers);
+            }
         };
     }
     void info(DiagnosticWrapper wrapper);
@@ -81,6 +93,27 @@ public interface ILogger {
 
     void error (DiagnosticWrapper wrapper);
 
+    /**
+     * Logs several messages at once. Loggers that display the messages should override this
+     * to update their view once for all of them.
+     */
+    default void info(List<DiagnosticWrapper> wrappers) {
+        for (DiagnosticWrapper wrapper : wrappers) {
+            info(wrapper);
+        }
+    }
+
+    /**
+     * Logs several error messages at once.
+     *
+     * @see #info(List)
+     */
+    default void error(List<DiagnosticWrapper> wrappers) {
+        for (DiagnosticWrapper wrapper : wrappers) {
+            error(wrapper);
+        }
+    }
+
 
 
     default void info(String message) {
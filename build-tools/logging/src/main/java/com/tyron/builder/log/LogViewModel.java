@@ -100,6 +100,21 @@ public class LogViewModel extends ViewModel {
         maybePost(id, list);
     }
 
+    /**
+     * Adds several diagnostics to a ViewModel, updating it once
+     *
+     * @param id          the log id to set to
+     * @param diagnostics the diagnostics to add
+     */
+    public void addAll(int id, List<DiagnosticWrapper> diagnostics) {
+        List<DiagnosticWrapper> list = getLogs(id).getValue();
+        if (list == null) {
+            list = new ArrayList<>();
+        }
+        list.addAll(diagnostics);
+        maybePost(id, list);
+    }
+
     /**
      * Checks if the current thread is the main thread and does not post it if so
      *
@@ -1,17 +1,19 @@
 package com.tyron.builder.compiler.manifest;
 
 import com.google.common.base.Optional;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
 import com.tyron.builder.compiler.manifest.blame.SourceFile;
 import com.tyron.builder.util.PositionXmlParser;
 
 import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.openjdk.javax.xml.parsers.ParserConfigurationException;
 
@@ -20,6 +22,24 @@ import org.openjdk.javax.xml.parsers.ParserConfigurationException;
  */
 public final class XmlLoader {
 
+    /**
+     * The maximum number of parsed files kept in {@link #sDocumentCache}.
+     */
+    private static final int MAX_CACHED_DOCUMENTS = 256;
+
+    /**
+     * The parsed files by their path, least recently used first. Manifests of libraries rarely
+     * change between builds so they don't need to be parsed again. The documents are never
+     * handed out, only copies of them since merging modifies the documents.
+     */
+    private static final Map<File, CachedDocument> sDocumentCache =
+            new LinkedHashMap<File, CachedDocument>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<File, CachedDocument> eldest) {
+                    return size() > MAX_CACHED_DOCUMENTS;
+                }
+            };
+
     private XmlLoader() {}
 
     /**
@@ -37,9 +57,7 @@ public final class XmlLoader {
             XmlDocument.Type type,
             Optional<String> mainManifestPackageName)
             throws IOException, SAXException, ParserConfigurationException {
-        InputStream inputStream = new BufferedInputStream(new FileInputStream(xmlFile));
-
-        Document domDocument = PositionXmlParser.parse(inputStream);
+        Document domDocument = parseCached(xmlFile);
         return domDocument != null ? new XmlDocument(
                 new SourceFile(xmlFile, displayName),
                 selectors,
@@ -51,6 +69,33 @@ public final class XmlLoader {
     }
 
 
+    /**
+     * Parses the file, or copies the document of the previous parse if the contents of the file
+     * have not changed since then. The contents are compared by hash rather than by timestamp, as
+     * the merge task does to decide whether to merge, so a file rewritten within the timestamp
+     * granularity is not served from a stale parse.
+     */
+    private static Document parseCached(File xmlFile)
+            throws IOException, SAXException, ParserConfigurationException {
+        File key = xmlFile.getAbsoluteFile();
+        byte[] contents = Files.readAllBytes(xmlFile.toPath());
+        HashCode hash = Hashing.murmur3_128().hashBytes(contents);
+        CachedDocument cached;
+        synchronized (sDocumentCache) {
+            cached = sDocumentCache.get(key);
+        }
+        if (cached == null || !cached.hash.equals(hash)) {
+            cached = new CachedDocument(PositionXmlParser.parse(contents), hash);
+            synchronized (sDocumentCache) {
+                sDocumentCache.put(key, cached);
+            }
+        }
+        // the DOM implementation is not thread safe, even for reading
+        synchronized (cached) {
+            return PositionXmlParser.cloneDocument(cached.document);
+        }
+    }
+
     /**
      * Loads a xml document from its {@link String} representation without doing xml validation and
      * return a {@link XmlDocument}
@@ -80,4 +125,14 @@ public final class XmlLoader {
                 mainManifestPackageName)
                 : null;
     }
+
+    private static class CachedDocument {
+        final Document document;
+        final HashCode hash;
+
+        CachedDocument(Document document, HashCode hash) {
+            this.document = document;
+            this.hash = hash;
+        }
+    }
 }
@@ -419,6 +419,35 @@ public class PositionXmlParser {
         return xml;
     }
 
+    /**
+     * Returns a deep copy of a document parsed by this parser, including the position
+     * information of its nodes. The positions are shared with the original document.
+     *
+     * @param document a document returned by one of the parse methods
+     * @return the copy
+     */
+    @NotNull
+    public static Document cloneDocument(@NotNull Document document) {
+        Document copy = (Document) document.cloneNode(true);
+        copy.setUserData(CONTENT_KEY, document.getUserData(CONTENT_KEY), null);
+        copyPositions(document, copy);
+        return copy;
+    }
+
+    private static void copyPositions(@NotNull Node source, @NotNull Node target) {
+        Node sourceChild = source.getFirstChild();
+        Node targetChild = target.getFirstChild();
+        while (sourceChild != null && targetChild != null) {
+            Object position = sourceChild.getUserData(POS_KEY);
+            if (position != null) {
+                targetChild.setUserData(POS_KEY, position, null);
+            }
+            copyPositions(sourceChild, targetChild);
+            sourceChild = sourceChild.getNextSibling();
+            targetChild = targetChild.getNextSibling();
+        }
+    }
+
     /**
      * Returns the position for the given node. This is the start position. The end position can be
      * obtained via {@link Position#getEnd()}.
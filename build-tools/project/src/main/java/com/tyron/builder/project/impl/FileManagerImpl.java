@@ -7,6 +7,7 @@ import androidx.annotation.Nullable;
 
 import com.tyron.builder.project.api.FileManager;
 import com.tyron.builder.project.listener.FileListener;
+import com.tyron.common.util.FileChangeService;
 import com.tyron.common.util.ThreadUtil;
 
 import org.apache.commons.io.FileUtils;
@@ -24,6 +25,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class FileManagerImpl implements FileManager {
 
@@ -109,14 +111,7 @@ public class FileManagerImpl implements FileManager {
             return;
         }
 
-        mSnapshots.computeIfPresent(file, (f, state) -> {
-            boolean equals = Objects.equals(content, state.getContents());
-            state.setContents(content);
-            if (!equals) {
-                state.setModified(Instant.now());
-            }
-            return state;
-        });
+        updateSnapshot(file, content);
 
         for (FileListener l : mListeners) {
             if (l.equals(listener)) {
@@ -132,18 +127,27 @@ public class FileManagerImpl implements FileManager {
             return;
         }
 
+        updateSnapshot(file, content);
+        if (notify) {
+            for (FileListener listener : mListeners) {
+                listener.onSnapshotChanged(file, content);
+            }
+        }
+    }
+
+    private void updateSnapshot(@NonNull File file, String content) {
+        AtomicBoolean changed = new AtomicBoolean();
         mSnapshots.computeIfPresent(file, (f, state) -> {
             boolean equals = Objects.equals(content, state.getContents());
             state.setContents(content);
             if (!equals) {
                 state.setModified(Instant.now());
+                changed.set(true);
             }
             return state;
         });
-        if (notify) {
-            for (FileListener listener : mListeners) {
-                listener.onSnapshotChanged(file, content);
-            }
+        if (changed.get()) {
+            FileChangeService.getInstance().fileChanged(file.toPath(), FileChangeService.Origin.EDITOR);
         }
     }
 
@@ -3,6 +3,7 @@ package com.tyron.builder.internal.snapshot.impl;
 import static com.tyron.builder.internal.file.FileMetadata.*;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Interner;
 import com.google.common.collect.Iterables;
@@ -33,12 +34,15 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
@@ -47,6 +51,9 @@ import org.jetbrains.annotations.Nullable;
 
 /**
  * For creating {@link DirectorySnapshot}s of directories.
+ *
+ * When created with a {@link ForkJoinPool}, every sub-directory is snapshotted in its own task,
+ * so the directories of a tree are listed and their files are hashed in parallel.
  */
 public class DirectorySnapshotter {
     private static final EnumSet<FileVisitOption> DONT_FOLLOW_SYMLINKS = EnumSet.noneOf(FileVisitOption.class);
@@ -72,12 +79,23 @@ public class DirectorySnapshotter {
     private final Interner<String> stringInterner;
     private final DefaultExcludes defaultExcludes;
     private final DirectorySnapshotterStatistics.Collector collector;
+    @Nullable
+    private final ForkJoinPool forkJoinPool;
 
     public DirectorySnapshotter(FileHasher hasher, Interner<String> stringInterner, Collection<String> defaultExcludes, DirectorySnapshotterStatistics.Collector collector) {
+        this(hasher, stringInterner, defaultExcludes, collector, null);
+    }
+
+    /**
+     * @param forkJoinPool The pool to snapshot the sub-directories in, {@code null} to walk the directories on the calling thread.
+     *                     The hasher, the string interner and the predicates passed to {@link #snapshot} need to be thread-safe when a pool is used.
+     */
+    public DirectorySnapshotter(FileHasher hasher, Interner<String> stringInterner, Collection<String> defaultExcludes, DirectorySnapshotterStatistics.Collector collector, @Nullable ForkJoinPool forkJoinPool) {
         this.hasher = hasher;
         this.stringInterner = stringInterner;
         this.defaultExcludes = new DefaultExcludes(defaultExcludes);
         this.collector = collector;
+        this.forkJoinPool = forkJoinPool;
     }
 
     /**
@@ -98,9 +116,17 @@ public class DirectorySnapshotter {
      * @return The (possible filtered) snapshot of the directory.
      */
     public FileSystemLocationSnapshot snapshot(String absolutePath, @Nullable SnapshottingFilter.DirectoryWalkerPredicate predicate, final AtomicBoolean hasBeenFiltered, Consumer<FileSystemLocationSnapshot> unfilteredSnapshotConsumer) {
+        Path rootPath = Paths.get(absolutePath);
+        if (forkJoinPool != null) {
+            // The unfiltered snapshots are reported on the calling thread, after the whole tree has been snapshotted
+            List<FileSystemLocationSnapshot> unfilteredSnapshots = new ArrayList<>();
+            PathVisitor visitor = new PathVisitor(predicate, hasBeenFiltered, hasher, stringInterner, defaultExcludes, collector, EMPTY_SYMBOLIC_LINK_MAPPING, unfilteredSnapshots::add, true, new ArrayDeque<>(), false);
+            FileSystemLocationSnapshot result = forkJoinPool.invoke(new SubtreeSnapshotTask(rootPath, visitor, hasBeenFiltered, unfilteredSnapshots));
+            unfilteredSnapshots.forEach(unfilteredSnapshotConsumer);
+            return result;
+        }
         try {
-            Path rootPath = Paths.get(absolutePath);
-            PathVisitor visitor = new PathVisitor(predicate, hasBeenFiltered, hasher, stringInterner, defaultExcludes, collector, EMPTY_SYMBOLIC_LINK_MAPPING, unfilteredSnapshotConsumer);
+            PathVisitor visitor = new PathVisitor(predicate, hasBeenFiltered, hasher, stringInterner, defaultExcludes, collector, EMPTY_SYMBOLIC_LINK_MAPPING, unfilteredSnapshotConsumer, false, new ArrayDeque<>(), false);
             Files.walkFileTree(rootPath, DONT_FOLLOW_SYMLINKS, Integer.MAX_VALUE, visitor);
             return visitor.getResult();
         } catch (IOException e) {
@@ -152,6 +178,69 @@ public class DirectorySnapshotter {
         }
     }
 
+    /**
+     * The mapping of a sub-directory which is snapshotted by its own visitor.
+     * Absolute paths are remapped like in the parent visitor, and the relative paths are prefixed with the path of the sub-directory.
+     */
+    private static class SubtreeSymbolicLinkMapping implements SymbolicLinkMapping {
+        private final SymbolicLinkMapping parentMapping;
+        private final ImmutableList<String> prefixRelativePath;
+
+        public SubtreeSymbolicLinkMapping(SymbolicLinkMapping parentMapping, ImmutableList<String> prefixRelativePath) {
+            this.parentMapping = parentMapping;
+            this.prefixRelativePath = prefixRelativePath;
+        }
+
+        @Override
+        public String remapAbsolutePath(Path path) {
+            return parentMapping.remapAbsolutePath(path);
+        }
+
+        @Override
+        public SymbolicLinkMapping withNewMapping(String source, String target, RelativePathTracker currentPathTracker) {
+            return new DefaultSymbolicLinkMapping(parentMapping.remapAbsolutePath(Paths.get(source)), target, getRemappedSegments(currentPathTracker.getSegments()));
+        }
+
+        @Override
+        public Iterable<String> getRemappedSegments(Iterable<String> segments) {
+            return Iterables.concat(prefixRelativePath, segments);
+        }
+    }
+
+    private static class SubtreeSnapshotTask extends RecursiveTask<FileSystemLocationSnapshot> {
+        private static final long serialVersionUID = 1L;
+
+        private final Path directory;
+        private final PathVisitor visitor;
+        private final AtomicBoolean hasBeenFiltered;
+        private final List<FileSystemLocationSnapshot> unfilteredSnapshots;
+
+        public SubtreeSnapshotTask(Path directory, PathVisitor visitor, AtomicBoolean hasBeenFiltered, List<FileSystemLocationSnapshot> unfilteredSnapshots) {
+            this.directory = directory;
+            this.visitor = visitor;
+            this.hasBeenFiltered = hasBeenFiltered;
+            this.unfilteredSnapshots = unfilteredSnapshots;
+        }
+
+        @Override
+        protected FileSystemLocationSnapshot compute() {
+            try {
+                Files.walkFileTree(directory, DONT_FOLLOW_SYMLINKS, Integer.MAX_VALUE, visitor);
+                return visitor.getResult();
+            } catch (IOException e) {
+                throw new UncheckedIOException(String.format("Could not list contents of directory '%s'.", directory), e);
+            }
+        }
+
+        public boolean hasBeenFiltered() {
+            return hasBeenFiltered.get();
+        }
+
+        public List<FileSystemLocationSnapshot> getUnfilteredSnapshots() {
+            return unfilteredSnapshots;
+        }
+    }
+
     @VisibleForTesting
     static class DefaultExcludes {
         private final ImmutableSet<String> excludeFileNames;
@@ -234,9 +323,11 @@ public class DirectorySnapshotter {
         private final Interner<String> stringInterner;
         private final DefaultExcludes defaultExcludes;
         private final SymbolicLinkMapping symbolicLinkMapping;
-        private final Deque<String> parentDirectories = new ArrayDeque<>();
+        private final Deque<String> parentDirectories;
         private final Set<FileSystemLocationSnapshot> filteredDirectorySnapshots = new HashSet<>();
         private final Consumer<FileSystemLocationSnapshot> unfilteredSnapshotConsumer;
+        private final boolean forkSubdirectories;
+        private final List<SubtreeSnapshotTask> forkedSubtrees = new ArrayList<>();
 
         public PathVisitor(
                 @Nullable SnapshottingFilter.DirectoryWalkerPredicate predicate,
@@ -246,9 +337,12 @@ public class DirectorySnapshotter {
                 DefaultExcludes defaultExcludes,
                 DirectorySnapshotterStatistics.Collector statisticsCollector,
                 SymbolicLinkMapping symbolicLinkMapping,
-                Consumer<FileSystemLocationSnapshot> unfilteredSnapshotConsumer
+                Consumer<FileSystemLocationSnapshot> unfilteredSnapshotConsumer,
+                boolean forkSubdirectories,
+                Deque<String> parentDirectories,
+                boolean continuesHierarchy
         ) {
-            super(statisticsCollector);
+            super(statisticsCollector, continuesHierarchy);
             this.builder = FilteredTrackingMerkleDirectorySnapshotBuilder.sortingRequired(this::consumeUnfilteredSnapshot);
             this.predicate = predicate;
             this.hasBeenFiltered = hasBeenFiltered;
@@ -257,6 +351,8 @@ public class DirectorySnapshotter {
             this.defaultExcludes = defaultExcludes;
             this.symbolicLinkMapping = symbolicLinkMapping;
             this.unfilteredSnapshotConsumer = unfilteredSnapshotConsumer;
+            this.forkSubdirectories = forkSubdirectories;
+            this.parentDirectories = parentDirectories;
         }
 
         private void consumeUnfilteredSnapshot(FileSystemLocationSnapshot snapshot) {
@@ -274,6 +370,11 @@ public class DirectorySnapshotter {
             String fileName = getInternedFileName(dir);
             pathTracker.enter(fileName);
             if (shouldVisitDirectory(dir, fileName)) {
+                if (forkSubdirectories && !pathTracker.isRoot()) {
+                    forkSubtree(dir);
+                    pathTracker.leave();
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
                 builder.enterDirectory(AccessType.DIRECT, intern(symbolicLinkMapping.remapAbsolutePath(dir)), fileName, DirectorySnapshotBuilder.EmptyDirectoryHandlingStrategy.INCLUDE_EMPTY_DIRS);
                 parentDirectories.addFirst(dir.toString());
                 return FileVisitResult.CONTINUE;
@@ -292,6 +393,7 @@ public class DirectorySnapshotter {
             if (isNotFileSystemLoopException(exc)) {
                 throw new UncheckedIOException(String.format("Could not read directory path '%s'.", dir), exc);
             }
+            joinForkedSubtrees();
             boolean currentLevelComplete = builder.isCurrentLevelUnfiltered();
             FileSystemLocationSnapshot currentLevel = builder.leaveDirectory();
             if (!currentLevelComplete) {
@@ -339,6 +441,40 @@ public class DirectorySnapshotter {
             }
         }
 
+        private void forkSubtree(Path dir) {
+            AtomicBoolean subtreeHasBeenFiltered = new AtomicBoolean(false);
+            List<FileSystemLocationSnapshot> unfilteredSnapshots = new ArrayList<>();
+            PathVisitor subtreeVisitor = new PathVisitor(
+                    predicate,
+                    subtreeHasBeenFiltered,
+                    hasher,
+                    stringInterner,
+                    defaultExcludes,
+                    collector,
+                    new SubtreeSymbolicLinkMapping(symbolicLinkMapping, ImmutableList.copyOf(symbolicLinkMapping.getRemappedSegments(pathTracker.getSegments()))),
+                    unfilteredSnapshots::add,
+                    true,
+                    new ArrayDeque<>(parentDirectories),
+                    true);
+            SubtreeSnapshotTask task = new SubtreeSnapshotTask(dir, subtreeVisitor, subtreeHasBeenFiltered, unfilteredSnapshots);
+            task.fork();
+            forkedSubtrees.add(task);
+        }
+
+        private void joinForkedSubtrees() {
+            for (SubtreeSnapshotTask task : forkedSubtrees) {
+                DirectorySnapshot subtreeSnapshot = (DirectorySnapshot) task.join();
+                builder.visitDirectory(subtreeSnapshot);
+                task.getUnfilteredSnapshots().forEach(unfilteredSnapshotConsumer);
+                if (task.hasBeenFiltered()) {
+                    filteredDirectorySnapshots.add(subtreeSnapshot);
+                    builder.markCurrentLevelAsFiltered();
+                    hasBeenFiltered.set(true);
+                }
+            }
+            forkedSubtrees.clear();
+        }
+
         @Nullable
         private DirectorySnapshot followSymlink(Path file, String internedFileName, AtomicBoolean symlinkHasBeenFiltered) {
             try {
@@ -353,7 +489,10 @@ public class DirectorySnapshotter {
                             defaultExcludes,
                             collector,
                             symbolicLinkMapping.withNewMapping(file.toString(), targetDirString, pathTracker),
-                            unfilteredSnapshotConsumer);
+                            unfilteredSnapshotConsumer,
+                            forkSubdirectories,
+                            new ArrayDeque<>(),
+                            false);
                     Files.walkFileTree(targetDir, EnumSet.noneOf(FileVisitOption.class), Integer.MAX_VALUE, subtreeVisitor);
                     return (DirectorySnapshot) subtreeVisitor.getResult();
                 } else {
@@ -403,7 +542,7 @@ public class DirectorySnapshotter {
             long lastModified = attrs.lastModifiedTime().toMillis();
             long fileLength = attrs.size();
             FileMetadata metadata = DefaultFileMetadata.file(lastModified, fileLength, accessType);
-            HashCode hash = hasher.hash(absoluteFilePath.toFile(), fileLength, lastModified);
+            HashCode hash = hasher.hash(absoluteFilePath.toFile(), fileLength, lastModified, attrs.fileKey());
             return new RegularFileSnapshot(internedRemappedAbsoluteFilePath, internedName, hash, metadata);
         }
 
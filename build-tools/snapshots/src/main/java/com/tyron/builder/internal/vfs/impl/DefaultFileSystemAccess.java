@@ -26,6 +26,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.function.Consumer;
@@ -34,6 +35,7 @@ import java.util.function.Supplier;
 
 public class DefaultFileSystemAccess implements FileSystemAccess {
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultFileSystemAccess.class);
+    private static final ForkJoinPool SNAPSHOTTING_POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
 
     private final VirtualFileSystem virtualFileSystem;
     private final Stat stat;
@@ -59,7 +61,7 @@ public class DefaultFileSystemAccess implements FileSystemAccess {
         this.writeListener = writeListener;
         this.statisticsCollector = statisticsCollector;
         this.defaultExcludes = ImmutableList.copyOf(defaultExcludes);
-        this.directorySnapshotter = new DirectorySnapshotter(hasher, stringInterner, this.defaultExcludes, statisticsCollector);
+        this.directorySnapshotter = new DirectorySnapshotter(hasher, stringInterner, this.defaultExcludes, statisticsCollector, SNAPSHOTTING_POOL);
         this.hasher = hasher;
         this.virtualFileSystem = virtualFileSystem;
     }
@@ -220,7 +222,7 @@ public class DefaultFileSystemAccess implements FileSystemAccess {
         if (!defaultExcludes.equals(newDefaultExcludes)) {
             LOGGER.debug("Default excludes changes from " + defaultExcludes + " to " + newDefaultExcludes);
             defaultExcludes = newDefaultExcludes;
-            directorySnapshotter = new DirectorySnapshotter(hasher, stringInterner, newDefaultExcludes, statisticsCollector);
+            directorySnapshotter = new DirectorySnapshotter(hasher, stringInterner, newDefaultExcludes, statisticsCollector, SNAPSHOTTING_POOL);
             virtualFileSystem.invalidateAll();
         }
     }
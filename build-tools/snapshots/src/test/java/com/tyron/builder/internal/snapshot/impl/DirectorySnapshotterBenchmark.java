@@ -0,0 +1,70 @@
+package com.tyron.builder.internal.snapshot.impl;
+
+import com.google.common.collect.Interners;
+import com.tyron.builder.internal.hash.DefaultFileHasher;
+import com.tyron.builder.internal.hash.DefaultStreamHasher;
+import com.tyron.builder.internal.hash.FileHasher;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Compares the sequential and the parallel snapshot of a synthetic tree. Not a unit test, run it with the number of
+ * files to generate, 100000 by default, and optionally the number of runs.
+ * <p>
+ * The tree has 10 * 10 * 10 directories and the files are spread over the leaves.
+ */
+public class DirectorySnapshotterBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int files = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int filesPerDirectory = Math.max(1, files / 1000);
+        File root = Files.createTempDirectory("snapshot-benchmark").toFile();
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            createTree(root, 3, 10, filesPerDirectory);
+            FileHasher hasher = new DefaultFileHasher(new DefaultStreamHasher());
+            DirectorySnapshotterStatistics.Collector collector = new DirectorySnapshotterStatistics.Collector();
+            DirectorySnapshotter sequential = new DirectorySnapshotter(hasher, Interners.newWeakInterner(), Collections.emptyList(), collector, null);
+            DirectorySnapshotter parallel = new DirectorySnapshotter(hasher, Interners.newWeakInterner(), Collections.emptyList(), collector, pool);
+
+            System.out.printf("%d files, %d threads%n", filesPerDirectory * 1000, pool.getParallelism());
+            for (int i = 0; i < runs; i++) {
+                System.out.printf("sequential: %dms, parallel: %dms%n", time(sequential, root), time(parallel, root));
+            }
+        } finally {
+            pool.shutdown();
+            FileUtils.deleteDirectory(root);
+        }
+    }
+
+    private static long time(DirectorySnapshotter snapshotter, File root) {
+        long start = System.nanoTime();
+        snapshotter.snapshot(root.getAbsolutePath(), null, new AtomicBoolean(), snapshot -> {});
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static void createTree(File dir, int depth, int directoriesPerLevel, int filesPerDirectory) throws IOException {
+        if (depth == 0) {
+            for (int i = 0; i < filesPerDirectory; i++) {
+                Files.write(new File(dir, "file" + i + ".txt").toPath(), (dir.getName() + i).getBytes(StandardCharsets.UTF_8));
+            }
+            return;
+        }
+        for (int i = 0; i < directoriesPerLevel; i++) {
+            File child = new File(dir, "dir" + i);
+            if (!child.mkdir()) {
+                throw new IOException("Could not create " + child);
+            }
+            createTree(child, depth - 1, directoriesPerLevel, filesPerDirectory);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.tyron.builder.internal.snapshot.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.Interners;
+import com.google.common.collect.Iterables;
+import com.tyron.builder.internal.hash.DefaultFileHasher;
+import com.tyron.builder.internal.hash.DefaultStreamHasher;
+import com.tyron.builder.internal.hash.FileHasher;
+import com.tyron.builder.internal.snapshot.FileSystemLocationSnapshot;
+import com.tyron.builder.internal.snapshot.SnapshottingFilter;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class DirectorySnapshotterTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final FileHasher hasher = new DefaultFileHasher(new DefaultStreamHasher());
+    private final DirectorySnapshotterStatistics.Collector collector = new DirectorySnapshotterStatistics.Collector();
+
+    @Test
+    public void testParallelSnapshotMatchesSequentialSnapshot() throws IOException {
+        File root = temporaryFolder.newFolder("root");
+        createTree(root, 3, 4, 5);
+
+        FileSystemLocationSnapshot sequential = snapshot(createSnapshotter(null), root, null, new TreeSet<>());
+        DirectorySnapshotterStatistics sequentialStatistics = collector.collect();
+        FileSystemLocationSnapshot parallel = snapshot(createSnapshotter(new ForkJoinPool(4)), root, null, new TreeSet<>());
+        DirectorySnapshotterStatistics parallelStatistics = collector.collect();
+
+        assertEquals(sequential.getHash(), parallel.getHash());
+        assertEquals(sequentialStatistics.getVisitedHierarchyCount(), parallelStatistics.getVisitedHierarchyCount());
+        assertEquals(sequentialStatistics.getVisitedDirectoryCount(), parallelStatistics.getVisitedDirectoryCount());
+        assertEquals(sequentialStatistics.getVisitedFiles(), parallelStatistics.getVisitedFiles());
+    }
+
+    @Test
+    public void testParallelSnapshotReportsFilteredSubtrees() throws IOException {
+        File root = temporaryFolder.newFolder("root");
+        createTree(root, 3, 3, 3);
+        SnapshottingFilter.DirectoryWalkerPredicate predicate = (path, name, isDirectory, relativePath) -> {
+            // exclude the first file of the directories two levels deep
+            return isDirectory || !(name.equals("file0.txt") && Iterables.size(relativePath) == 3);
+        };
+
+        Set<String> sequentialUnfiltered = new TreeSet<>();
+        AtomicBoolean sequentialFiltered = new AtomicBoolean();
+        FileSystemLocationSnapshot sequential = createSnapshotter(null).snapshot(root.getAbsolutePath(), predicate, sequentialFiltered, snapshot -> sequentialUnfiltered.add(snapshot.getAbsolutePath()));
+
+        Set<String> parallelUnfiltered = new TreeSet<>();
+        AtomicBoolean parallelFiltered = new AtomicBoolean();
+        FileSystemLocationSnapshot parallel = createSnapshotter(new ForkJoinPool(4)).snapshot(root.getAbsolutePath(), predicate, parallelFiltered, snapshot -> parallelUnfiltered.add(snapshot.getAbsolutePath()));
+
+        assertTrue(sequentialFiltered.get());
+        assertTrue(parallelFiltered.get());
+        assertFalse(sequentialUnfiltered.isEmpty());
+        assertEquals(sequential.getHash(), parallel.getHash());
+        assertEquals(sequentialUnfiltered, parallelUnfiltered);
+    }
+
+    @Test
+    public void testParallelSnapshotDetectsChangeInNestedFile() throws IOException {
+        File root = temporaryFolder.newFolder("root");
+        createTree(root, 4, 3, 2);
+        DirectorySnapshotter parallel = createSnapshotter(new ForkJoinPool(4));
+        FileSystemLocationSnapshot before = snapshot(parallel, root, null, null);
+
+        File nested = new File(root, "dir2/dir1/dir0/dir2/file1.txt");
+        assertTrue(nested.isFile());
+        Files.write(nested.toPath(), "changed".getBytes(StandardCharsets.UTF_8));
+        FileSystemLocationSnapshot after = snapshot(parallel, root, null, null);
+
+        assertNotEquals(before.getHash(), after.getHash());
+        assertEquals(snapshot(createSnapshotter(null), root, null, null).getHash(), after.getHash());
+    }
+
+    private DirectorySnapshotter createSnapshotter(ForkJoinPool forkJoinPool) {
+        return new DirectorySnapshotter(hasher, Interners.newWeakInterner(), Collections.emptyList(), collector, forkJoinPool);
+    }
+
+    private static FileSystemLocationSnapshot snapshot(DirectorySnapshotter snapshotter, File root, SnapshottingFilter.DirectoryWalkerPredicate predicate, Set<String> unfiltered) {
+        return snapshotter.snapshot(root.getAbsolutePath(), predicate, new AtomicBoolean(), snapshot -> {
+            if (unfiltered != null) {
+                unfiltered.add(snapshot.getAbsolutePath());
+            }
+        });
+    }
+
+    private static void createTree(File dir, int depth, int directoriesPerLevel, int filesPerDirectory) throws IOException {
+        if (depth == 0) {
+            for (int i = 0; i < filesPerDirectory; i++) {
+                Files.write(new File(dir, "file" + i + ".txt").toPath(), (dir.getName() + i).getBytes(StandardCharsets.UTF_8));
+            }
+            return;
+        }
+        Files.write(new File(dir, "file0.txt").toPath(), dir.getPath().getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < directoriesPerLevel; i++) {
+            File child = new File(dir, "dir" + i);
+            assertTrue(child.mkdir());
+            createTree(child, depth - 1, directoriesPerLevel, filesPerDirectory);
+        }
+    }
+}
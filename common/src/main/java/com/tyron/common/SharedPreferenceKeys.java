@@ -10,6 +10,7 @@ public class SharedPreferenceKeys {
     public static final String CLASSPATH = "classpath";
     public static final String KOTLIN_COMPLETIONS = "kotlin_completion";
     public static final String INSTALL_APK_DIRECTLY = "install_apk_directly";
+    public static final String BUILD_TRACE = "build_trace";
     public static final String JAVA_COMPLETIONS_TARGET_VERSION = "javaCompletionsTargetVersion";
     public static final String JAVA_COMPLETIONS_SOURCE_VERSION = "javaCompletionsSourceVersion";
     public static final String JAVA_CASE_INSENSITIVE_MATCH = "java_case_insensitive_match";
@@ -10,7 +10,12 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
-/** Cache maps a file + an arbitrary key to a value. When the file is modified, the mapping expires. */
+/**
+ * Cache maps a file + an arbitrary key to a value. When the file is modified, the mapping expires.
+ * <p>
+ * Modifications are detected through the versions of {@link FileChangeService}, files outside
+ * of a watched root are additionally checked on disk.
+ */
 public class Cache<K, V> {
     public static class Key<K> {
         public final Path file;
@@ -37,9 +42,11 @@ public class Cache<K, V> {
     private class Value {
         final V value;
         final Instant created = Instant.now();
+        final long version;
 
-        Value(V value) {
+        Value(V value, long version) {
             this.value = value;
+            this.version = version;
         }
     }
 
@@ -58,8 +65,17 @@ public class Cache<K, V> {
         Key<K> key = new Key<>(file, k);
         if (!map.containsKey(key)) return true;
 
-        // If key was loaded before file was last modified, it needs to be reloaded
+        // If a change was reported after the key was loaded, it needs to be reloaded
         Value value = map.get(key);
+        FileChangeService changeService = FileChangeService.getInstance();
+        if (value.version != changeService.getVersion(file)) {
+            return true;
+        }
+        if (changeService.isWatched(file)) {
+            return false;
+        }
+
+        // If key was loaded before file was last modified, it needs to be reloaded
         FileTime modified = null;
         try {
             modified = Files.getLastModifiedTime(file);
@@ -86,7 +102,7 @@ public class Cache<K, V> {
     public void load(Path file, K k, V v) {
         // TODO limit total size of cache
         Key<K> key = new Key<>(file, k);
-        Value value = new Value(v);
+        Value value = new Value(v, FileChangeService.getInstance().getVersion(file));
         map.put(key, value);
     }
 
@@ -0,0 +1,144 @@
+package com.tyron.common.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of changes to files made by the editor, the build and file system watchers.
+ * <p>
+ * Every reported change gets a new version from a single increasing counter, so a cache can
+ * remember the version of a file at the time it loaded a value and later compare it with
+ * {@link #getVersion(Path)} instead of checking the file on disk. Files under a root watched by
+ * a {@link FileChangeWatcher} have all of their changes reported, for those files the version
+ * alone decides whether a cached value is still valid.
+ */
+public class FileChangeService {
+
+    public enum Origin {
+        /**
+         * The in-memory contents of an opened file have changed
+         */
+        EDITOR,
+        /**
+         * The file was written by a build task
+         */
+        BUILD,
+        /**
+         * The file was changed on disk, outside of the IDE
+         */
+        FILE_SYSTEM
+    }
+
+    private static FileChangeService sInstance;
+
+    public static synchronized FileChangeService getInstance() {
+        if (sInstance == null) {
+            sInstance = new FileChangeService();
+        }
+        return sInstance;
+    }
+
+    private final AtomicLong mVersion = new AtomicLong();
+    private final Map<Path, Long> mVersions = new ConcurrentHashMap<>();
+    private final Map<Path, Set<String>> mWatchedRoots = new ConcurrentHashMap<>();
+
+    FileChangeService() {
+
+    }
+
+    /**
+     * Record a change to the given file.
+     *
+     * @return the new version of the file
+     */
+    public long fileChanged(@NonNull Path file, @NonNull Origin origin) {
+        Path normalized = normalize(file);
+        long version = mVersion.incrementAndGet();
+        mVersions.put(normalized, version);
+        return version;
+    }
+
+    /**
+     * @return the version of the last reported change to this file, or 0 if
+     * no changes have been reported
+     */
+    public long getVersion(@NonNull Path file) {
+        Long version = mVersions.get(normalize(file));
+        return version == null ? 0 : version;
+    }
+
+    /**
+     * Declare that every change under the given directory will be reported, this is done by
+     * {@link FileChangeWatcher} once it has registered the directory.
+     */
+    public void watchRoot(@NonNull Path root) {
+        watchRoot(root, Collections.emptySet());
+    }
+
+    /**
+     * Declare that every change under the given directory will be reported, except for the
+     * files under the directories with one of the given names.
+     */
+    public void watchRoot(@NonNull Path root, @NonNull Set<String> excludedDirectoryNames) {
+        mWatchedRoots.put(normalize(root), excludedDirectoryNames);
+    }
+
+    /**
+     * Stops trusting the versions of the files under the given directory, and forgets them.
+     * Called when the directory is no longer watched or its project is closed.
+     */
+    public void unwatchRoot(@NonNull Path root) {
+        Path normalized = normalize(root);
+        mWatchedRoots.remove(normalized);
+        mVersions.keySet().removeIf(file -> file.startsWith(normalized));
+    }
+
+    /**
+     * @return whether every change to this file is reported, in which case comparing
+     * versions is enough to know if the file has changed
+     */
+    public boolean isWatched(@NonNull Path file) {
+        if (mWatchedRoots.isEmpty()) {
+            return false;
+        }
+        Path normalized = normalize(file);
+        for (Map.Entry<Path, Set<String>> entry : mWatchedRoots.entrySet()) {
+            Path root = entry.getKey();
+            if (normalized.startsWith(root) && !isExcluded(root.relativize(normalized), entry.getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return whether one of the parent directories of the relative path has an excluded name
+     */
+    private static boolean isExcluded(Path relative, Set<String> excludedDirectoryNames) {
+        for (int i = 0; i < relative.getNameCount() - 1; i++) {
+            if (excludedDirectoryNames.contains(relative.getName(i).toString())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of files whose version is remembered
+     */
+    @VisibleForTesting
+    int getFileCount() {
+        return mVersions.size();
+    }
+
+    private static Path normalize(Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+}
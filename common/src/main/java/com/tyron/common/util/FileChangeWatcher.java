@@ -0,0 +1,191 @@
+package com.tyron.common.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reports every change under a directory to the {@link FileChangeService}, so the caches
+ * validated through it don't have to check the files on disk.
+ * <p>
+ * The root is only marked as watched once all of its directories are registered. Registering
+ * a directory reports its existing files as changed, so values cached before the watcher
+ * started, or before a new directory was registered, are not trusted without a check. When
+ * the watcher loses events, the root is no longer marked as watched and the caches fall back
+ * to checking the modification times.
+ * <p>
+ * Build output directories are not watched, they hold many files that change on every build
+ * and the files the build writes are reported by the tasks writing them.
+ */
+public class FileChangeWatcher implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(FileChangeWatcher.class.getName());
+
+    /**
+     * Names of the directories that are not watched, anywhere under the root.
+     */
+    static final Set<String> EXCLUDED_DIRECTORY_NAMES = ImmutableSet.of("build", ".gradle");
+
+    /**
+     * Starts watching the given directory.
+     */
+    public static FileChangeWatcher watch(@NonNull Path root,
+                                          @NonNull FileChangeService service) throws IOException {
+        FileChangeWatcher watcher = register(root, service);
+        watcher.mThread.start();
+        return watcher;
+    }
+
+    /**
+     * Registers the directories under the given root without starting to process their events.
+     */
+    @VisibleForTesting
+    static FileChangeWatcher register(@NonNull Path root,
+                                      @NonNull FileChangeService service) throws IOException {
+        FileChangeWatcher watcher = new FileChangeWatcher(root.toAbsolutePath().normalize(), service);
+        try {
+            watcher.registerAll(watcher.mRoot);
+        } catch (IOException e) {
+            watcher.close();
+            throw e;
+        }
+        service.watchRoot(watcher.mRoot, EXCLUDED_DIRECTORY_NAMES);
+        return watcher;
+    }
+
+    private final Path mRoot;
+    private final FileChangeService mService;
+    private final WatchService mWatchService;
+    private final Map<WatchKey, Path> mDirectories = new ConcurrentHashMap<>();
+    private final Thread mThread;
+    private volatile boolean mClosed;
+
+    private FileChangeWatcher(Path root, FileChangeService service) throws IOException {
+        mRoot = root;
+        mService = service;
+        mWatchService = root.getFileSystem().newWatchService();
+        mThread = new Thread(this::processEvents, "File watcher " + root.getFileName());
+        mThread.setDaemon(true);
+    }
+
+    private void registerAll(Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (!dir.equals(mRoot) && EXCLUDED_DIRECTORY_NAMES.contains(String.valueOf(dir.getFileName()))) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                WatchKey key = dir.register(mWatchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+                mDirectories.put(key, dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                mService.fileChanged(file, FileChangeService.Origin.FILE_SYSTEM);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                // deleted while walking, its deletion is reported by the parent
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void processEvents() {
+        try {
+            while (!mClosed) {
+                WatchKey key = mWatchService.take();
+                Path directory = mDirectories.get(key);
+                if (directory == null) {
+                    key.cancel();
+                    continue;
+                }
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (!handleEvent(directory, event.kind(), (Path) event.context())) {
+                        return;
+                    }
+                }
+                if (!key.reset()) {
+                    mDirectories.remove(key);
+                    if (directory.equals(mRoot)) {
+                        stopWatching("The root directory is gone");
+                        return;
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        } catch (IOException | RuntimeException e) {
+            LOG.log(Level.WARNING, "Unable to watch " + mRoot, e);
+            stopWatching("Unable to register a directory");
+        }
+    }
+
+    /**
+     * Reports a change to the entry of the given directory, and registers it if it is a new
+     * directory.
+     *
+     * @return false if the watcher had to stop
+     */
+    @VisibleForTesting
+    boolean handleEvent(Path directory, WatchEvent.Kind<?> kind, @Nullable Path name) throws IOException {
+        if (kind == StandardWatchEventKinds.OVERFLOW) {
+            stopWatching("Events were lost");
+            return false;
+        }
+        Path changed = directory.resolve(name);
+        mService.fileChanged(changed, FileChangeService.Origin.FILE_SYSTEM);
+        if (kind == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)) {
+            registerAll(changed);
+        }
+        return true;
+    }
+
+    private void stopWatching(String reason) {
+        if (!mClosed) {
+            LOG.warning(reason + ", no longer watching " + mRoot);
+        }
+        try {
+            close();
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Unable to close the watch service", e);
+        }
+    }
+
+    public Path getRoot() {
+        return mRoot;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mClosed = true;
+        mService.unwatchRoot(mRoot);
+        mWatchService.close();
+    }
+}
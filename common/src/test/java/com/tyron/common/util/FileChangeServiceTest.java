@@ -0,0 +1,123 @@
+package com.tyron.common.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+
+public class FileChangeServiceTest {
+
+    @Test
+    public void testVersionsIncreaseOnChange() {
+        FileChangeService service = new FileChangeService();
+        Path file = Paths.get("/project/app/src/main/java/Main.java");
+        assertEquals(0, service.getVersion(file));
+
+        long first = service.fileChanged(file, FileChangeService.Origin.EDITOR);
+        assertEquals(first, service.getVersion(file));
+
+        long second = service.fileChanged(file, FileChangeService.Origin.BUILD);
+        assertTrue(second > first);
+        assertEquals(second, service.getVersion(file));
+
+        // paths are normalized
+        assertEquals(second, service.getVersion(Paths.get("/project/app/src/../src/main/java/Main.java")));
+    }
+
+    @Test
+    public void testWatchedRoots() {
+        FileChangeService service = new FileChangeService();
+        Path root = Paths.get("/project/app");
+        Path file = Paths.get("/project/app/src/Main.java");
+        assertFalse(service.isWatched(file));
+
+        service.watchRoot(root);
+        assertTrue(service.isWatched(file));
+        assertFalse(service.isWatched(Paths.get("/project/lib/src/Main.java")));
+
+        service.unwatchRoot(root);
+        assertFalse(service.isWatched(file));
+    }
+
+    @Test
+    public void testUnwatchForgetsVersions() {
+        FileChangeService service = new FileChangeService();
+        Path root = Paths.get("/project/app");
+        Path other = Paths.get("/project/lib/src/Main.java");
+        service.watchRoot(root);
+        service.fileChanged(root.resolve("src/Main.java"), FileChangeService.Origin.EDITOR);
+        long otherVersion = service.fileChanged(other, FileChangeService.Origin.EDITOR);
+
+        service.unwatchRoot(root);
+        assertEquals(0, service.getVersion(root.resolve("src/Main.java")));
+        assertEquals(otherVersion, service.getVersion(other));
+        assertEquals(1, service.getFileCount());
+    }
+
+    @Test
+    public void testExcludedDirectoriesAreNotWatched() {
+        FileChangeService service = new FileChangeService();
+        Path root = Paths.get("/project");
+        service.watchRoot(root, FileChangeWatcher.EXCLUDED_DIRECTORY_NAMES);
+
+        assertTrue(service.isWatched(root.resolve("app/src/main/java/Main.java")));
+        assertTrue(service.isWatched(root.resolve("app/build")));
+        assertFalse(service.isWatched(root.resolve("app/build/intermediates/classes/Main.class")));
+        assertFalse(service.isWatched(root.resolve(".gradle/7.2/fileHashes.bin")));
+    }
+
+    @Test
+    public void testWatcherReportsChanges() throws Exception {
+        FileChangeService service = new FileChangeService();
+        Path root = Files.createTempDirectory("watched");
+        Path existing = Files.write(root.resolve("Existing.java"), "class Existing {}".getBytes());
+        Path output = Files.createDirectories(root.resolve("app/build/intermediates"));
+        Path outputFile = Files.write(output.resolve("Existing.class"), new byte[]{1});
+        try (FileChangeWatcher watcher = FileChangeWatcher.register(root, service)) {
+            assertTrue(service.isWatched(existing));
+            // files that existed before the watcher started are treated as changed
+            long version = service.getVersion(existing);
+            assertNotEquals(0, version);
+            // build outputs are neither registered nor trusted
+            assertEquals(0, service.getVersion(outputFile));
+            assertFalse(service.isWatched(outputFile));
+
+            assertTrue(watcher.handleEvent(root, StandardWatchEventKinds.ENTRY_MODIFY, existing.getFileName()));
+            assertTrue(service.getVersion(existing) > version);
+
+            // the files of a new directory are reported when it is registered
+            Path directory = Files.createDirectory(root.resolve("pkg"));
+            Path created = Files.write(directory.resolve("Created.java"), "class Created {}".getBytes());
+            assertTrue(watcher.handleEvent(root, StandardWatchEventKinds.ENTRY_CREATE, directory.getFileName()));
+            assertNotEquals(0, service.getVersion(created));
+            assertTrue(service.isWatched(created));
+        } finally {
+            FileUtils.deleteDirectory(root.toFile());
+        }
+        assertFalse(service.isWatched(existing));
+        assertEquals(0, service.getVersion(existing));
+    }
+
+    @Test
+    public void testOverflowStopsWatching() throws Exception {
+        FileChangeService service = new FileChangeService();
+        Path root = Files.createTempDirectory("watched");
+        Path existing = Files.write(root.resolve("Existing.java"), "class Existing {}".getBytes());
+        try (FileChangeWatcher watcher = FileChangeWatcher.register(root, service)) {
+            assertTrue(service.isWatched(existing));
+
+            assertFalse(watcher.handleEvent(root, StandardWatchEventKinds.OVERFLOW, null));
+            assertFalse(service.isWatched(existing));
+        } finally {
+            FileUtils.deleteDirectory(root.toFile());
+        }
+    }
+}
@@ -1,12 +1,38 @@
 package com.tyron.completion.progress;
 
+/**
+ * Controls the execution of a cancelable task.
+ *
+ * Indicators can be nested, an indicator created with a parent is canceled when its parent is
+ * canceled, so canceling a request also cancels all the work it has started.
+ */
 public class ProgressIndicator {
 
+    private final ProgressIndicator mParent;
+
     private volatile boolean mCanceled;
     private volatile boolean mRunning;
 
     public ProgressIndicator() {
+        this(null);
+    }
+
+    /**
+     * @param parent the indicator whose cancellation also cancels this indicator, may be null
+     */
+    public ProgressIndicator(ProgressIndicator parent) {
+        mParent = parent;
+    }
 
+    /**
+     * @return a new indicator which is canceled when this indicator is canceled
+     */
+    public ProgressIndicator createChild() {
+        return new ProgressIndicator(this);
+    }
+
+    public ProgressIndicator getParent() {
+        return mParent;
     }
 
     public void setCanceled(boolean cancel) {
@@ -18,7 +44,26 @@ public class ProgressIndicator {
     }
 
     public boolean isCanceled() {
-        return mCanceled;
+        if (mCanceled) {
+            return true;
+        }
+        for (ProgressIndicator parent = mParent; parent != null; parent = parent.mParent) {
+            if (parent.mCanceled) {
+                // remember it, the parents don't need to be checked again
+                mCanceled = true;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @throws ProcessCanceledException if this indicator or one of its parents has been canceled
+     */
+    public void checkCanceled() {
+        if (isCanceled()) {
+            throw new ProcessCanceledException();
+        }
     }
 
     public void setRunning(boolean b) {
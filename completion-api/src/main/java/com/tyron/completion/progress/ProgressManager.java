@@ -10,38 +10,116 @@ import com.google.common.util.concurrent.AsyncCallable;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 
+import java.util.ArrayDeque;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Deque;
 import java.util.Map;
 import java.util.WeakHashMap;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 public class ProgressManager {
 
+    /**
+     * The order in which queued tasks are started, tasks with the same priority are started
+     * in the order they were submitted.
+     */
+    public enum Priority {
+        /**
+         * Work the user is waiting for, e.g. code completion after a keystroke.
+         */
+        HIGH,
+        NORMAL,
+        /**
+         * Background work like indexing.
+         */
+        LOW
+    }
+
+    /**
+     * Long running tasks like builds still take a thread each, so there are more threads
+     * than cores, but not so many that keystroke work competes with dozens of stale tasks.
+     */
+    private static final int POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
     private static ProgressManager sInstance = null;
 
-    public static ProgressManager getInstance() {
+    public static synchronized ProgressManager getInstance() {
         if (sInstance == null) {
             sInstance = new ProgressManager();
         }
         return sInstance;
     }
 
+    /**
+     * The indicators of each thread, only used to cancel other threads. The thread itself
+     * reads its state through {@link #sThreadState}.
+     */
+    private static final Map<Thread, ThreadState> sThreadStates =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private static final ThreadLocal<ThreadState> sThreadState = ThreadLocal.withInitial(
+            () -> getThreadState(Thread.currentThread()));
+
+    private static ThreadState getThreadState(Thread thread) {
+        synchronized (sThreadStates) {
+            ThreadState state = sThreadStates.get(thread);
+            if (state == null) {
+                state = new ThreadState();
+                sThreadStates.put(thread, state);
+            }
+            return state;
+        }
+    }
+
+    /**
+     * Throws a {@link ProcessCanceledException} if the indicator of the current thread has been
+     * canceled. This is cheap enough to be called in tight loops.
+     */
     public static void checkCanceled() {
-        getInstance().doCheckCanceled();
+        ThreadState state = sThreadState.get();
+        ProgressIndicator indicator = state.current;
+        if (indicator != null && indicator.isCanceled()) {
+            state.clearPendingCancel(indicator);
+            throw new ProcessCanceledException();
+        }
     }
 
-    private final ExecutorService mPool = Executors.newFixedThreadPool(32);
-    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    /**
+     * @return the innermost indicator the current thread is running with, or null
+     */
+    public static ProgressIndicator getCurrentIndicator() {
+        return sThreadState.get().current;
+    }
 
-    private final Map<Thread, ProgressIndicator> mThreadToIndicator;
+    private final ThreadPoolExecutor mPool;
+    private final AtomicLong mSequence = new AtomicLong();
+    private final Executor mNormalExecutor = runnable -> execute(runnable, Priority.NORMAL);
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
 
     public ProgressManager() {
-        mThreadToIndicator = new WeakHashMap<>();
+        mPool = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 30, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>());
+        mPool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Runs the process on the current thread with the given indicator, calls to
+     * {@link #checkCanceled()} made by the process check the indicator. Processes can be nested,
+     * the previous indicator is restored when the process finishes.
+     */
+    public static void runProcess(Runnable process, ProgressIndicator indicator) {
+        ThreadState state = sThreadState.get();
+        state.push(indicator);
+        try {
+            process.run();
+        } finally {
+            state.pop(indicator);
+        }
     }
 
     /**
@@ -55,19 +133,37 @@ public class ProgressManager {
     public void runAsync(Runnable runnable,
                          Consumer<ProgressIndicator> cancelConsumer,
                          ProgressIndicator indicator) {
-        mPool.execute(() -> {
-            Thread currentThread = Thread.currentThread();
+        runAsync(runnable, cancelConsumer, indicator, Priority.HIGH);
+    }
+
+    /**
+     * Run a cancelable asynchronous task. If the task is canceled before it is started,
+     * it is not run at all.
+     *
+     * @param runnable       The task to run
+     * @param cancelConsumer The code to run when this task has been canceled,
+     *                       called from background thread
+     * @param indicator      The class used to control this task's execution
+     * @param priority       The priority of the task while it is queued
+     */
+    public void runAsync(Runnable runnable,
+                         Consumer<ProgressIndicator> cancelConsumer,
+                         ProgressIndicator indicator,
+                         Priority priority) {
+        execute(() -> {
+            if (indicator.isCanceled()) {
+                cancelConsumer.accept(indicator);
+                return;
+            }
             try {
-                mThreadToIndicator.put(currentThread, indicator);
                 indicator.setRunning(true);
-                runnable.run();
+                runProcess(runnable, indicator);
             } catch (ProcessCanceledException e) {
                 cancelConsumer.accept(indicator);
             } finally {
                 indicator.setRunning(false);
-                mThreadToIndicator.remove(currentThread);
             }
-        });
+        }, priority);
     }
 
     public void runAsync(Context uiContext,
@@ -109,11 +205,19 @@ public class ProgressManager {
      * @param runnable The code to run
      */
     public void runNonCancelableAsync(Runnable runnable) {
-        mPool.execute(runnable);
+        runNonCancelableAsync(runnable, Priority.NORMAL);
+    }
+
+    public void runNonCancelableAsync(Runnable runnable, Priority priority) {
+        execute(runnable, priority);
     }
 
     public <T> ListenableFuture<T> computeNonCancelableAsync(AsyncCallable<T> callable) {
-        return Futures.submitAsync(callable, mPool);
+        return Futures.submitAsync(callable, mNormalExecutor);
+    }
+
+    private void execute(Runnable runnable, Priority priority) {
+        mPool.execute(new PrioritizedRunnable(runnable, priority, mSequence.getAndIncrement()));
     }
 
     /**
@@ -138,22 +242,85 @@ public class ProgressManager {
         mMainHandler.removeCallbacks(runnable);
     }
 
+    /**
+     * Cancels everything the thread is running with an indicator. If the thread is not running
+     * with an indicator, its next call to {@link #checkCanceled()} throws.
+     */
     public void cancelThread(Thread thread) {
-        ProgressIndicator indicator = mThreadToIndicator.get(thread);
-        if (indicator == null) {
-            indicator = new ProgressIndicator();
+        getThreadState(thread).cancel();
+    }
+
+    private static final class ThreadState {
+
+        /**
+         * The indicators of nested processes, the innermost is first. Only modified by the
+         * thread itself, read when another thread cancels it.
+         */
+        private final Deque<ProgressIndicator> mStack = new ArrayDeque<>();
+
+        /**
+         * The innermost indicator, read without locking by {@link #checkCanceled()}.
+         */
+        volatile ProgressIndicator current;
+
+        synchronized void push(ProgressIndicator indicator) {
+            // a cancellation requested before this process started was meant for older work
+            mStack.push(indicator);
+            current = indicator;
+        }
+
+        synchronized void pop(ProgressIndicator indicator) {
+            mStack.remove(indicator);
+            current = mStack.peek();
+        }
+
+        synchronized void cancel() {
+            if (mStack.isEmpty()) {
+                ProgressIndicator indicator = new ProgressIndicator();
+                indicator.cancel();
+                current = indicator;
+            } else {
+                for (ProgressIndicator indicator : mStack) {
+                    indicator.cancel();
+                }
+            }
+        }
+
+        /**
+         * A cancellation of a thread which did not run a process only throws once.
+         */
+        synchronized void clearPendingCancel(ProgressIndicator indicator) {
+            if (mStack.isEmpty() && current == indicator) {
+                current = null;
+            }
         }
-        indicator.cancel();
-        mThreadToIndicator.put(thread, indicator);
     }
 
-    private void doCheckCanceled() {
-        ProgressIndicator indicator = mThreadToIndicator.get(Thread.currentThread());
-        if (indicator != null) {
-            if (indicator.isCanceled()) {
-                mThreadToIndicator.remove(Thread.currentThread());
-                throw new ProcessCanceledException();
+    private static final class PrioritizedRunnable implements Runnable,
+            Comparable<PrioritizedRunnable> {
+
+        private final Runnable mRunnable;
+        private final Priority mPriority;
+        private final long mSequence;
+
+        PrioritizedRunnable(Runnable runnable, Priority priority, long sequence) {
+            mRunnable = runnable;
+            mPriority = priority;
+            mSequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            mRunnable.run();
+        }
+
+        @Override
+        public int compareTo(PrioritizedRunnable o) {
+            int result = mPriority.compareTo(o.mPriority);
+            if (result != 0) {
+                return result;
             }
+            return Long.compare(mSequence, o.mSequence);
         }
     }
 }
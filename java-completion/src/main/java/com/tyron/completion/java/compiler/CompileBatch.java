@@ -7,11 +7,14 @@ import com.sun.source.tree.CompilationUnitTree;
 import com.tyron.builder.project.api.JavaModule;
 import com.tyron.common.util.StringSearch;
 import com.tyron.completion.java.CompletionModule;
+import com.tyron.completion.progress.ProcessCanceledException;
 
 import org.apache.commons.io.FileUtils;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
 import javax.tools.Diagnostic;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaFileManager;
 import javax.tools.JavaFileObject;
 import com.sun.source.util.JavacTask;
 import com.sun.source.util.Trees;
@@ -50,10 +53,20 @@ public class CompileBatch implements AutoCloseable {
     public final Elements elements;
     public final Types types;
     public final List<CompilationUnitTree> roots;
+    /**
+     * The diagnostics reported while compiling this batch, batches compiled concurrently
+     * do not share them.
+     */
+    public final List<Diagnostic<? extends JavaFileObject>> diagnostics = new ArrayList<>();
 
     public CompileBatch(JavaCompilerService parent, Collection<? extends JavaFileObject> files) {
+        this(parent, parent.mSourceFileManager, files);
+    }
+
+    public CompileBatch(JavaCompilerService parent, JavaFileManager fileManager,
+                        Collection<? extends JavaFileObject> files) {
         this.parent = parent;
-        this.borrow = batchTask(parent, files);
+        this.borrow = batchTask(parent, fileManager, diagnostics::add, files);
         this.task = borrow.task;
         this.trees = Trees.instance(borrow.task);
         this.elements = borrow.task.getElements();
@@ -69,7 +82,16 @@ public class CompileBatch implements AutoCloseable {
             // You can get at `Element` values using `Trees`
             task.analyze();
         } catch (IOException e) {
+            borrow.close();
             throw new RuntimeException(e);
+        } catch (RuntimeException e) {
+            // return the context to the pool, nobody will use this batch
+            borrow.close();
+            // javac wraps exceptions thrown by task listeners
+            if (e.getCause() instanceof ProcessCanceledException) {
+                throw (ProcessCanceledException) e.getCause();
+            }
+            throw e;
         }
     }
 
@@ -85,7 +107,7 @@ public class CompileBatch implements AutoCloseable {
         JavaModule module = parent.getCurrentModule();
         // Check for "class not found errors" that refer to package private classes
         Set<Path> addFiles = new HashSet<>();
-        for (Diagnostic<? extends JavaFileObject> err : parent.getDiagnostics()) {
+        for (Diagnostic<? extends JavaFileObject> err : diagnostics) {
             if (!err.getCode().equals("compiler.err.cant.resolve.location")) {
                 continue;
             }
@@ -156,11 +178,12 @@ public class CompileBatch implements AutoCloseable {
         closed = true;
     }
 
-    private static ReusableCompiler.Borrow batchTask(JavaCompilerService parent, Collection<?
-            extends JavaFileObject> sources) {
-        parent.clearDiagnostics();
+    private static ReusableCompiler.Borrow batchTask(JavaCompilerService parent,
+                                                     JavaFileManager fileManager,
+                                                     DiagnosticListener<? super JavaFileObject> listener,
+                                                     Collection<? extends JavaFileObject> sources) {
         List<String> options = options(parent.classPath, parent.addExports);
-        return parent.compiler.getTask(parent.mSourceFileManager, parent::addDiagnostic, options,
+        return parent.compiler.getTask(fileManager, listener, options,
                 Collections.emptyList(), sources);
     }
 
@@ -3,6 +3,7 @@ package com.tyron.completion.java.compiler;
 import android.annotation.SuppressLint;
 import android.net.Uri;
 
+import com.google.common.collect.ImmutableList;
 import com.sun.source.tree.CompilationUnitTree;
 import com.sun.source.util.JavacTask;
 
@@ -31,7 +32,7 @@ public class CompileTask implements AutoCloseable {
         this.trees = Trees.instance(task);
 
         this.roots = batch.roots;
-        this.diagnostics = batch.parent.getDiagnostics();
+        this.diagnostics = ImmutableList.copyOf(batch.diagnostics);
     }
 
     public Trees getTrees() {
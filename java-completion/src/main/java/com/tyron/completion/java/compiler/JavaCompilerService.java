@@ -12,10 +12,12 @@ import com.tyron.builder.project.api.JavaModule;
 import com.tyron.builder.project.api.Module;
 import com.tyron.builder.project.util.PackageTrie;
 import com.tyron.common.util.Cache;
+import com.tyron.common.util.FileChangeService;
 import com.tyron.common.util.StringSearch;
 import com.tyron.completion.java.CompilerProvider;
 import com.tyron.completion.java.Docs;
 import com.tyron.completion.java.FindTypeDeclarations;
+import com.tyron.completion.java.util.FileContentFixer;
 
 import javax.tools.Diagnostic;
 import javax.tools.DiagnosticListener;
@@ -23,6 +25,7 @@ import javax.tools.JavaFileObject;
 import javax.tools.StandardLocation;
 import com.sun.source.tree.CompilationUnitTree;
 import com.sun.tools.javac.file.PathFileObject;
+import com.sun.tools.javac.util.Context;
 
 import java.io.File;
 import java.io.IOException;
@@ -37,6 +40,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.locks.ReentrantLock;
@@ -59,9 +63,16 @@ public class JavaCompilerService implements CompilerProvider {
     public ReusableCompiler compiler = new ReusableCompiler();
     private final Docs docs;
 
-    private final CompilerContainer mContainer = new CompilerContainer();
-    private CompileBatch cachedCompile;
-    private final Map<JavaFileObject, Long> cachedModified = new HashMap<>();
+    /**
+     * The compilations used for diagnostics, code actions and everything else.
+     */
+    private final CompileLane mMainLane;
+    /**
+     * The compilations used for code completion, so completion does not wait for a
+     * compilation running on the main lane.
+     */
+    private final CompileLane mCompletionLane;
+    private Context mScannerContext;
 
     public final ReentrantLock mLock = new ReentrantLock();
 
@@ -71,6 +82,8 @@ public class JavaCompilerService implements CompilerProvider {
         this.docPath = Collections.unmodifiableSet(docPath);
         this.addExports = Collections.unmodifiableSet(addExports);
         this.mSourceFileManager = new SourceFileManager(project);
+        this.mMainLane = new CompileLane(mSourceFileManager, true);
+        this.mCompletionLane = new CompileLane(new SourceFileManager(project), false);
         this.docs = new Docs(project, docPath);
     }
 
@@ -78,8 +91,20 @@ public class JavaCompilerService implements CompilerProvider {
         return mProject;
     }
 
+    /**
+     * @return the context used to scan a file before it is completed, it is not shared with any
+     * compilation. Callers must synchronize on it while scanning.
+     */
+    public synchronized Context getScannerContext() {
+        if (mScannerContext == null) {
+            mScannerContext = FileContentFixer.createScannerContext();
+        }
+        return mScannerContext;
+    }
+
     public void setCurrentModule(@NonNull JavaModule module) {
         mSourceFileManager.setCurrentModule(module);
+        mCompletionLane.fileManager.setCurrentModule(module);
         mCurrentModule = module;
     }
 
@@ -89,18 +114,29 @@ public class JavaCompilerService implements CompilerProvider {
      * @param sources list of java files to compile
      * @return true if there's a valid cache for it, false otherwise
      */
-    private boolean needsCompile(Collection<? extends JavaFileObject> sources) {
-        if (cachedModified.size() != sources.size()) {
+    private boolean needsCompile(CompileLane lane, Collection<? extends JavaFileObject> sources) {
+        if (lane.cachedModified.size() != sources.size()) {
             return true;
         }
         for (JavaFileObject f : sources) {
-            if (!cachedModified.containsKey(f)) {
+            if (!lane.cachedModified.containsKey(f)) {
                 return true;
             }
-            Long cached = cachedModified.get(f);
+            Long cached = lane.cachedModified.get(f);
             if (cached == null) {
                 return true;
             }
+            if (f instanceof SourceFileObject) {
+                // changes reported through the FileChangeService don't need a stat
+                Path path = ((SourceFileObject) f).mFile;
+                FileChangeService changeService = FileChangeService.getInstance();
+                if (!Objects.equals(lane.cachedVersions.get(f), changeService.getVersion(path))) {
+                    return true;
+                }
+                if (changeService.isWatched(path)) {
+                    continue;
+                }
+            }
             if (f.getLastModified() != cached) {
                 return true;
             }
@@ -108,23 +144,44 @@ public class JavaCompilerService implements CompilerProvider {
         return false;
     }
 
-    private synchronized void loadCompile(Collection<? extends JavaFileObject> sources) {
-        if (cachedCompile != null) {
-            if (!cachedCompile.closed) {
+    /**
+     * Only called while holding the container of the lane, so lanes compile independently
+     */
+    private void loadCompile(CompileLane lane, Collection<? extends JavaFileObject> sources) {
+        if (lane.cachedCompile != null) {
+            if (!lane.cachedCompile.closed) {
                 throw new RuntimeException("Compiler is still in-use!");
             }
-            cachedCompile.borrow.close();
+            lane.cachedCompile.borrow.close();
+            // the context is back in the pool, forget the batch in case the compilation fails
+            lane.cachedCompile = null;
+            lane.cachedModified.clear();
+            lane.cachedVersions.clear();
+        }
+        Map<JavaFileObject, Long> versions = new HashMap<>();
+        for (JavaFileObject f : sources) {
+            if (f instanceof SourceFileObject) {
+                versions.put(f, FileChangeService.getInstance()
+                        .getVersion(((SourceFileObject) f).mFile));
+            }
         }
-        cachedCompile = doCompile(sources);
-        cachedModified.clear();
+        lane.cachedCompile = doCompile(lane, sources);
+        lane.cachedVersions.putAll(versions);
         for (JavaFileObject f : sources) {
-            cachedModified.put(f, f.getLastModified());
+            lane.cachedModified.put(f, f.getLastModified());
+        }
+
+        if (lane.reportDiagnostics) {
+            clearDiagnostics();
+            for (Diagnostic<? extends JavaFileObject> diagnostic : lane.cachedCompile.diagnostics) {
+                addDiagnostic(diagnostic);
+            }
         }
     }
 
-    private CompileBatch doCompile(Collection<? extends JavaFileObject> sources) {
+    private CompileBatch doCompile(CompileLane lane, Collection<? extends JavaFileObject> sources) {
         if (sources.isEmpty()) throw new RuntimeException("empty sources");
-        CompileBatch firstAttempt = new CompileBatch(this, sources);
+        CompileBatch firstAttempt = new CompileBatch(this, lane.fileManager, sources);
         Set<Path> addFiles = firstAttempt.needsAdditionalSources();
         if (addFiles.isEmpty()) return firstAttempt;
         // If the compiler needs additional source files that contain package-private files
@@ -136,7 +193,7 @@ public class JavaCompilerService implements CompilerProvider {
         for (Path add : addFiles) {
             moreSources.add(new SourceFileObject(add, mCurrentModule));
         }
-        return new CompileBatch(this, moreSources);
+        return new CompileBatch(this, lane.fileManager, moreSources);
     }
 
     /**
@@ -145,15 +202,15 @@ public class JavaCompilerService implements CompilerProvider {
      * @param sources Files to compile
      * @return CompileBatch for this compilation
      */
-    private CompilerContainer compileBatch(Collection<? extends JavaFileObject> sources) {
-        mContainer.initialize(() -> {
-            if (needsCompile(sources)) {
-                loadCompile(sources);
+    private CompilerContainer compileBatch(CompileLane lane, Collection<? extends JavaFileObject> sources) {
+        lane.container.initialize(() -> {
+            if (needsCompile(lane, sources)) {
+                loadCompile(lane, sources);
             }
-            CompileTask task = new CompileTask(cachedCompile);
-            mContainer.setCompileTask(task);
+            CompileTask task = new CompileTask(lane.cachedCompile);
+            lane.container.setCompileTask(task);
         });
-        return mContainer;
+        return lane.container;
     }
     
     public void clearDiagnostics() {
@@ -469,13 +526,25 @@ public class JavaCompilerService implements CompilerProvider {
      */
     @Override
     public CompilerContainer compile(Collection<? extends JavaFileObject> sources) {
-        return compileBatch(sources);
+        return compileBatch(mMainLane, sources);
+    }
+
+    /**
+     * Compiles the sources for code completion. Completion has its own compiler context and
+     * cached compilation, so it does not wait for a compilation started with
+     * {@link #compile(Collection)}. The diagnostics of this compilation are not reported to
+     * the diagnostic listener.
+     *
+     * @param sources list of java sources
+     * @return the container of the completion compilation
+     */
+    public CompilerContainer compileForCompletion(Collection<? extends JavaFileObject> sources) {
+        return compileBatch(mCompletionLane, sources);
     }
 
     public synchronized void close() {
-        if (cachedCompile != null && !cachedCompile.closed) {
-            cachedCompile.close();
-        }
+        mMainLane.closeBatch();
+        mCompletionLane.closeBatch();
         if (mLock.isHeldByCurrentThread() && mLock.isLocked()) {
             mLock.unlock();
         }
@@ -486,8 +555,50 @@ public class JavaCompilerService implements CompilerProvider {
     }
 
     public void destroy() {
-        mContainer.initialize(() -> {
+        // the main lane is always locked first, the completion lane never waits for it
+        mMainLane.container.initialize(() -> mCompletionLane.container.initialize(() -> {
             close();
+            mMainLane.reset();
+            mCompletionLane.reset();
+            compiler = new ReusableCompiler();
+        }));
+    }
+
+    @NonNull
+    public CompilerContainer getCachedContainer() {
+        return mMainLane.container;
+    }
+
+    @NonNull
+    public CompilerContainer getCompletionContainer() {
+        return mCompletionLane.container;
+    }
+
+    /**
+     * A compilation that is cached independently from the other lanes. While its compilation
+     * is cached, a lane keeps one context of the {@link ReusableCompiler} checked out.
+     */
+    private static class CompileLane {
+        final CompilerContainer container = new CompilerContainer();
+        final SourceFileManager fileManager;
+        final boolean reportDiagnostics;
+
+        CompileBatch cachedCompile;
+        final Map<JavaFileObject, Long> cachedModified = new HashMap<>();
+        final Map<JavaFileObject, Long> cachedVersions = new HashMap<>();
+
+        CompileLane(SourceFileManager fileManager, boolean reportDiagnostics) {
+            this.fileManager = fileManager;
+            this.reportDiagnostics = reportDiagnostics;
+        }
+
+        void closeBatch() {
+            if (cachedCompile != null && !cachedCompile.closed) {
+                cachedCompile.close();
+            }
+        }
+
+        void reset() {
             if (cachedCompile != null) {
                 final ReusableCompiler.Borrow borrow = cachedCompile.borrow;
                 if (borrow != null) {
@@ -496,12 +607,7 @@ public class JavaCompilerService implements CompilerProvider {
             }
             cachedCompile = null;
             cachedModified.clear();
-            compiler = new ReusableCompiler();
-        });
-    }
-
-    @NonNull
-    public CompilerContainer getCachedContainer() {
-        return mContainer;
+            cachedVersions.clear();
+        }
     }
 }
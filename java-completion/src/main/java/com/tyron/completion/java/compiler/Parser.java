@@ -5,6 +5,7 @@ import android.util.Log;
 
 import com.tyron.builder.model.SourceFileObject;
 import com.tyron.builder.project.Project;
+import com.tyron.common.util.FileChangeService;
 
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.Name;
@@ -80,15 +81,26 @@ public class Parser {
 
     private static Parser cachedParse;
     private static long cachedModified = -1;
+    private static long cachedVersion = -1;
 
     private static boolean needsParse(JavaFileObject file) {
         if (cachedParse == null) return true;
         if (!cachedParse.file.equals(file)) return true;
+        if (file instanceof SourceFileObject) {
+            Path path = ((SourceFileObject) file).mFile;
+            FileChangeService changeService = FileChangeService.getInstance();
+            if (changeService.getVersion(path) != cachedVersion) return true;
+            if (changeService.isWatched(path)) return false;
+        }
         if (file.getLastModified() > cachedModified) return true;
         return false;
     }
 
     private static void loadParse(Project project, JavaFileObject file) {
+        if (file instanceof SourceFileObject) {
+            cachedVersion = FileChangeService.getInstance()
+                    .getVersion(((SourceFileObject) file).mFile);
+        }
         cachedParse = new Parser(project, file);
         cachedModified = file.getLastModified();
     }
@@ -4,13 +4,17 @@ import javax.tools.Diagnostic;
 import javax.tools.DiagnosticListener;
 import javax.tools.JavaFileManager;
 import javax.tools.JavaFileObject;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
 import com.sun.source.util.JavacTask;
 import com.sun.source.util.TaskEvent;
 import com.sun.source.util.TaskListener;
+import com.sun.source.util.TreeScanner;
 import com.sun.tools.javac.api.JavacTaskImpl;
 import com.sun.tools.javac.api.JavacTool;
 import com.sun.tools.javac.api.JavacTrees;
 import com.sun.tools.javac.api.MultiTaskListener;
+import com.sun.tools.javac.code.Symbol;
 import com.sun.tools.javac.code.Types;
 import com.sun.tools.javac.comp.Annotate;
 import com.sun.tools.javac.comp.Check;
@@ -20,9 +24,12 @@ import com.sun.tools.javac.comp.Modules;
 import com.sun.tools.javac.main.Arguments;
 import com.sun.tools.javac.main.JavaCompiler;
 import com.sun.tools.javac.model.JavacElements;
+import com.sun.tools.javac.tree.JCTree;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.DefinedBy;
 import com.sun.tools.javac.util.Log;
+import com.tyron.completion.progress.ProcessCanceledException;
+import com.tyron.completion.progress.ProgressManager;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -66,15 +73,38 @@ public class ReusableCompiler {
     private static final Logger LOG = Logger.getLogger("main");
     private static final JavacTool systemProvider = JavacTool.create();
 
-    private final List<String> currentOptions = new ArrayList<>();
-    private ReusableContext currentContext;
-    private volatile boolean checkedOut;
+    /**
+     * One context for the diagnostics compile and one for code completion, so completion does
+     * not have to wait for a running diagnostics compile.
+     */
+    public static final int DEFAULT_POOL_SIZE = 2;
+
+    private final int mMaxContexts;
+    /**
+     * Contexts which are not checked out, the most recently returned one is last.
+     */
+    private final List<ReusableContext> mIdleContexts = new ArrayList<>();
+    private int mCheckedOutCount;
+    private volatile ReusableContext currentContext;
+
+    public ReusableCompiler() {
+        this(DEFAULT_POOL_SIZE);
+    }
+
+    public ReusableCompiler(int maxContexts) {
+        if (maxContexts < 1) {
+            throw new IllegalArgumentException("maxContexts must be at least 1: " + maxContexts);
+        }
+        mMaxContexts = maxContexts;
+    }
 
     /**
      * Creates a new task as if by JavaCompiler and runs the provided worker with it. The
      * task is only valid while the worker is running. The internal structures may be reused from some previous
      * compilation.
      *
+     * <p>If all the contexts of the pool are checked out, this blocks until one of them is returned.
+     *
      * @param fileManager a file manager; if {@code null} use the compiler's standard filemanager
      * @param diagnosticListener a diagnostic listener; if {@code null} use the compiler's default method for reporting
      *     diagnostics
@@ -93,64 +123,125 @@ public class ReusableCompiler {
 		Iterable<String> options,
 		Iterable<String> classes,
 		Iterable<? extends JavaFileObject> compilationUnits) {
-        if (checkedOut) {
-            throw new RuntimeException("Compiler is already in-use!");
-        }
-        checkedOut = true;
         List<String> opts =
 			StreamSupport.stream(options.spliterator(), false)
                     .collect(Collectors.toList());
-        if (!opts.equals(currentOptions)) {
-            List<String> difference = new ArrayList<>(currentOptions);
-            difference.removeAll(opts);
-            LOG.warning("Options changed, creating new compiler \n difference: " + difference);
-            currentOptions.clear();
-            currentOptions.addAll(opts);
-            currentContext = new ReusableContext(new ArrayList<>(opts));
+        ReusableContext context = checkOut(opts);
+        JavacTaskImpl task;
+        try {
+            task = (JavacTaskImpl)
+                    systemProvider.getTask(
+                    null, fileManager, diagnosticListener, opts, classes, compilationUnits, context);
+        } catch (RuntimeException e) {
+            context.polluted = true;
+            checkIn(context);
+            throw e;
         }
-        JavacTaskImpl task =
-			(JavacTaskImpl)
-			systemProvider.getTask(
-			null, fileManager, diagnosticListener, opts, classes, compilationUnits, currentContext);
 
-        task.addTaskListener(currentContext);
-        return new Borrow(task, currentContext);
+        task.addTaskListener(context);
+        currentContext = context;
+        return new Borrow(task, context);
     }
 
+    /**
+     * @return the context that was checked out most recently, may be in use by another thread
+     */
     public ReusableContext getCurrentContext() {
         return currentContext;
     }
 
+    private synchronized ReusableContext checkOut(List<String> options) {
+        while (true) {
+            // prefer the most recently used context, its symbol tables are the warmest
+            for (int i = mIdleContexts.size() - 1; i >= 0; i--) {
+                ReusableContext context = mIdleContexts.get(i);
+                if (context.arguments.equals(options)) {
+                    mIdleContexts.remove(i);
+                    mCheckedOutCount++;
+                    return context;
+                }
+            }
+
+            if (mCheckedOutCount + mIdleContexts.size() < mMaxContexts) {
+                mCheckedOutCount++;
+                return new ReusableContext(new ArrayList<>(options));
+            }
+
+            if (!mIdleContexts.isEmpty()) {
+                List<String> difference = new ArrayList<>(mIdleContexts.get(0).arguments);
+                difference.removeAll(options);
+                LOG.warning("Options changed, creating new compiler \n difference: " + difference);
+                mIdleContexts.remove(0);
+                continue;
+            }
+
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ProcessCanceledException();
+            }
+        }
+    }
+
+    private synchronized void checkIn(ReusableContext context) {
+        mCheckedOutCount--;
+        if (context.polluted) {
+            LOG.info("Discarding compiler context which redefined platform classes");
+            if (currentContext == context) {
+                currentContext = null;
+            }
+        } else {
+            mIdleContexts.add(context);
+        }
+        notifyAll();
+    }
+
     public class Borrow implements AutoCloseable {
         final JavacTask task;
+        private final ReusableContext context;
         boolean closed;
 
         Borrow(JavacTask task, ReusableContext ctx) {
             this.task = task;
+            this.context = ctx;
         }
 
         @Override
         public void close() {
             if (closed) return;
-            // not returning the context to the pool if task crashes with an exception
-            // the task/context may be in a broken state
-            currentContext.clear();
+            closed = true;
             try {
+                context.clear();
                 Method method = JavacTaskImpl.class.getDeclaredMethod("cleanup");
                 method.setAccessible(true);
                 method.invoke(task);
             } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+                // not returning the context to the pool if the cleanup fails,
+                // the task/context may be in a broken state
+                context.polluted = true;
                 throw new RuntimeException(e);
+            } catch (RuntimeException e) {
+                context.polluted = true;
+                throw e;
             } finally {
-                checkedOut = false;
-                closed = true;
+                checkIn(context);
             }
         }
     }
 
     static class ReusableContext extends Context implements TaskListener {
 
-        List<String> arguments;
+        final List<String> arguments;
+        /**
+         * The compilation units parsed since the last {@link #clear()}.
+         */
+        private final List<CompilationUnitTree> parsedRoots = new ArrayList<>();
+        /**
+         * Set when a compilation redefined classes of the platform, the symbol table of this
+         * context is then no longer valid for other compilations.
+         */
+        volatile boolean polluted;
 
         ReusableContext(List<String> arguments) {
             super();
@@ -160,6 +251,7 @@ public class ReusableCompiler {
         }
 
         public void clear() {
+            checkPolluted();
             drop(Arguments.argsKey);
             drop(DiagnosticListener.class);
             drop(Log.outKey);
@@ -183,16 +275,35 @@ public class ReusableCompiler {
             }
         }
 
+        private void checkPolluted() {
+            for (CompilationUnitTree root : parsedRoots) {
+                new TreeScanner<Void, Void>() {
+                    @Override
+                    public Void visitClass(ClassTree node, Void unused) {
+                        Symbol.ClassSymbol sym = ((JCTree.JCClassDecl) node).sym;
+                        if (sym != null && sym.flatName().toString().startsWith("java.")) {
+                            polluted = true;
+                        }
+                        return super.visitClass(node, unused);
+                    }
+                }.scan(root, null);
+            }
+            parsedRoots.clear();
+        }
+
         @Override
         @DefinedBy(DefinedBy.Api.COMPILER_TREE)
         public void finished(TaskEvent e) {
-            // do nothing
+            if (e.getKind() == TaskEvent.Kind.PARSE) {
+                parsedRoots.add(e.getCompilationUnit());
+            }
         }
 
         @Override
         @DefinedBy(DefinedBy.Api.COMPILER_TREE)
         public void started(TaskEvent e) {
-            // do nothing
+            // abandon superseded compilations between phases, CompileBatch unwraps the exception
+            ProgressManager.checkCanceled();
         }
 
         <T> void drop(Key<T> k) {
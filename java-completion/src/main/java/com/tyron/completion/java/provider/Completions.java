@@ -32,6 +32,7 @@ import com.sun.source.util.JavacTask;
 import com.sun.source.util.TreePath;
 import com.sun.source.util.Trees;
 import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.util.Context;
 
 import java.io.File;
 import java.nio.file.Path;
@@ -76,11 +77,9 @@ public class Completions {
             StringBuilder pruned = new PruneMethodBodies(task.task).scan(task.root, index);
             int end = StringSearch.endOfLine(pruned, (int) index);
             pruned.insert(end, ';');
-            if (compiler.compiler.getCurrentContext() != null) {
-                contents = new FileContentFixer(compiler.compiler.getCurrentContext()).fixFileContent(
-                        pruned);
-            } else {
-                contents = pruned.toString();
+            Context scannerContext = compiler.getScannerContext();
+            synchronized (scannerContext) {
+                contents = new FileContentFixer(scannerContext).fixFileContent(pruned);
             }
         } catch (IndexOutOfBoundsException e) {
             Log.w(TAG, "Unable to fix file content", e);
@@ -98,10 +97,11 @@ public class Completions {
         boolean endsWithParen = endsWithParen(contents, (int) cursor);
 
         checkCanceled();
-        if (compiler.getCachedContainer().isWriting()) {
+        if (compiler.getCompletionContainer().isWriting()) {
             return null;
         }
-        CompilerContainer container = compiler.compile(Collections.singletonList(source));
+        CompilerContainer container =
+                compiler.compileForCompletion(Collections.singletonList(source));
         try {
             return container.get(task -> {
                 TreePath path = new FindCurrentPath(task.task).scan(task.root(), cursor);
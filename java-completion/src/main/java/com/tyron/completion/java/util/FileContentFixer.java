@@ -9,12 +9,18 @@ import com.sun.tools.javac.parser.ScannerFactory;
 import com.sun.tools.javac.parser.Tokens.Token;
 import com.sun.tools.javac.parser.Tokens.TokenKind;
 import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Log;
 import com.tyron.completion.progress.ProgressManager;
 
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+
 public class FileContentFixer {
 
     /**
@@ -42,7 +48,30 @@ public class FileContentFixer {
         this.context = context;
     }
 
+    /**
+     * Creates a context that is only used for scanning, so the fixer does not touch the context
+     * of a compilation which may be running on another thread. Scanning errors are expected in
+     * the code being completed, they are discarded.
+     */
+    public static Context createScannerContext() {
+        Context context = new Context();
+        context.put(DiagnosticListener.class, (DiagnosticListener<JavaFileObject>) diagnostic -> {
+        });
+        return context;
+    }
+
     public CharSequence fixFileContent(CharSequence content) {
+        // scanning errors are reported against the current source of the log
+        Log log = Log.instance(context);
+        JavaFileObject previousSource = log.useSource(new ContentFileObject(content));
+        try {
+            return scan(content);
+        } finally {
+            log.useSource(previousSource);
+        }
+    }
+
+    private CharSequence scan(CharSequence content) {
         Scanner scanner = ScannerFactory.instance(context).newScanner(content, true);
         List<Insertion> insertions = new ArrayList<>();
         for (; ; scanner.nextToken()) {
@@ -103,6 +132,20 @@ public class FileContentFixer {
         }
     }
 
+    private static class ContentFileObject extends SimpleJavaFileObject {
+        private final CharSequence content;
+
+        ContentFileObject(CharSequence content) {
+            super(URI.create("string:///Completion.java"), Kind.SOURCE);
+            this.content = content;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return content;
+        }
+    }
+
     public static class Insertion {
         private static final Ordering<Insertion> REVERSE_INSERTION =
                 Ordering.natural().onResultOf(Insertion::getPos).reverse();
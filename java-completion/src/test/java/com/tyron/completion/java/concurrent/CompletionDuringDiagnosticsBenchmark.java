@@ -0,0 +1,107 @@
+package com.tyron.completion.java.concurrent;
+
+import static com.tyron.completion.TestUtil.resolveBasePath;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.tyron.builder.model.SourceFileObject;
+import com.tyron.builder.project.Project;
+import com.tyron.builder.project.mock.MockAndroidModule;
+import com.tyron.builder.project.mock.MockFileManager;
+import com.tyron.completion.index.CompilerService;
+import com.tyron.completion.java.CompletionModule;
+import com.tyron.completion.java.JavaCompilerProvider;
+import com.tyron.completion.java.compiler.JavaCompilerService;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Compares the time a completion compile takes when the compiler is idle and while a slow
+ * diagnostics compile of the same file is running. Not a unit test, run it with
+ * {@code ./gradlew :java-completion:testDebugUnitTest -Pbenchmark --tests '*CompletionDuringDiagnosticsBenchmark'}.
+ * <p>
+ * Completion used to wait for the diagnostics compile to finish, the two times should now be close.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, resourceDir = Config.NONE)
+public class CompletionDuringDiagnosticsBenchmark {
+
+    private static final int RUNS = 5;
+    private static final long DIAGNOSTICS_MILLIS = 1000;
+
+    private MockAndroidModule mModule;
+    private JavaCompilerService mService;
+
+    @Before
+    public void setup() throws IOException {
+        CompletionModule.initialize(ApplicationProvider.getApplicationContext());
+        CompletionModule.setAndroidJar(new File(resolveBasePath(), "classpath/rt.jar"));
+        CompletionModule.setLambdaStubs(new File(resolveBasePath(),
+                "classpath/core-lambda-stubs" + ".jar"));
+
+        JavaCompilerProvider provider = new JavaCompilerProvider();
+        CompilerService.getInstance().registerIndexProvider(JavaCompilerProvider.KEY, provider);
+
+        File root = new File(resolveBasePath(), "EmptyProject");
+        mModule = new MockAndroidModule(root, new MockFileManager(root));
+        mModule.open();
+        File[] testFiles = new File(root, "completion").listFiles(c -> c.getName().endsWith(
+                ".java"));
+        if (testFiles != null) {
+            for (File testFile : testFiles) {
+                mModule.addJavaFile(testFile);
+            }
+        }
+
+        mService = provider.get(new Project(root), mModule);
+    }
+
+    @Test
+    public void benchmark() throws InterruptedException {
+        File file = mModule.getJavaFile("com.tyron.test.MemberSelect");
+        assert file != null;
+
+        for (int i = 0; i < RUNS; i++) {
+            long idle = timeCompletionCompile(file);
+
+            CountDownLatch diagnosticsRunning = new CountDownLatch(1);
+            Thread diagnostics = new Thread(() -> {
+                SourceFileObject changed = new SourceFileObject(file.toPath(), mModule, Instant.now());
+                mService.compile(Collections.singletonList(changed)).run(task -> {
+                    diagnosticsRunning.countDown();
+                    try {
+                        Thread.sleep(DIAGNOSTICS_MILLIS);
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+            }, "Diagnostics");
+            diagnostics.start();
+            diagnosticsRunning.await();
+            long busy = timeCompletionCompile(file);
+            diagnostics.join();
+
+            System.out.printf("Completion compile: idle %dms, during a %dms diagnostics compile %dms%n",
+                    idle, DIAGNOSTICS_MILLIS, busy);
+        }
+    }
+
+    private long timeCompletionCompile(File file) {
+        long start = System.nanoTime();
+        SourceFileObject source = new SourceFileObject(file.toPath(), mModule, Instant.now());
+        mService.compileForCompletion(Collections.singletonList(source)).run(task -> {
+            assert task.root() != null;
+        });
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
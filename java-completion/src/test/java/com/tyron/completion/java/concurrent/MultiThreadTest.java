@@ -1,6 +1,8 @@
 package com.tyron.completion.java.concurrent;
 
 import static com.tyron.completion.TestUtil.resolveBasePath;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import androidx.test.core.app.ApplicationProvider;
 
@@ -14,6 +16,9 @@ import com.tyron.completion.java.compiler.CompilerContainer;
 import com.tyron.completion.java.CompletionModule;
 import com.tyron.completion.java.JavaCompilerProvider;
 import com.tyron.completion.java.compiler.JavaCompilerService;
+import com.tyron.completion.java.util.FileContentFixer;
+
+import com.sun.tools.javac.util.Context;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -28,6 +33,9 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The java language server is single threaded and requires threads that
@@ -177,6 +185,78 @@ public class MultiThreadTest {
         });
     }
 
+    @Test
+    public void testCompletionDoesNotWaitForDiagnostics() throws InterruptedException {
+        File file = mModule.getJavaFile("com.tyron.test.MemberSelect");
+        assert file != null;
+
+        CountDownLatch diagnosticsRunning = new CountDownLatch(1);
+        CountDownLatch completionFinished = new CountDownLatch(1);
+        // set if the diagnostics compile gave up waiting, which means the other lane was blocked
+        AtomicBoolean timedOut = new AtomicBoolean();
+        Thread diagnostics = new Thread(() -> {
+            CompilerContainer container = mService.compile(file.toPath());
+            container.run(task -> {
+                diagnosticsRunning.countDown();
+                try {
+                    timedOut.set(!completionFinished.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        }, "Diagnostics");
+        diagnostics.start();
+        assertTrue("The diagnostics compile did not start", diagnosticsRunning.await(10, TimeUnit.SECONDS));
+
+        CompilerContainer completion = mService.compileForCompletion(
+                Collections.singletonList(new SourceFileObject(file.toPath(), mModule, Instant.now())));
+        completion.run(task -> {
+            assert task.root() != null;
+        });
+        completionFinished.countDown();
+        diagnostics.join(TimeUnit.SECONDS.toMillis(10));
+        assertFalse("The diagnostics compile did not finish", diagnostics.isAlive());
+        assertFalse("Completion waited for the diagnostics compile", timedOut.get());
+    }
+
+    @Test
+    public void testFileContentFixerDuringDiagnostics() throws InterruptedException {
+        File file = mModule.getJavaFile("com.tyron.test.MemberSelect");
+        assert file != null;
+
+        CountDownLatch diagnosticsRunning = new CountDownLatch(1);
+        CountDownLatch fixed = new CountDownLatch(1);
+        // set if the diagnostics compile gave up waiting, which means the other lane was blocked
+        AtomicBoolean timedOut = new AtomicBoolean();
+        Thread diagnostics = new Thread(() -> {
+            CompilerContainer container = mService.compile(file.toPath());
+            container.run(task -> {
+                diagnosticsRunning.countDown();
+                try {
+                    timedOut.set(!fixed.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        }, "Diagnostics");
+        diagnostics.start();
+        assertTrue("The diagnostics compile did not start", diagnosticsRunning.await(10, TimeUnit.SECONDS));
+
+        // the scanner does not use the context of the running compilation
+        Context scannerContext = mService.getScannerContext();
+        CharSequence contents;
+        synchronized (scannerContext) {
+            contents = new FileContentFixer(scannerContext)
+                    .fixFileContent("class Test {\n void test() {\n  \"unterminated.\n  test.\n }\n}");
+        }
+        fixed.countDown();
+        diagnostics.join(TimeUnit.SECONDS.toMillis(10));
+        assertFalse("The diagnostics compile did not finish", diagnostics.isAlive());
+        assertFalse("Fixing the contents waited for the diagnostics compile", timedOut.get());
+
+        assert contents.toString().contains("test." + FileContentFixer.INJECTED_IDENT + ";") : contents;
+    }
+
     private void w(long millis) {
         try {
             Thread.sleep(millis);
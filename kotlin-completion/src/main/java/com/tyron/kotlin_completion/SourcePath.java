@@ -81,6 +81,14 @@ public class SourcePath {
         private final String extension;
         private final CompletionKind kind = CompletionKind.DEFAULT;
 
+        /**
+         * Incremented each time the content changes, so that checking whether the parsed or
+         * compiled file is up to date does not need to compare the whole text
+         */
+        private long contentVersion;
+        private long parsedVersion = -1;
+        private long compiledVersion = -1;
+
         public SourceFile(URI uri, String content, Language language, boolean isTemporary) {
             this(uri, content, Paths.get(uri), null, null, null, null, language, isTemporary);
         }
@@ -103,7 +111,10 @@ public class SourcePath {
         }
 
         public void put(String newContent) {
-            content = newContent;
+            if (!newContent.equals(content)) {
+                content = newContent;
+                contentVersion++;
+            }
         }
 
         public void clean() {
@@ -111,15 +122,18 @@ public class SourcePath {
             compiledFile = null;
             compiledContext = null;
             compiledcontainer = null;
+            parsedVersion = -1;
+            compiledVersion = -1;
         }
 
         public void parse() {
             Log.d(TAG, "Parsing file " + path);
             parsed = cp.getCompiler().createKtFile(content, (path == null ? Paths.get("sourceFile.virtual" + extension) : path), kind);
+            parsedVersion = contentVersion;
         }
 
         public void parseIfChanged() {
-            if (parsed == null || !content.equals(parsed.getText())) {
+            if (parsed == null || parsedVersion != contentVersion) {
                 Log.d(TAG, "Parse has changed, parsing.");
                 parse();
             }
@@ -143,7 +157,7 @@ public class SourcePath {
         }
 
         private void doCompileIfChanged() {
-            if (parsed == null || compiledFile == null || !parsed.getText().equals(compiledFile.getText())) {
+            if (parsed == null || compiledFile == null || compiledVersion != parsedVersion) {
                 doCompile();;
             }
         }
@@ -156,6 +170,7 @@ public class SourcePath {
                     compiledContext = pair.getFirst();
                     compiledcontainer = pair.getSecond();
                     compiledFile = parsed;
+                    compiledVersion = parsedVersion;
                 } finally {
                     parsedDataWriteLock.unlock();
                 }
@@ -219,7 +234,7 @@ public class SourcePath {
             if (it.compiledFile == null) {
                 return true;
             }
-            return !it.content.equals(it.compiledFile.getText());
+            return it.compiledVersion != it.contentVersion;
         })
                 .collect(Collectors.toSet());
         BindingContext sourcesContext = compileAndUpdate(allChanged);
@@ -239,8 +254,10 @@ public class SourcePath {
 
     private BindingContext compileAndUpdate(Set<SourceFile> changed) {
         if (changed.isEmpty()) return null;
+        Map<SourceFile, Long> versions = new HashMap<>();
         Map<SourceFile, KtFile> parse = CollectionsKt.associateWith(changed, sourceFile -> {
             sourceFile.parseIfChanged();
+            versions.put(sourceFile, sourceFile.parsedVersion);
             return sourceFile.parsed;
         });
         Set<KtFile> all = all(false);
@@ -252,6 +269,7 @@ public class SourcePath {
             try {
                 if (f.parsed.equals(parsed)) {
                     f.compiledFile = parsed;
+                    f.compiledVersion = versions.get(f);
                     f.compiledContext = pair.getFirst();
                     f.compiledcontainer = pair.getSecond();
                 }
@@ -1,188 +1,140 @@
 package com.tyron.completion.xml;
 
-import android.content.Context;
-import android.util.AttributeSet;
-import android.view.View;
-import android.view.ViewGroup;
-
-import com.google.common.collect.ImmutableSet;
-import com.tyron.builder.BuildModule;
-import com.tyron.completion.xml.util.PartialClassParser;
-
-import org.apache.bcel.Repository;
-import org.apache.bcel.classfile.JavaClass;
-import org.apache.bcel.classfile.Method;
-import org.apache.bcel.generic.Type;
-
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
 /**
- * Scans jar files and saves all the class files that extends {@link View} and has the
- * appropriate constructors to be inflated in XML.
+ * Scans jar files for the super class of each of their classes, which is all that is needed
+ * to find the classes that extend {@link android.view.View}.
+ *
+ * <p>Only the header of each class file is read, up to the super class index, the rest of the
+ * class file is not parsed.
  */
 public class BytecodeScanner {
 
     private static final Predicate<String> CLASS_NAME_FILTER = s -> s.endsWith(".class");
 
-    private static final Set<String> sIgnoredPaths;
-
-    static {
-        ImmutableSet.Builder<String> builder = ImmutableSet.builder();
-        builder.add("android");
-        builder.add("android/util");
-        builder.add("android/os");
-        builder.add("android/os/health");
-        builder.add("android/os/strictmode");
-        builder.add("android/os/storage");
-        builder.add("android/graphics");
-        builder.add("android/graphics/drawable");
-        builder.add("android/graphics/fonts");
-        builder.add("android/graphics/pdf");
-        builder.add("android/graphics/text");
-        builder.add("android/system");
-        builder.add("android/content");
-        builder.add("android/content/res");
-        builder.add("android/content/pm");
-        sIgnoredPaths = builder.build();
-    }
+    private static final int MAGIC = 0xCAFEBABE;
 
-    public static void loadJar(File jar) throws IOException {
+    /**
+     * Reads the classes of the jar in parallel.
+     *
+     * @return the super class of each class in the jar by the class name, classes without a
+     * super class are not included
+     */
+    public static Map<String, String> scanSuperClasses(File jar) throws IOException {
         try (JarFile jarFile = new JarFile(jar)) {
-            iterateClasses(jarFile, element -> {
-                PartialClassParser classParser =
-                        new PartialClassParser(jar.getAbsolutePath(), element.getName());
-                try {
-                    Repository.addClass(classParser.parse());
-                } catch (IOException e) {
-                    // ignored, keep parsing other classes
-                }
-            });
-        }
-    }
-
-    public static List<JavaClass> scan(File file) throws IOException {
-        List<JavaClass> viewClasses = new ArrayList<>();
-        try (JarFile jarFile = new JarFile(file)) {
-            iterateClasses(jarFile, element -> {
-                String fqn = element.getName().replace('/', '.')
-                        .substring(0, element.getName().length() - ".class".length());
-                try {
-                    JavaClass javaClass = Repository.lookupClass(fqn);
-                    if (isViewClass(javaClass)) {
-                        viewClasses.add(javaClass);
+            List<JarEntry> entries = new ArrayList<>();
+            iterateClasses(jarFile, entries::add);
+
+            Map<String, String> superClasses = Collections.synchronizedMap(
+                    new HashMap<>(entries.size()));
+            entries.parallelStream().forEach(entry -> {
+                try (InputStream inputStream = jarFile.getInputStream(entry)) {
+                    String[] names = readClassNames(inputStream);
+                    if (names[1] != null) {
+                        superClasses.put(names[0], names[1]);
                     }
-                } catch (ClassNotFoundException e) {
-                    // should not happen, the class should already be loaded here.
+                } catch (IOException e) {
+                    // ignored, keep reading other classes
                 }
             });
+            return superClasses;
         }
-        return viewClasses;
     }
 
-    public static boolean isViewGroup(JavaClass javaClass) {
-        JavaClass[] superClasses = getSuperClasses(javaClass);
-        return Arrays.stream(superClasses)
-                .anyMatch(it -> ViewGroup.class.getName().equals(it.getClassName()));
-    }
-
-    public static void scanBootstrapIfNeeded() {
-        if (!needScanBootstrap()) {
-            return;
+    /**
+     * @return the name of the class and the name of its super class, which is null for
+     * {@link Object} and module-info
+     */
+    private static String[] readClassNames(InputStream inputStream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a class file");
         }
-
-        File androidJar = BuildModule.getAndroidJar();
-        if (androidJar != null && androidJar.exists()) {
-            try (JarFile jarFile = new JarFile(androidJar)) {
-                iterateClasses(jarFile, element -> {
-                    String name = element.getName();
-                    String packagePath = name.substring(0, name.lastIndexOf('/'));
-                    if (sIgnoredPaths.contains(packagePath)) {
-                        return;
-                    }
-                    if (packagePath.startsWith("java/")) {
-                        return;
-                    }
-                    PartialClassParser classParser =
-                            new PartialClassParser(androidJar.getAbsolutePath(), name);
-                    try {
-                        Repository.addClass(classParser.parse());
-                    } catch (IOException e) {
-                        // ignored, keep parsing other classes
-                    }
-
-                });
-            } catch (IOException e) {
-                // ignored
+        in.readUnsignedShort(); // minor version
+        in.readUnsignedShort(); // major version
+
+        int count = in.readUnsignedShort();
+        String[] utf8 = new String[count];
+        int[] classNameIndices = new int[count];
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1: // Utf8
+                    utf8[i] = in.readUTF();
+                    break;
+                case 7: // Class
+                    classNameIndices[i] = in.readUnsignedShort();
+                    break;
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    skip(in, 2);
+                    break;
+                case 15: // MethodHandle
+                    skip(in, 3);
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    skip(in, 4);
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    skip(in, 8);
+                    // takes up two entries
+                    i++;
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag);
             }
         }
-    }
 
-    private static boolean needScanBootstrap() {
-        try {
-            Repository.getRepository().loadClass(View.class);
-            return false;
-        } catch (ClassNotFoundException e) {
-            return true;
+        in.readUnsignedShort(); // access flags
+        int thisClass = in.readUnsignedShort();
+        int superClass = in.readUnsignedShort();
+        String name = getClassName(utf8, classNameIndices, thisClass);
+        if (name == null) {
+            throw new IOException("Invalid class name index " + thisClass);
         }
+        return new String[]{name, getClassName(utf8, classNameIndices, superClass)};
     }
 
-    private static boolean isViewClass(JavaClass javaClass) {
-        JavaClass[] superClasses = getSuperClasses(javaClass);
-        return Arrays.stream(superClasses)
-                .anyMatch(it -> View.class.getName().equals(it.getClassName()));
-    }
-
-    /**
-     * Get the array of java classes even if the root class does not exist
-     *
-     * @param javaClass The java class
-     * @return array of super classes
-     */
-    public static JavaClass[] getSuperClasses(JavaClass javaClass) {
-        List<JavaClass> superClasses = new ArrayList<>();
-        JavaClass current = javaClass;
-        while (current != null && current.getSuperclassName() != null) {
-            JavaClass lookupClass;
-            try {
-                lookupClass = Repository.lookupClass(current.getSuperclassName());
-            } catch (ClassNotFoundException e) {
-                lookupClass = null;
-            }
-
-            if (lookupClass != null) {
-                superClasses.add(lookupClass);
-            }
-            current = lookupClass;
+    private static String getClassName(String[] utf8, int[] classNameIndices, int index) {
+        if (index <= 0 || index >= classNameIndices.length) {
+            return null;
         }
-        return superClasses.toArray(new JavaClass[0]);
+        int nameIndex = classNameIndices[index];
+        if (nameIndex <= 0 || nameIndex >= utf8.length || utf8[nameIndex] == null) {
+            return null;
+        }
+        return utf8[nameIndex].replace('/', '.');
     }
 
-    private static boolean containsViewConstructors(Method[] methods) {
-        for (Method method : methods) {
-            if (!"<init>".equals(method.getName())) {
-                continue;
-            }
-
-            Type[] argumentTypes = method.getArgumentTypes();
-            if (argumentTypes.length == 2) {
-                if (Context.class.getName().equals(argumentTypes[0].toString())) {
-                    if (AttributeSet.class.getName().equals(argumentTypes[1].toString())) {
-                        return true;
-                    }
-                }
-            }
+    private static void skip(DataInputStream in, int count) throws IOException {
+        if (in.skipBytes(count) != count) {
+            throw new IOException("Unexpected end of class file");
         }
-        return false;
     }
 
     public static void iterateClasses(JarFile jarFile, Consumer<JarEntry> consumer) {
@@ -0,0 +1,286 @@
+package com.tyron.completion.xml;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.google.common.hash.Hashing;
+import com.tyron.builder.BuildModule;
+import com.tyron.completion.xml.model.ViewClass;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The class hierarchy of a set of jars, used to find the classes that can be used as tags in
+ * layout files.
+ *
+ * <p>The super classes of the classes in each jar are scanned once and stored in the cache
+ * directory, keyed by a hash of the path, length and modification time of the jar. Scanning
+ * android.jar takes seconds while loading its index only takes a few milliseconds. A jar
+ * only stores its own classes, so the super classes of a library that extend classes of
+ * another jar are resolved when the jars are combined. The index files of jars that are not
+ * loaded are deleted, so the cache directory does not grow each time a jar changes.
+ */
+public class ViewClassIndex {
+
+    private static final String TAG = ViewClassIndex.class.getSimpleName();
+
+    private static final String VIEW = "android.view.View";
+    private static final int VERSION = 1;
+    private static final String INDEX_DIRECTORY = "view-index";
+    private static final String INDEX_EXTENSION = ".idx";
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    /**
+     * The super classes of the jars loaded in this process, by the key of the jar.
+     */
+    private static final Map<String, Map<String, String>> sLoadedJars = new ConcurrentHashMap<>();
+
+    /**
+     * Loads the index of each jar, scanning the jars that have not been indexed yet.
+     */
+    @NonNull
+    public static ViewClassIndex load(@NonNull List<File> jars) {
+        Context context = BuildModule.getContext();
+        return load(jars, context == null ? null : new File(context.getCacheDir(),
+                INDEX_DIRECTORY));
+    }
+
+    /**
+     * Loads the index of each jar from the given directory, scanning the jars that have not been
+     * indexed yet. The index files of other jars are deleted from the directory.
+     *
+     * @param indexDirectory the directory of the index files, or null to only keep the indices
+     *                       in memory
+     */
+    @VisibleForTesting
+    @NonNull
+    static ViewClassIndex load(@NonNull List<File> jars, @Nullable File indexDirectory) {
+        Map<File, Map<String, String>> superClasses = Collections.synchronizedMap(
+                new LinkedHashMap<>());
+        Set<String> indexFileNames = Collections.synchronizedSet(new HashSet<>());
+        jars.parallelStream().forEach(jar -> {
+            String key = getKey(jar);
+            indexFileNames.add(key + INDEX_EXTENSION);
+            try {
+                superClasses.put(jar, getSuperClasses(jar, key, indexDirectory));
+            } catch (IOException e) {
+                Log.w(TAG, "Unable to scan " + jar, e);
+            }
+        });
+        if (indexDirectory != null) {
+            deleteStaleIndices(indexDirectory, indexFileNames);
+        }
+
+        Map<File, Map<String, String>> ordered = new LinkedHashMap<>();
+        for (File jar : jars) {
+            Map<String, String> map = superClasses.get(jar);
+            if (map != null) {
+                ordered.put(jar, map);
+            }
+        }
+        return new ViewClassIndex(ordered);
+    }
+
+    private static Map<String, String> getSuperClasses(File jar, String key,
+                                                       @Nullable File indexDirectory)
+            throws IOException {
+        Map<String, String> loaded = sLoadedJars.get(key);
+        File indexFile = indexDirectory == null ? null
+                : new File(indexDirectory, key + INDEX_EXTENSION);
+        if (loaded != null && (indexFile == null || indexFile.exists())) {
+            return loaded;
+        }
+
+        if (indexFile != null && indexFile.exists()) {
+            try {
+                loaded = readIndex(indexFile);
+            } catch (IOException e) {
+                Log.w(TAG, "Unable to read the index of " + jar + ", scanning again", e);
+            }
+        }
+        if (loaded == null) {
+            loaded = Collections.unmodifiableMap(BytecodeScanner.scanSuperClasses(jar));
+        }
+        if (indexFile != null && !indexFile.exists()) {
+            try {
+                writeIndex(indexFile, loaded);
+            } catch (IOException e) {
+                Log.w(TAG, "Unable to save the index of " + jar, e);
+            }
+        }
+        sLoadedJars.put(key, loaded);
+        return loaded;
+    }
+
+    private static String getKey(File jar) {
+        String stamp = String.format(Locale.ROOT, "%s %d %d", jar.getAbsolutePath(),
+                jar.length(), jar.lastModified());
+        return Hashing.murmur3_128().hashString(stamp, StandardCharsets.UTF_8).toString();
+    }
+
+    /**
+     * Deletes the index files, and the temporary files of interrupted writes, that do not belong
+     * to the loaded jars.
+     */
+    private static void deleteStaleIndices(File indexDirectory, Set<String> indexFileNames) {
+        File[] files = indexDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (!indexFileNames.contains(name) && (name.endsWith(INDEX_EXTENSION)
+                    || name.endsWith(INDEX_EXTENSION + TEMP_EXTENSION))) {
+                if (!file.delete()) {
+                    Log.w(TAG, "Unable to delete the stale index " + file);
+                }
+            }
+        }
+    }
+
+    @VisibleForTesting
+    static Map<String, String> readIndex(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != VERSION) {
+                throw new IOException("Unsupported index version");
+            }
+            int count = in.readInt();
+            Map<String, String> superClasses = new HashMap<>(count * 2);
+            // super classes repeat a lot, they are stored once and referenced by index
+            List<String> names = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                String className = in.readUTF();
+                int superIndex = in.readInt();
+                String superClass;
+                if (superIndex == names.size()) {
+                    superClass = in.readUTF();
+                    names.add(superClass);
+                } else {
+                    superClass = names.get(superIndex);
+                }
+                superClasses.put(className, superClass);
+            }
+            return Collections.unmodifiableMap(superClasses);
+        }
+    }
+
+    private static void writeIndex(File file, Map<String, String> superClasses)
+            throws IOException {
+        File directory = file.getParentFile();
+        if (directory != null && !directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Unable to create directory " + directory);
+        }
+        File temp = new File(file.getPath() + TEMP_EXTENSION);
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(VERSION);
+            out.writeInt(superClasses.size());
+            Map<String, Integer> names = new HashMap<>();
+            for (Map.Entry<String, String> entry : superClasses.entrySet()) {
+                out.writeUTF(entry.getKey());
+                Integer index = names.get(entry.getValue());
+                if (index == null) {
+                    out.writeInt(names.size());
+                    out.writeUTF(entry.getValue());
+                    names.put(entry.getValue(), names.size());
+                } else {
+                    out.writeInt(index);
+                }
+            }
+        }
+        if (!temp.renameTo(file)) {
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+            throw new IOException("Unable to write " + file);
+        }
+    }
+
+    private final Map<File, Map<String, String>> mJars;
+
+    private ViewClassIndex(Map<File, Map<String, String>> jars) {
+        mJars = jars;
+    }
+
+    /**
+     * @return the super class of the class, searched in the order the jars were given
+     */
+    @Nullable
+    public String getSuperClass(@NonNull String className) {
+        for (Map<String, String> superClasses : mJars.values()) {
+            String superClass = superClasses.get(className);
+            if (superClass != null) {
+                return superClass;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the super classes of the class, starting from the direct super class and
+     * stopping at the first class that is not in the index
+     */
+    @NonNull
+    public List<String> getSuperClasses(@NonNull String className) {
+        List<String> superClasses = new ArrayList<>();
+        String current = getSuperClass(className);
+        while (current != null && !superClasses.contains(current)) {
+            superClasses.add(current);
+            current = getSuperClass(current);
+        }
+        return superClasses;
+    }
+
+    /**
+     * @return the view class of the given name, or null if it does not extend View
+     */
+    @Nullable
+    public ViewClass getViewClass(@NonNull String className) {
+        List<String> superClasses = getSuperClasses(className);
+        if (VIEW.equals(className) || superClasses.contains(VIEW)) {
+            return new ViewClass(className, Collections.unmodifiableList(superClasses));
+        }
+        return null;
+    }
+
+    /**
+     * @return the view classes declared in the jar
+     */
+    @NonNull
+    public List<ViewClass> getViewClasses(@NonNull File jar) {
+        Map<String, String> superClasses = mJars.get(jar);
+        if (superClasses == null) {
+            return Collections.emptyList();
+        }
+        List<ViewClass> viewClasses = new ArrayList<>();
+        for (String className : superClasses.keySet()) {
+            ViewClass viewClass = getViewClass(className);
+            if (viewClass != null) {
+                viewClasses.add(viewClass);
+            }
+        }
+        return viewClasses;
+    }
+}
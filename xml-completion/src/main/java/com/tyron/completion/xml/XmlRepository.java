@@ -21,6 +21,7 @@ import android.widget.TextView;
 import android.widget.ViewFlipper;
 import android.widget.ViewSwitcher;
 
+import com.tyron.builder.BuildModule;
 import com.tyron.builder.project.Project;
 import com.tyron.builder.project.api.AndroidModule;
 import com.tyron.common.ApplicationProvider;
@@ -29,11 +30,10 @@ import com.tyron.completion.index.CompilerService;
 import com.tyron.completion.xml.model.AttributeInfo;
 import com.tyron.completion.xml.model.DeclareStyleable;
 import com.tyron.completion.xml.model.Format;
+import com.tyron.completion.xml.model.ViewClass;
 import com.tyron.xml.completion.repository.ResourceRepository;
 import com.tyron.completion.xml.util.StyleUtils;
 
-import org.apache.bcel.Repository;
-import org.apache.bcel.classfile.JavaClass;
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 import org.xmlpull.v1.XmlPullParserFactory;
@@ -53,7 +53,7 @@ public class XmlRepository {
     private final Map<String, DeclareStyleable> mDeclareStyleables = new TreeMap<>();
     private final Map<String, DeclareStyleable> mManifestAttrs = new TreeMap<>();
     private final Map<String, AttributeInfo> mExtraAttributes = new TreeMap<>();
-    private final Map<String, JavaClass> mJavaViewClasses = new TreeMap<>();
+    private final Map<String, ViewClass> mJavaViewClasses = new TreeMap<>();
 
     private boolean mInitialized = false;
     private ResourceRepository mRepository;
@@ -72,7 +72,7 @@ public class XmlRepository {
         return mDeclareStyleables;
     }
 
-    public Map<String, JavaClass> getJavaViewClasses() {
+    public Map<String, ViewClass> getJavaViewClasses() {
         return mJavaViewClasses;
     }
 
@@ -85,78 +85,66 @@ public class XmlRepository {
         if (mInitialized) {
             return;
         }
-        BytecodeScanner.scanBootstrapIfNeeded();
-
         mRepository = new ResourceRepository(module);
         mRepository.initialize();
 
+        List<File> jars = new ArrayList<>();
+        File androidJar = BuildModule.getAndroidJar();
+        if (androidJar != null && androidJar.exists()) {
+            jars.add(androidJar);
+        }
         for (File library : module.getLibraries()) {
-            File parent = library.getParentFile();
-            if (parent == null) {
-                continue;
+            if (library.exists()) {
+                jars.add(library);
             }
-            File classesFile = new File(parent, "classes.jar");
-            if (classesFile.exists()) {
-                try {
-                    BytecodeScanner.loadJar(classesFile);
-                } catch (IOException ignored) {
-
-                }
+            // only used to resolve the super classes of the views in the libraries
+            File parent = library.getParentFile();
+            File classesFile = parent == null ? null : new File(parent, "classes.jar");
+            if (classesFile != null && classesFile.exists() && !jars.contains(classesFile)) {
+                jars.add(classesFile);
             }
         }
+        ViewClassIndex index = ViewClassIndex.load(jars);
 
         for (File library : module.getLibraries()) {
-            try {
-                List<JavaClass> scan =
-                        BytecodeScanner.scan(library);
-                for (JavaClass javaClass : scan) {
-                    StyleUtils.putStyles(javaClass);
-                    mJavaViewClasses.put(javaClass.getClassName(), javaClass);
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
+            for (ViewClass viewClass : index.getViewClasses(library)) {
+                StyleUtils.putStyles(viewClass);
+                mJavaViewClasses.put(viewClass.getClassName(), viewClass);
             }
         }
 
-        addFrameworkViews();
-
-        Repository.clearCache();
+        addFrameworkViews(index);
 
         mInitialized = true;
     }
 
-    private void addFrameworkViews() {
-        addFrameworkView(View.class);
-        addFrameworkView(ViewGroup.class);
-        addFrameworkView(FrameLayout.class);
-        addFrameworkView(RelativeLayout.class);
-        addFrameworkView(LinearLayout.class);
-        addFrameworkView(AbsoluteLayout.class);
-        addFrameworkView(ListView.class);
-        addFrameworkView(EditText.class);
-        addFrameworkView(Button.class);
-        addFrameworkView(TextView.class);
-        addFrameworkView(ImageView.class);
-        addFrameworkView(ImageButton.class);
-        addFrameworkView(ImageSwitcher.class);
-        addFrameworkView(ViewFlipper.class);
-        addFrameworkView(ViewSwitcher.class);
-        addFrameworkView(ScrollView.class);
-        addFrameworkView(HorizontalScrollView.class);
-        addFrameworkView(CompoundButton.class);
-        addFrameworkView(ProgressBar.class);
-        addFrameworkView(CheckBox.class);
+    private void addFrameworkViews(ViewClassIndex index) {
+        addFrameworkView(index, View.class);
+        addFrameworkView(index, ViewGroup.class);
+        addFrameworkView(index, FrameLayout.class);
+        addFrameworkView(index, RelativeLayout.class);
+        addFrameworkView(index, LinearLayout.class);
+        addFrameworkView(index, AbsoluteLayout.class);
+        addFrameworkView(index, ListView.class);
+        addFrameworkView(index, EditText.class);
+        addFrameworkView(index, Button.class);
+        addFrameworkView(index, TextView.class);
+        addFrameworkView(index, ImageView.class);
+        addFrameworkView(index, ImageButton.class);
+        addFrameworkView(index, ImageSwitcher.class);
+        addFrameworkView(index, ViewFlipper.class);
+        addFrameworkView(index, ViewSwitcher.class);
+        addFrameworkView(index, ScrollView.class);
+        addFrameworkView(index, HorizontalScrollView.class);
+        addFrameworkView(index, CompoundButton.class);
+        addFrameworkView(index, ProgressBar.class);
+        addFrameworkView(index, CheckBox.class);
     }
 
-    private void addFrameworkView(Class<? extends View> viewClass) {
-        org.apache.bcel.util.Repository repository = Repository.getRepository();
-        try {
-            JavaClass javaClass = repository.loadClass(viewClass);
-            if (javaClass != null) {
-                mJavaViewClasses.put(javaClass.getClassName(), javaClass);
-            }
-        } catch (ClassNotFoundException e) {
-            // ignored
+    private void addFrameworkView(ViewClassIndex index, Class<? extends View> viewClass) {
+        ViewClass view = index.getViewClass(viewClass.getName());
+        if (view != null) {
+            mJavaViewClasses.put(view.getClassName(), view);
         }
     }
 
@@ -0,0 +1,50 @@
+package com.tyron.completion.xml.model;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+
+/**
+ * A class that extends {@code android.view.View}, as found in the
+ * {@link com.tyron.completion.xml.ViewClassIndex}.
+ */
+public class ViewClass {
+
+    private static final String VIEW_GROUP = "android.view.ViewGroup";
+
+    private final String className;
+    private final List<String> superClasses;
+
+    public ViewClass(@NonNull String className, @NonNull List<String> superClasses) {
+        this.className = className;
+        this.superClasses = superClasses;
+    }
+
+    @NonNull
+    public String getClassName() {
+        return className;
+    }
+
+    @NonNull
+    public String getPackageName() {
+        int index = className.lastIndexOf('.');
+        return index == -1 ? "" : className.substring(0, index);
+    }
+
+    /**
+     * @return the names of the super classes, starting from the direct super class
+     */
+    @NonNull
+    public List<String> getSuperClasses() {
+        return superClasses;
+    }
+
+    public boolean isViewGroup() {
+        return superClasses.contains(VIEW_GROUP);
+    }
+
+    @Override
+    public String toString() {
+        return className;
+    }
+}
@@ -0,0 +1,159 @@
+package com.tyron.completion.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.view.View;
+
+import com.tyron.completion.xml.model.ViewClass;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+public class ViewClassIndexTest {
+
+    private static final String VIEW = "android.view.View";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * A view whose constant pool also has long, double, method handle and invoke dynamic
+     * entries, which the scanner has to skip to reach the super class.
+     */
+    public static class CustomView extends View {
+
+        public static final long TIMEOUT = 5_000_000_000L;
+
+        private final Runnable mInvalidate = this::invalidate;
+        private double mScale = 1.5;
+
+        public CustomView(Context context) {
+            super(context);
+        }
+    }
+
+    public static class ExtendedView extends CustomView {
+
+        public ExtendedView(Context context) {
+            super(context);
+        }
+    }
+
+    public static class NotAView {
+    }
+
+    @Test
+    public void scansTheSuperClassesOfCompiledClasses() throws IOException {
+        File jar = createJar("classes.jar", CustomView.class, ExtendedView.class,
+                NotAView.class);
+
+        Map<String, String> expected = new HashMap<>();
+        expected.put(CustomView.class.getName(), VIEW);
+        expected.put(ExtendedView.class.getName(), CustomView.class.getName());
+        expected.put(NotAView.class.getName(), Object.class.getName());
+        assertEquals(expected, BytecodeScanner.scanSuperClasses(jar));
+    }
+
+    @Test
+    public void findsTheViewClassesOfAJar() throws IOException {
+        File jar = createJar("classes.jar", CustomView.class, ExtendedView.class,
+                NotAView.class);
+
+        ViewClassIndex index = ViewClassIndex.load(Collections.singletonList(jar), null);
+
+        List<String> viewClasses = new ArrayList<>();
+        for (ViewClass viewClass : index.getViewClasses(jar)) {
+            viewClasses.add(viewClass.getClassName());
+        }
+        Collections.sort(viewClasses);
+        assertEquals(Arrays.asList(CustomView.class.getName(), ExtendedView.class.getName()),
+                viewClasses);
+        assertEquals(Arrays.asList(CustomView.class.getName(), VIEW),
+                index.getViewClass(ExtendedView.class.getName()).getSuperClasses());
+        assertNull(index.getViewClass(NotAView.class.getName()));
+    }
+
+    @Test
+    public void roundTripsTheIndexFile() throws IOException {
+        File jar = createJar("classes.jar", CustomView.class, ExtendedView.class,
+                NotAView.class);
+        File indexDirectory = temporaryFolder.newFolder("view-index");
+
+        ViewClassIndex.load(Collections.singletonList(jar), indexDirectory);
+
+        File[] indexFiles = indexDirectory.listFiles();
+        assertEquals(1, indexFiles.length);
+        assertEquals(BytecodeScanner.scanSuperClasses(jar),
+                ViewClassIndex.readIndex(indexFiles[0]));
+    }
+
+    @Test
+    public void deletesTheIndicesOfJarsThatAreNoLongerLoaded() throws IOException {
+        File first = createJar("first.jar", CustomView.class);
+        File second = createJar("second.jar", ExtendedView.class);
+        File indexDirectory = temporaryFolder.newFolder("view-index");
+        ViewClassIndex.load(Arrays.asList(first, second), indexDirectory);
+        assertEquals(2, indexDirectory.listFiles().length);
+
+        ViewClassIndex.load(Collections.singletonList(first), indexDirectory);
+
+        File[] indexFiles = indexDirectory.listFiles();
+        assertEquals(1, indexFiles.length);
+        assertEquals(Collections.singletonMap(CustomView.class.getName(), VIEW),
+                ViewClassIndex.readIndex(indexFiles[0]));
+    }
+
+    @Test
+    public void replacesTheIndexOfAModifiedJar() throws IOException {
+        File jar = createJar("classes.jar", CustomView.class);
+        File indexDirectory = temporaryFolder.newFolder("view-index");
+        ViewClassIndex.load(Collections.singletonList(jar), indexDirectory);
+        File oldIndex = indexDirectory.listFiles()[0];
+
+        createJar("classes.jar", CustomView.class, ExtendedView.class);
+        assertTrue(jar.setLastModified(jar.lastModified() + 10_000));
+        ViewClassIndex index = ViewClassIndex.load(Collections.singletonList(jar),
+                indexDirectory);
+
+        assertFalse(oldIndex.exists());
+        assertEquals(1, indexDirectory.listFiles().length);
+        assertEquals(2, index.getViewClasses(jar).size());
+    }
+
+    private File createJar(String name, Class<?>... classes) throws IOException {
+        File jar = new File(temporaryFolder.getRoot(), name);
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            for (Class<?> c : classes) {
+                String entryName = c.getName().replace('.', '/') + ".class";
+                out.putNextEntry(new JarEntry(entryName));
+                try (InputStream in = c.getClassLoader().getResourceAsStream(entryName)) {
+                    byte[] buffer = new byte[8192];
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, read);
+                    }
+                }
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+}